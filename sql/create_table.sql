@@ -56,11 +56,16 @@ create table chat_history
     messageType varchar(32)                        not null comment 'user/ai',
     appId       bigint                             not null comment '应用id',
     userId      bigint                             not null comment '创建用户id',
-    createTime  datetime default CURRENT_TIMESTAMP not null comment '创建时间',
-    updateTime  datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    createTime  datetime(3) default CURRENT_TIMESTAMP(3) not null comment '创建时间',
+    updateTime  datetime(3) default CURRENT_TIMESTAMP(3) not null on update CURRENT_TIMESTAMP(3) comment '更新时间',
     isDelete    tinyint  default 0                 not null comment '是否删除',
     INDEX idx_appId (appId),                       -- 提升基于应用的查询性能
     INDEX idx_createTime (createTime),             -- 提升基于时间的查询性能
     INDEX idx_appId_createTime (appId, createTime) -- 游标查询核心索引
 ) comment '对话历史' collate = utf8mb4_unicode_ci;
 
+-- 已有库升级：对话历史时间改为毫秒精度（同一秒内的消息按写入顺序排序，游标翻页不重不漏）
+-- alter table chat_history
+--     modify createTime datetime(3) default CURRENT_TIMESTAMP(3) not null comment '创建时间',
+--     modify updateTime datetime(3) default CURRENT_TIMESTAMP(3) not null on update CURRENT_TIMESTAMP(3) comment '更新时间';
+
@@ -1,5 +1,6 @@
 package com.sht.zdaicode.ai;
 
+import com.sht.zdaicode.annotation.MemoizedAiCall;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
 import dev.langchain4j.service.SystemMessage;
 
@@ -17,6 +18,7 @@ public interface AiCodeGenTypeRoutingService {
      * @param userPrompt 用户输入的需求描述
      * @return 推荐的代码生成类型
      */
+    @MemoizedAiCall
     @SystemMessage(fromResource = "prompt/codegen-routing-system-prompt.txt")
     CodeGenTypeEnum routeCodeGenType(String userPrompt);
 
@@ -26,6 +28,7 @@ public interface AiCodeGenTypeRoutingService {
      * @param userPrompt 用户输入的需求描述
      * @return 推荐的Vue项目场景(创建模式/编辑模式)
      */
+    @MemoizedAiCall
     @SystemMessage(fromResource = "prompt/codegen-vue-project-scenario-routing-system-prompt.txt")
     CodeGenTypeEnum routeVueProjectScenario(String userPrompt);
 
@@ -35,6 +38,7 @@ public interface AiCodeGenTypeRoutingService {
      * @param userPrompt 全栈需求与 Schema 描述
      * @return 推荐的全栈前端生成类型
      */
+    @MemoizedAiCall
     @SystemMessage(fromResource = "prompt/codegen-fullstack-routing-system-prompt.txt")
     CodeGenTypeEnum routeFullStackCodeGenType(String userPrompt);
 }
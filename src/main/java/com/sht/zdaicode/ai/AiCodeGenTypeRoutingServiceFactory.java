@@ -1,5 +1,6 @@
 package com.sht.zdaicode.ai;
 
+import com.sht.zdaicode.ai.memo.AiCallMemoizer;
 import com.sht.zdaicode.utils.SpringContextUtil;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
@@ -17,6 +18,8 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class AiCodeGenTypeRoutingServiceFactory {
 
+    @Resource
+    private AiCallMemoizer aiCallMemoizer;
 
     /**
      * 创建AI代码生成类型路由服务实例
@@ -24,9 +27,10 @@ public class AiCodeGenTypeRoutingServiceFactory {
 
     public AiCodeGenTypeRoutingService createAiCodeGenTypeRoutingService() {
         ChatModel chatModel = SpringContextUtil.getBean("routingChatModelPrototype", ChatModel.class);
-        return AiServices.builder(AiCodeGenTypeRoutingService.class)
+        AiCodeGenTypeRoutingService service = AiServices.builder(AiCodeGenTypeRoutingService.class)
                 .chatModel(chatModel)
                 .build();
+        return aiCallMemoizer.wrap(AiCodeGenTypeRoutingService.class, service, chatModel);
     }
     @Bean
     public AiCodeGenTypeRoutingService aiCodeGenTypeRoutingService() {
@@ -1,10 +1,12 @@
 package com.sht.zdaicode.ai;
 
 import com.sht.zdaicode.ai.model.ApiContract;
+import com.sht.zdaicode.annotation.MemoizedAiCall;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 
 public interface ApiContractAiService {
+    @MemoizedAiCall
     @SystemMessage(fromResource = "prompt/api-contract-system-prompt.txt")
     ApiContract generateApiContract(@UserMessage String userMessage);
 }
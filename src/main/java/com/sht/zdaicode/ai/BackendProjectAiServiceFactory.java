@@ -66,7 +66,10 @@ public class BackendProjectAiServiceFactory {
      */
     public BackendProjectAiService getBackendProjectAiService(long appId, CodeGenTypeEnum scenario) {
         String cacheKey = buildCacheKey(appId, scenario);
-        return serviceCache.get(cacheKey, key -> createBackendProjectAiService(appId, scenario, null));
+        BackendProjectAiService service = serviceCache.get(cacheKey,
+                key -> createBackendProjectAiService(appId, scenario, getToolsByScenario(scenario)));
+        chatHistoryService.ensureChatMemoryLoaded(appId, 20);
+        return service;
     }
 
     /**
@@ -74,8 +77,15 @@ public class BackendProjectAiServiceFactory {
      */
     public BackendProjectAiService getBackendProjectAiServiceWithSmartTools(long appId, CodeGenTypeEnum scenario,
             String userMessage) {
-        // 对于智能工具选择，不使用缓存，每次都重新创建以确保工具集的准确性
-        return createBackendProjectAiService(appId, scenario, userMessage);
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            return getBackendProjectAiService(appId, scenario);
+        }
+        // 按工具集签名缓存，相同工具集复用同一个服务实例
+        List<Object> tools = smartToolSelector.selectOptimalTools(scenario, appId, userMessage);
+        String cacheKey = buildCacheKey(appId, scenario) + "_" + smartToolSelector.getToolSetSignature(tools);
+        BackendProjectAiService service = serviceCache.get(cacheKey, key -> createBackendProjectAiService(appId, scenario, tools));
+        chatHistoryService.ensureChatMemoryLoaded(appId, 20);
+        return service;
     }
 
     /**
@@ -88,8 +98,7 @@ public class BackendProjectAiServiceFactory {
     /**
      * 创建后端项目AI服务实例
      */
-    private BackendProjectAiService createBackendProjectAiService(long appId, CodeGenTypeEnum scenario,
-            String userMessage) {
+    private BackendProjectAiService createBackendProjectAiService(long appId, CodeGenTypeEnum scenario, List<Object> tools) {
         // 构建独立的对话记忆
         MessageWindowChatMemory chatMemory = MessageWindowChatMemory
                 .builder()
@@ -98,18 +107,8 @@ public class BackendProjectAiServiceFactory {
                 .maxMessages(20)
                 .build();
 
-        // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
-
-        // 根据场景和用户消息智能选择工具集
-        List<Object> tools;
-        if (userMessage != null && !userMessage.trim().isEmpty()) {
-            tools = smartToolSelector.selectOptimalTools(scenario, appId, userMessage);
-            log.info("为应用 {} 创建 {} 模式的Backend项目AI服务（智能选择），工具数量: {}", appId, scenario.getText(), tools.size());
-        } else {
-            tools = getToolsByScenario(scenario);
-            log.info("为应用 {} 创建 {} 模式的Backend项目AI服务（传统选择），工具数量: {}", appId, scenario.getText(), tools.size());
-        }
+        log.info("为应用 {} 创建 {} 模式的Backend项目AI服务，工具集: {}", appId, scenario.getText(),
+                smartToolSelector.getToolSetSignature(tools));
 
         // 暂无 Edit 模式，默认全走 BACKEND_JAVA（推理模型）
         StreamingChatModel selectedModel = scenario == CodeGenTypeEnum.valueOf("BACKEND_JAVA")
@@ -119,7 +118,7 @@ public class BackendProjectAiServiceFactory {
         return AiServices.builder(BackendProjectAiService.class)
                 .streamingChatModel(selectedModel)
                 .chatMemoryProvider(memoryId -> chatMemory)
-                .tools(tools)
+                .tools(toolManager.getToolExecutors(tools))
                 // .inputGuardrails(new PromptSafetyInputGuardrail())
                 .build();
     }
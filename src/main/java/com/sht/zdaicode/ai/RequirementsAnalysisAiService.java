@@ -1,9 +1,11 @@
 package com.sht.zdaicode.ai;
 
+import com.sht.zdaicode.annotation.MemoizedAiCall;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 
 public interface RequirementsAnalysisAiService {
+    @MemoizedAiCall
     @SystemMessage(fromResource = "prompt/requirements-analysis-system-prompt.txt")
     String analyzeRequirements(@UserMessage String userMessage);
 }
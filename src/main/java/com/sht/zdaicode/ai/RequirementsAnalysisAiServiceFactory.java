@@ -1,5 +1,6 @@
 package com.sht.zdaicode.ai;
 
+import com.sht.zdaicode.ai.memo.AiCallMemoizer;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
 import jakarta.annotation.Resource;
@@ -12,9 +13,13 @@ public class RequirementsAnalysisAiServiceFactory {
     @Qualifier("chatModelPrototype")
     private ChatModel chatModel;
 
+    @Resource
+    private AiCallMemoizer aiCallMemoizer;
+
     public RequirementsAnalysisAiService createService() {
-        return AiServices.builder(RequirementsAnalysisAiService.class)
+        RequirementsAnalysisAiService service = AiServices.builder(RequirementsAnalysisAiService.class)
                 .chatModel(chatModel)
                 .build();
+        return aiCallMemoizer.wrap(RequirementsAnalysisAiService.class, service, chatModel);
     }
 }
@@ -1,5 +1,6 @@
 package com.sht.zdaicode.ai;
 
+import com.sht.zdaicode.ai.tools.BaseTool;
 import com.sht.zdaicode.ai.tools.ToolManager;
 import com.sht.zdaicode.constant.AppConstant;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
@@ -12,6 +13,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 智能工具选择器
@@ -78,6 +80,19 @@ public class SmartToolSelector {
         };
     }
 
+    /**
+     * 生成工具集签名（按工具名排序拼接），相同工具集的 AI 服务实例可复用
+     *
+     * @param tools 工具列表
+     * @return 工具集签名
+     */
+    public String getToolSetSignature(List<Object> tools) {
+        return tools.stream()
+                .map(tool -> tool instanceof BaseTool baseTool ? baseTool.getToolName() : tool.getClass().getName())
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
     /**
      * 分析用户操作意图
      *
@@ -66,7 +66,10 @@ public class VueProjectAiServiceFactory {
      */
     public VueProjectAiService getVueProjectAiService(long appId, CodeGenTypeEnum scenario) {
         String cacheKey = buildCacheKey(appId, scenario);
-        return serviceCache.get(cacheKey, key -> createVueProjectAiService(appId, scenario, null));
+        VueProjectAiService service = serviceCache.get(cacheKey,
+                key -> createVueProjectAiService(appId, scenario, getToolsByScenario(scenario)));
+        chatHistoryService.ensureChatMemoryLoaded(appId, 20);
+        return service;
     }
 
     /**
@@ -79,8 +82,15 @@ public class VueProjectAiServiceFactory {
      */
     public VueProjectAiService getVueProjectAiServiceWithSmartTools(long appId, CodeGenTypeEnum scenario,
             String userMessage) {
-        // 对于智能工具选择，不使用缓存，每次都重新创建以确保工具集的准确性
-        return createVueProjectAiService(appId, scenario, userMessage);
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            return getVueProjectAiService(appId, scenario);
+        }
+        // 按工具集签名缓存，相同工具集复用同一个服务实例
+        List<Object> tools = smartToolSelector.selectOptimalTools(scenario, appId, userMessage);
+        String cacheKey = buildCacheKey(appId, scenario) + "_" + smartToolSelector.getToolSetSignature(tools);
+        VueProjectAiService service = serviceCache.get(cacheKey, key -> createVueProjectAiService(appId, scenario, tools));
+        chatHistoryService.ensureChatMemoryLoaded(appId, 20);
+        return service;
     }
 
     /**
@@ -95,10 +105,10 @@ public class VueProjectAiServiceFactory {
      *
      * @param appId       应用ID
      * @param scenario    场景
-     * @param userMessage 用户消息（可选，用于智能工具选择）
+     * @param tools       工具集
      * @return Vue项目AI服务实例
      */
-    private VueProjectAiService createVueProjectAiService(long appId, CodeGenTypeEnum scenario, String userMessage) {
+    private VueProjectAiService createVueProjectAiService(long appId, CodeGenTypeEnum scenario, List<Object> tools) {
         // 构建独立的对话记忆
         MessageWindowChatMemory chatMemory = MessageWindowChatMemory
                 .builder()
@@ -107,20 +117,8 @@ public class VueProjectAiServiceFactory {
                 .maxMessages(20)
                 .build();
 
-        // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
-
-        // 根据场景和用户消息智能选择工具集
-        List<Object> tools;
-        if (userMessage != null && !userMessage.trim().isEmpty()) {
-            // 使用智能工具选择器
-            tools = smartToolSelector.selectOptimalTools(scenario, appId, userMessage);
-            log.info("为应用 {} 创建 {} 模式的Vue项目AI服务（智能选择），工具数量: {}", appId, scenario.getText(), tools.size());
-        } else {
-            // 使用传统工具选择
-            tools = getToolsByScenario(scenario);
-            log.info("为应用 {} 创建 {} 模式的Vue项目AI服务（传统选择），工具数量: {}", appId, scenario.getText(), tools.size());
-        }
+        log.info("为应用 {} 创建 {} 模式的Vue项目AI服务，工具集: {}", appId, scenario.getText(),
+                smartToolSelector.getToolSetSignature(tools));
 
         StreamingChatModel selectedModel = scenario == CodeGenTypeEnum.VUE_PROJECT_EDIT
                 ? SpringContextUtil.getBean("streamingChatModelPrototype", StreamingChatModel.class)
@@ -128,7 +126,7 @@ public class VueProjectAiServiceFactory {
         return AiServices.builder(VueProjectAiService.class)
                 .streamingChatModel(selectedModel)
                 .chatMemoryProvider(memoryId -> chatMemory)
-                .tools(tools)
+                .tools(toolManager.getToolExecutors(tools))
                 // .inputGuardrails(new PromptSafetyInputGuardrail())
                 // .outputGuardrails(new RetryOutputGuardrail())
                 .build();
@@ -194,7 +192,7 @@ public class VueProjectAiServiceFactory {
         return AiServices.builder(VueProjectAiService.class)
                 .streamingChatModel(selectedModel)
                 .chatMemoryProvider(memoryId -> chatMemory)
-                .tools(tools)
+                .tools(toolManager.getToolExecutors(tools))
                 .build();
     }
 
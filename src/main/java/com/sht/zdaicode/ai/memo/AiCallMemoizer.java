@@ -0,0 +1,291 @@
+package com.sht.zdaicode.ai.memo;
+
+import cn.hutool.core.util.ObjectUtil;
+import com.sht.zdaicode.annotation.MemoizedAiCall;
+import com.sht.zdaicode.config.AiCallMemoConfig;
+import com.sht.zdaicode.model.vo.AiMemoStatsVO;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.service.SystemMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * AI 结构化调用缓存
+ * 用 JDK 动态代理包装 langchain4j 生成的 AI Service，标注了 {@link MemoizedAiCall} 的方法按
+ * 「方法 + 提示词模板与输出结构指纹 + 模型名 + 规范化入参」缓存结果，其余方法直接透传
+ * <p>
+ * AI Service 多由工厂按需创建、不是 Spring 代理对象，所以不用切面，而是在工厂中显式包装
+ */
+@Slf4j
+public class AiCallMemoizer {
+
+    public static final String CACHE_NAME = "ai_call_memo";
+
+    private static final Pattern HORIZONTAL_WHITESPACE = Pattern.compile("[ \\t\\x0B\\f\\u00A0\\u3000]+");
+
+    private static final Pattern TRAILING_SPACES = Pattern.compile(" +\n");
+
+    private final AiCallMemoConfig config;
+
+    private final CacheManager cacheManager;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 方法 -> 缓存 key 前缀（方法名 + 模板指纹），同一接口只计算一次
+     */
+    private final Map<Method, String> keyPrefixes = new ConcurrentHashMap<>();
+
+    private final Map<String, MethodStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存值：结果 + 产生该结果的那次模型调用耗时，用于统计命中节省的时间
+     */
+    private record MemoEntry(Object value, long latencyNanos) implements Serializable {
+    }
+
+    private static final class MethodStats {
+
+        final LongAdder hits = new LongAdder();
+
+        final LongAdder misses = new LongAdder();
+
+        final LongAdder savedNanos = new LongAdder();
+
+        final Counter hitCounter;
+
+        final Counter missCounter;
+
+        final Counter savedSecondsCounter;
+
+        MethodStats(String method, MeterRegistry meterRegistry) {
+            this.hitCounter = requestCounter(meterRegistry, method, "hit");
+            this.missCounter = requestCounter(meterRegistry, method, "miss");
+            this.savedSecondsCounter = Counter.builder("ai.memo.saved.seconds")
+                    .description("命中缓存省下的模型调用耗时（秒）")
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+
+        private static Counter requestCounter(MeterRegistry meterRegistry, String method, String result) {
+            return Counter.builder("ai.memo.requests")
+                    .description("AI 结构化调用缓存请求数")
+                    .tag("method", method)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+
+    public AiCallMemoizer(AiCallMemoConfig config, CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 包装 AI Service
+     *
+     * @param serviceClass AI Service 接口
+     * @param delegate     langchain4j 生成的实现
+     * @param chatModel    该服务使用的模型（取模型名参与缓存 key）
+     * @return 带缓存的代理；未启用或接口没有标注方法时返回原对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T wrap(Class<T> serviceClass, T delegate, ChatModel chatModel) {
+        boolean annotated = Arrays.stream(serviceClass.getMethods())
+                .anyMatch(method -> method.isAnnotationPresent(MemoizedAiCall.class));
+        if (!config.isEnabled() || !annotated) {
+            return delegate;
+        }
+        String modelName = resolveModelName(chatModel);
+        return (T) Proxy.newProxyInstance(serviceClass.getClassLoader(), new Class<?>[]{serviceClass},
+                (proxy, method, args) -> method.isAnnotationPresent(MemoizedAiCall.class)
+                        ? invokeMemoized(serviceClass, delegate, method, args, modelName)
+                        : invokeDelegate(delegate, method, args));
+    }
+
+    /**
+     * 各方法的缓存统计
+     */
+    public List<AiMemoStatsVO> getStats() {
+        return stats.entrySet().stream()
+                .map(entry -> {
+                    MethodStats methodStats = entry.getValue();
+                    long hits = methodStats.hits.sum();
+                    long misses = methodStats.misses.sum();
+                    return new AiMemoStatsVO(entry.getKey(), hits, misses,
+                            TimeUnit.NANOSECONDS.toMillis(methodStats.savedNanos.sum()),
+                            hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+                })
+                .sorted(Comparator.comparing(AiMemoStatsVO::getMethod))
+                .toList();
+    }
+
+    private Object invokeMemoized(Class<?> serviceClass, Object delegate, Method method, Object[] args,
+                                  String modelName) throws Throwable {
+        String methodName = serviceClass.getSimpleName() + "." + method.getName();
+        MethodStats methodStats = stats.computeIfAbsent(methodName, name -> new MethodStats(name, meterRegistry));
+        String key = keyPrefixes.computeIfAbsent(method, m -> methodName + ":" + fingerprint(m))
+                + ":" + digest(modelName + "\n" + normalizeArgs(args));
+
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        MemoEntry cached = readCache(cache, key);
+        if (cached != null) {
+            methodStats.hits.increment();
+            methodStats.hitCounter.increment();
+            methodStats.savedNanos.add(cached.latencyNanos());
+            methodStats.savedSecondsCounter.increment(cached.latencyNanos() / 1e9);
+            log.debug("AI 调用命中缓存: {}", methodName);
+            return copyOf(cached.value());
+        }
+
+        methodStats.misses.increment();
+        methodStats.missCounter.increment();
+        long startNanos = System.nanoTime();
+        Object result = invokeDelegate(delegate, method, args);
+        long latencyNanos = System.nanoTime() - startNanos;
+        if (result instanceof Serializable && cache != null) {
+            try {
+                // 写入副本，调用方后续修改返回对象不会影响 L1 中的缓存值
+                cache.put(key, new MemoEntry(copyOf(result), latencyNanos));
+            } catch (RuntimeException e) {
+                log.warn("写入 AI 调用缓存失败: {}, {}", methodName, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private MemoEntry readCache(Cache cache, String key) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            return wrapper != null && wrapper.get() instanceof MemoEntry entry ? entry : null;
+        } catch (RuntimeException e) {
+            // Redis 不可用时退化为直接调用模型
+            log.warn("读取 AI 调用缓存失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Object invokeDelegate(Object delegate, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 枚举与字符串不可变，直接返回；其他结构化结果返回深拷贝
+     */
+    private static Object copyOf(Object value) {
+        if (value == null || value instanceof String || value instanceof Enum<?>) {
+            return value;
+        }
+        return value instanceof Serializable ? ObjectUtil.cloneByStream(value) : value;
+    }
+
+    /**
+     * 入参规范化：统一换行符，合并行内连续空白，去掉行尾与首尾空白
+     */
+    static String normalizeArgs(Object[] args) {
+        if (args == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Object arg : args) {
+            String text = String.valueOf(arg).replace("\r\n", "\n").replace('\r', '\n');
+            text = HORIZONTAL_WHITESPACE.matcher(text).replaceAll(" ");
+            text = TRAILING_SPACES.matcher(text).replaceAll("\n");
+            builder.append(text.strip()).append('\u0000');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 方法指纹：方法签名 + 版本号 + 系统提示词内容 + 返回类型的字段结构，任何一项变化都使旧缓存失效
+     */
+    private static String fingerprint(Method method) {
+        StringBuilder builder = new StringBuilder(method.toGenericString())
+                .append('\n').append(method.getAnnotation(MemoizedAiCall.class).version());
+        SystemMessage systemMessage = method.getAnnotation(SystemMessage.class);
+        if (systemMessage != null) {
+            builder.append('\n').append(String.join("\n", systemMessage.value()));
+            if (!systemMessage.fromResource().isEmpty()) {
+                builder.append('\n').append(readResource(method.getDeclaringClass(), systemMessage.fromResource()));
+            }
+        }
+        appendStructure(builder, method.getReturnType(), new HashMap<>());
+        return digest(builder.toString()).substring(0, 16);
+    }
+
+    private static void appendStructure(StringBuilder builder, Class<?> type, Map<Class<?>, Boolean> visited) {
+        if (type.isPrimitive() || type.getName().startsWith("java.") || visited.put(type, true) != null) {
+            return;
+        }
+        builder.append('\n').append(type.getName());
+        if (type.isEnum()) {
+            Arrays.stream(type.getEnumConstants()).forEach(constant -> builder.append(' ').append(constant));
+            return;
+        }
+        for (Field field : type.getDeclaredFields()) {
+            builder.append(' ').append(field.getGenericType().getTypeName()).append(' ').append(field.getName());
+        }
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            appendStructure(builder, nested, visited);
+        }
+    }
+
+    private static String readResource(Class<?> owner, String resource) {
+        String path = resource.startsWith("/") ? resource.substring(1) : resource;
+        try (InputStream in = owner.getClassLoader().getResourceAsStream(path)) {
+            return in == null ? "" : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static String resolveModelName(ChatModel chatModel) {
+        try {
+            String modelName = chatModel.defaultRequestParameters().modelName();
+            return modelName != null ? modelName : chatModel.getClass().getName();
+        } catch (RuntimeException e) {
+            return chatModel.getClass().getName();
+        }
+    }
+
+    private static String digest(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -6,10 +6,11 @@ import lombok.NoArgsConstructor;
 
 /**
  * 流式消息响应基类
+ * 密封类型层次，生产者与处理器之间直接以对象形式在 Flux 中传递，无需 JSON 编解码
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class StreamMessage {
+public abstract sealed class StreamMessage permits AiResponseMessage, ToolRequestMessage, ToolExecutedMessage {
     private String type;
 }
@@ -1,11 +1,20 @@
 package com.sht.zdaicode.ai.tools;
 
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,6 +30,11 @@ public class ToolManager {
      */
     private final Map<String, BaseTool> toolMap = new HashMap<>();
 
+    /**
+     * 工具名称到工具规格与执行器的映射（启动时反射解析一次，构建 AI 服务时直接复用）
+     */
+    private final Map<String, Map<ToolSpecification, ToolExecutor>> toolExecutorMap = new HashMap<>();
+
     /**
      * 自动注入所有工具
      */
@@ -34,6 +48,7 @@ public class ToolManager {
     public void initTools() {
         for (BaseTool tool : tools) {
             toolMap.put(tool.getToolName(), tool);
+            toolExecutorMap.put(tool.getToolName(), buildToolExecutors(tool));
             log.info("注册工具: {} -> {}", tool.getToolName(), tool.getDisplayName());
         }
         log.info("工具管理器初始化完成，共注册 {} 个工具", toolMap.size());
@@ -49,6 +64,36 @@ public class ToolManager {
         return toolMap.get(toolName);
     }
 
+    /**
+     * 获取一组工具的规格与执行器，用于 AiServices.tools(Map)，避免每次构建服务时重复反射解析
+     *
+     * @param tools 工具实例列表
+     * @return 工具规格 -> 执行器
+     */
+    public Map<ToolSpecification, ToolExecutor> getToolExecutors(List<Object> tools) {
+        Map<ToolSpecification, ToolExecutor> result = new LinkedHashMap<>();
+        for (Object tool : tools) {
+            Map<ToolSpecification, ToolExecutor> executors = tool instanceof BaseTool baseTool
+                    ? toolExecutorMap.get(baseTool.getToolName())
+                    : null;
+            result.putAll(executors != null ? executors : buildToolExecutors(tool));
+        }
+        return result;
+    }
+
+    /**
+     * 解析工具对象上所有 @Tool 方法
+     */
+    private Map<ToolSpecification, ToolExecutor> buildToolExecutors(Object tool) {
+        Map<ToolSpecification, ToolExecutor> executors = new LinkedHashMap<>();
+        for (Method method : tool.getClass().getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Tool.class)) {
+                executors.put(ToolSpecifications.toolSpecificationFrom(method), new DefaultToolExecutor(tool, method));
+            }
+        }
+        return Collections.unmodifiableMap(executors);
+    }
+
     /**
      * 获取已注册的工具集合
      *
@@ -0,0 +1,21 @@
+package com.sht.zdaicode.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在 AI Service 接口方法上，结果按「规范化入参 + 模型名 + 提示词模板」缓存
+ * 只适用于输出可视为入参纯函数的结构化调用（路由、规划、契约生成等），不要用于流式或带记忆的对话
+ * 需要通过 AiCallMemoizer.wrap 包装 AI Service 后生效
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MemoizedAiCall {
+
+    /**
+     * 提示词或输出结构有语义变化但模板文本不变时，修改版本号使旧缓存失效
+     */
+    String version() default "1";
+}
@@ -0,0 +1,34 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.ai.memo.AiCallMemoizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 结构化调用结果缓存配置
+ * L1 / L2 复用二级缓存（见 TieredCacheConfig），L2 过期时间在 RedisCacheManagerConfig 中按本配置设置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai-memo")
+@Data
+public class AiCallMemoConfig {
+
+    /**
+     * 是否启用，关闭后每次都调用模型
+     */
+    private boolean enabled = true;
+
+    /**
+     * Redis 中缓存结果的过期时间（小时）
+     */
+    private long ttlHours = 24;
+
+    @Bean
+    public AiCallMemoizer aiCallMemoizer(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        return new AiCallMemoizer(this, cacheManager, meterRegistry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.monitor.AiModelTelemetryListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 流式模型调用指标配置（首 token 耗时、token 间隔、输出速率、token 用量与费用）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai-telemetry")
+@Data
+public class AiModelTelemetryConfig {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 用户 / 应用分桶数，按桶统计用量，避免以 ID 作为标签导致指标数量无限增长
+     */
+    private int tenantBuckets = 8;
+
+    /**
+     * 各模型单价，key 为模型名（modelName），未配置的模型不统计费用
+     */
+    private Map<String, ModelPrice> pricing = new HashMap<>();
+
+    /**
+     * 模型单价（元 / 百万 token）
+     */
+    @Data
+    public static class ModelPrice {
+
+        /**
+         * 输入（未命中缓存）
+         */
+        private double inputPerMillion;
+
+        /**
+         * 输入（命中提示词缓存）
+         */
+        private double cachedInputPerMillion;
+
+        /**
+         * 输出
+         */
+        private double outputPerMillion;
+    }
+
+    @Bean
+    public AiModelTelemetryListener aiModelTelemetryListener(MeterRegistry meterRegistry) {
+        return new AiModelTelemetryListener(this, meterRegistry);
+    }
+}
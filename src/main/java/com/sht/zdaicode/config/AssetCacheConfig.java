@@ -0,0 +1,53 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.AssetResultCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 外部素材结果缓存配置（图片搜索、插画、Mermaid 架构图、Logo 生成）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "asset-cache")
+@Data
+public class AssetCacheConfig {
+
+    /**
+     * 是否启用，关闭后每次都请求外部服务（同一时刻的相同请求仍会合并）
+     */
+    private boolean enabled = true;
+
+    /**
+     * Redis key 前缀
+     */
+    private String keyPrefix = "zd-ai-code:asset:";
+
+    /**
+     * 未单独配置的来源使用的过期时间（分钟）
+     */
+    private long defaultTtlMinutes = 1440;
+
+    /**
+     * 各来源的过期时间（分钟），key 为 AssetProviderEnum 的 value
+     * Pixabay 要求搜索结果缓存不超过 24 小时；DashScope 生成图片的地址 24 小时后失效；Mermaid 结果为自有 OSS 地址
+     */
+    private Map<String, Long> ttlMinutes = new HashMap<>(Map.of(
+            "pexels", 7 * 1440L,
+            "pixabay_illustration", 1440L,
+            "pixabay_vector", 1440L,
+            "mermaid", 30 * 1440L,
+            "dashscope_logo", 720L
+    ));
+
+    @Bean
+    public AssetResultCache assetResultCache(StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        return new AssetResultCache(this, stringRedisTemplate, meterRegistry);
+    }
+}
@@ -0,0 +1,34 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.core.builder.BuildScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 构建调度配置（npm / Maven 构建统一排队执行）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "build-scheduler")
+@Data
+public class BuildSchedulerConfig {
+
+    /**
+     * 同时运行的构建数，0 表示 CPU 核数的一半（vite / javac 本身会占用多个核）
+     */
+    private int concurrency = 0;
+
+    /**
+     * 排队构建数上限，超出后拒绝提交
+     */
+    private int queueCapacity = 100;
+
+    @Bean(destroyMethod = "shutdown")
+    public BuildScheduler buildScheduler(MeterRegistry meterRegistry) {
+        int workers = concurrency > 0
+                ? concurrency : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BuildScheduler(workers, queueCapacity, meterRegistry);
+    }
+}
@@ -0,0 +1,60 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.ChatHistoryWriteBehindManager;
+import com.sht.zdaicode.mapper.ChatHistoryMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话历史异步批量写入配置
+ * 消息先进入内存有界队列，由后台线程按批次写入数据库
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat-history.write-behind")
+@Data
+public class ChatHistoryWriteBehindConfig {
+
+    /**
+     * 内存队列容量
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单批次最大写入条数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 消息入队后最长等待写库的时间（毫秒）
+     */
+    private long maxLatencyMillis = 500;
+
+    /**
+     * 队列已满时入队的最长等待时间（毫秒），超时后在调用线程同步写库
+     */
+    private long enqueueTimeoutMillis = 100;
+
+    /**
+     * 数据库不可用时的本地溢写文件（追加写，每行一条 JSON）
+     */
+    private String spillFilePath = "tmp/chat_history_spill.jsonl";
+
+    /**
+     * 溢写文件重放的最小间隔（秒）
+     */
+    private long spillReplayIntervalSeconds = 30;
+
+    /**
+     * 应用关闭时等待队列写完的超时时间（秒）
+     */
+    private long shutdownTimeoutSeconds = 10;
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public ChatHistoryWriteBehindManager chatHistoryWriteBehindManager(ChatHistoryMapper chatHistoryMapper,
+                                                                       MeterRegistry meterRegistry) {
+        return new ChatHistoryWriteBehindManager(this, chatHistoryMapper, meterRegistry);
+    }
+}
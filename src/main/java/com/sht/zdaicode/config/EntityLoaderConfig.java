@@ -0,0 +1,48 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.BatchEntityLoader;
+import com.sht.zdaicode.mapper.UserMapper;
+import com.sht.zdaicode.model.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 批量实体加载器配置
+ * 组装 VO 时合并关联实体的查询，避免 N+1
+ */
+@Configuration
+@ConfigurationProperties(prefix = "entity-loader")
+@Data
+public class EntityLoaderConfig {
+
+    /**
+     * 跨请求合并查询的时间窗口（毫秒）
+     */
+    private long batchWindowMillis = 2;
+
+    /**
+     * 单次查询最大 id 数
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * 本地缓存过期时间（秒）
+     */
+    private long cacheTtlSeconds = 5;
+
+    /**
+     * 本地缓存最大条目数
+     */
+    private long cacheMaximumSize = 10000;
+
+    @Bean(destroyMethod = "shutdown")
+    public BatchEntityLoader<User> userBatchLoader(UserMapper userMapper, MeterRegistry meterRegistry) {
+        return new BatchEntityLoader<>("user", userMapper::selectListByIds, User::getId,
+                batchWindowMillis, maxBatchSize, Duration.ofSeconds(cacheTtlSeconds), cacheMaximumSize, meterRegistry);
+    }
+}
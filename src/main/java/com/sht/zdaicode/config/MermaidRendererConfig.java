@@ -0,0 +1,62 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.MermaidRendererPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Mermaid 常驻渲染进程池配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "mermaid.renderer")
+@Data
+public class MermaidRendererConfig {
+
+    /**
+     * 是否启用常驻渲染进程，关闭后每张图单独执行一次 mmdc
+     */
+    private boolean enabled = true;
+
+    /**
+     * 常驻渲染进程数（每个进程持有一个无头浏览器，约 150~300MB 内存）
+     */
+    private int poolSize = 2;
+
+    /**
+     * 单张图渲染超时（秒），超时的渲染进程会被替换
+     */
+    private long renderTimeoutSeconds = 30;
+
+    /**
+     * 渲染进程启动超时（秒）
+     */
+    private long startupTimeoutSeconds = 60;
+
+    /**
+     * 等待空闲渲染进程的最长时间（秒）
+     */
+    private long queueTimeoutSeconds = 60;
+
+    /**
+     * 每个渲染进程最多渲染的图数，达到后重启以回收浏览器内存
+     */
+    private int maxRendersPerWorker = 500;
+
+    /**
+     * node 可执行文件
+     */
+    private String nodeExecutable = "node";
+
+    /**
+     * @mermaid-js/mermaid-cli 安装目录，为空时使用 npm 全局安装目录
+     */
+    private String cliHome = "";
+
+    @Bean(destroyMethod = "shutdown")
+    public MermaidRendererPool mermaidRendererPool(MeterRegistry meterRegistry) {
+        return new MermaidRendererPool(this, meterRegistry);
+    }
+}
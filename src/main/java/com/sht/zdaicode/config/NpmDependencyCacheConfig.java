@@ -0,0 +1,54 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.core.builder.NpmDependencyCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * npm 依赖缓存配置
+ * 依赖集合相同的前端项目共用一份安装好的 node_modules
+ */
+@Configuration
+@ConfigurationProperties(prefix = "npm-cache")
+@Data
+public class NpmDependencyCacheConfig {
+
+    /**
+     * 是否启用依赖缓存，关闭后每个项目独立执行 npm install
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存根目录
+     */
+    private String cacheDir = "tmp/npm_cache";
+
+    /**
+     * node_modules 挂载方式
+     */
+    private LinkMode linkMode = LinkMode.HARDLINK;
+
+    /**
+     * 最多保留的依赖集合数，超出后淘汰最久未使用的
+     */
+    private int maxEntries = 20;
+
+    public enum LinkMode {
+        /**
+         * 逐文件硬链接：项目拥有独立目录树，构建工具写入 node_modules/.vite 等不影响缓存；跨文件系统时退化为软链接
+         */
+        HARDLINK,
+        /**
+         * 整个 node_modules 软链接到缓存目录
+         */
+        SYMLINK
+    }
+
+    @Bean
+    public NpmDependencyCache npmDependencyCache(MeterRegistry meterRegistry) {
+        return new NpmDependencyCache(this, meterRegistry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.core.builder.BuildScheduler;
+import com.sht.zdaicode.core.preview.PreviewCdsArchive;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 预览后端 CDS（类数据共享）归档配置
+ * 生成的后端依赖集合基本一致，预先把这些依赖的类解析、校验后写入共享归档，预览 JVM 启动时直接映射
+ */
+@Configuration
+@ConfigurationProperties(prefix = "preview.cds")
+@Data
+public class PreviewCdsConfig {
+
+    /**
+     * 是否启用，关闭后预览进程直接 java -jar 启动
+     */
+    private boolean enabled = true;
+
+    /**
+     * 归档根目录，每套依赖模板 + JVM 组合一个子目录
+     */
+    private String archiveDir = "tmp/preview_cds";
+
+    /**
+     * 依赖模板 pom（Spring 资源路径），版本变化后自动重新生成归档
+     */
+    private String templatePom = "classpath:backend-template/pom.xml";
+
+    /**
+     * 训练应用源码（Spring 资源路径）
+     */
+    private String trainingSource = "classpath:backend-template/CdsTrainingApplication.java";
+
+    /**
+     * mvn 可执行文件
+     */
+    private String mavenExecutable = "mvn";
+
+    /**
+     * 下载依赖与训练运行各自的超时时间（秒）
+     */
+    private long generateTimeoutSeconds = 600;
+
+    @Bean
+    public PreviewCdsArchive previewCdsArchive(PreviewProcessConfig previewProcessConfig, BuildScheduler buildScheduler,
+                                               MeterRegistry meterRegistry) {
+        return new PreviewCdsArchive(this, previewProcessConfig, buildScheduler, meterRegistry);
+    }
+}
@@ -0,0 +1,109 @@
+package com.sht.zdaicode.config;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全栈预览后端进程配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "preview.process")
+@Data
+public class PreviewProcessConfig {
+
+    /**
+     * 预览端口范围（含起始，不含结束）
+     */
+    private int portRangeStart = 10000;
+
+    private int portRangeEnd = 50000;
+
+    /**
+     * 启动就绪超时时间（秒）
+     */
+    private long startupTimeoutSeconds = 90;
+
+    /**
+     * 就绪探测间隔（毫秒）
+     */
+    private long probeIntervalMillis = 200;
+
+    /**
+     * HTTP 就绪探测路径，为空时只探测 TCP 端口是否可连接
+     */
+    private String readinessPath = "";
+
+    /**
+     * 预览 JVM 最大堆（MB）
+     */
+    private int maxHeapMb = 256;
+
+    /**
+     * 预览 JVM 参数：串行 GC、只用 C1 编译，启动快、占用小
+     */
+    private List<String> jvmOptions = new ArrayList<>(List.of(
+            "-XX:+UseSerialGC",
+            "-XX:TieredStopAtLevel=1",
+            "-Xss512k",
+            "-XX:+ExitOnOutOfMemoryError"
+    ));
+
+    /**
+     * java 可执行文件，为空时使用当前 JVM 的 java
+     */
+    private String javaExecutable = "";
+
+    /**
+     * 每个预览进程保留的最近日志行数
+     */
+    private int logBufferLines = 500;
+
+    /**
+     * 预览数据库连接地址前缀（拼接库名）
+     */
+    private String jdbcUrlPrefix = "jdbc:mysql://localhost:3306/";
+
+    /**
+     * 无访问多久后自动停止预览进程（秒），再次经 /preview-api 访问时冷启动；0 表示不自动停止
+     * 生成的前端目前直接请求构建时注入的后端端口，不经过 /preview-api，停止后无法被冷启动，默认关闭
+     */
+    private long idleTimeoutSeconds = 0;
+
+    /**
+     * 单节点同时运行的预览进程上限，超出时停止最久未访问的预览
+     * 被停止的预览只能经 /preview-api 冷启动，因此与空闲停止一同生效（idleTimeoutSeconds > 0 时）
+     */
+    private int maxLivePreviews = 10;
+
+    /**
+     * 空闲检查间隔（秒）
+     */
+    private long reaperIntervalSeconds = 30;
+
+    /**
+     * 预览接口代理的单次请求超时（秒）
+     */
+    private long proxyTimeoutSeconds = 30;
+
+    /**
+     * 是否按需停止预览（空闲停止、超出上限淘汰），停止后经 /preview-api 访问时冷启动
+     */
+    public boolean isScaleToZeroEnabled() {
+        return idleTimeoutSeconds > 0;
+    }
+
+    /**
+     * 预览 JVM 使用的 java 可执行文件
+     */
+    public String resolveJavaExecutable() {
+        return StrUtil.isNotBlank(javaExecutable)
+                ? javaExecutable
+                : Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+}
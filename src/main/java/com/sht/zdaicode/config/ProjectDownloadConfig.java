@@ -0,0 +1,51 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.ParallelZipWriter;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.zip.Deflater;
+
+/**
+ * 项目代码下载配置
+ * 压缩包按文件清单哈希缓存在本地磁盘，未命中时多核并行压缩
+ */
+@Configuration
+@ConfigurationProperties(prefix = "project-download")
+@Data
+public class ProjectDownloadConfig {
+
+    /**
+     * 压缩包缓存目录
+     */
+    private String cacheDir = "tmp/download_cache";
+
+    /**
+     * 缓存目录总容量上限（字节），超出后按生成时间淘汰最旧的压缩包
+     */
+    private long maxCacheBytes = 1024L * 1024 * 1024;
+
+    /**
+     * 并行压缩线程数，0 表示使用 CPU 核数
+     */
+    private int compressionParallelism = 0;
+
+    /**
+     * 压缩级别（0-9，-1 为默认级别）
+     */
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * 并行压缩的单文件大小上限（字节），并行压缩需将文件整体读入内存，更大的文件改为顺序流式压缩
+     */
+    private long maxParallelEntryBytes = 4L * 1024 * 1024;
+
+    @Bean(destroyMethod = "shutdown")
+    public ParallelZipWriter parallelZipWriter() {
+        int parallelism = compressionParallelism > 0
+                ? compressionParallelism : Runtime.getRuntime().availableProcessors();
+        return new ParallelZipWriter(parallelism, compressionLevel, maxParallelEntryBytes);
+    }
+}
@@ -2,8 +2,8 @@ package com.sht.zdaicode.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sht.zdaicode.ai.memo.AiCallMemoizer;
 import jakarta.annotation.Resource;
-import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -15,14 +15,20 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 
+/**
+ * Redis 缓存管理器配置（作为二级缓存的 L2，见 TieredCacheConfig）
+ */
 @Configuration
 public class RedisCacheManagerConfig {
 
     @Resource
     private RedisConnectionFactory redisConnectionFactory;
 
+    @Resource
+    private AiCallMemoConfig aiCallMemoConfig;
+
     @Bean
-    public CacheManager cacheManager() {
+    public RedisCacheManager redisCacheManager() {
         // 配置 ObjectMapper 支持 Java8 时间类型
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
@@ -48,6 +54,9 @@ public class RedisCacheManagerConfig {
                 // 针对 good_app_page 配置5分钟过期
                 .withCacheConfiguration("good_app_page",
                         defaultConfig.entryTtl(Duration.ofMinutes(5)))
+                // AI 结构化调用结果缓存
+                .withCacheConfiguration(AiCallMemoizer.CACHE_NAME,
+                        defaultConfig.entryTtl(Duration.ofHours(aiCallMemoConfig.getTtlHours())))
                 .build();
     }
 }
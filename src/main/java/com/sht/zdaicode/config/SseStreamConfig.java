@@ -0,0 +1,43 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.core.handler.SseMessageEncoder;
+import com.sht.zdaicode.core.handler.SseTokenBatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成 SSE 流配置（token 合批 + 空闲心跳）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sse-stream")
+@Data
+public class SseStreamConfig {
+
+    /**
+     * 是否合批，关闭后每个 token 单独一个事件（心跳不受影响）
+     */
+    private boolean batchEnabled = true;
+
+    /**
+     * 合批最长等待（毫秒）：流空闲后的第一个 token 立即发送，之后到达的 token 最多等待这么久
+     */
+    private long maxDelayMillis = 50;
+
+    /**
+     * 单个事件最多累积的字符数，达到后立即发送
+     */
+    private int maxBatchChars = 4096;
+
+    /**
+     * 空闲心跳间隔（秒），超过该时间没有任何事件时发送 SSE 注释行，避免代理因长时间工具调用或构建断开连接；0 表示不发送
+     */
+    private long heartbeatSeconds = 15;
+
+    @Bean
+    public SseTokenBatcher sseTokenBatcher(SseMessageEncoder sseMessageEncoder, MeterRegistry meterRegistry) {
+        return new SseTokenBatcher(this, sseMessageEncoder, meterRegistry);
+    }
+}
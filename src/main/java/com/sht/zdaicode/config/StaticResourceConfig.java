@@ -0,0 +1,43 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.StaticResourceServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 静态资源服务配置（部署站点与预览站点）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "static-resource")
+@Data
+public class StaticResourceConfig {
+
+    /**
+     * 带内容哈希的构建产物（相对站点根目录的路径正则），命中后按 immutable 长期缓存
+     * 默认匹配 Vite 输出的 assets/index-BdF3k2Lq.js 形式
+     */
+    private String immutableAssetPattern = "^assets/.+[-.][A-Za-z0-9_-]{8,}\\.[A-Za-z0-9]+$";
+
+    /**
+     * immutable 资源的缓存时间（秒）
+     */
+    private long immutableMaxAgeSeconds = 31536000;
+
+    /**
+     * 允许放入内存热点缓存的单个文件上限（字节）
+     */
+    private long hotFileMaxBytes = 64 * 1024;
+
+    /**
+     * 内存热点缓存总容量（字节）
+     */
+    private long hotCacheMaxBytes = 32 * 1024 * 1024;
+
+    @Bean
+    public StaticResourceServer staticResourceServer(MeterRegistry meterRegistry) {
+        return new StaticResourceServer(this, meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.manager.TieredCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 二级缓存配置
+ * L1 为本节点 Caffeine 缓存，L2 为 Redis 缓存，节点间通过 Redis pub/sub 同步失效
+ */
+@Configuration
+@ConfigurationProperties(prefix = "cache.tiered")
+@Data
+public class TieredCacheConfig {
+
+    /**
+     * 每个缓存的 L1 最大条目数
+     */
+    private long localMaximumSize = 1000;
+
+    /**
+     * L1 写入后过期时间（秒），应小于 L2 的过期时间，作为失效广播丢失时的兜底
+     */
+    private long localExpireSeconds = 60;
+
+    /**
+     * 失效广播频道
+     */
+    private String invalidationChannel = "zd-ai-code:cache:invalidation";
+
+    @Bean
+    @Primary
+    public TieredCacheManager cacheManager(RedisCacheManager redisCacheManager,
+                                           StringRedisTemplate stringRedisTemplate,
+                                           MeterRegistry meterRegistry) {
+        return new TieredCacheManager(redisCacheManager, stringRedisTemplate, meterRegistry, this);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                           TieredCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(invalidationChannel));
+        return container;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工作流并发执行器配置
+ * 全局共享一套执行器，供 LangGraph 并行分支与图片收集任务使用
+ */
+@Configuration
+@ConfigurationProperties(prefix = "workflow.executor")
+@Data
+public class WorkflowExecutorConfig {
+
+    /**
+     * 并行分支执行器的最大并发数（虚拟线程）
+     */
+    private int parallelPoolSize = 32;
+
+    /**
+     * 并行分支执行器的等待队列容量
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * 各图片提供方的并发许可数，key 为 ImageCategoryEnum 的 value
+     */
+    private Map<String, Integer> providerPermits = new HashMap<>(Map.of(
+            "CONTENT", 8,
+            "ILLUSTRATION", 8,
+            "ARCHITECTURE", 2,
+            "LOGO", 4
+    ));
+
+    /**
+     * 未配置提供方时的默认并发许可数
+     */
+    private int defaultProviderPermits = 4;
+
+    /**
+     * 等待提供方许可的超时时间（秒）
+     */
+    private long permitTimeoutSeconds = 60;
+
+    /**
+     * 应用关闭时等待任务结束的超时时间（秒）
+     */
+    private long shutdownTimeoutSeconds = 30;
+
+    /**
+     * 分批前端生成：实体阶段的最大并发数
+     */
+    private int chunkedEntityConcurrency = 4;
+
+    /**
+     * 分批前端生成：单个实体的最大尝试次数（含首次）
+     */
+    private int chunkedEntityMaxAttempts = 3;
+
+    /**
+     * 分批前端生成：重试退避基数（毫秒），第 n 次重试等待 n 倍
+     */
+    private long chunkedRetryBackoffMillis = 2000;
+
+    /**
+     * 分批前端生成：单次调用预估的输出 token 数（计入 TPM 预算）
+     */
+    private long chunkedEstimatedOutputTokens = 4000;
+
+    /**
+     * 各模型的调用预算，key 为模型标识
+     */
+    private Map<String, ModelBudget> modelBudgets = new HashMap<>(Map.of(
+            "reasoning", new ModelBudget()
+    ));
+
+    /**
+     * 单个模型的调用预算
+     */
+    @Data
+    public static class ModelBudget {
+
+        /**
+         * 每分钟最大请求数
+         */
+        private int requestsPerMinute = 60;
+
+        /**
+         * 每分钟最大预估 token 数
+         */
+        private long tokensPerMinute = 200000;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public WorkflowExecutorManager workflowExecutorManager(MeterRegistry meterRegistry) {
+        return new WorkflowExecutorManager(this, meterRegistry);
+    }
+}
@@ -0,0 +1,37 @@
+package com.sht.zdaicode.config;
+
+import com.sht.zdaicode.monitor.WorkflowTimelineStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 工作流节点时间线配置（每次执行的节点耗时明细 + 节点耗时分布指标）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "workflow-timeline")
+@Data
+public class WorkflowTimelineConfig {
+
+    /**
+     * 是否记录时间线，关闭后仍导出节点耗时指标
+     */
+    private boolean enabled = true;
+
+    /**
+     * 内存中保留的最近执行数，超出后淘汰最早的执行
+     */
+    private int maxExecutions = 200;
+
+    /**
+     * 单次执行最多保留的节点记录数
+     */
+    private int maxNodesPerExecution = 200;
+
+    @Bean
+    public WorkflowTimelineStore workflowTimelineStore(MeterRegistry meterRegistry) {
+        return new WorkflowTimelineStore(this, meterRegistry);
+    }
+}
@@ -2,7 +2,6 @@ package com.sht.zdaicode.controller;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.sht.zdaicode.ai.AiCodeGenTypeRoutingService;
@@ -12,6 +11,8 @@ import com.sht.zdaicode.common.DeleteRequest;
 import com.sht.zdaicode.common.ResultUtils;
 import com.sht.zdaicode.constant.AppConstant;
 import com.sht.zdaicode.constant.UserConstant;
+import com.sht.zdaicode.core.handler.SseTokenBatcher;
+import com.sht.zdaicode.core.preview.PreviewProcessManager;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.exception.ThrowUtils;
@@ -42,7 +43,6 @@ import reactor.core.publisher.Mono;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 应用 控制层。
@@ -57,6 +57,9 @@ public class AppController {
     @Resource
     private AppService appService;
 
+    @Resource
+    private SseTokenBatcher sseTokenBatcher;
+
     @Resource
     private UserService userService;
 
@@ -66,6 +69,9 @@ public class AppController {
     @Resource
     private CacheService cacheService;
 
+    @Resource
+    private PreviewProcessManager previewProcessManager;
+
 
 
     /**
@@ -90,16 +96,9 @@ public class AppController {
         User loginUser = userService.getLoginUser(request);
         // 调用服务生成代码（流式），传递 agent 参数
         Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser, agent);
-        // 转换为 ServerSentEvent 格式
-        return contentFlux
-                .map(chunk -> {
-                    // 将内容包装成JSON对象
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
+        // 转换为 ServerSentEvent 格式（token 合批后在 SSE 边界序列化一次，空闲时发送心跳）
+        // Agent 模式的每个片段是一条完整的结构化 JSON，前端逐事件解析，不能合批
+        return sseTokenBatcher.toEvents(contentFlux, !agent)
                 .concatWith(Mono.just(
                         // 发送结束事件
                         ServerSentEvent.<String>builder()
@@ -165,7 +164,35 @@ public class AppController {
         // 6. 生成下载文件名（不建议添加中文内容）
         String downloadFileName = String.valueOf(appId);
         // 7. 调用通用下载服务
-        projectDownloadService.downloadProjectAsZip(sourceDirPath, downloadFileName, response);
+        projectDownloadService.downloadProjectAsZip(sourceDirPath, downloadFileName, request, response);
+    }
+
+    /**
+     * 预览后端日志（SSE）：先推送最近的日志，再持续推送新日志，进程退出后结束
+     *
+     * @param appId   应用ID
+     * @param request 请求
+     * @return 日志流
+     */
+    @GetMapping(value = "/preview/logs/{appId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamPreviewLogs(@PathVariable Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        // 只有应用创建者可以查看预览日志
+        User loginUser = userService.getLoginUser(request);
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限查看该应用日志");
+        }
+        return previewProcessManager.streamLogs(appId)
+                .map(line -> ServerSentEvent.<String>builder().data(line).build())
+                .concatWith(Mono.just(
+                        // 发送结束事件
+                        ServerSentEvent.<String>builder()
+                                .event("done")
+                                .data("")
+                                .build()
+                ));
     }
 
 
@@ -297,7 +324,7 @@ public class AppController {
     @PostMapping("/good/list/page/vo")
     @Cacheable(
             value = "good_app_page",
-            key = "T(com.sht.zdaicode.utils.CacheKeyUtils).generateKey(#appQueryRequest)",
+            key = "T(com.sht.zdaicode.utils.CacheKeyUtils).generateGoodAppPageKey(#appQueryRequest)",
             condition = "#appQueryRequest.pageNum <= 10"
     )
     public BaseResponse<Page<AppVO>> listGoodAppVOByPage(@RequestBody AppQueryRequest appQueryRequest) {
@@ -1,16 +1,21 @@
 package com.sht.zdaicode.controller;
 
+import com.sht.zdaicode.ai.memo.AiCallMemoizer;
 import com.sht.zdaicode.annotation.AuthCheck;
 import com.sht.zdaicode.common.BaseResponse;
 import com.sht.zdaicode.common.ResultUtils;
 import com.sht.zdaicode.constant.UserConstant;
+import com.sht.zdaicode.model.vo.AiMemoStatsVO;
 import com.sht.zdaicode.service.CacheService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 /**
  * 缓存管理控制器
  */
@@ -22,6 +27,20 @@ public class CacheController {
     @Resource
     private CacheService cacheService;
 
+    @Resource
+    private AiCallMemoizer aiCallMemoizer;
+
+    /**
+     * AI 结构化调用缓存统计（省下的调用次数与耗时）
+     *
+     * @return 各 AI Service 方法的统计
+     */
+    @GetMapping("/admin/ai-memo/stats")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<AiMemoStatsVO>> getAiMemoStats() {
+        return ResultUtils.success(aiCallMemoizer.getStats());
+    }
+
     /**
      * 清除精选应用缓存
      *
@@ -0,0 +1,162 @@
+package com.sht.zdaicode.controller;
+
+import cn.hutool.core.util.StrUtil;
+import com.sht.zdaicode.config.PreviewProcessConfig;
+import com.sht.zdaicode.constant.UserConstant;
+import com.sht.zdaicode.core.preview.PreviewProcessManager;
+import com.sht.zdaicode.exception.ErrorCode;
+import com.sht.zdaicode.exception.ThrowUtils;
+import com.sht.zdaicode.model.entity.App;
+import com.sht.zdaicode.model.entity.User;
+import com.sht.zdaicode.ratelimiter.annotation.RateLimit;
+import com.sht.zdaicode.ratelimiter.enums.RateLimitType;
+import com.sht.zdaicode.service.AppService;
+import com.sht.zdaicode.service.UserService;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 全栈预览后端接口代理
+ * 访问格式：http://localhost:8123/api/preview-api/{appId}/{后端接口路径}
+ * 预览后端已被空闲停止时，请求会等待冷启动就绪后再转发；冷启动仅限已部署的应用或应用创建者 / 管理员，按 IP 限流
+ */
+@Slf4j
+@RestController
+@RequestMapping("/preview-api")
+public class PreviewProxyController {
+
+    private static final String PREFIX = "/preview-api/";
+
+    /**
+     * 不转发的请求头：逐跳头、由 HttpClient 自行生成的头，以及平台自身的会话 Cookie
+     */
+    private static final Set<String> SKIPPED_REQUEST_HEADERS = Set.of(
+            "host", "connection", "keep-alive", "proxy-authorization", "proxy-connection", "te", "trailer",
+            "transfer-encoding", "upgrade", "content-length", "expect", "cookie");
+
+    private static final Set<String> SKIPPED_RESPONSE_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "te", "trailer", "transfer-encoding", "upgrade",
+            "content-length", ":status");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    @Resource
+    private PreviewProcessManager previewProcessManager;
+
+    @Resource
+    private PreviewProcessConfig previewProcessConfig;
+
+    @Resource
+    private AppService appService;
+
+    @Resource
+    private UserService userService;
+
+    @RequestMapping("/{appId}/**")
+    @RateLimit(limitType = RateLimitType.IP, rate = 100, rateInterval = 10, message = "预览接口请求过于频繁，请稍后再试")
+    public void proxy(@PathVariable Long appId, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            Integer port = previewProcessManager.getServingPort(appId);
+            if (port == null) {
+                // 冷启动会占用一个预览名额并可能淘汰其他预览，只允许已部署的应用或应用创建者 / 管理员触发
+                checkColdStartAllowed(appId, request);
+                port = previewProcessManager.ensureRunning(appId);
+            }
+            HttpResponse<InputStream> upstream = httpClient.send(buildUpstreamRequest(appId, port, request),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            response.setStatus(upstream.statusCode());
+            upstream.headers().map().forEach((name, values) -> {
+                if (!SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase())) {
+                    values.forEach(value -> response.addHeader(name, value));
+                }
+            });
+            upstream.headers().firstValueAsLong("content-length").ifPresent(response::setContentLengthLong);
+            try (InputStream body = upstream.body()) {
+                body.transferTo(response.getOutputStream());
+            }
+        } catch (HttpTimeoutException e) {
+            log.warn("预览接口响应超时: appId={}", appId);
+            sendError(response, HttpStatus.GATEWAY_TIMEOUT);
+        } catch (ConnectException e) {
+            log.warn("预览后端连接失败: appId={}, {}", appId, e.getMessage());
+            sendError(response, HttpStatus.BAD_GATEWAY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(response, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            // 多为客户端中断连接
+            log.debug("预览接口代理中断: appId={}, {}", appId, e.getMessage());
+        } catch (RuntimeException e) {
+            // 业务异常（如预览后端不存在、启动失败）交给全局异常处理器
+            throw e;
+        } catch (Exception e) {
+            log.error("预览接口代理异常: appId={}", appId, e);
+            sendError(response, HttpStatus.BAD_GATEWAY);
+        }
+    }
+
+    private void checkColdStartAllowed(Long appId, HttpServletRequest request) {
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (StrUtil.isNotBlank(app.getDeployKey())) {
+            return;
+        }
+        User loginUser = userService.getLoginUser(request);
+        ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()) && !UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole()),
+                ErrorCode.NO_AUTH_ERROR, "无权启动该应用的预览");
+    }
+
+    private HttpRequest buildUpstreamRequest(Long appId, int port, HttpServletRequest request) throws IOException {
+        String pathWithinMapping = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String path = pathWithinMapping.substring((PREFIX + appId).length());
+        String query = request.getQueryString();
+        URI uri = URI.create("http://127.0.0.1:" + port + (path.isEmpty() ? "/" : path)
+                + (query == null ? "" : "?" + query));
+
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(previewProcessConfig.getProxyTimeoutSeconds()))
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (SKIPPED_REQUEST_HEADERS.contains(name.toLowerCase())) {
+                continue;
+            }
+            for (String value : Collections.list(request.getHeaders(name))) {
+                builder.header(name, value);
+            }
+        }
+        builder.setHeader("X-Forwarded-For", request.getRemoteAddr());
+        builder.setHeader("X-Forwarded-Prefix", request.getContextPath() + PREFIX + appId);
+        return builder.build();
+    }
+
+    private void sendError(HttpServletResponse response, HttpStatus status) {
+        if (!response.isCommitted()) {
+            response.setStatus(status.value());
+        }
+    }
+}
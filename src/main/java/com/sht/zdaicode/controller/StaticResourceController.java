@@ -1,20 +1,20 @@
 package com.sht.zdaicode.controller;
 
 import com.sht.zdaicode.constant.AppConstant;
+import com.sht.zdaicode.manager.StaticResourceServer;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.HandlerMapping;
 
-import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -23,15 +23,24 @@ import java.nio.file.Paths;
 @RequestMapping("/static")
 public class StaticResourceController {
 
+    private static final String DEPLOY_PREFIX = "/static/";
+
+    private static final String PREVIEW_PREFIX = "/static/preview/";
+
+    @Resource
+    private StaticResourceServer staticResourceServer;
+
     /**
      * 提供部署后的静态资源访问
      * 访问格式：http://localhost:8123/api/static/{deployKey}[/{fileName}]
      */
     @GetMapping("/{deployKey}/**")
-    public ResponseEntity<Resource> serveDeployedResource(
+    public void serveDeployedResource(
             @PathVariable String deployKey,
-            HttpServletRequest request) {
-        return serveStaticResource(deployKey, request, AppConstant.CODE_DEPLOY_ROOT_DIR);
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        Path basePath = Paths.get(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+        serveStaticResource(basePath, DEPLOY_PREFIX + deployKey, null, request, response);
     }
 
     /**
@@ -39,225 +48,77 @@ public class StaticResourceController {
      * 访问格式：http://localhost:8123/api/static/preview/{appKey}[/{fileName}]
      */
     @GetMapping("/preview/{appKey}/**")
-    public ResponseEntity<Resource> servePreviewResource(
+    public void servePreviewResource(
             @PathVariable String appKey,
-            HttpServletRequest request) {
-
-        // --- 核心修复逻辑开始 ---
-        // 根据 appKey 前缀判断项目类型，路由到不同的资源目录
-
-        // 1. 全栈项目 (key 通常以 fullstack_ 开头)：前端构建产物在 frontend/dist 目录下
-        if (appKey != null && appKey.toLowerCase().startsWith("fullstack_")) {
-            return serveFullStackProjectResource(appKey, request, AppConstant.CODE_OUTPUT_ROOT_DIR);
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        String keyPrefix = PREVIEW_PREFIX + appKey;
+        String lowerKey = appKey.toLowerCase();
+
+        // 1. 全栈项目 (key 通常以 fullstack_ 开头)：前端构建产物在 fullstack_app_{appId}/frontend/dist 目录下
+        //    请求 Key (如 FULLSTACK_421413026411491328) 与物理目录名不一致，取末尾 ID 映射到真实目录
+        if (lowerKey.startsWith("fullstack_")) {
+            String appId = appKey.substring(appKey.lastIndexOf("_") + 1);
+            Path basePath = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, "fullstack_app_" + appId, "frontend", "dist");
+            serveStaticResource(basePath, keyPrefix, "/frontend/dist/", request, response);
+            return;
         }
 
         // 2. Vue 项目 (key 通常以 vue_ 开头)：构建产物在 dist 目录下
-        if (appKey != null && appKey.toLowerCase().startsWith("vue_")) {
-            return serveVueProjectResource(appKey, request, AppConstant.CODE_OUTPUT_ROOT_DIR);
+        if (lowerKey.startsWith("vue_")) {
+            Path basePath = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, appKey, "dist");
+            serveStaticResource(basePath, keyPrefix, "/dist/", request, response);
+            return;
         }
 
         // 3. HTML / 多文件项目 (key 通常以 html_ 或 multi_ 开头)：资源直接在根目录下
-        return serveStaticResource(appKey, request, AppConstant.CODE_OUTPUT_ROOT_DIR);
-        // --- 核心修复逻辑结束 ---
+        Path basePath = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, appKey);
+        serveStaticResource(basePath, keyPrefix, null, request, response);
     }
 
     /**
-     * 全栈项目静态资源服务方法（处理 frontend/dist 目录）
+     * 统一静态资源服务方法
+     *
+     * @param basePath   站点根目录
+     * @param keyPrefix  请求路径中站点 Key 及之前的部分（如 /static/preview/vue_1）
+     * @param indexAlias 额外视为站点首页的路径（如 /dist/），可为空
      */
-    private ResponseEntity<Resource> serveFullStackProjectResource(
-            String resourceKey,
+    private void serveStaticResource(
+            Path basePath,
+            String keyPrefix,
+            String indexAlias,
             HttpServletRequest request,
-            String rootDir) {
+            HttpServletResponse response) {
         try {
-            // 获取资源路径
-            String resourcePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
-
-            // 根据请求路径确定前缀
-            String prefix = resourcePath.contains("/preview/") ? "/static/preview/" : "/static/";
-            resourcePath = resourcePath.substring((prefix + resourceKey).length());
+            String pathWithinMapping = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+            String resourcePath = pathWithinMapping.substring(keyPrefix.length());
 
             // 如果是目录访问（不带斜杠），重定向到带斜杠的URL
             if (resourcePath.isEmpty()) {
-                HttpHeaders headers = new HttpHeaders();
-                headers.add("Location", request.getRequestURI() + "/");
-                return new ResponseEntity<>(headers, HttpStatus.MOVED_PERMANENTLY);
+                response.setHeader(HttpHeaders.LOCATION, request.getRequestURI() + "/");
+                response.setStatus(HttpStatus.MOVED_PERMANENTLY.value());
+                return;
             }
 
             // 默认返回 index.html
-            if (resourcePath.equals("/") || resourcePath.equals("/frontend/dist/")) {
+            if (resourcePath.equals("/") || resourcePath.equals(indexAlias)) {
                 resourcePath = "/index.html";
             }
 
-            // ================= 核心修复逻辑开始 =================
-            // 解决请求 URL Key 与物理文件夹名称不一致的问题
-            // 1. 从 resourceKey (如 FULLSTACK_421413026411491328) 中提取出末尾的 ID
-            String appId = resourceKey.substring(resourceKey.lastIndexOf("_") + 1);
-
-            // 2. 映射到真实的物理目录 (拼装成 fullstack_app_421413026411491328)
-            String realDirName = "fullstack_app_" + appId;
-
-            // 3. 将 basePath 指向正确的真实物理目录下的 frontend/dist
-            Path basePath = Paths.get(rootDir, realDirName, "frontend", "dist");
-            // ================= 核心修复逻辑结束 =================
-
-            String cleanResourcePath = resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath;
-            Path fullPath = basePath.resolve(cleanResourcePath);
-            File file = fullPath.toFile();
-            String filePath = fullPath.toString();
-
-            log.info("全栈项目预览访问: 请求Key={}, 映射物理目录={}, 最终路径={}", resourceKey, realDirName, filePath);
-
-            if (!file.exists()) {
-                log.warn("全栈项目文件不存在: {}", filePath);
-                return ResponseEntity.notFound().build();
-            }
-
-            if (!file.canRead()) {
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-            }
-
-            Resource resource = new FileSystemResource(file);
-            return createResourceResponse(resource, filePath);
-
-        } catch (Exception e) {
-            log.error("全栈项目预览服务异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
-    }
-
-    /**
-     * Vue项目静态资源服务方法（处理 dist 目录）
-     */
-    private ResponseEntity<Resource> serveVueProjectResource(
-            String resourceKey,
-            HttpServletRequest request,
-            String rootDir) {
-        try {
-            // 获取资源路径
-            String resourcePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
-
-            // 根据请求路径确定前缀
-            String prefix = resourcePath.contains("/preview/") ? "/static/preview/" : "/static/";
-            resourcePath = resourcePath.substring((prefix + resourceKey).length());
-
-            // 如果是目录访问（不带斜杠），重定向到带斜杠的URL
-            if (resourcePath.isEmpty()) {
-                HttpHeaders headers = new HttpHeaders();
-                headers.add("Location", request.getRequestURI() + "/");
-                return new ResponseEntity<>(headers, HttpStatus.MOVED_PERMANENTLY);
-            }
-
-            // 默认返回 index.html
-            if (resourcePath.equals("/") || resourcePath.equals("/dist/")) {
-                resourcePath = "/index.html"; // 修正了原版可能导致 /dist/dist/index.html 的小隐患
-            }
-
-            // 强制将 basePath 指向 dist 目录
-            Path basePath = Paths.get(rootDir, resourceKey, "dist");
-
-            String cleanResourcePath = resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath;
-            Path fullPath = basePath.resolve(cleanResourcePath);
-            File file = fullPath.toFile();
-            String filePath = fullPath.toString();
-
-            log.info("Vue项目预览访问: resourceKey={}, filePath={}", resourceKey, filePath);
-
-            if (!file.exists()) {
-                log.warn("Vue项目文件不存在: {}", filePath);
-                return ResponseEntity.notFound().build();
-            }
-
-            if (!file.canRead()) {
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-            }
-
-            Resource resource = new FileSystemResource(file);
-            return createResourceResponse(resource, filePath);
-
-        } catch (Exception e) {
-            log.error("Vue项目预览服务异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
-    }
-
-    /**
-     * 通用静态资源服务方法 (HTML/多文件/部署后应用)
-     */
-    private ResponseEntity<Resource> serveStaticResource(
-            String resourceKey,
-            HttpServletRequest request,
-            String rootDir) {
-        try {
-            // 获取资源路径
-            String resourcePath = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
-
-            // 根据请求路径确定前缀
-            String prefix = resourcePath.contains("/preview/") ? "/static/preview/" : "/static/";
-            resourcePath = resourcePath.substring((prefix + resourceKey).length());
-
-            // 如果是目录访问（不带斜杠），重定向到带斜杠的URL
-            if (resourcePath.isEmpty()) {
-                HttpHeaders headers = new HttpHeaders();
-                headers.add("Location", request.getRequestURI() + "/");
-                return new ResponseEntity<>(headers, HttpStatus.MOVED_PERMANENTLY);
-            }
-
-            // 默认返回 index.html
-            if (resourcePath.equals("/")) {
-                resourcePath = "/index.html";
-            }
-
-            // 直接使用根目录
-            Path basePath = Paths.get(rootDir, resourceKey);
-            String cleanResourcePath = resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath;
-            Path fullPath = basePath.resolve(cleanResourcePath);
-            File file = fullPath.toFile();
-            String filePath = fullPath.toString();
-
-            log.info("静态资源访问: resourceKey={}, filePath={}", resourceKey, filePath);
-
-            if (!file.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            if (!file.canRead()) {
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-            }
-
-            Resource resource = new FileSystemResource(file);
-            return createResourceResponse(resource, filePath);
+            response.setHeader("Access-Control-Allow-Origin", "*");
+            response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
+            response.setHeader("Access-Control-Allow-Headers", "*");
 
+            log.debug("静态资源访问: basePath={}, resourcePath={}", basePath, resourcePath);
+            staticResourceServer.serve(basePath, resourcePath.substring(1), request, response);
+        } catch (IOException e) {
+            // 多为客户端中断连接（如取消下载、Range 续传），无需按服务异常处理
+            log.debug("静态资源输出中断: {}", e.getMessage());
         } catch (Exception e) {
             log.error("静态资源服务异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            if (!response.isCommitted()) {
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
         }
     }
-
-    /**
-     * 统一构建响应对象
-     */
-    private ResponseEntity<Resource> createResourceResponse(Resource resource, String filePath) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Content-Type", getContentTypeWithCharset(filePath));
-        headers.add("Access-Control-Allow-Origin", "*");
-        headers.add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        headers.add("Access-Control-Allow-Headers", "*");
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(resource);
-    }
-
-    /**
-     * 根据文件扩展名返回带字符编码的 Content-Type
-     */
-    private String getContentTypeWithCharset(String filePath) {
-        if (filePath.endsWith(".html")) return "text/html; charset=UTF-8";
-        if (filePath.endsWith(".css")) return "text/css; charset=UTF-8";
-        if (filePath.endsWith(".js")) return "application/javascript; charset=UTF-8";
-        if (filePath.endsWith(".png")) return "image/png";
-        if (filePath.endsWith(".jpg")) return "image/jpeg";
-        if (filePath.endsWith(".svg")) return "image/svg+xml";
-        return "application/octet-stream";
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.sht.zdaicode.controller;
+
+import com.sht.zdaicode.annotation.AuthCheck;
+import com.sht.zdaicode.common.BaseResponse;
+import com.sht.zdaicode.common.ResultUtils;
+import com.sht.zdaicode.constant.UserConstant;
+import com.sht.zdaicode.exception.ErrorCode;
+import com.sht.zdaicode.exception.ThrowUtils;
+import com.sht.zdaicode.model.vo.WorkflowTimelineVO;
+import com.sht.zdaicode.monitor.WorkflowTimelineStore;
+import jakarta.annotation.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 工作流节点时间线（排查慢执行：各节点耗时、重试、所在线程、token 用量）
+ */
+@RestController
+@RequestMapping("/workflow/timeline")
+public class WorkflowTimelineController {
+
+    @Resource
+    private WorkflowTimelineStore workflowTimelineStore;
+
+    /**
+     * 最近的工作流执行（新的在前）
+     *
+     * @param appId 只看某个应用，可选
+     * @param limit 最多返回条数
+     * @return 执行时间线列表
+     */
+    @GetMapping("/admin/list")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<WorkflowTimelineVO>> listRecent(@RequestParam(required = false) String appId,
+                                                             @RequestParam(defaultValue = "20") int limit) {
+        ThrowUtils.throwIf(limit <= 0 || limit > 200, ErrorCode.PARAMS_ERROR, "limit 取值 1~200");
+        return ResultUtils.success(workflowTimelineStore.listRecent(appId, limit));
+    }
+
+    /**
+     * 单次执行的节点时间线
+     *
+     * @param executionId 执行 ID（见工作流启动日志或列表接口）
+     * @return 执行时间线
+     */
+    @GetMapping("/admin/get")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<WorkflowTimelineVO> getTimeline(@RequestParam String executionId) {
+        WorkflowTimelineVO timelineVO = workflowTimelineStore.get(executionId);
+        ThrowUtils.throwIf(timelineVO == null, ErrorCode.NOT_FOUND_ERROR, "执行记录不存在或已淘汰");
+        return ResultUtils.success(timelineVO);
+    }
+
+    /**
+     * 单次执行的 Chrome Trace 文件，可直接拖入 chrome://tracing 或 ui.perfetto.dev 以火焰图查看
+     *
+     * @param executionId 执行 ID
+     * @return Trace Event 格式的 JSON（不包装 BaseResponse）
+     */
+    @GetMapping("/admin/trace")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public ResponseEntity<Map<String, Object>> getChromeTrace(@RequestParam String executionId) {
+        Map<String, Object> trace = workflowTimelineStore.toChromeTrace(executionId);
+        ThrowUtils.throwIf(trace == null, ErrorCode.NOT_FOUND_ERROR, "执行记录不存在或已淘汰");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"workflow-" + executionId + ".json\"")
+                .body(trace);
+    }
+}
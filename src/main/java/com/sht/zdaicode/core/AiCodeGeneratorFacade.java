@@ -1,18 +1,19 @@
 package com.sht.zdaicode.core;
 
-import cn.hutool.json.JSONUtil;
 import com.sht.zdaicode.ai.*;
 import com.sht.zdaicode.ai.model.HtmlCodeResult;
 import com.sht.zdaicode.ai.model.MultiFileCodeResult;
 import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.ai.model.message.ToolExecutedMessage;
 import com.sht.zdaicode.ai.model.message.ToolRequestMessage;
 import com.sht.zdaicode.constant.AppConstant;
 import com.sht.zdaicode.core.builder.VueProjectBuilder;
-import com.sht.zdaicode.core.parser.CodeParserExecutor;
 import com.sht.zdaicode.core.saver.CodeFileSaverExecutor;
+import com.sht.zdaicode.core.saver.StreamingCodeFileSaver;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
 import com.sht.zdaicode.model.enums.VueProjectScenarioEnum;
 import dev.langchain4j.model.chat.response.ChatResponse;
@@ -24,6 +25,7 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.sht.zdaicode.model.enums.VueProjectScenarioEnum.VUE_PROJECT_CREATE;
 import static com.sht.zdaicode.model.enums.VueProjectScenarioEnum.VUE_PROJECT_EDIT;
@@ -76,12 +78,25 @@ public class AiCodeGeneratorFacade {
 //    }
 
     /**
-     * 统一入口：根据类型生成并保存代码（流式）
+     * 统一入口：根据类型生成并保存代码（流式文本）
+     * 供工作流节点使用，将类型化消息直接渲染为文本
      *
      * @param userMessage     用户提示词
      * @param codeGenTypeEnum 生成类型
      */
     public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+        return generateAndSaveCodeMessageStream(userMessage, codeGenTypeEnum, appId)
+                .map(AiCodeGeneratorFacade::renderAsText);
+    }
+
+    /**
+     * 统一入口：根据类型生成并保存代码（流式类型化消息）
+     * 生产者与处理器之间直接传递 StreamMessage 对象，不进行 JSON 编解码
+     *
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     */
+    public Flux<StreamMessage> generateAndSaveCodeMessageStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
@@ -91,23 +106,23 @@ public class AiCodeGeneratorFacade {
                 //根据appId和生成类型获取相应的Ai服务实例
                 AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
                 Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId).<StreamMessage>map(AiResponseMessage::new);
             }
             case MULTI_FILE -> {
                 //根据appId和生成类型获取相应的Ai服务实例
                 AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
                 Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId).<StreamMessage>map(AiResponseMessage::new);
             }
             case FRONTEND_FULLSTACK_HTML -> {
                 AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
                 Flux<String> codeStream = aiCodeGeneratorService.generateFullStackHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId).<StreamMessage>map(AiResponseMessage::new);
             }
             case FRONTEND_FULLSTACK_MULTI_FILE -> {
                 AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
                 Flux<String> codeStream = aiCodeGeneratorService.generateFullStackMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId).<StreamMessage>map(AiResponseMessage::new);
             }
             case BACKEND_JAVA -> {
                 BackendProjectAiService backendProjectAiService = backendProjectAiServiceFactory.getBackendProjectAiServiceWithSmartTools(appId, codeGenTypeEnum, userMessage);
@@ -148,22 +163,32 @@ public class AiCodeGeneratorFacade {
         };
     }
 
-    private Flux<String> processTokenStream(TokenStream tokenStream, Long appId, CodeGenTypeEnum codeGenTypeEnum) {
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream, Long appId, CodeGenTypeEnum codeGenTypeEnum) {
         return Flux.create(sink -> {
             tokenStream.onPartialResponse((String partialResponse) -> {
-                        sink.next(partialResponse);
+                        sink.next(new AiResponseMessage(partialResponse));
                     })
                     .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                        sink.next(String.format("\n> 🛠️ **正在执行操作**: `%s`\n", toolExecutionRequest.name()));
+                        sink.next(new ToolRequestMessage(toolExecutionRequest));
                     })
                     .onToolExecuted((ToolExecution toolExecution) -> {
-                        sink.next("\n> ✅ 操作执行完毕\n\n");
+                        sink.next(new ToolExecutedMessage(toolExecution));
                     })
                     .onCompleteResponse((ChatResponse completeResponse) -> {
-                        // 仅对纯前端模式（VUE_PROJECT_CREATE, VUE_PROJECT_EDIT）进行同步构建，全栈模式由后续节点处理
+                        // 仅对纯前端模式（VUE_PROJECT_CREATE, VUE_PROJECT_EDIT）进行构建，全栈模式由后续节点处理
+                        // 构建交给调度器排队，不阻塞模型回调线程，构建结束后再结束流
                         if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT_CREATE || codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT_EDIT) {
                             String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + "/vue_project_create_" + appId;
-                            vueProjectBuilder.buildProject(projectPath);
+                            try {
+                                vueProjectBuilder.submitBuild(projectPath, BuildPriorityEnum.INTERACTIVE)
+                                        .result()
+                                        .whenComplete((success, error) -> sink.complete());
+                            } catch (Exception e) {
+                                // 构建队列已满等情况：代码已生成完毕，照常结束流，部署时会重新构建
+                                log.warn("提交构建失败，appId: {}, 原因: {}", appId, e.getMessage());
+                                sink.complete();
+                            }
+                            return;
                         }
                         sink.complete();
                     })
@@ -175,31 +200,60 @@ public class AiCodeGeneratorFacade {
         });
     }
 
+    /**
+     * 将类型化消息渲染为工作流节点展示的文本
+     *
+     * @param message 流式消息
+     * @return 展示文本
+     */
+    private static String renderAsText(StreamMessage message) {
+        return switch (message) {
+            case AiResponseMessage aiResponseMessage -> aiResponseMessage.getData();
+            case ToolRequestMessage toolRequestMessage ->
+                    String.format("\n> 🛠️ **正在执行操作**: `%s`\n", toolRequestMessage.getName());
+            case ToolExecutedMessage toolExecutedMessage -> "\n> ✅ 操作执行完毕\n\n";
+        };
+    }
+
 
     /**
      * 通用流式代码处理方法
+     * 边接收边解析，每个代码块闭合后立即落盘，无需缓存完整响应
      *
      * @param codeStream  代码流
      * @param codeGenType 代码生成类型
      * @return 流式响应
      */
     private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-        StringBuilder codeBuilder = new StringBuilder();
-        return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            // 流式返回完成后保存代码
-            try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                // 使用执行器保存代码
-                File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
-                log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-            } catch (Exception e) {
-                log.error("保存失败: {}", e.getMessage());
-            }
+        return Flux.defer(() -> {
+            // 每次订阅使用独立的流式保存器
+            StreamingCodeFileSaver streamingSaver = CodeFileSaverExecutor.createStreamingSaver(codeGenType, appId);
+            AtomicBoolean saveFailed = new AtomicBoolean(false);
+            return codeStream.doOnNext(chunk -> {
+                // 实时解析代码片段并落盘
+                if (saveFailed.get()) {
+                    return;
+                }
+                try {
+                    streamingSaver.accept(chunk);
+                } catch (Exception e) {
+                    saveFailed.set(true);
+                    streamingSaver.abort();
+                    log.error("流式保存失败: {}", e.getMessage());
+                }
+            }).doOnComplete(() -> {
+                if (saveFailed.get()) {
+                    return;
+                }
+                try {
+                    File savedDir = streamingSaver.complete();
+                    log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
+                } catch (Exception e) {
+                    streamingSaver.abort();
+                    log.error("保存失败: {}", e.getMessage());
+                }
+            }).doOnError(error -> streamingSaver.abort())
+                    .doOnCancel(streamingSaver::abort);
         });
     }
-}
\ No newline at end of file
+}
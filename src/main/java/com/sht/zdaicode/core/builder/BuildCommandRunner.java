@@ -0,0 +1,90 @@
+package com.sht.zdaicode.core.builder;
+
+import cn.hutool.core.util.RuntimeUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构建命令执行（npm / Maven 共用）
+ * 子进程登记到构建句柄上，取消构建时由句柄终止
+ */
+@Slf4j
+final class BuildCommandRunner {
+
+    private BuildCommandRunner() {
+    }
+
+    /**
+     * 构建命令，Windows 下添加 .cmd 后缀
+     */
+    static String command(String baseCommand) {
+        if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+            return baseCommand + ".cmd";
+        }
+        return baseCommand;
+    }
+
+    /**
+     * 执行命令
+     *
+     * @param workingDir     工作目录
+     * @param command        命令字符串
+     * @param timeoutSeconds 超时时间（秒）
+     * @param handle         构建句柄（登记进程以支持取消）
+     * @return 是否执行成功
+     */
+    static boolean execute(File workingDir, String command, int timeoutSeconds, BuildHandle handle) {
+        if (handle.isCancelled()) {
+            return false;
+        }
+        try {
+            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
+            Process process = RuntimeUtil.exec(
+                    null,
+                    workingDir,
+                    command.split("\\s+") // 命令分割为数组
+            );
+            handle.attachProcess(process);
+            // 持续消费输出，防止管道缓冲区写满导致子进程阻塞
+            drainOutput(process.getInputStream(), command);
+            drainOutput(process.getErrorStream(), command);
+            // 等待进程完成，设置超时
+            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            if (!finished) {
+                log.error("命令执行超时（{}秒），强制终止进程", timeoutSeconds);
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                return false;
+            }
+            int exitCode = process.exitValue();
+            if (exitCode == 0) {
+                log.info("命令执行成功: {}", command);
+                return true;
+            } else {
+                log.error("命令执行失败，退出码: {}", exitCode);
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("执行命令失败: {}, 错误信息: {}", command, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void drainOutput(InputStream stream, String command) {
+        Thread.ofVirtual().start(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.debug("[{}] {}", command, line);
+                }
+            } catch (Exception ignored) {
+                // 进程结束或被终止
+            }
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package com.sht.zdaicode.core.builder;
+
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一次构建任务的句柄
+ * 同一构建 key 的并发调用方共享同一个句柄：共同等待结果、订阅进度、任一方可取消
+ * 构建动作通过句柄上报进度、登记子进程并检查是否已取消
+ */
+@Slf4j
+public class BuildHandle {
+
+    /**
+     * 晚加入的调用方可以看到的最近进度条数
+     */
+    private static final int PROGRESS_REPLAY_SIZE = 50;
+
+    @Getter
+    private final String buildKey;
+
+    @Getter
+    private volatile BuildPriorityEnum priority;
+
+    final long sequence;
+
+    final long submittedAtNanos = System.nanoTime();
+
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private final Sinks.Many<String> progressSink = Sinks.many().replay().limit(PROGRESS_REPLAY_SIZE);
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * 是否已被工作线程领取执行，与取消互斥：排队中取消直接结束，执行中取消只标记并终止子进程，由工作线程在动作返回后结束
+     */
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private volatile Process process;
+
+    BuildHandle(String buildKey, BuildPriorityEnum priority, long sequence) {
+        this.buildKey = buildKey;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+
+    /**
+     * 构建进度（阶段性消息），构建结束后完成
+     */
+    public Flux<String> progress() {
+        return progressSink.asFlux();
+    }
+
+    /**
+     * 构建结果，取消时以 CancellationException 结束
+     */
+    public CompletableFuture<Boolean> result() {
+        return result;
+    }
+
+    /**
+     * 阻塞等待构建结果（应在虚拟线程或工作流线程中调用）
+     *
+     * @return 是否构建成功，取消或异常时返回 false
+     */
+    public boolean await() {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (CancellationException e) {
+            log.info("构建已取消: {}", buildKey);
+            return false;
+        } catch (ExecutionException e) {
+            log.error("构建异常: {}", buildKey, e.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * 取消构建：排队中的直接结束；执行中的只标记并终止当前子进程，
+     * 句柄在构建动作真正返回后才结束，此前同一 key 不会开始新的构建
+     */
+    public void cancel() {
+        if (result.isDone() || cancelled) {
+            return;
+        }
+        cancelled = true;
+        report("构建已取消");
+        if (started.compareAndSet(false, true)) {
+            // 尚未开始执行，不会再有工作线程领取
+            complete(null, new CancellationException("构建已取消: " + buildKey));
+            return;
+        }
+        Process running = process;
+        if (running != null) {
+            running.descendants().forEach(ProcessHandle::destroyForcibly);
+            running.destroyForcibly();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * 上报一条构建进度
+     */
+    public void report(String message) {
+        progressSink.tryEmitNext(message);
+    }
+
+    /**
+     * 登记当前执行的子进程，取消时一并终止；已取消时立即终止
+     */
+    public void attachProcess(Process process) {
+        this.process = process;
+        if (cancelled) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * 工作线程领取执行
+     *
+     * @return 已取消或已被领取时返回 false
+     */
+    boolean tryStart() {
+        return started.compareAndSet(false, true);
+    }
+
+    void raisePriority(BuildPriorityEnum priority) {
+        if (priority.ordinal() < this.priority.ordinal()) {
+            this.priority = priority;
+        }
+    }
+
+    void complete(Boolean success, Throwable error) {
+        boolean completed = error == null ? result.complete(success) : result.completeExceptionally(error);
+        if (completed) {
+            progressSink.tryEmitComplete();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.sht.zdaicode.core.builder;
+
+import com.sht.zdaicode.exception.BusinessException;
+import com.sht.zdaicode.exception.ErrorCode;
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 构建调度器
+ * 1. 固定数量的工作线程从优先级队列取任务，限制同时运行的 npm / Maven 构建数
+ * 2. 同优先级按提交顺序执行，交互预览先于部署
+ * 3. 同一构建 key（通常为项目目录）在执行结束前的重复提交共享同一个句柄（single-flight），
+ *    高优先级的重复提交会提升排队中任务的优先级；已取消但仍在退出中的构建结束后，新的提交才开始排队
+ */
+@Slf4j
+public class BuildScheduler {
+
+    /**
+     * 构建动作
+     */
+    @FunctionalInterface
+    public interface BuildAction {
+
+        /**
+         * @param handle 构建句柄，用于上报进度、登记子进程、检查取消
+         * @return 是否构建成功
+         */
+        boolean run(BuildHandle handle) throws Exception;
+    }
+
+    private final PriorityBlockingQueue<BuildHandle> queue = new PriorityBlockingQueue<>(16,
+            Comparator.<BuildHandle>comparingInt(handle -> handle.getPriority().ordinal())
+                    .thenComparingLong(handle -> handle.sequence));
+
+    private final Map<String, BuildHandle> activeBuilds = new ConcurrentHashMap<>();
+
+    private final Map<BuildHandle, BuildAction> actions = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final int queueCapacity;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter sharedCounter;
+
+    public BuildScheduler(int concurrency, int queueCapacity, MeterRegistry meterRegistry) {
+        this.queueCapacity = queueCapacity;
+        this.meterRegistry = meterRegistry;
+        this.sharedCounter = Counter.builder("build.scheduler.shared")
+                .description("加入已有构建（single-flight）的提交次数")
+                .register(meterRegistry);
+        Gauge.builder("build.scheduler.queue.size", queue, PriorityBlockingQueue::size)
+                .description("排队中的构建数")
+                .register(meterRegistry);
+        Gauge.builder("build.scheduler.running", running, AtomicInteger::get)
+                .description("执行中的构建数")
+                .register(meterRegistry);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(Thread.ofVirtual().name("build-worker-" + i).start(this::workLoop));
+        }
+        log.info("构建调度器已启动，并发构建数: {}, 队列容量: {}", concurrency, queueCapacity);
+    }
+
+    /**
+     * 提交构建
+     *
+     * @param buildKey 构建 key，相同 key 的并发提交共享一次构建
+     * @param priority 优先级
+     * @param action   构建动作
+     * @return 构建句柄
+     */
+    public BuildHandle submit(String buildKey, BuildPriorityEnum priority, BuildAction action) {
+        while (true) {
+            BuildHandle existing = activeBuilds.get(buildKey);
+            if (existing != null && !existing.isDone() && !existing.isCancelled()) {
+                sharedCounter.increment();
+                raisePriority(existing, priority);
+                log.info("构建 {} 已在进行中，共享结果", buildKey);
+                return existing;
+            }
+            if (queue.size() >= queueCapacity) {
+                throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "构建任务过多，请稍后重试");
+            }
+            BuildHandle handle = new BuildHandle(buildKey, priority, sequence.incrementAndGet());
+            boolean registered = existing == null
+                    ? activeBuilds.putIfAbsent(buildKey, handle) == null
+                    : activeBuilds.replace(buildKey, existing, handle);
+            if (!registered) {
+                continue;
+            }
+            actions.put(handle, action);
+            // 结束（含取消）后释放 key
+            handle.result().whenComplete((success, error) -> {
+                activeBuilds.remove(buildKey, handle);
+                actions.remove(handle);
+                queue.remove(handle);
+            });
+            if (existing != null && !existing.isDone()) {
+                // 已取消但仍在执行的旧构建退出后再排队，同一项目目录不会同时运行两个构建
+                handle.report("等待已取消的构建退出");
+                existing.result().whenComplete((success, error) -> enqueue(handle));
+            } else {
+                enqueue(handle);
+            }
+            return handle;
+        }
+    }
+
+    private void enqueue(BuildHandle handle) {
+        if (handle.isDone()) {
+            return;
+        }
+        queue.offer(handle);
+        handle.report(String.format("构建已排队（%s，前方 %d 个任务）", handle.getPriority().getText(), queue.size() - 1));
+    }
+
+    /**
+     * 取消指定 key 的构建
+     *
+     * @return 是否存在进行中的构建
+     */
+    public boolean cancel(String buildKey) {
+        BuildHandle handle = activeBuilds.get(buildKey);
+        if (handle == null) {
+            return false;
+        }
+        handle.cancel();
+        return true;
+    }
+
+    public void shutdown() {
+        workers.forEach(Thread::interrupt);
+        List<BuildHandle> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(BuildHandle::cancel);
+        activeBuilds.values().forEach(BuildHandle::cancel);
+    }
+
+    private void raisePriority(BuildHandle handle, BuildPriorityEnum priority) {
+        if (priority.ordinal() >= handle.getPriority().ordinal()) {
+            return;
+        }
+        // 优先级参与队列排序，必须出队后再修改
+        synchronized (queue) {
+            boolean queued = queue.remove(handle);
+            handle.raisePriority(priority);
+            if (queued) {
+                queue.offer(handle);
+            }
+        }
+    }
+
+    private void workLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            BuildHandle handle;
+            try {
+                handle = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            BuildAction action = actions.get(handle);
+            if (action == null || !handle.tryStart()) {
+                continue;
+            }
+            execute(handle, action);
+        }
+    }
+
+    private void execute(BuildHandle handle, BuildAction action) {
+        String priority = handle.getPriority().getValue();
+        meterRegistry.timer("build.scheduler.wait", "priority", priority)
+                .record(System.nanoTime() - handle.submittedAtNanos, TimeUnit.NANOSECONDS);
+        running.incrementAndGet();
+        long startNanos = System.nanoTime();
+        String outcome = "failure";
+        try {
+            handle.report("开始构建");
+            boolean success = action.run(handle);
+            if (handle.isCancelled()) {
+                outcome = "cancelled";
+                handle.complete(null, new CancellationException("构建已取消: " + handle.getBuildKey()));
+            } else {
+                outcome = success ? "success" : "failure";
+                handle.report(success ? "构建完成" : "构建失败");
+                handle.complete(success, null);
+            }
+        } catch (Exception e) {
+            if (handle.isCancelled()) {
+                outcome = "cancelled";
+                handle.complete(null, new CancellationException("构建已取消: " + handle.getBuildKey()));
+            } else {
+                outcome = "error";
+                log.error("构建 {} 执行异常", handle.getBuildKey(), e);
+                handle.report("构建异常: " + e.getMessage());
+                handle.complete(null, e);
+            }
+        } finally {
+            running.decrementAndGet();
+            Timer.builder("build.duration")
+                    .description("构建耗时")
+                    .tag("priority", priority)
+                    .tag("result", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.sht.zdaicode.core.builder;
+
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+
+/**
+ * Java（Maven）后端项目构建
+ * 与 Vue 构建共用构建调度器：排队限流、同一目录 single-flight、取消时终止 mvn 进程
+ */
+@Slf4j
+@Component
+public class JavaProjectBuilder {
+
+    @Resource
+    private BuildScheduler buildScheduler;
+
+    /**
+     * 提交构建到调度器，同一后端目录的并发提交共享一次构建
+     *
+     * @param projectPath 后端项目根目录路径（含 pom.xml）
+     * @param priority    构建优先级
+     * @return 构建句柄（可等待结果、订阅进度、取消）
+     */
+    public BuildHandle submitBuild(String projectPath, BuildPriorityEnum priority) {
+        return buildScheduler.submit(buildKey(projectPath), priority, handle -> doBuildProject(projectPath, handle));
+    }
+
+    /**
+     * 取消项目正在排队或执行中的构建
+     *
+     * @param projectPath 后端项目根目录路径
+     * @return 是否存在进行中的构建
+     */
+    public boolean cancelBuild(String projectPath) {
+        return buildScheduler.cancel(buildKey(projectPath));
+    }
+
+    /**
+     * 构建 Java 项目（经调度器排队，阻塞等待结果）
+     *
+     * @param projectPath 后端项目根目录路径
+     * @return 是否构建成功
+     */
+    public boolean buildProject(String projectPath) {
+        return submitBuild(projectPath, BuildPriorityEnum.INTERACTIVE).await();
+    }
+
+    private static String buildKey(String projectPath) {
+        return "maven:" + new File(projectPath).getAbsolutePath();
+    }
+
+    /**
+     * 执行 mvn clean package，产物在 target 目录
+     */
+    private boolean doBuildProject(String projectPath, BuildHandle handle) {
+        File projectDir = new File(projectPath);
+        if (!new File(projectDir, "pom.xml").exists()) {
+            log.error("pom.xml 文件不存在: {}", projectPath);
+            return false;
+        }
+        log.info("开始构建 Java 项目: {}", projectPath);
+        handle.report("打包构建 (mvn clean package)");
+        String command = String.format("%s -B clean package -DskipTests", BuildCommandRunner.command("mvn"));
+        return BuildCommandRunner.execute(projectDir, command, 600, handle); // 10分钟超时
+    }
+}
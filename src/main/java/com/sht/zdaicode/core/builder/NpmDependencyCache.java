@@ -0,0 +1,395 @@
+package com.sht.zdaicode.core.builder;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sht.zdaicode.config.NpmDependencyCacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * npm 依赖层缓存
+ * 1. 以规范化后的 package.json 依赖声明 + 锁文件内容计算缓存 key
+ * 2. 每个 key 在缓存目录下保留一份安装好的 node_modules，未命中时在缓存目录中安装一次
+ * 3. 命中后通过硬链接（或软链接）挂载到项目目录，跳过 npm install
+ * <p>
+ * 依赖本地路径（file: / link: / workspace:）或声明了安装脚本的项目不走缓存
+ */
+@Slf4j
+public class NpmDependencyCache {
+
+    private static final String PACKAGE_JSON = "package.json";
+
+    private static final String NODE_MODULES = "node_modules";
+
+    /**
+     * 写在项目 node_modules 中的缓存 key，依赖未变化时重复构建直接复用
+     */
+    private static final String KEY_MARKER = ".dependency-cache-key";
+
+    /**
+     * 缓存条目中记录的安装耗时（秒），用于统计命中节省的时间
+     */
+    private static final String INSTALL_SECONDS_FILE = ".install-seconds";
+
+    private static final String STAGING_SUFFIX = ".staging-";
+
+    private static final List<String> DEPENDENCY_SECTIONS = List.of(
+            "dependencies", "devDependencies", "optionalDependencies", "peerDependencies", "overrides");
+
+    /**
+     * 参与缓存 key 计算并随 package.json 一起复制到安装目录的文件
+     */
+    private static final List<String> LOCK_FILES = List.of("package-lock.json", "npm-shrinkwrap.json", ".npmrc");
+
+    private static final Set<String> INSTALL_SCRIPTS = Set.of("preinstall", "install", "postinstall", "prepare");
+
+    private static final List<String> LOCAL_SPEC_PREFIXES = List.of("file:", "link:", "workspace:");
+
+    private final NpmDependencyCacheConfig config;
+
+    private final Path cacheRoot;
+
+    /**
+     * 正在安装的依赖集合，同一 key 的并发构建只安装一次
+     */
+    private final Map<String, CompletableFuture<Path>> installing = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter bypassCounter;
+
+    private final Counter savedSecondsCounter;
+
+    private final Timer installTimer;
+
+    public NpmDependencyCache(NpmDependencyCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.cacheRoot = Paths.get(config.getCacheDir()).toAbsolutePath().normalize();
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.bypassCounter = requestCounter(meterRegistry, "bypass");
+        this.savedSecondsCounter = Counter.builder("npm.dependency.cache.saved.seconds")
+                .description("依赖缓存命中节省的 npm install 时间（秒）")
+                .register(meterRegistry);
+        this.installTimer = Timer.builder("npm.dependency.install")
+                .description("依赖缓存未命中时 npm install 耗时")
+                .register(meterRegistry);
+        cleanStaging();
+    }
+
+    /**
+     * 为项目准备 node_modules
+     *
+     * @param projectDir 项目目录（包含 package.json）
+     * @param installer  在指定目录执行 npm install，返回是否成功
+     * @return node_modules 是否就绪
+     */
+    public boolean prepare(File projectDir, Predicate<File> installer) {
+        Path project = projectDir.toPath().toAbsolutePath();
+        String key = config.isEnabled() ? computeKey(project) : null;
+        if (key == null) {
+            bypassCounter.increment();
+            return installer.test(projectDir);
+        }
+        if (key.equals(readAttachedKey(project))) {
+            hitCounter.increment();
+            log.info("node_modules 与依赖声明一致，跳过 npm install: {}", project);
+            return true;
+        }
+        long startNanos = System.nanoTime();
+        Path entry = cacheRoot.resolve(key);
+        boolean cached = isComplete(entry);
+        try {
+            if (!cached) {
+                missCounter.increment();
+                entry = install(key, project, installer);
+                if (entry == null) {
+                    return false;
+                }
+            }
+            attach(entry, project, key);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException | CompletionException e) {
+            log.warn("依赖缓存不可用，在项目目录中直接安装: {}", e.getMessage());
+            return installer.test(projectDir);
+        }
+        if (cached) {
+            hitCounter.increment();
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+            double savedSeconds = readInstallSeconds(entry) - elapsedSeconds;
+            if (savedSeconds > 0) {
+                savedSecondsCounter.increment(savedSeconds);
+            }
+            log.info("依赖缓存命中，已挂载 node_modules（{}）: {}", key, project);
+        }
+        return true;
+    }
+
+    /**
+     * 在缓存目录中安装依赖，完成后原子地重命名为正式条目
+     *
+     * @return 缓存条目目录，安装失败时返回 null
+     */
+    private Path install(String key, Path project, Predicate<File> installer) throws IOException {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = installing.putIfAbsent(key, future);
+        if (existing != null) {
+            log.info("等待相同依赖集合的安装完成: {}", key);
+            return existing.join();
+        }
+        Path staging = cacheRoot.resolve(key + STAGING_SUFFIX + UUID.randomUUID());
+        try {
+            Path entry = cacheRoot.resolve(key);
+            if (isComplete(entry)) {
+                future.complete(entry);
+                return entry;
+            }
+            Files.createDirectories(staging);
+            Files.copy(project.resolve(PACKAGE_JSON), staging.resolve(PACKAGE_JSON));
+            for (String lockFile : LOCK_FILES) {
+                Path source = project.resolve(lockFile);
+                if (Files.isRegularFile(source)) {
+                    Files.copy(source, staging.resolve(lockFile));
+                }
+            }
+            long startNanos = System.nanoTime();
+            if (!installer.test(staging.toFile())) {
+                deleteRecursively(staging);
+                future.complete(null);
+                return null;
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+            installTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            Files.writeString(staging.resolve(INSTALL_SECONDS_FILE), String.valueOf(elapsedNanos / 1e9));
+            deleteRecursively(entry);
+            Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            evictIfNeeded(entry);
+            future.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(staging);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            installing.remove(key, future);
+        }
+    }
+
+    /**
+     * 将缓存中的 node_modules 挂载到项目目录
+     */
+    private void attach(Path entry, Path project, String key) throws IOException {
+        Path source = entry.resolve(NODE_MODULES);
+        Path target = project.resolve(NODE_MODULES);
+        deleteRecursively(target);
+        if (config.getLinkMode() == NpmDependencyCacheConfig.LinkMode.HARDLINK) {
+            try {
+                hardLinkTree(source, target);
+            } catch (IOException e) {
+                log.warn("硬链接 node_modules 失败，改为软链接: {}", e.getMessage());
+                deleteRecursively(target);
+                Files.createSymbolicLink(target, source);
+            }
+        } else {
+            Files.createSymbolicLink(target, source);
+        }
+        // 先删除再写入，避免改写与缓存共享 inode 的文件
+        Path marker = target.resolve(KEY_MARKER);
+        Files.deleteIfExists(marker);
+        Files.writeString(marker, key);
+    }
+
+    /**
+     * 复制目录结构并逐文件创建硬链接，包内的软链接（如 .bin）按原目标重建
+     */
+    private void hardLinkTree(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path link = target.resolve(source.relativize(file));
+                if (attrs.isSymbolicLink()) {
+                    Files.createSymbolicLink(link, Files.readSymbolicLink(file));
+                } else if (!file.getFileName().toString().equals(KEY_MARKER)) {
+                    Files.createLink(link, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 计算依赖集合的缓存 key，不适合缓存时返回 null
+     */
+    private String computeKey(Path project) {
+        try {
+            JSONObject packageJson = JSONUtil.parseObj(Files.readString(project.resolve(PACKAGE_JSON)));
+            JSONObject scripts = packageJson.getJSONObject("scripts");
+            if (packageJson.containsKey("workspaces")
+                    || (scripts != null && scripts.keySet().stream().anyMatch(INSTALL_SCRIPTS::contains))) {
+                return null;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String section : DEPENDENCY_SECTIONS) {
+                JSONObject dependencies = packageJson.getJSONObject(section);
+                if (dependencies == null) {
+                    continue;
+                }
+                // 依赖声明按名称排序，与书写顺序、缩进、其他字段无关
+                Map<String, String> sorted = new TreeMap<>();
+                dependencies.forEach((name, spec) -> sorted.put(name, String.valueOf(spec)));
+                for (Map.Entry<String, String> dependency : sorted.entrySet()) {
+                    String spec = dependency.getValue();
+                    if (LOCAL_SPEC_PREFIXES.stream().anyMatch(spec::startsWith)) {
+                        return null;
+                    }
+                    digest.update((section + ":" + dependency.getKey() + "@" + spec + "\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            for (String lockFile : LOCK_FILES) {
+                Path path = project.resolve(lockFile);
+                if (Files.isRegularFile(path)) {
+                    digest.update(("\0" + lockFile + "\0").getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(path));
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 24);
+        } catch (IOException | RuntimeException | NoSuchAlgorithmException e) {
+            log.warn("解析 package.json 失败，不使用依赖缓存: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String readAttachedKey(Path project) {
+        Path marker = project.resolve(NODE_MODULES).resolve(KEY_MARKER);
+        try {
+            return Files.isRegularFile(marker) ? Files.readString(marker).trim() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean isComplete(Path entry) {
+        return Files.isDirectory(entry.resolve(NODE_MODULES)) && Files.isRegularFile(entry.resolve(INSTALL_SECONDS_FILE));
+    }
+
+    private double readInstallSeconds(Path entry) {
+        try {
+            return Double.parseDouble(Files.readString(entry.resolve(INSTALL_SECONDS_FILE)).trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 超出条目数上限时，按最近使用时间淘汰（已硬链接到项目的文件不受影响）
+     */
+    private void evictIfNeeded(Path keep) {
+        try (Stream<Path> entries = Files.list(cacheRoot)) {
+            List<Path> complete = entries
+                    .filter(path -> !path.getFileName().toString().contains(STAGING_SUFFIX))
+                    .filter(this::isComplete)
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .toList();
+            int excess = complete.size() - config.getMaxEntries();
+            for (Path entry : complete) {
+                if (excess <= 0) {
+                    break;
+                }
+                if (!entry.equals(keep)) {
+                    log.info("淘汰依赖缓存: {}", entry.getFileName());
+                    deleteRecursively(entry);
+                    excess--;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理依赖缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清理上次进程异常退出遗留的安装目录
+     */
+    private void cleanStaging() {
+        if (!Files.isDirectory(cacheRoot)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.list(cacheRoot)) {
+            entries.filter(path -> path.getFileName().toString().contains(STAGING_SUFFIX))
+                    .forEach(this::deleteRecursively);
+        } catch (IOException e) {
+            log.warn("清理依赖缓存临时目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除文件或目录（软链接只删除链接本身）
+     */
+    private void deleteRecursively(Path path) {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("删除目录失败: {}, {}", path, e.getMessage());
+        }
+    }
+
+    private Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("npm.dependency.cache.requests")
+                .description("npm 依赖缓存请求数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
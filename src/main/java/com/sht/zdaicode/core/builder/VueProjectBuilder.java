@@ -1,41 +1,72 @@
 package com.sht.zdaicode.core.builder;
 
-import cn.hutool.core.util.RuntimeUtil;
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.util.concurrent.TimeUnit;
 
     @Slf4j
     @Component
     public class VueProjectBuilder {
 
+        @Resource
+        private NpmDependencyCache npmDependencyCache;
+
+        @Resource
+        private BuildScheduler buildScheduler;
+
         /**
          * 异步构建项目（不阻塞主流程）
          *
          * @param projectPath 项目路径
          */
         public void buildProjectAsync(String projectPath) {
-            // 在单独的线程中执行构建，避免阻塞主流程
-            Thread.ofVirtual().name("vue-builder-" + System.currentTimeMillis()).start(() -> {
-                try {
-                    buildProject(projectPath);
-                } catch (Exception e) {
-                    log.error("异步构建 Vue 项目时发生异常: {}", e.getMessage(), e);
-                }
-            });
+            // 交给构建调度器排队执行，避免无上限地并发构建
+            submitBuild(projectPath, BuildPriorityEnum.INTERACTIVE);
         }
 
+        /**
+         * 提交构建到调度器，同一项目目录的并发提交共享一次构建
+         *
+         * @param projectPath 项目根目录路径
+         * @param priority    构建优先级
+         * @return 构建句柄（可等待结果、订阅进度、取消）
+         */
+        public BuildHandle submitBuild(String projectPath, BuildPriorityEnum priority) {
+            String buildKey = "vue:" + new File(projectPath).getAbsolutePath();
+            return buildScheduler.submit(buildKey, priority, handle -> doBuildProject(projectPath, handle));
+        }
 
+    /**
+     * 取消项目正在排队或执行中的构建
+     *
+     * @param projectPath 项目根目录路径
+     * @return 是否存在进行中的构建
+     */
+    public boolean cancelBuild(String projectPath) {
+        return buildScheduler.cancel("vue:" + new File(projectPath).getAbsolutePath());
+    }
 
     /**
-     * 构建 Vue 项目
+     * 构建 Vue 项目（经调度器排队，阻塞等待结果）
      *
      * @param projectPath 项目根目录路径
      * @return 是否构建成功
      */
     public boolean buildProject(String projectPath) {
+        return submitBuild(projectPath, BuildPriorityEnum.INTERACTIVE).await();
+    }
+
+    /**
+     * 执行 Vue 项目构建
+     *
+     * @param projectPath 项目根目录路径
+     * @param handle      构建句柄
+     * @return 是否构建成功
+     */
+    private boolean doBuildProject(String projectPath, BuildHandle handle) {
         File projectDir = new File(projectPath);
         if (!projectDir.exists() || !projectDir.isDirectory()) {
             log.error("项目目录不存在: {}", projectPath);
@@ -48,13 +79,15 @@ import java.util.concurrent.TimeUnit;
             return false;
         }
         log.info("开始构建 Vue 项目: {}", projectPath);
-        // 执行 npm install
-        if (!executeNpmInstall(projectDir)) {
+        // 准备 node_modules：依赖集合命中缓存时直接挂载，否则执行 npm install
+        handle.report("准备依赖 (npm install)");
+        if (!npmDependencyCache.prepare(projectDir, dir -> executeNpmInstall(dir, handle))) {
             log.error("npm install 执行失败");
             return false;
         }
         // 执行 npm run build
-        if (!executeNpmBuild(projectDir)) {
+        handle.report("打包构建 (npm run build)");
+        if (!executeNpmBuild(projectDir, handle)) {
             log.error("npm run build 执行失败");
             return false;
         }
@@ -72,74 +105,18 @@ import java.util.concurrent.TimeUnit;
     /**
      * 执行 npm install 命令
      */
-    private boolean executeNpmInstall(File projectDir) {
+    private boolean executeNpmInstall(File projectDir, BuildHandle handle) {
         log.info("执行 npm install...");
-        String command = String.format("%s install", buildCommand("npm"));
-        return executeCommand(projectDir, command, 300); // 5分钟超时
+        String command = String.format("%s install", BuildCommandRunner.command("npm"));
+        return BuildCommandRunner.execute(projectDir, command, 300, handle); // 5分钟超时
     }
 
     /**
      * 执行 npm run build 命令
      */
-    private boolean executeNpmBuild(File projectDir) {
+    private boolean executeNpmBuild(File projectDir, BuildHandle handle) {
         log.info("执行 npm run build...");
-        String command = String.format("%s run build", buildCommand("npm"));
-        return executeCommand(projectDir, command, 180); // 3分钟超时
+        String command = String.format("%s run build", BuildCommandRunner.command("npm"));
+        return BuildCommandRunner.execute(projectDir, command, 180, handle); // 3分钟超时
     }
-
-    /**
-     * 判断是否为Windows系统
-     */
-    private boolean isWindows(){
-        return System.getProperty("os.name").toLowerCase().contains("windows");
-    }
-
-    /**
-     * 构建命令，根据操作系统添加.cmd后缀
-     */
-    private String buildCommand(String baseCommand){
-        if(isWindows()){
-            return baseCommand + ".cmd";
-        }
-        return baseCommand;
-    }
-
-
-    /**
-     * 执行命令
-     *
-     * @param workingDir     工作目录
-     * @param command        命令字符串
-     * @param timeoutSeconds 超时时间（秒）
-     * @return 是否执行成功
-     */
-    private boolean executeCommand(File workingDir, String command, int timeoutSeconds) {
-        try {
-            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
-            Process process = RuntimeUtil.exec(
-                    null,
-                    workingDir,
-                    command.split("\\s+") // 命令分割为数组
-            );
-            // 等待进程完成，设置超时
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-            if (!finished) {
-                log.error("命令执行超时（{}秒），强制终止进程", timeoutSeconds);
-                process.destroyForcibly();
-                return false;
-            }
-            int exitCode = process.exitValue();
-            if (exitCode == 0) {
-                log.info("命令执行成功: {}", command);
-                return true;
-            } else {
-                log.error("命令执行失败，退出码: {}", exitCode);
-                return false;
-            }
-        } catch (Exception e) {
-            log.error("执行命令失败: {}, 错误信息: {}", command, e.getMessage());
-            return false;
-        }
-    }
-
 }
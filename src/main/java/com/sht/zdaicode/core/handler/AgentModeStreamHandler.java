@@ -1,5 +1,6 @@
 package com.sht.zdaicode.core.handler;
 
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.model.enums.ChatHistoryMessageTypeEnum;
 import com.sht.zdaicode.service.ChatHistoryService;
 import lombok.RequiredArgsConstructor;
@@ -27,7 +28,7 @@ public class AgentModeStreamHandler {
      * @param userId 用户ID
      * @param structured 是否使用结构化输出（Agent模式强制为true）
      */
-    public Flux<String> handleAgentStream(Flux<String> sourceStream, Long appId, String userMessage, Long userId, boolean structured) {
+    public Flux<String> handleAgentStream(Flux<StreamMessage> sourceStream, Long appId, String userMessage, Long userId, boolean structured) {
         // Agent模式统一使用结构化输出
         return structuredHandler.handleStructuredAgentStream(sourceStream, appId, userMessage, userId);
     }
@@ -35,7 +36,7 @@ public class AgentModeStreamHandler {
     /**
      * 处理Agent模式的流式输出（兼容旧版本，自动使用结构化输出）
      */
-    public Flux<String> handleAgentStream(Flux<String> sourceStream, Long appId, String userMessage, Long userId) {
+    public Flux<String> handleAgentStream(Flux<StreamMessage> sourceStream, Long appId, String userMessage, Long userId) {
         // 兼容旧版本调用，统一使用结构化输出
         return structuredHandler.handleStructuredAgentStream(sourceStream, appId, userMessage, userId);
     }
@@ -1,140 +1,60 @@
 package com.sht.zdaicode.core.handler;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
-import com.sht.zdaicode.ai.model.message.*;
-import com.sht.zdaicode.core.builder.VueProjectBuilder;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.model.entity.User;
 import com.sht.zdaicode.model.enums.ChatHistoryMessageTypeEnum;
 import com.sht.zdaicode.service.ChatHistoryService;
-import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.info.ProjectInfoProperties;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * JSON 消息流处理器
- * 处理 VUE_PROJECT 类型的复杂流式响应，包含工具调用信息
+ * 处理 VUE_PROJECT 类型的复杂流式响应，包含工具调用信息。
+ * 上游直接传递类型化的 StreamMessage 对象，处理过程中不再进行 JSON 编解码
  */
 @Slf4j
 @Component
 public class JsonMessageStreamHandler {
 
-
-
     /**
      * 处理 TokenStream（VUE_PROJECT）
-     * 解析 JSON 消息并重组为完整的响应格式
+     * 渲染类型化消息并重组为完整的响应格式
      *
-     * @param originFlux         原始流
+     * @param originFlux         原始消息流
      * @param chatHistoryService 聊天历史服务
      * @param appId              应用ID
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
-        // 收集数据用于生成后端记忆格式
-        StringBuilder chatHistoryStringBuilder = new StringBuilder();
-        // 用于跟踪已经见过的工具ID，判断是否是第一次调用
-        Set<String> seenToolIds = new HashSet<>();
-        return originFlux
-                .map(chunk -> {
-                    // 解析每个 JSON 消息块
-                    return handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds);
-                })
-                .filter(StrUtil::isNotEmpty) // 过滤空字串
-                .doOnComplete(() -> {
-                    // 流式响应完成后，添加 AI 消息到对话历史
-                    String aiResponse = chatHistoryStringBuilder.toString();
-                    chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-
-                })
-                .doOnError(error -> {
-                    // 如果AI回复失败，也要记录错误消息
-                    String errorMessage = "AI回复失败: " + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                });
-    }
-
-    /**
-     * 解析并收集 TokenStream 数据
-     */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds) {
-        // 解析 JSON
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
-        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
-        switch (typeEnum) {
-            case AI_RESPONSE -> {
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
-                String data = aiMessage.getData();
-                // 直接拼接响应
-                chatHistoryStringBuilder.append(data);
-                return data;
-            }
-            case TOOL_REQUEST -> {
-                ToolRequestMessage toolRequestMessage = JSONUtil.toBean(chunk, ToolRequestMessage.class);
-                String toolId = toolRequestMessage.getId();
-                // 检查是否是第一次看到这个工具 ID
-                if (toolId != null && !seenToolIds.contains(toolId)) {
-                    // 第一次调用这个工具，记录 ID 并完整返回工具信息
-                    seenToolIds.add(toolId);
-                    // 根据实际工具名称动态显示
-                    String toolName = getToolDisplayName(toolRequestMessage.getName());
-                    return String.format("\n\n[选择工具] %s\n\n", toolName);
-                } else {
-                    // 不是第一次调用这个工具，直接返回空
-                    return "";
-                }
-            }
-            case TOOL_EXECUTED -> {
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
-                JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
-                String relativeFilePath = jsonObject.getStr("relativeFilePath");
-                String suffix = FileUtil.getSuffix(relativeFilePath);
-                String content = jsonObject.getStr("content");
-                // 根据实际工具名称动态显示
-                String toolName = getToolDisplayName(toolExecutedMessage.getName());
-                String result = String.format("""
-                        [工具调用] %s %s
-                        ```%s
-                        %s
-                        ```
-                        """, toolName, relativeFilePath, suffix, content);
-                // 输出前端和要持久化的内容
-                String output = String.format("\n\n%s\n\n", result);
-                chatHistoryStringBuilder.append(output);
-                return output;
-            }
-            default -> {
-                log.error("不支持的消息类型: {}", typeEnum);
-                return "";
-            }
-        }
-    }
-
-    /**
-     * 根据工具名称获取显示名称
-     *
-     * @param toolName 工具名称
-     * @return 显示名称
-     */
-    private String getToolDisplayName(String toolName) {
-        return switch (toolName) {
-            case "writeFile" -> "写入文件";
-            case "readFile" -> "读取文件";
-            case "modifyFile" -> "修改文件";
-            case "deleteFile" -> "删除文件";
-            case "readDir" -> "读取目录";
-            default -> toolName; // 如果没有匹配的，返回原始名称
-        };
+        return Flux.defer(() -> {
+            // 收集数据用于生成后端记忆格式
+            StringBuilder chatHistoryStringBuilder = new StringBuilder();
+            StreamMessageFormatter formatter = new StreamMessageFormatter();
+            return originFlux
+                    .map(message -> {
+                        // 渲染每个消息
+                        String output = formatter.format(message);
+                        if (formatter.shouldPersist(message) && output != null) {
+                            chatHistoryStringBuilder.append(output);
+                        }
+                        return output;
+                    })
+                    .filter(StrUtil::isNotEmpty) // 过滤空字串
+                    .doOnComplete(() -> {
+                        // 流式响应完成后，添加 AI 消息到对话历史
+                        String aiResponse = chatHistoryStringBuilder.toString();
+                        chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                    })
+                    .doOnError(error -> {
+                        // 如果AI回复失败，也要记录错误消息
+                        String errorMessage = "AI回复失败: " + error.getMessage();
+                        chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                    });
+        });
     }
 }
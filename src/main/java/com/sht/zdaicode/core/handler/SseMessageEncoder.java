@@ -0,0 +1,50 @@
+package com.sht.zdaicode.core.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sht.zdaicode.exception.BusinessException;
+import com.sht.zdaicode.exception.ErrorCode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * SSE 消息编码器
+ * 流式输出仅在 SSE 边界序列化一次，使用预先构建的 Jackson ObjectWriter，避免每个 token 重复查找序列化器
+ */
+@Component
+public class SseMessageEncoder {
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter chunkWriter;
+
+    @PostConstruct
+    public void init() {
+        chunkWriter = objectMapper.writerFor(SseChunk.class);
+    }
+
+    /**
+     * 将内容编码为 {"d": ...} 格式的 JSON
+     *
+     * @param chunk 内容片段
+     * @return JSON 字符串
+     */
+    public String encode(String chunk) {
+        try {
+            return chunkWriter.writeValueAsString(new SseChunk(chunk));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "SSE 消息序列化失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * SSE 数据载体
+     *
+     * @param d 内容片段
+     */
+    public record SseChunk(String d) {
+    }
+}
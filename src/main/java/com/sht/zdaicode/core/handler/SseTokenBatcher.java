@@ -0,0 +1,248 @@
+package com.sht.zdaicode.core.handler;
+
+import com.sht.zdaicode.config.SseStreamConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE token 合批
+ * 每个 token 单独一个事件时，开销主要在逐事件序列化、Servlet flush 与系统调用上，这里把 token 合并后再编码发送：
+ * 1. 流空闲后的第一个 token 立即发送（不增加首 token 延迟），之后到达的 token 累积到 maxDelayMillis 或 maxBatchChars 先到者发送
+ * 2. 超过 heartbeatSeconds 没有任何事件时发送 SSE 注释行作为心跳，长时间的工具调用、构建期间代理不会断开连接
+ * <p>
+ * 合并后的事件仍是 {"d": ...} 格式，纯文本流前端按片段拼接即可；
+ * Agent 模式每个片段是一条独立的结构化 JSON（前端逐事件 JSON.parse），拼接后无法解析，因此只发心跳、不合批
+ */
+public class SseTokenBatcher {
+
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat").build();
+
+    private final SseStreamConfig config;
+
+    private final SseMessageEncoder sseMessageEncoder;
+
+    private final Counter tokenCounter;
+
+    private final Counter dataEventCounter;
+
+    private final Counter heartbeatCounter;
+
+    public SseTokenBatcher(SseStreamConfig config, SseMessageEncoder sseMessageEncoder, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.sseMessageEncoder = sseMessageEncoder;
+        this.tokenCounter = Counter.builder("sse.stream.tokens")
+                .description("SSE 流收到的内容片段数")
+                .register(meterRegistry);
+        this.dataEventCounter = Counter.builder("sse.stream.events")
+                .description("SSE 流发出的事件数")
+                .tag("type", "data")
+                .register(meterRegistry);
+        this.heartbeatCounter = Counter.builder("sse.stream.events")
+                .description("SSE 流发出的事件数")
+                .tag("type", "heartbeat")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 将内容片段流转换为合批后的 SSE 事件流（不含结束事件）
+     *
+     * @param tokens 内容片段
+     * @return SSE 事件
+     */
+    public Flux<ServerSentEvent<String>> toEvents(Flux<String> tokens) {
+        return toEvents(tokens, true);
+    }
+
+    /**
+     * 将内容片段流转换为 SSE 事件流（不含结束事件）
+     *
+     * @param tokens   内容片段
+     * @param coalesce 是否合批；片段是各自独立的结构化消息（Agent 模式）时传 false，每个片段一个事件，仍发送心跳
+     * @return SSE 事件
+     */
+    public Flux<ServerSentEvent<String>> toEvents(Flux<String> tokens, boolean coalesce) {
+        return Flux.create(sink -> new Stream(sink, newCoalescer(coalesce)).subscribe(tokens));
+    }
+
+    /**
+     * 新建一个合批器（非线程安全，每个流一个）
+     *
+     * @param coalesce 为 false 时等待上限为 0，每个片段立即发送
+     */
+    public Coalescer newCoalescer(boolean coalesce) {
+        long maxDelayNanos = coalesce && config.isBatchEnabled() ? TimeUnit.MILLISECONDS.toNanos(config.getMaxDelayMillis()) : 0;
+        return new Coalescer(maxDelayNanos, Math.max(1, config.getMaxBatchChars()));
+    }
+
+    /**
+     * 合批规则，不涉及线程与定时，调用方传入当前时间
+     */
+    public static final class Coalescer {
+
+        private final long maxDelayNanos;
+
+        private final int maxBatchChars;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        private boolean emitted;
+
+        private long lastEmitNanos;
+
+        public Coalescer(long maxDelayNanos, int maxBatchChars) {
+            this.maxDelayNanos = maxDelayNanos;
+            this.maxBatchChars = maxBatchChars;
+        }
+
+        /**
+         * 收到一个片段
+         *
+         * @return 需要立即发送的内容；返回 null 表示已累积，需在 {@link #getMaxDelayNanos()} 内调用 {@link #drain(long)}
+         */
+        public String offer(String token, long nowNanos) {
+            // 距上次发送已超过等待上限（流刚开始或空闲了一段时间），直接发送
+            if (buffer.isEmpty() && (!emitted || nowNanos - lastEmitNanos >= maxDelayNanos)) {
+                markEmitted(nowNanos);
+                return token;
+            }
+            buffer.append(token);
+            return buffer.length() >= maxBatchChars ? drain(nowNanos) : null;
+        }
+
+        /**
+         * 取出已累积的内容
+         *
+         * @return 没有累积内容时返回 null
+         */
+        public String drain(long nowNanos) {
+            if (buffer.isEmpty()) {
+                return null;
+            }
+            String batch = buffer.toString();
+            buffer.setLength(0);
+            markEmitted(nowNanos);
+            return batch;
+        }
+
+        public long getMaxDelayNanos() {
+            return maxDelayNanos;
+        }
+
+        private void markEmitted(long nowNanos) {
+            emitted = true;
+            lastEmitNanos = nowNanos;
+        }
+    }
+
+    /**
+     * 单个 SSE 流：上游回调、定时发送、心跳可能在不同线程上，发送均在本对象上加锁，保证片段顺序
+     */
+    private final class Stream {
+
+        private final FluxSink<ServerSentEvent<String>> sink;
+
+        private final Coalescer coalescer;
+
+        private final long heartbeatNanos = TimeUnit.SECONDS.toNanos(config.getHeartbeatSeconds());
+
+        private Disposable flushTask;
+
+        private volatile long lastEventNanos = System.nanoTime();
+
+        private Stream(FluxSink<ServerSentEvent<String>> sink, Coalescer coalescer) {
+            this.sink = sink;
+            this.coalescer = coalescer;
+        }
+
+        void subscribe(Flux<String> tokens) {
+            Disposable.Composite resources = Disposables.composite();
+            sink.onDispose(resources);
+            if (heartbeatNanos > 0) {
+                resources.add(Schedulers.parallel().schedulePeriodically(this::heartbeat,
+                        heartbeatNanos, heartbeatNanos, TimeUnit.NANOSECONDS));
+            }
+            resources.add(this::cancelFlush);
+            // 上游（含其 Reactor Context 中的监控上下文）照常订阅，下游的 Context 也一并传递
+            resources.add(tokens.contextWrite(sink.contextView())
+                    .subscribe(this::onToken, this::onError, this::onComplete));
+        }
+
+        private synchronized void onToken(String token) {
+            if (token == null || token.isEmpty()) {
+                return;
+            }
+            tokenCounter.increment();
+            String batch = coalescer.offer(token, System.nanoTime());
+            if (batch != null) {
+                emit(batch);
+            } else if (flushTask == null) {
+                flushTask = Schedulers.parallel().schedule(this::flush, coalescer.getMaxDelayNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized void flush() {
+            flushTask = null;
+            String batch = coalescer.drain(System.nanoTime());
+            if (batch != null) {
+                emit(batch);
+            }
+        }
+
+        private void onComplete() {
+            synchronized (this) {
+                cancelFlush();
+                String batch = coalescer.drain(System.nanoTime());
+                if (batch != null) {
+                    emit(batch);
+                }
+            }
+            sink.complete();
+        }
+
+        private void onError(Throwable error) {
+            // 出错前已生成的内容照常发出
+            synchronized (this) {
+                cancelFlush();
+                String batch = coalescer.drain(System.nanoTime());
+                if (batch != null) {
+                    emit(batch);
+                }
+            }
+            sink.error(error);
+        }
+
+        private void heartbeat() {
+            if (System.nanoTime() - lastEventNanos < heartbeatNanos) {
+                return;
+            }
+            synchronized (this) {
+                lastEventNanos = System.nanoTime();
+                heartbeatCounter.increment();
+                sink.next(HEARTBEAT);
+            }
+        }
+
+        private synchronized void cancelFlush() {
+            if (flushTask != null) {
+                flushTask.dispose();
+                flushTask = null;
+            }
+        }
+
+        private void emit(String batch) {
+            lastEventNanos = System.nanoTime();
+            dataEventCounter.increment();
+            sink.next(ServerSentEvent.<String>builder()
+                    .data(sseMessageEncoder.encode(batch))
+                    .build());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.sht.zdaicode.core.handler;
 
+import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.model.entity.User;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
 import com.sht.zdaicode.service.ChatHistoryService;
@@ -11,8 +13,9 @@ import reactor.core.publisher.Flux;
 /**
  * 流处理器执行器
  * 根据代码生成类型创建合适的流处理器：
- * 1. 传统的 Flux<String> 流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
+ * 1. 传统的文本流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
  * 2. TokenStream 格式的复杂流（VUE_PROJECT） -> JsonMessageStreamHandler
+ * 上游统一传递类型化的 StreamMessage，不经过 JSON 中转
  */
 @Slf4j
 @Component
@@ -24,21 +27,23 @@ public class StreamHandlerExecutor {
     /**
      * 创建流处理器并处理聊天历史记录
      *
-     * @param originFlux         原始流
+     * @param originFlux         原始消息流
      * @param chatHistoryService 聊天历史服务
      * @param appId              应用ID
      * @param loginUser          登录用户
      * @param codeGenType        代码生成类型
      * @return 处理后的流
      */
-    public Flux<String> doExecute(Flux<String> originFlux,
+    public Flux<String> doExecute(Flux<StreamMessage> originFlux,
                                   ChatHistoryService chatHistoryService,
                                   long appId, User loginUser, CodeGenTypeEnum codeGenType) {
         return switch (codeGenType) {
             case VUE_PROJECT_CREATE, VUE_PROJECT_EDIT -> // 使用注入的组件实例
                     jsonMessageStreamHandler.handle(originFlux, chatHistoryService, appId, loginUser);
             case HTML, MULTI_FILE -> // 简单文本处理器不需要依赖注入
-                    new SimpleTextStreamHandler().handle(originFlux, chatHistoryService, appId, loginUser);
+                    new SimpleTextStreamHandler().handle(
+                            originFlux.ofType(AiResponseMessage.class).map(AiResponseMessage::getData),
+                            chatHistoryService, appId, loginUser);
             case FRONTEND_FULLSTACK_HTML -> null;
             case FRONTEND_FULLSTACK_MULTI_FILE -> null;
             case FRONTEND_FULLSTACK_VUE -> null;
@@ -0,0 +1,95 @@
+package com.sht.zdaicode.core.handler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
+import com.sht.zdaicode.ai.model.message.ToolExecutedMessage;
+import com.sht.zdaicode.ai.model.message.ToolRequestMessage;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 流式消息格式化器
+ * 将类型化的 StreamMessage 直接渲染为前端展示文本，每个流使用一个实例（记录已出现的工具 ID）
+ */
+public class StreamMessageFormatter {
+
+    /**
+     * 用于跟踪已经见过的工具ID，判断是否是第一次调用
+     */
+    private final Set<String> seenToolIds = new HashSet<>();
+
+    /**
+     * 渲染消息
+     *
+     * @param message 流式消息
+     * @return 展示文本，无需展示时返回空字符串
+     */
+    public String format(StreamMessage message) {
+        return switch (message) {
+            // 直接返回响应内容
+            case AiResponseMessage aiMessage -> aiMessage.getData();
+            case ToolRequestMessage toolRequestMessage -> formatToolRequest(toolRequestMessage);
+            case ToolExecutedMessage toolExecutedMessage -> formatToolExecuted(toolExecutedMessage);
+        };
+    }
+
+    /**
+     * 判断消息渲染结果是否需要持久化到对话历史
+     *
+     * @param message 流式消息
+     * @return 工具请求仅用于前端提示，不持久化
+     */
+    public boolean shouldPersist(StreamMessage message) {
+        return !(message instanceof ToolRequestMessage);
+    }
+
+    private String formatToolRequest(ToolRequestMessage toolRequestMessage) {
+        String toolId = toolRequestMessage.getId();
+        // 检查是否是第一次看到这个工具 ID
+        if (toolId != null && seenToolIds.add(toolId)) {
+            // 第一次调用这个工具，根据实际工具名称动态显示
+            String toolName = getToolDisplayName(toolRequestMessage.getName());
+            return String.format("\n\n[选择工具] %s\n\n", toolName);
+        }
+        // 不是第一次调用这个工具，直接返回空
+        return "";
+    }
+
+    private String formatToolExecuted(ToolExecutedMessage toolExecutedMessage) {
+        JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
+        String relativeFilePath = jsonObject.getStr("relativeFilePath");
+        String suffix = FileUtil.getSuffix(relativeFilePath);
+        String content = jsonObject.getStr("content");
+        // 根据实际工具名称动态显示
+        String toolName = getToolDisplayName(toolExecutedMessage.getName());
+        String result = String.format("""
+                [工具调用] %s %s
+                ```%s
+                %s
+                ```
+                """, toolName, relativeFilePath, suffix, content);
+        // 输出前端和要持久化的内容
+        return String.format("\n\n%s\n\n", result);
+    }
+
+    /**
+     * 根据工具名称获取显示名称
+     *
+     * @param toolName 工具名称
+     * @return 显示名称
+     */
+    public static String getToolDisplayName(String toolName) {
+        return switch (toolName) {
+            case "writeFile" -> "写入文件";
+            case "readFile" -> "读取文件";
+            case "modifyFile" -> "修改文件";
+            case "deleteFile" -> "删除文件";
+            case "readDir" -> "读取目录";
+            default -> toolName; // 如果没有匹配的，返回原始名称
+        };
+    }
+}
@@ -1,6 +1,9 @@
 package com.sht.zdaicode.core.handler;
 
+import cn.hutool.core.util.StrUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.ai.model.message.ToolRequestMessage;
 import com.sht.zdaicode.ai.tools.FileDirReadTool;
 import com.sht.zdaicode.ai.tools.FileModifyTool;
@@ -309,22 +312,33 @@ public class StructuredAgentModeStreamHandler {
 
     /**
      * 处理Agent模式的结构化流式输出
+     * 上游传递类型化的 StreamMessage，在这里渲染为展示文本（与 JsonMessageStreamHandler 一致），不经过 JSON 中转
      */
-    public Flux<String> handleStructuredAgentStream(Flux<String> sourceStream, Long appId, String userMessage, Long userId) {
+    public Flux<String> handleStructuredAgentStream(Flux<StreamMessage> sourceStream, Long appId, String userMessage, Long userId) {
         StringBuilder summaryBuilder = new StringBuilder();
         List<AgentStepResponse> steps = new ArrayList<>();
         int totalSteps = 9; // 根据工作流设定的总步骤数
+        StreamMessageFormatter formatter = new StreamMessageFormatter();
 
         return sourceStream
-                .map(chunk -> {
+                .map(message -> {
+                    String chunk = formatter.format(message);
+                    if (StrUtil.isEmpty(chunk)) {
+                        return "";
+                    }
                     try {
-                        // 处理工具调用（编辑模式）
-                        handleToolCallsInChunk(chunk, appId, userId);
+                        // 处理工具调用（编辑模式），只解析模型输出的文本；工具请求 / 执行结果消息已由模型工具执行过
+                        if (message instanceof AiResponseMessage) {
+                            handleToolCallsInChunk(chunk, appId, userId);
+                        }
 
                         // 解析步骤信息
                         AgentProgressResponse progress = parseChunkToProgress(chunk, steps, totalSteps);
 
-                        summaryBuilder.append(chunk);
+                        // 工具请求仅用于前端提示，不写入对话历史
+                        if (formatter.shouldPersist(message)) {
+                            summaryBuilder.append(chunk);
+                        }
 
                         // 返回结构化的JSON响应
                         if (progress != null) {
@@ -345,6 +359,7 @@ public class StructuredAgentModeStreamHandler {
                         return chunk;
                     }
                 })
+                .filter(StrUtil::isNotEmpty) // 过滤无需展示的消息（如重复的工具请求）
                 .doOnComplete(() -> {
                     try {
                         // 1.保存用户消息
@@ -0,0 +1,140 @@
+package com.sht.zdaicode.core.parser;
+
+/**
+ * 流式代码块解析器（Markdown 围栏代码块状态机）
+ * 逐块消费 LLM 输出，按行识别 ```lang 开始标记与 ``` 结束标记，
+ * 仅缓存当前未结束的一行，内存占用与单行长度相关，而非完整响应长度
+ */
+public class StreamingCodeBlockParser {
+
+    private static final String FENCE = "```";
+
+    /**
+     * 代码块事件监听器
+     */
+    public interface BlockListener {
+
+        /**
+         * 代码块开始
+         *
+         * @param language 代码块语言（小写，可能为空字符串）
+         */
+        void onBlockStart(String language);
+
+        /**
+         * 代码块内容（按行回调，包含换行符）
+         *
+         * @param language 代码块语言
+         * @param line     一行代码
+         */
+        void onBlockLine(String language, String line);
+
+        /**
+         * 代码块结束
+         *
+         * @param language 代码块语言
+         */
+        void onBlockEnd(String language);
+
+        /**
+         * 代码块之外的普通文本（按行回调，包含换行符）
+         *
+         * @param line 一行文本
+         */
+        default void onPlainLine(String line) {
+        }
+    }
+
+    private final BlockListener listener;
+
+    /**
+     * 当前未结束的行
+     */
+    private final StringBuilder lineBuffer = new StringBuilder();
+
+    /**
+     * 是否处于代码块内部
+     */
+    private boolean inBlock = false;
+
+    /**
+     * 当前代码块语言
+     */
+    private String currentLanguage;
+
+    public StreamingCodeBlockParser(BlockListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 消费一个流式片段
+     *
+     * @param chunk 片段内容
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        int newline;
+        while ((newline = chunk.indexOf('\n', start)) >= 0) {
+            lineBuffer.append(chunk, start, newline);
+            processLine(lineBuffer.toString(), true);
+            lineBuffer.setLength(0);
+            start = newline + 1;
+        }
+        if (start < chunk.length()) {
+            lineBuffer.append(chunk, start, chunk.length());
+        }
+    }
+
+    /**
+     * 流结束：处理最后一行，并关闭未闭合的代码块（LLM 输出被截断的情况）
+     */
+    public void finish() {
+        if (!lineBuffer.isEmpty()) {
+            processLine(lineBuffer.toString(), false);
+            lineBuffer.setLength(0);
+        }
+        if (inBlock) {
+            inBlock = false;
+            listener.onBlockEnd(currentLanguage);
+        }
+    }
+
+    /**
+     * 处理完整的一行
+     *
+     * @param rawLine    行内容（不含换行符）
+     * @param hasNewline 原始内容中该行是否以换行符结尾
+     */
+    private void processLine(String rawLine, boolean hasNewline) {
+        String line = rawLine.endsWith("\r") ? rawLine.substring(0, rawLine.length() - 1) : rawLine;
+        if (!inBlock) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith(FENCE)) {
+                inBlock = true;
+                currentLanguage = trimmed.substring(FENCE.length()).trim().toLowerCase();
+                listener.onBlockStart(currentLanguage);
+            } else {
+                listener.onPlainLine(hasNewline ? line + "\n" : line);
+            }
+            return;
+        }
+        // 代码块内部：结束标记可能与最后一行代码位于同一行
+        int fenceIndex = line.indexOf(FENCE);
+        if (fenceIndex < 0) {
+            listener.onBlockLine(currentLanguage, hasNewline ? line + "\n" : line);
+            return;
+        }
+        if (fenceIndex > 0) {
+            listener.onBlockLine(currentLanguage, line.substring(0, fenceIndex));
+        }
+        inBlock = false;
+        listener.onBlockEnd(currentLanguage);
+        String rest = line.substring(fenceIndex + FENCE.length());
+        if (!rest.isBlank()) {
+            listener.onPlainLine(hasNewline ? rest + "\n" : rest);
+        }
+    }
+}
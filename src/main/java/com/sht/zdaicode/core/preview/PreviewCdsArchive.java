@@ -0,0 +1,466 @@
+package com.sht.zdaicode.core.preview;
+
+import cn.hutool.core.io.FileUtil;
+import com.sht.zdaicode.config.PreviewCdsConfig;
+import com.sht.zdaicode.config.PreviewProcessConfig;
+import com.sht.zdaicode.core.builder.BuildHandle;
+import com.sht.zdaicode.core.builder.BuildScheduler;
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * 预览后端共享 CDS 归档
+ * 1. 按依赖模板 pom 下载公共依赖到归档目录，编译一个只依赖这些 jar 的训练应用
+ * 2. 以「公共依赖 + 训练 jar」为类路径运行训练应用，通过 -XX:ArchiveClassesAtExit 生成动态归档
+ * 3. 预览启动时，如果 fat jar 的 BOOT-INF/lib 包含全部公共依赖（文件名与 CRC 一致），
+ *    就把应用自身的类与额外依赖解压到 jar 旁边，以「归档类路径 + 应用类 + 额外依赖」启动并挂载归档
+ * <p>
+ * CDS 要求运行时类路径以生成归档时的类路径为前缀，所以公共依赖始终使用归档目录中的同一份文件；
+ * 依赖不匹配时退回 java -jar，JVM 自身校验失败（如 JDK 升级）时也会自动忽略归档
+ */
+@Slf4j
+public class PreviewCdsArchive {
+
+    private static final String LIB_DIR = "lib";
+
+    private static final String CLASSPATH_INDEX = "classpath.idx";
+
+    private static final String TRAINING_JAR = "training.jar";
+
+    private static final String ARCHIVE_FILE = "app.jsa";
+
+    private static final String TRAINING_MAIN_CLASS = "cds.training.CdsTrainingApplication";
+
+    private static final String BOOT_LIB_PREFIX = "BOOT-INF/lib/";
+
+    private static final String BOOT_CLASSES_PREFIX = "BOOT-INF/classes/";
+
+    /**
+     * 解压目录中记录来源 jar 大小与修改时间的标记，jar 重新构建后重新解压
+     */
+    private static final String SOURCE_MARKER = ".source";
+
+    private final PreviewCdsConfig config;
+
+    private final PreviewProcessConfig processConfig;
+
+    private final BuildScheduler buildScheduler;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Path archiveRoot;
+
+    /**
+     * 当前可用的归档，生成完成前为 null
+     */
+    private volatile SharedArchive current;
+
+    /**
+     * @param dir         归档目录
+     * @param archiveFile 动态归档文件
+     * @param classpath   生成归档时的类路径（公共依赖 + 训练 jar）
+     * @param crcByName   公共依赖文件名 -> CRC32
+     */
+    private record SharedArchive(Path dir, Path archiveFile, List<Path> classpath, Map<String, Long> crcByName) {
+    }
+
+    /**
+     * 预览应用解压后的布局
+     */
+    private record AppLayout(String mainClass, Path classesDir, List<Path> extraLibs) {
+    }
+
+    public PreviewCdsArchive(PreviewCdsConfig config, PreviewProcessConfig processConfig,
+                             BuildScheduler buildScheduler, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.processConfig = processConfig;
+        this.buildScheduler = buildScheduler;
+        this.meterRegistry = meterRegistry;
+        this.archiveRoot = Paths.get(config.getArchiveDir()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 加载当前依赖模板对应的归档，不存在时以最低优先级提交生成任务
+     *
+     * @return 生成任务句柄；归档已就绪或未启用时为 null
+     */
+    public BuildHandle prepare() {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        String key = computeKey();
+        if (key == null) {
+            return null;
+        }
+        Path dir = archiveRoot.resolve(key);
+        SharedArchive archive = load(dir);
+        if (archive != null) {
+            current = archive;
+            log.info("预览 CDS 归档已就绪: {}", archive.archiveFile());
+            return null;
+        }
+        return buildScheduler.submit("preview-cds:" + key, BuildPriorityEnum.BACKGROUND, handle -> generate(dir, handle));
+    }
+
+    /**
+     * 预览 JVM 的启动参数（替代 -jar xxx.jar）
+     *
+     * @param jarPath Spring Boot fat jar
+     * @return 挂载归档的类路径与主类参数；归档未就绪或依赖不匹配时为 null，调用方应退回 -jar 启动
+     */
+    public List<String> launchArgs(String jarPath) {
+        SharedArchive archive = current;
+        if (archive == null) {
+            countLaunch("unavailable");
+            return null;
+        }
+        try {
+            AppLayout layout = explode(Paths.get(jarPath).toAbsolutePath(), archive);
+            if (layout == null) {
+                countLaunch("mismatch");
+                return null;
+            }
+            List<String> classpath = new ArrayList<>();
+            archive.classpath().forEach(path -> classpath.add(path.toString()));
+            classpath.add(layout.classesDir().toString());
+            layout.extraLibs().forEach(path -> classpath.add(path.toString()));
+            countLaunch("archive");
+            return List.of(
+                    "-XX:SharedArchiveFile=" + archive.archiveFile(),
+                    "-cp", String.join(File.pathSeparator, classpath),
+                    layout.mainClass());
+        } catch (IOException e) {
+            log.warn("解压预览 jar 失败，不使用 CDS 归档: {}, {}", jarPath, e.getMessage());
+            countLaunch("error");
+            return null;
+        }
+    }
+
+    private boolean generate(Path dir, BuildHandle handle) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+        try {
+            // 归档记录的是类路径的绝对路径，直接在最终目录生成，以 app.jsa 出现作为完成标志
+            FileUtil.del(dir.toFile());
+            Files.createDirectories(dir);
+            DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+            try (InputStream in = resourceLoader.getResource(config.getTemplatePom()).getInputStream()) {
+                Files.copy(in, dir.resolve("pom.xml"));
+            }
+
+            handle.report("下载预览后端公共依赖...");
+            List<String> copyDependencies = List.of(mavenExecutable(), "-B", "-q", "dependency:copy-dependencies",
+                    "-DincludeScope=runtime", "-DoutputDirectory=" + LIB_DIR);
+            if (!runCommand(dir, copyDependencies, "dependencies.log", handle)) {
+                return false;
+            }
+            List<Path> jars;
+            try (Stream<Path> stream = Files.list(dir.resolve(LIB_DIR))) {
+                jars = stream.filter(path -> path.getFileName().toString().endsWith(".jar")).sorted().toList();
+            }
+            Files.write(dir.resolve(CLASSPATH_INDEX), jars.stream().map(path -> path.getFileName().toString()).toList());
+
+            handle.report("编译 CDS 训练应用...");
+            Path trainingJar = compileTrainingJar(dir, jars, resourceLoader);
+            if (trainingJar == null) {
+                return false;
+            }
+
+            handle.report("运行训练应用生成 CDS 归档...");
+            List<String> classpath = new ArrayList<>();
+            jars.forEach(path -> classpath.add(path.toString()));
+            classpath.add(trainingJar.toString());
+            Path tempArchive = dir.resolve(ARCHIVE_FILE + ".tmp");
+            List<String> command = new ArrayList<>();
+            command.add(processConfig.resolveJavaExecutable());
+            command.add("-Xmx" + processConfig.getMaxHeapMb() + "m");
+            command.addAll(processConfig.getJvmOptions());
+            command.add("-XX:ArchiveClassesAtExit=" + tempArchive);
+            command.add("-cp");
+            command.add(String.join(File.pathSeparator, classpath));
+            command.add(TRAINING_MAIN_CLASS);
+            command.add("--server.port=0");
+            command.add("--spring.main.banner-mode=off");
+            // 连接池延迟到第一次取连接时才建立，训练过程不需要可用的数据库
+            command.add("--spring.datasource.url=" + processConfig.getJdbcUrlPrefix() + "cds_training");
+            if (!runCommand(dir, command, "training.log", handle) || !Files.isRegularFile(tempArchive)) {
+                return false;
+            }
+            Files.move(tempArchive, dir.resolve(ARCHIVE_FILE), StandardCopyOption.ATOMIC_MOVE);
+
+            current = load(dir);
+            success = current != null;
+            if (success) {
+                deleteStaleArchives(dir);
+                log.info("预览 CDS 归档生成完成: {}, 公共依赖 {} 个", dir, jars.size());
+            }
+            return success;
+        } finally {
+            sample.stop(Timer.builder("preview.cds.generate")
+                    .description("预览 CDS 归档生成耗时")
+                    .tag("result", success ? "success" : "failure")
+                    .register(meterRegistry));
+            if (!success) {
+                log.warn("预览 CDS 归档生成失败，预览进程将以普通方式启动，详见日志目录: {}", dir);
+            }
+        }
+    }
+
+    private Path compileTrainingJar(Path dir, List<Path> jars, DefaultResourceLoader resourceLoader) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            log.warn("当前运行环境没有 Java 编译器（非 JDK），无法生成预览 CDS 归档");
+            return null;
+        }
+        Path sourceFile = dir.resolve("training/src/" + TRAINING_MAIN_CLASS.replace('.', '/') + ".java");
+        Path classesDir = dir.resolve("training/classes");
+        Files.createDirectories(sourceFile.getParent());
+        Files.createDirectories(classesDir);
+        try (InputStream in = resourceLoader.getResource(config.getTrainingSource()).getInputStream()) {
+            Files.copy(in, sourceFile);
+        }
+        List<String> classpath = jars.stream().map(Path::toString).toList();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int exitCode = compiler.run(null, null, errors, "-proc:none", "--release", "17",
+                "-cp", String.join(File.pathSeparator, classpath),
+                "-d", classesDir.toString(), sourceFile.toString());
+        if (exitCode != 0) {
+            log.warn("CDS 训练应用编译失败: {}", errors.toString(StandardCharsets.UTF_8));
+            return null;
+        }
+
+        Path trainingJar = dir.resolve(TRAINING_JAR);
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        List<Path> classFiles;
+        try (Stream<Path> stream = Files.walk(classesDir)) {
+            classFiles = stream.filter(Files::isRegularFile).sorted().toList();
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(trainingJar), manifest)) {
+            for (Path classFile : classFiles) {
+                out.putNextEntry(new JarEntry(classesDir.relativize(classFile).toString().replace(File.separatorChar, '/')));
+                Files.copy(classFile, out);
+                out.closeEntry();
+            }
+        }
+        return trainingJar;
+    }
+
+    /**
+     * 执行命令，输出写入归档目录下的日志文件
+     */
+    private boolean runCommand(Path dir, List<String> command, String logFile, BuildHandle handle) throws InterruptedException {
+        if (handle.isCancelled()) {
+            return false;
+        }
+        try {
+            Process process = new ProcessBuilder(command)
+                    .directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(dir.resolve(logFile).toFile())
+                    .start();
+            handle.attachProcess(process);
+            if (!process.waitFor(config.getGenerateTimeoutSeconds(), TimeUnit.SECONDS)) {
+                log.error("命令执行超时（{}秒），强制终止进程: {}", config.getGenerateTimeoutSeconds(), command.get(0));
+                process.destroyForcibly();
+                return false;
+            }
+            if (process.exitValue() != 0) {
+                log.error("命令执行失败，退出码: {}, 日志: {}", process.exitValue(), dir.resolve(logFile));
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("执行命令失败: {}, 错误信息: {}", command.get(0), e.getMessage());
+            return false;
+        }
+    }
+
+    private SharedArchive load(Path dir) {
+        Path archiveFile = dir.resolve(ARCHIVE_FILE);
+        if (!Files.isRegularFile(archiveFile)) {
+            return null;
+        }
+        try {
+            Map<String, Long> crcByName = new LinkedHashMap<>();
+            List<Path> classpath = new ArrayList<>();
+            for (String name : Files.readAllLines(dir.resolve(CLASSPATH_INDEX))) {
+                Path jar = dir.resolve(LIB_DIR).resolve(name);
+                crcByName.put(name, crc32(jar));
+                classpath.add(jar);
+            }
+            classpath.add(dir.resolve(TRAINING_JAR));
+            return new SharedArchive(dir, archiveFile, List.copyOf(classpath), crcByName);
+        } catch (IOException e) {
+            log.warn("读取预览 CDS 归档失败: {}, {}", dir, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 校验 fat jar 的依赖是否覆盖全部公共依赖，并把应用类与额外依赖解压到 jar 旁边的 {jar名}-cds 目录
+     *
+     * @return 解压后的布局；不是 Spring Boot fat jar 或依赖不匹配时为 null
+     */
+    private AppLayout explode(Path jar, SharedArchive archive) throws IOException {
+        String fileName = jar.getFileName().toString();
+        Path explodedDir = jar.resolveSibling(fileName.substring(0, fileName.length() - ".jar".length()) + "-cds");
+        Path classesDir = explodedDir.resolve("classes");
+        Path libDir = explodedDir.resolve(LIB_DIR);
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            Manifest manifest = jarFile.getManifest();
+            String mainClass = manifest == null ? null : manifest.getMainAttributes().getValue("Start-Class");
+            if (mainClass == null) {
+                return null;
+            }
+            Map<String, JarEntry> libs = new HashMap<>();
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+                JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(BOOT_LIB_PREFIX)) {
+                    libs.put(entry.getName().substring(BOOT_LIB_PREFIX.length()), entry);
+                }
+            }
+            for (Map.Entry<String, Long> shared : archive.crcByName().entrySet()) {
+                JarEntry entry = libs.get(shared.getKey());
+                if (entry == null || entry.getCrc() != shared.getValue()) {
+                    log.info("预览 jar 的依赖与 CDS 公共依赖不一致（{}），使用普通方式启动: {}", shared.getKey(), jar);
+                    return null;
+                }
+            }
+            List<String> extraNames = libs.keySet().stream()
+                    .filter(name -> !archive.crcByName().containsKey(name))
+                    // Spring Boot 打进 fat jar 的 jarmode 工具，类路径启动时用不到
+                    .filter(name -> !name.startsWith("spring-boot-jarmode-"))
+                    .sorted()
+                    .toList();
+
+            String source = Files.size(jar) + ":" + Files.getLastModifiedTime(jar).toMillis();
+            Path marker = explodedDir.resolve(SOURCE_MARKER);
+            if (!Files.isRegularFile(marker) || !source.equals(Files.readString(marker))) {
+                FileUtil.del(explodedDir.toFile());
+                Files.createDirectories(classesDir);
+                Files.createDirectories(libDir);
+                for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    Path target;
+                    if (name.startsWith(BOOT_CLASSES_PREFIX)) {
+                        target = classesDir.resolve(name.substring(BOOT_CLASSES_PREFIX.length())).normalize();
+                        if (!target.startsWith(classesDir)) {
+                            continue;
+                        }
+                    } else if (name.startsWith(BOOT_LIB_PREFIX) && extraNames.contains(name.substring(BOOT_LIB_PREFIX.length()))) {
+                        target = libDir.resolve(name.substring(BOOT_LIB_PREFIX.length())).normalize();
+                        if (!target.startsWith(libDir)) {
+                            continue;
+                        }
+                    } else {
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    try (InputStream in = jarFile.getInputStream(entry);
+                         OutputStream out = Files.newOutputStream(target)) {
+                        in.transferTo(out);
+                    }
+                }
+                Files.writeString(marker, source);
+            }
+            List<Path> extraLibs = extraNames.stream().map(libDir::resolve).toList();
+            return new AppLayout(mainClass, classesDir, extraLibs);
+        }
+    }
+
+    private void deleteStaleArchives(Path keep) {
+        try (Stream<Path> stream = Files.list(archiveRoot)) {
+            stream.filter(path -> !path.equals(keep) && Files.isDirectory(path))
+                    .forEach(path -> {
+                        log.info("删除过期的预览 CDS 归档: {}", path);
+                        FileUtil.del(path.toFile());
+                    });
+        } catch (IOException e) {
+            log.warn("清理过期 CDS 归档失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 归档 key：依赖模板 + 训练应用 + 预览 JVM（可执行文件与修改时间）+ JVM 参数，任何一项变化都会生成新归档
+     */
+    private String computeKey() {
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        try (InputStream pom = resourceLoader.getResource(config.getTemplatePom()).getInputStream();
+             InputStream source = resourceLoader.getResource(config.getTrainingSource()).getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(pom.readAllBytes());
+            digest.update(source.readAllBytes());
+            String javaExecutable = processConfig.resolveJavaExecutable();
+            String javaIdentity = javaExecutable;
+            try {
+                Path realJava = Paths.get(javaExecutable).toRealPath();
+                javaIdentity = realJava + "@" + Files.getLastModifiedTime(realJava).toMillis();
+            } catch (IOException | RuntimeException ignored) {
+                // 配置为 PATH 上的命令名时只按名称区分
+            }
+            digest.update(javaIdentity.getBytes(StandardCharsets.UTF_8));
+            digest.update(String.join(" ", processConfig.getJvmOptions()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 24);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("读取 CDS 依赖模板失败，不使用 CDS 归档: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String mavenExecutable() {
+        String executable = config.getMavenExecutable();
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("windows");
+        return windows && "mvn".equals(executable) ? "mvn.cmd" : executable;
+    }
+
+    private static long crc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return crc.getValue();
+    }
+
+    private void countLaunch(String result) {
+        meterRegistry.counter("preview.cds.launches", "result", result).increment();
+    }
+}
@@ -0,0 +1,77 @@
+package com.sht.zdaicode.core.preview;
+
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 运行中的预览后端进程
+ * 日志保存在有界的回放缓冲中：新订阅者先收到最近 N 行，再持续收到新日志，进程退出后流结束
+ */
+@Getter
+public class PreviewInstance {
+
+    private final Long appId;
+
+    private final Process process;
+
+    private final int port;
+
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private final Sinks.Many<String> logSink;
+
+    /**
+     * 最近一次访问时间，用于空闲停止与 LRU 淘汰
+     */
+    private volatile long lastAccessMillis = startedAtMillis;
+
+    /**
+     * 是否已通过就绪探测
+     */
+    private volatile boolean ready = false;
+
+    PreviewInstance(Long appId, Process process, int port, int logBufferLines) {
+        this.appId = appId;
+        this.process = process;
+        this.port = port;
+        this.logSink = Sinks.many().replay().limit(logBufferLines);
+    }
+
+    /**
+     * 日志流（最近 N 行 + 实时日志）
+     */
+    public Flux<String> logs() {
+        return logSink.asFlux();
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * 已就绪且进程存活，可以转发请求
+     */
+    public boolean isServing() {
+        return ready && process.isAlive();
+    }
+
+    void markReady() {
+        ready = true;
+    }
+
+    public void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 追加一行日志（只由日志读取线程调用）
+     */
+    void appendLog(String line) {
+        logSink.tryEmitNext(line);
+    }
+
+    void closeLogs() {
+        logSink.tryEmitComplete();
+    }
+}
@@ -0,0 +1,79 @@
+package com.sht.zdaicode.core.preview;
+
+import com.sht.zdaicode.exception.BusinessException;
+import com.sht.zdaicode.exception.ErrorCode;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 预览端口分配器
+ * 优先分配应用上一次使用的端口（构建好的前端已写入该端口），其次是按 appId 计算的首选端口，
+ * 已被其他预览占用或被系统其他进程占用时顺延查找下一个空闲端口
+ */
+public class PreviewPortAllocator {
+
+    private final int rangeStart;
+
+    private final int rangeSize;
+
+    private final Set<Integer> allocated = new HashSet<>();
+
+    public PreviewPortAllocator(int rangeStart, int rangeEnd) {
+        this.rangeStart = rangeStart;
+        this.rangeSize = rangeEnd - rangeStart;
+    }
+
+    /**
+     * 分配端口
+     *
+     * @param appId 应用 ID（用于计算首选端口）
+     * @return 端口
+     */
+    public synchronized int allocate(long appId) {
+        return allocate(appId, null);
+    }
+
+    /**
+     * 分配端口，优先使用应用上一次的端口
+     *
+     * @param appId        应用 ID（用于计算首选端口）
+     * @param previousPort 上一次使用的端口，可为空
+     * @return 端口
+     */
+    public synchronized int allocate(long appId, Integer previousPort) {
+        if (previousPort != null && previousPort >= rangeStart && previousPort < rangeStart + rangeSize
+                && !allocated.contains(previousPort) && isFree(previousPort)) {
+            allocated.add(previousPort);
+            return previousPort;
+        }
+        int offset = (int) Math.floorMod(appId, (long) rangeSize);
+        for (int i = 0; i < rangeSize; i++) {
+            int port = rangeStart + (offset + i) % rangeSize;
+            if (!allocated.contains(port) && isFree(port)) {
+                allocated.add(port);
+                return port;
+            }
+        }
+        throw new BusinessException(ErrorCode.SYSTEM_ERROR, "没有可用的预览端口");
+    }
+
+    public synchronized void release(int port) {
+        allocated.remove(port);
+    }
+
+    public synchronized int allocatedCount() {
+        return allocated.size();
+    }
+
+    private boolean isFree(int port) {
+        // 预览后端监听所有地址，这里同样按通配地址检测
+        try (ServerSocket ignored = new ServerSocket(port)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -1,34 +1,111 @@
 package com.sht.zdaicode.core.preview;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.sht.zdaicode.config.PreviewProcessConfig;
+import com.sht.zdaicode.constant.AppConstant;
+import com.sht.zdaicode.exception.BusinessException;
+import com.sht.zdaicode.exception.ErrorCode;
+import com.sht.zdaicode.exception.ThrowUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 public class PreviewProcessManager {
 
+    private static final int PROBE_CONNECT_TIMEOUT_MILLIS = 500;
+
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
     private final DataSource dataSource;
-    
-    // 存储 appId -> Process
-    private final Map<Long, Process> processMap = new ConcurrentHashMap<>();
-    // 存储 appId -> 运行时分配的端口
-    private final Map<Long, Integer> portMap = new ConcurrentHashMap<>();
 
-    public PreviewProcessManager(DataSource dataSource) {
+    private final DataSourceProperties dataSourceProperties;
+
+    private final PreviewProcessConfig config;
+
+    private final PreviewPortAllocator portAllocator;
+
+    private final MeterRegistry meterRegistry;
+
+    private final PreviewCdsArchive cdsArchive;
+
+    private final HttpClient probeClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(PROBE_CONNECT_TIMEOUT_MILLIS))
+            .build();
+
+    // 存储 appId -> 运行中的预览进程
+    private final Map<Long, PreviewInstance> instances = new ConcurrentHashMap<>();
+
+    // 同一应用的启动 / 停止串行执行
+    private final Map<Long, Object> appLocks = new ConcurrentHashMap<>();
+
+    // 存储 appId -> 启动用的 jar 包，预览被空闲停止后据此冷启动
+    private final Map<Long, String> launchJars = new ConcurrentHashMap<>();
+
+    // 存储 appId -> 上一次使用的端口，重启时优先复用（构建好的前端已写入该端口）
+    private final Map<Long, Integer> lastPorts = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("preview-reaper").daemon(true).factory());
+
+    public PreviewProcessManager(DataSource dataSource, DataSourceProperties dataSourceProperties,
+                                 PreviewProcessConfig config, MeterRegistry meterRegistry,
+                                 PreviewCdsArchive cdsArchive) {
         this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+        this.config = config;
+        this.portAllocator = new PreviewPortAllocator(config.getPortRangeStart(), config.getPortRangeEnd());
+        this.meterRegistry = meterRegistry;
+        this.cdsArchive = cdsArchive;
+        Gauge.builder("preview.processes.live", instances, map -> map.values().stream().filter(PreviewInstance::isAlive).count())
+                .description("运行中的预览后端进程数")
+                .register(meterRegistry);
+        reaper.scheduleWithFixedDelay(this::stopIdlePreviews,
+                config.getReaperIntervalSeconds(), config.getReaperIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 启动后加载（或以最低优先级生成）预览后端共享的 CDS 归档
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareCdsArchive() {
+        cdsArchive.prepare();
     }
 
     /**
@@ -37,14 +114,14 @@ public class PreviewProcessManager {
     public void initDatabase(Long appId, String sqlFilePath) throws Exception {
         String dbName = "fullstack_app_" + appId;
         log.info("开始为应用 {} 初始化数据库: {}", appId, dbName);
-        
+
         try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement()) {
-             
+
             // 1. 创建数据库
             stmt.execute("CREATE DATABASE IF NOT EXISTS " + dbName + " DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci");
             stmt.execute("USE " + dbName);
-            
+
             // 2. 如果存在 SQL 脚本，则执行
             if (FileUtil.exist(sqlFilePath)) {
                 try {
@@ -58,66 +135,299 @@ public class PreviewProcessManager {
     }
 
     /**
-     * 启动后端的 jar 包并获取绑定的端口
+     * 启动后端的 jar 包，等待端口就绪后返回绑定的端口
      */
     public int startBackendProcess(Long appId, String jarPath) throws Exception {
-        // 先停掉旧进程
-        stopBackendProcess(appId);
-        
-        int targetPort = 10000 + (int) (appId % 40000);
-        String dbName = "fullstack_app_" + appId;
-        String jdbcUrl = "jdbc:mysql://localhost:3306/" + dbName + "?useUnicode=true&characterEncoding=utf-8&serverTimezone=Asia/Shanghai";
-        
-        String[] command = {
-                "java",
-                "-jar",
-                jarPath,
-                "--server.port=" + targetPort,
-                "--spring.datasource.url=" + jdbcUrl,
-                "--spring.datasource.username=root",
-                "--spring.datasource.password=20040223tian" // 使用本地 MySQL 的实际密码
-        };
-        
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true); // 将错误流合并到标准输出
-        Process process = pb.start();
-        
-        processMap.put(appId, process);
-        portMap.put(appId, targetPort);
-        
-        log.info("应用 {} 的后台进程启动成功，绑定固定端口: {}", appId, targetPort);
-        
-        // 启动后台线程继续消费日志，防止缓冲区满导致进程阻塞
-        Thread.ofVirtual().start(() -> {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String logLine;
-                while ((logLine = reader.readLine()) != null) {
-                    log.debug("[App-{}-Backend] {}", appId, logLine);
+        synchronized (appLocks.computeIfAbsent(appId, key -> new Object())) {
+            // 先停掉旧进程（等待退出并释放端口，新进程才能复用同一端口）
+            stopBackendProcess(appId);
+            launchJars.put(appId, jarPath);
+            // 达到上限时停掉最久未访问的预览（仅按需停止开启时，停止后可被冷启动）
+            if (config.isScaleToZeroEnabled()) {
+                evictForCapacity(appId);
+            }
+
+            int port = portAllocator.allocate(appId, lastPorts.get(appId));
+            lastPorts.put(appId, port);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            // 依赖与共享归档匹配时挂载 CDS 归档启动
+            List<String> cdsLaunchArgs = cdsArchive.launchArgs(jarPath);
+            String cds = cdsLaunchArgs != null ? "on" : "off";
+            PreviewInstance instance;
+            try {
+                ProcessBuilder processBuilder = new ProcessBuilder(buildCommand(appId, jarPath, cdsLaunchArgs, port))
+                        .redirectErrorStream(true); // 将错误流合并到标准输出
+                // 数据库密码经环境变量传入，不出现在命令行（ps、/proc/<pid>/cmdline 可见）
+                processBuilder.environment().put("SPRING_DATASOURCE_PASSWORD",
+                        StrUtil.nullToEmpty(dataSourceProperties.getPassword()));
+                Process process = processBuilder.start();
+                instance = new PreviewInstance(appId, process, port, config.getLogBufferLines());
+            } catch (IOException e) {
+                portAllocator.release(port);
+                sample.stop(startupTimer("error", cds));
+                throw e;
+            }
+            instances.put(appId, instance);
+            startLogReader(instance);
+            // 进程自行退出（崩溃）时释放端口；经 stopBackendProcess 停止的实例已移出，由停止方同步释放
+            instance.getProcess().onExit().thenRun(() -> {
+                if (instances.remove(appId, instance)) {
+                    portAllocator.release(port);
                 }
-            } catch (Exception e) {
-                // ignore
+                log.info("应用 {} 的预览进程已退出，退出码: {}", appId, instance.getProcess().exitValue());
+            });
+
+            String result = awaitReady(instance);
+            sample.stop(startupTimer(result, cds));
+            if (!"ready".equals(result)) {
+                stopBackendProcess(appId);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR,
+                        "预览后端启动失败（" + result + "）: " + String.join("\n", tailLogs(instance, 20)));
             }
-        });
-        
-        // 等待几秒钟让进程启动完毕 (最简单的等待策略)
-        Thread.sleep(3000);
-        
-        return targetPort;
+            instance.markReady();
+            log.info("应用 {} 的后台进程已就绪，端口: {}, 耗时: {}ms, CDS: {}", appId, port,
+                    System.currentTimeMillis() - instance.getStartedAtMillis(), cds);
+            return port;
+        }
     }
-    
+
+    /**
+     * 运行中的预览后端端口（并记一次访问）
+     *
+     * @return 未运行或未就绪时返回 null
+     */
+    public Integer getServingPort(Long appId) {
+        PreviewInstance instance = instances.get(appId);
+        if (instance != null && instance.isServing()) {
+            instance.touch();
+            return instance.getPort();
+        }
+        return null;
+    }
+
+    /**
+     * 确保预览后端在运行并记录一次访问；已被空闲停止时冷启动，调用方阻塞直到就绪
+     *
+     * @return 预览后端端口
+     */
+    public int ensureRunning(Long appId) throws Exception {
+        PreviewInstance instance = instances.get(appId);
+        if (instance != null && instance.isServing()) {
+            instance.touch();
+            return instance.getPort();
+        }
+        synchronized (appLocks.computeIfAbsent(appId, key -> new Object())) {
+            // 等锁期间可能已被其他请求启动
+            instance = instances.get(appId);
+            if (instance != null && instance.isServing()) {
+                instance.touch();
+                return instance.getPort();
+            }
+            String jarPath = resolveLaunchJar(appId);
+            ThrowUtils.throwIf(jarPath == null, ErrorCode.NOT_FOUND_ERROR, "预览后端不存在，请先生成并构建应用");
+            log.info("应用 {} 的预览后端未运行，冷启动: {}", appId, jarPath);
+            meterRegistry.counter("preview.cold.starts").increment();
+            return startBackendProcess(appId, jarPath);
+        }
+    }
+
     /**
      * 停止后端进程
      */
     public void stopBackendProcess(Long appId) {
-        Process process = processMap.remove(appId);
-        portMap.remove(appId);
-        if (process != null) {
+        stopBackendProcess(appId, "manual");
+    }
+
+    private void stopBackendProcess(Long appId, String reason) {
+        PreviewInstance instance = instances.remove(appId);
+        if (instance != null) {
+            Process process = instance.getProcess();
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
             process.destroyForcibly();
-            log.info("已停止应用 {} 的后台进程", appId);
+            // 等待进程退出后再释放端口，避免紧接着的重启因端口仍被占用而换到其他端口
+            try {
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("应用 {} 的后台进程在 {} 秒内未退出", appId, STOP_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            portAllocator.release(instance.getPort());
+            meterRegistry.counter("preview.stops", "reason", reason).increment();
+            log.info("已停止应用 {} 的后台进程（{}）", appId, reason);
         }
     }
-    
+
     public Integer getBackendPort(Long appId) {
-        return portMap.get(appId);
+        PreviewInstance instance = instances.get(appId);
+        return instance == null ? null : instance.getPort();
+    }
+
+    /**
+     * 预览进程日志流（最近若干行 + 实时日志），进程未运行时为空
+     */
+    public Flux<String> streamLogs(Long appId) {
+        PreviewInstance instance = instances.get(appId);
+        return instance == null ? Flux.empty() : instance.logs();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaper.shutdownNow();
+        new ArrayList<>(instances.keySet()).forEach(appId -> stopBackendProcess(appId, "shutdown"));
+    }
+
+    /**
+     * 停止超过空闲时间未被访问的预览
+     */
+    private void stopIdlePreviews() {
+        if (!config.isScaleToZeroEnabled()) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(config.getIdleTimeoutSeconds());
+        for (PreviewInstance instance : new ArrayList<>(instances.values())) {
+            if (instance.getLastAccessMillis() < idleBefore) {
+                synchronized (appLocks.computeIfAbsent(instance.getAppId(), key -> new Object())) {
+                    // 加锁后复查，避免停掉刚被访问或刚重启的实例
+                    if (instances.get(instance.getAppId()) == instance && instance.getLastAccessMillis() < idleBefore) {
+                        stopBackendProcess(instance.getAppId(), "idle");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 运行中的预览达到上限时，按最近访问时间淘汰（不淘汰即将启动的应用）
+     */
+    private void evictForCapacity(Long startingAppId) {
+        while (instances.size() >= config.getMaxLivePreviews()) {
+            PreviewInstance victim = instances.values().stream()
+                    .filter(instance -> !instance.getAppId().equals(startingAppId))
+                    .min(Comparator.comparingLong(PreviewInstance::getLastAccessMillis))
+                    .orElse(null);
+            if (victim == null) {
+                return;
+            }
+            stopBackendProcess(victim.getAppId(), "evicted");
+        }
+    }
+
+    /**
+     * 冷启动使用的 jar 包：优先用最近一次启动的 jar，平台重启后从构建产物目录查找
+     */
+    private String resolveLaunchJar(Long appId) {
+        String jarPath = launchJars.get(appId);
+        if (jarPath != null && FileUtil.exist(jarPath)) {
+            return jarPath;
+        }
+        File targetDir = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, "fullstack_app_" + appId, "backend", "target").toFile();
+        File[] jars = targetDir.listFiles((dir, name) -> name.endsWith(".jar")
+                && !name.endsWith("-sources.jar") && !name.endsWith("-javadoc.jar"));
+        return jars == null || jars.length == 0 ? null : jars[0].getAbsolutePath();
+    }
+
+    private List<String> buildCommand(Long appId, String jarPath, List<String> cdsLaunchArgs, int port) {
+        String dbName = "fullstack_app_" + appId;
+        String jdbcUrl = config.getJdbcUrlPrefix() + dbName + "?useUnicode=true&characterEncoding=utf-8&serverTimezone=Asia/Shanghai";
+
+        List<String> command = new ArrayList<>();
+        command.add(config.resolveJavaExecutable());
+        command.add("-Xmx" + config.getMaxHeapMb() + "m");
+        command.addAll(config.getJvmOptions());
+        if (cdsLaunchArgs != null) {
+            command.addAll(cdsLaunchArgs);
+        } else {
+            command.add("-jar");
+            command.add(jarPath);
+        }
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=" + jdbcUrl);
+        // 预览库与平台库在同一 MySQL 实例，复用平台数据源账号（密码见 SPRING_DATASOURCE_PASSWORD 环境变量）
+        command.add("--spring.datasource.username=" + dataSourceProperties.getUsername());
+        return command;
+    }
+
+    /**
+     * 持续读取进程输出写入日志缓冲，防止管道写满导致子进程阻塞
+     */
+    private void startLogReader(PreviewInstance instance) {
+        Thread.ofVirtual().name("preview-log-" + instance.getAppId()).start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(instance.getProcess().getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    instance.appendLog(line);
+                }
+            } catch (IOException ignored) {
+                // 进程被终止
+            } finally {
+                instance.closeLogs();
+            }
+        });
+    }
+
+    /**
+     * 轮询探测就绪：配置了 readinessPath 时要求 HTTP 返回非 5xx，否则只要求端口可连接
+     *
+     * @return ready / exited / timeout / interrupted
+     */
+    private String awaitReady(PreviewInstance instance) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getStartupTimeoutSeconds());
+        while (System.nanoTime() < deadline) {
+            if (!instance.isAlive()) {
+                return "exited";
+            }
+            if (probe(instance.getPort())) {
+                return "ready";
+            }
+            try {
+                Thread.sleep(config.getProbeIntervalMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted";
+            }
+        }
+        return "timeout";
+    }
+
+    private boolean probe(int port) {
+        if (StrUtil.isBlank(config.getReadinessPath())) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), PROBE_CONNECT_TIMEOUT_MILLIS);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + config.getReadinessPath()))
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            return probeClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 500;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<String> tailLogs(PreviewInstance instance, int lines) {
+        List<String> tail = instance.logs()
+                .take(Duration.ofMillis(100))
+                .collectList()
+                .blockOptional()
+                .orElse(List.of());
+        return tail.subList(Math.max(0, tail.size() - lines), tail.size());
+    }
+
+    private Timer startupTimer(String result, String cds) {
+        return Timer.builder("preview.startup")
+                .description("预览后端从启动到就绪的耗时")
+                .tag("result", result)
+                .tag("cds", cds)
+                .register(meterRegistry);
     }
 }
@@ -35,4 +35,18 @@ public class CodeFileSaverExecutor {
         };
     }
 
+    /**
+     * 创建流式保存器（使用 appId）
+     *
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 流式保存器
+     */
+    public static StreamingCodeFileSaver createStreamingSaver(CodeGenTypeEnum codeGenType, Long appId) {
+        return switch (codeGenType) {
+            case HTML -> htmlCodeFileSaver.createStreamingSaver(appId);
+            case MULTI_FILE -> multiFileCodeFileSaver.createStreamingSaver(appId);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        };
+    }
 }
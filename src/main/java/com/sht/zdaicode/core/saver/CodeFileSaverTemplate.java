@@ -38,6 +38,17 @@ public abstract class CodeFileSaverTemplate<T> {
         return new File(baseDirPath);
     }
 
+    /**
+     * 创建流式保存器：边生成边解析，代码块闭合后立即写入基于 appId 的目录
+     *
+     * @param appId 应用 ID
+     * @return 流式保存器
+     */
+    public final StreamingCodeFileSaver createStreamingSaver(Long appId) {
+        String baseDirPath = buildUniqueDir(appId);
+        return new StreamingCodeFileSaver(baseDirPath, this::resolveFileName, getFallbackFileName(), getRequiredFileName());
+    }
+
     /**
      * 构建基于 appId 的目录路径
      *
@@ -83,6 +94,34 @@ public abstract class CodeFileSaverTemplate<T> {
         }
     }
 
+    /**
+     * 根据代码块语言解析保存的文件名（流式保存使用，可由子类覆盖）
+     *
+     * @param language 代码块语言
+     * @return 文件名，返回 null 表示忽略该代码块
+     */
+    protected String resolveFileName(String language) {
+        return null;
+    }
+
+    /**
+     * 未找到代码块时的兜底文件名（流式保存使用，可由子类覆盖）
+     *
+     * @return 兜底文件名，返回 null 表示不兜底
+     */
+    protected String getFallbackFileName() {
+        return null;
+    }
+
+    /**
+     * 必须生成的文件名（流式保存使用，可由子类覆盖）
+     *
+     * @return 文件名，返回 null 表示不校验
+     */
+    protected String getRequiredFileName() {
+        return null;
+    }
+
     /**
      * 获取代码类型（由子类实现）
      *
@@ -24,6 +24,22 @@ public class HtmlCodeFileSaverTemplate extends CodeFileSaverTemplate<HtmlCodeRes
         writeToFile(baseDirPath, "index.html", result.getHtmlCode());
     }
 
+    @Override
+    protected String resolveFileName(String language) {
+        return "html".equals(language) ? "index.html" : null;
+    }
+
+    @Override
+    protected String getFallbackFileName() {
+        // 与 HtmlCodeParser 保持一致：没有代码块时将整个内容作为 HTML
+        return "index.html";
+    }
+
+    @Override
+    protected String getRequiredFileName() {
+        return "index.html";
+    }
+
     @Override
     protected void validateInput(HtmlCodeResult result) {
         super.validateInput(result);
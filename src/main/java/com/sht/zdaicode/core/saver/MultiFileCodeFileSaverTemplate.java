@@ -28,6 +28,21 @@ public class MultiFileCodeFileSaverTemplate extends CodeFileSaverTemplate<MultiF
         writeToFile(baseDirPath, "script.js", result.getJsCode());
     }
 
+    @Override
+    protected String resolveFileName(String language) {
+        return switch (language) {
+            case "html" -> "index.html";
+            case "css" -> "style.css";
+            case "js", "javascript" -> "script.js";
+            default -> null;
+        };
+    }
+
+    @Override
+    protected String getRequiredFileName() {
+        return "index.html";
+    }
+
     @Override
     protected void validateInput(MultiFileCodeResult result) {
         super.validateInput(result);
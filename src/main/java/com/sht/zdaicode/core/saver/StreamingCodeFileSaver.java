@@ -0,0 +1,236 @@
+package com.sht.zdaicode.core.saver;
+
+import com.sht.zdaicode.core.parser.StreamingCodeBlockParser;
+import com.sht.zdaicode.exception.BusinessException;
+import com.sht.zdaicode.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 流式代码文件保存器
+ * 边接收 LLM 输出边解析，每个代码块闭合后立即落盘，支持生成过程中的实时预览。
+ * 代码块内容直接写入 .part 临时文件，闭合后原子替换为正式文件，内存中只保留当前行。
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements StreamingCodeBlockParser.BlockListener {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final String FALLBACK_PART_SUFFIX = ".fallback.part";
+
+    private final String baseDirPath;
+
+    /**
+     * 代码块语言 -> 文件名 映射，返回 null 表示忽略该代码块
+     */
+    private final Function<String, String> fileNameResolver;
+
+    /**
+     * 未找到代码块时，使用全部普通文本作为内容的兜底文件名（可为空）
+     */
+    private final String fallbackFileName;
+
+    /**
+     * 必须生成的文件名
+     */
+    private final String requiredFileName;
+
+    private final StreamingCodeBlockParser parser = new StreamingCodeBlockParser(this);
+
+    /**
+     * 已落盘的文件（同类型只保留第一个代码块，与正则解析器语义一致）
+     */
+    private final Set<String> savedFiles = new HashSet<>();
+
+    private PartFileWriter currentWriter;
+
+    private PartFileWriter fallbackWriter;
+
+    public StreamingCodeFileSaver(String baseDirPath, Function<String, String> fileNameResolver,
+                                  String fallbackFileName, String requiredFileName) {
+        this.baseDirPath = baseDirPath;
+        this.fileNameResolver = fileNameResolver;
+        this.fallbackFileName = fallbackFileName;
+        this.requiredFileName = requiredFileName;
+    }
+
+    /**
+     * 消费一个流式片段
+     */
+    public void accept(String chunk) {
+        parser.feed(chunk);
+    }
+
+    /**
+     * 流式输出完成：关闭未闭合的代码块，处理兜底文件并校验结果
+     *
+     * @return 保存的目录
+     */
+    public File complete() {
+        parser.finish();
+        if (fallbackWriter != null) {
+            if (!savedFiles.contains(fallbackFileName) && fallbackWriter.hasContent()) {
+                commit(fallbackWriter);
+            } else {
+                fallbackWriter.discard();
+            }
+            fallbackWriter = null;
+        }
+        if (requiredFileName != null && !savedFiles.contains(requiredFileName)) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML代码内容不能为空");
+        }
+        return new File(baseDirPath);
+    }
+
+    /**
+     * 流异常或取消：丢弃所有未完成的临时文件，已落盘的文件保持不变
+     */
+    public void abort() {
+        if (currentWriter != null) {
+            currentWriter.discard();
+            currentWriter = null;
+        }
+        if (fallbackWriter != null) {
+            fallbackWriter.discard();
+            fallbackWriter = null;
+        }
+    }
+
+    @Override
+    public void onBlockStart(String language) {
+        String fileName = fileNameResolver.apply(language);
+        if (fileName == null || savedFiles.contains(fileName)) {
+            currentWriter = null;
+            return;
+        }
+        currentWriter = new PartFileWriter(fileName, Path.of(baseDirPath, fileName + PART_SUFFIX));
+    }
+
+    @Override
+    public void onBlockLine(String language, String line) {
+        if (currentWriter != null) {
+            currentWriter.writeLine(line);
+        }
+    }
+
+    @Override
+    public void onBlockEnd(String language) {
+        if (currentWriter == null) {
+            return;
+        }
+        if (currentWriter.hasContent()) {
+            commit(currentWriter);
+        } else {
+            currentWriter.discard();
+        }
+        currentWriter = null;
+    }
+
+    @Override
+    public void onPlainLine(String line) {
+        if (fallbackFileName == null || savedFiles.contains(fallbackFileName)) {
+            return;
+        }
+        if (fallbackWriter == null) {
+            fallbackWriter = new PartFileWriter(fallbackFileName, Path.of(baseDirPath, fallbackFileName + FALLBACK_PART_SUFFIX));
+        }
+        fallbackWriter.writeLine(line);
+    }
+
+    /**
+     * 关闭临时文件并原子替换为正式文件
+     */
+    private void commit(PartFileWriter writer) {
+        Path target = writer.close();
+        savedFiles.add(writer.fileName);
+        log.info("代码块已落盘: {}", target);
+        if (fallbackWriter != null && writer != fallbackWriter && writer.fileName.equals(fallbackFileName)) {
+            fallbackWriter.discard();
+            fallbackWriter = null;
+        }
+    }
+
+    /**
+     * 单个临时文件写入器
+     * 跳过开头的空行，并延迟写入空行，使结果等价于对代码块内容做 trim
+     */
+    private static class PartFileWriter {
+
+        private final String fileName;
+
+        private final Path partPath;
+
+        private BufferedWriter writer;
+
+        private int pendingLineBreaks = 0;
+
+        private PartFileWriter(String fileName, Path partPath) {
+            this.fileName = fileName;
+            this.partPath = partPath;
+        }
+
+        private boolean hasContent() {
+            return writer != null;
+        }
+
+        private void writeLine(String line) {
+            boolean endsWithNewline = line.endsWith("\n");
+            String content = endsWithNewline ? line.substring(0, line.length() - 1) : line;
+            try {
+                if (content.isBlank()) {
+                    if (writer != null && endsWithNewline) {
+                        pendingLineBreaks++;
+                    }
+                    return;
+                }
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(partPath, StandardCharsets.UTF_8);
+                }
+                for (int i = 0; i < pendingLineBreaks; i++) {
+                    writer.write('\n');
+                }
+                writer.write(content);
+                pendingLineBreaks = endsWithNewline ? 1 : 0;
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入代码文件失败: " + e.getMessage());
+            }
+        }
+
+        private Path close() {
+            Path target = partPath.resolveSibling(fileName);
+            try {
+                writer.close();
+                try {
+                    Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return target;
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存代码文件失败: " + e.getMessage());
+            }
+        }
+
+        private void discard() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                Files.deleteIfExists(partPath);
+            } catch (IOException e) {
+                log.warn("清理临时代码文件失败: {}", partPath, e);
+            }
+        }
+    }
+}
@@ -1,22 +1,32 @@
 package com.sht.zdaicode.langgraph4j;
 
-import cn.hutool.core.thread.ExecutorBuilder;
-import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.langgraph4j.model.QualityResult;
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.node.*;
 import com.sht.zdaicode.langgraph4j.node.concurrent.*;
 import com.sht.zdaicode.langgraph4j.state.WorkflowContext;
+import com.sht.zdaicode.monitor.MonitorContext;
+import com.sht.zdaicode.monitor.MonitorContextHolder;
+import com.sht.zdaicode.monitor.NodeMonitor;
+import com.sht.zdaicode.monitor.WorkflowTimeline;
+import com.sht.zdaicode.monitor.WorkflowTimelineStore;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.*;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 import org.bsc.langgraph4j.prebuilt.MessagesStateGraph;
+import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 
 import reactor.core.publisher.Flux;
 
@@ -25,29 +35,64 @@ import static org.bsc.langgraph4j.StateGraph.START;
 import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
 
 @Slf4j
+@Component
 public class CodeGenConcurrentWorkflow {
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private WorkflowExecutorManager workflowExecutorManager;
+
+    @Resource
+    private WorkflowTimelineStore workflowTimelineStore;
+
+    /**
+     * 编译后的工作流图（无状态，可被并发执行复用，单次执行的状态仅存放在 WorkflowContext 中）
+     */
+    private CompiledGraph<MessagesState<String>> compiledWorkflow;
+
+    /**
+     * 启动预热：应用启动时编译一次工作流图，并记录构建耗时
+     */
+    @PostConstruct
+    public void warmUp() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        compiledWorkflow = createWorkflow();
+        long costNanos = sample.stop(Timer.builder("workflow.graph.build")
+                .description("工作流图编译耗时")
+                .tag("workflow", "code_gen_concurrent")
+                .register(meterRegistry));
+        log.info("并发工作流图预热完成，耗时 {} ms", costNanos / 1_000_000);
+    }
+
+    /**
+     * 获取编译后的并发工作流（单例复用）
+     */
+    public CompiledGraph<MessagesState<String>> getCompiledWorkflow() {
+        return compiledWorkflow;
+    }
 
     /**
      * 创建并发工作流
      */
-    public CompiledGraph<MessagesState<String>> createWorkflow() {
+    private CompiledGraph<MessagesState<String>> createWorkflow() {
         try {
             return new MessagesStateGraph<String>()
                     // 添加节点
-                    .addNode("image_plan", ImagePlanNode.create())
-                    .addNode("prompt_enhancer", PromptEnhancerNode.create())
-                    .addNode("router", RouterNode.create())
-                    .addNode("code_generator", CodeGeneratorNode.create())
-                    .addNode("code_quality_check", CodeQualityCheckNode.create())
-                    .addNode("project_builder", ProjectBuilderNode.create())
+                    .addNode("image_plan", NodeMonitor.wrap("image_plan", ImagePlanNode.create()))
+                    .addNode("prompt_enhancer", NodeMonitor.wrap("prompt_enhancer", PromptEnhancerNode.create()))
+                    .addNode("router", NodeMonitor.wrap("router", RouterNode.create()))
+                    .addNode("code_generator", NodeMonitor.wrap("code_generator", CodeGeneratorNode.create()))
+                    .addNode("code_quality_check", NodeMonitor.wrap("code_quality_check", CodeQualityCheckNode.create()))
+                    .addNode("project_builder", NodeMonitor.wrap("project_builder", ProjectBuilderNode.create()))
 
                     // 添加并发图片收集节点
-                    .addNode("content_image_collector", ContentImageCollectorNode.create())
-                    .addNode("illustration_collector", IllustrationCollectorNode.create())
-                    .addNode("diagram_collector", DiagramCollectorNode.create())
-                    .addNode("logo_collector", LogoCollectorNode.create())
-                    .addNode("image_aggregator", ImageAggregatorNode.create())
+                    .addNode("content_image_collector", NodeMonitor.wrap("content_image_collector", ContentImageCollectorNode.create()))
+                    .addNode("illustration_collector", NodeMonitor.wrap("illustration_collector", IllustrationCollectorNode.create()))
+                    .addNode("diagram_collector", NodeMonitor.wrap("diagram_collector", DiagramCollectorNode.create()))
+                    .addNode("logo_collector", NodeMonitor.wrap("logo_collector", LogoCollectorNode.create()))
+                    .addNode("image_aggregator", NodeMonitor.wrap("image_aggregator", ImageAggregatorNode.create()))
 
                     // 添加边
                     .addEdge(START, "image_plan")
@@ -88,36 +133,37 @@ public class CodeGenConcurrentWorkflow {
     /**
      * 执行并发工作流 - Flux流式返回
      */
-    public Flux<String> executeWorkflowWithFlux(String originalPrompt, Long appId) {
-        return Flux.create(sink -> {
-            Thread.startVirtualThread(() -> {
+    public Flux<StreamMessage> executeWorkflowWithFlux(String originalPrompt, Long appId) {
+        // 监控上下文取自订阅方的 Reactor Context，经 WorkflowContext 交给各节点（节点可能在其他线程执行）
+        // 文本片段包装为 AiResponseMessage，与节点直接输出的类型化消息按到达顺序写入同一个流
+        return Flux.deferContextual(contextView -> Flux.<StreamMessage>create(sink -> {
+            Consumer<String> textEmitter = text -> sink.next(new AiResponseMessage(text));
+            MonitorContext monitorContext = MonitorContextHolder.getContext(contextView);
+            WorkflowTimeline timeline = workflowTimelineStore.start("code_gen_concurrent", monitorContext);
+            Thread.startVirtualThread(MonitorContextHolder.wrap(() -> {
                 try {
-                    CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+                    CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
                     WorkflowContext initialContext = WorkflowContext.builder()
                             .originalPrompt(originalPrompt)
                             .appId(appId)
+                            .monitorContext(monitorContext)
+                            .timeline(timeline)
                             .currentStep("初始化")
-                            .tokenEmitter(sink::next)
+                            .tokenEmitter(textEmitter)
+                            .messageEmitter(sink::next)
                             .build();
 
-                    log.info("开始执行并发代码生成工作流 - Flux流式输出");
+                    log.info("开始执行并发代码生成工作流 - Flux流式输出，executionId: {}", timeline.getExecutionId());
 
                     // 发送开始消息
-                    sink.next("🚀 **开始执行Agent模式代码生成** \n\n");
-                    sink.next("💭 **思考过程：**正在分析您的需求... \n\n");
+                    textEmitter.accept("🚀 **开始执行Agent模式代码生成** \n\n");
+                    textEmitter.accept("💭 **思考过程：**正在分析您的需求... \n\n");
 
                     int stepCounter = 1;
                     WorkflowContext finalContext = null;
 
-                    // 配置并发执行
-                    ExecutorService pool = ExecutorBuilder.create()
-                            .setCorePoolSize(10)
-                            .setMaxPoolSize(20)
-                            .setWorkQueue(new LinkedBlockingQueue<>(100))
-                            .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("Parallel-Image-Collect").build())
-                            .build();
                     RunnableConfig runnableConfig = RunnableConfig.builder()
-                            .addParallelNodeExecutor("image_plan", pool)
+                            .addParallelNodeExecutor("image_plan", workflowExecutorManager.getParallelNodeExecutor())
                             .build();
                     for (NodeOutput<MessagesState<String>> step : workflow.stream(
                             Map.of(WorkflowContext.WORKFLOW_CONTEXT_KEY, initialContext),
@@ -128,7 +174,7 @@ public class CodeGenConcurrentWorkflow {
 
                             // 发送用户友好的步骤信息
                             String stepMessage = String.format("- ✅ **第 %d 步**：%s \n\n", stepCounter, currentContext.getCurrentStep());
-                            sink.next(stepMessage);
+                            textEmitter.accept(stepMessage);
 
                             log.info("--- 第 {} 步完成: {} ---", stepCounter, currentContext.getCurrentStep());
                         }
@@ -137,23 +183,25 @@ public class CodeGenConcurrentWorkflow {
 
                     // 发送完成消息
                     if (finalContext != null && finalContext.getGeneratedCode() != null) {
-                        sink.next("✅ **代码生成完成！** ");
-                        sink.next("📝 **生成的代码：** ");
-                        sink.next(finalContext.getGeneratedCode());
+                        textEmitter.accept("✅ **代码生成完成！** ");
+                        textEmitter.accept("📝 **生成的代码：** ");
+                        textEmitter.accept(finalContext.getGeneratedCode());
                     } else {
-                        sink.next("❌ **代码生成失败，请重试** ");
+                        textEmitter.accept("❌ **代码生成失败，请重试** ");
                     }
 
+                    timeline.finish(true);
                     sink.complete();
                     log.info("并发代码生成工作流执行完成！");
 
                 } catch (Exception e) {
                     log.error("并发工作流执行失败", e);
-                    sink.next("❌ **执行失败：** " + e.getMessage() + " ");
+                    textEmitter.accept("❌ **执行失败：** " + e.getMessage() + " ");
+                    timeline.finish(false);
                     sink.error(e);
                 }
-            });
-        });
+            }));
+        }));
     }
 
     /**
@@ -238,7 +286,7 @@ public class CodeGenConcurrentWorkflow {
      * 执行并发工作流
      */
     public WorkflowContext executeWorkflow(String originalPrompt) {
-        CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+        CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
         WorkflowContext initialContext = WorkflowContext.builder()
                 .originalPrompt(originalPrompt)
                 .currentStep("初始化")
@@ -1,59 +1,105 @@
 package com.sht.zdaicode.langgraph4j;
 
-import cn.hutool.core.thread.ExecutorBuilder;
-import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.langgraph4j.model.QualityResult;
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.node.*;
 import com.sht.zdaicode.langgraph4j.node.concurrent.*;
 import com.sht.zdaicode.langgraph4j.state.WorkflowContext;
+import com.sht.zdaicode.monitor.MonitorContext;
+import com.sht.zdaicode.monitor.MonitorContextHolder;
+import com.sht.zdaicode.monitor.NodeMonitor;
+import com.sht.zdaicode.monitor.WorkflowTimeline;
+import com.sht.zdaicode.monitor.WorkflowTimelineStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.*;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 import org.bsc.langgraph4j.prebuilt.MessagesStateGraph;
+import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
 import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
 
 @Slf4j
+@Component
 public class FullStackCodeGenWorkflow {
 
     private static final int MAX_RETRIES = 2;
 
-    public CompiledGraph<MessagesState<String>> createWorkflow() {
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private WorkflowExecutorManager workflowExecutorManager;
+
+    @Resource
+    private WorkflowTimelineStore workflowTimelineStore;
+
+    /**
+     * 编译后的全栈工作流图（无状态，可被并发执行复用，单次执行的状态仅存放在 WorkflowContext 中）
+     */
+    private CompiledGraph<MessagesState<String>> compiledWorkflow;
+
+    /**
+     * 启动预热：应用启动时编译一次工作流图，并记录构建耗时
+     */
+    @PostConstruct
+    public void warmUp() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        compiledWorkflow = createWorkflow();
+        long costNanos = sample.stop(Timer.builder("workflow.graph.build")
+                .description("工作流图编译耗时")
+                .tag("workflow", "fullstack_code_gen")
+                .register(meterRegistry));
+        log.info("全栈工作流图预热完成，耗时 {} ms", costNanos / 1_000_000);
+    }
+
+    /**
+     * 获取编译后的全栈工作流（单例复用）
+     */
+    public CompiledGraph<MessagesState<String>> getCompiledWorkflow() {
+        return compiledWorkflow;
+    }
+
+    private CompiledGraph<MessagesState<String>> createWorkflow() {
         try {
             return new MessagesStateGraph<String>()
                     // 注册所有节点
-                    .addNode("requirements_analysis", RequirementsAnalysisNode.create())
-                    .addNode("database_designer", DatabaseDesignerNode.create())
-                    .addNode("db_quality_check", DbQualityCheckNode.create())
-                    .addNode("api_contract_generator", ApiContractGeneratorNode.create())
+                    .addNode("requirements_analysis", NodeMonitor.wrap("requirements_analysis", RequirementsAnalysisNode.create()))
+                    .addNode("database_designer", NodeMonitor.wrap("database_designer", DatabaseDesignerNode.create()))
+                    .addNode("db_quality_check", NodeMonitor.wrap("db_quality_check", DbQualityCheckNode.create()))
+                    .addNode("api_contract_generator", NodeMonitor.wrap("api_contract_generator", ApiContractGeneratorNode.create()))
                     
                     // 前后端并行生成及质检节点
                     // 1. 前端分支 (包含图片并发收集)
-                    .addNode("image_plan", FullStackImagePlanNode.create())
-                    .addNode("content_image_collector", ContentImageCollectorNode.create())
-                    .addNode("illustration_collector", IllustrationCollectorNode.create())
-                    .addNode("diagram_collector", DiagramCollectorNode.create())
-                    .addNode("logo_collector", LogoCollectorNode.create())
-                    .addNode("image_aggregator", ImageAggregatorNode.create())
-                    .addNode("prompt_enhancer", FullStackPromptEnhancerNode.create())
-                    .addNode("frontend_generator", FrontendCodeGeneratorNode.create())
-                    .addNode("frontend_quality_check", FrontendQualityCheckNode.create())
+                    .addNode("image_plan", NodeMonitor.wrap("image_plan", FullStackImagePlanNode.create()))
+                    .addNode("content_image_collector", NodeMonitor.wrap("content_image_collector", ContentImageCollectorNode.create()))
+                    .addNode("illustration_collector", NodeMonitor.wrap("illustration_collector", IllustrationCollectorNode.create()))
+                    .addNode("diagram_collector", NodeMonitor.wrap("diagram_collector", DiagramCollectorNode.create()))
+                    .addNode("logo_collector", NodeMonitor.wrap("logo_collector", LogoCollectorNode.create()))
+                    .addNode("image_aggregator", NodeMonitor.wrap("image_aggregator", ImageAggregatorNode.create()))
+                    .addNode("prompt_enhancer", NodeMonitor.wrap("prompt_enhancer", FullStackPromptEnhancerNode.create()))
+                    .addNode("frontend_generator", NodeMonitor.wrap("frontend_generator", FrontendCodeGeneratorNode.create()))
+                    .addNode("frontend_quality_check", NodeMonitor.wrap("frontend_quality_check", FrontendQualityCheckNode.create()))
                     
                     // 2. 后端分支
-                    .addNode("backend_generator", BackendCodeGeneratorNode.create())
-                    .addNode("backend_quality_check", BackendQualityCheckNode.create())
+                    .addNode("backend_generator", NodeMonitor.wrap("backend_generator", BackendCodeGeneratorNode.create()))
+                    .addNode("backend_quality_check", NodeMonitor.wrap("backend_quality_check", BackendQualityCheckNode.create()))
                     
-                    .addNode("fullstack_convergence", FullStackConvergenceNode.create())
-                    .addNode("project_builder", ProjectBuilderNode.create())
+                    .addNode("fullstack_convergence", NodeMonitor.wrap("fullstack_convergence", FullStackConvergenceNode.create()))
+                    .addNode("project_builder", NodeMonitor.wrap("project_builder", ProjectBuilderNode.create()))
 
                     // 定义流程图边
                     .addEdge(START, "requirements_analysis")
@@ -154,32 +200,32 @@ public class FullStackCodeGenWorkflow {
         return "fail";
     }
 
-    public Flux<String> executeWorkflowWithFlux(String originalPrompt, Long appId) {
-        return Flux.create(sink -> {
-            Thread.startVirtualThread(() -> {
+    public Flux<StreamMessage> executeWorkflowWithFlux(String originalPrompt, Long appId) {
+        // 监控上下文取自订阅方的 Reactor Context，经 WorkflowContext 交给各节点（节点可能在其他线程执行）
+        // 文本片段包装为 AiResponseMessage，与节点直接输出的类型化消息按到达顺序写入同一个流
+        return Flux.deferContextual(contextView -> Flux.<StreamMessage>create(sink -> {
+            Consumer<String> textEmitter = text -> sink.next(new AiResponseMessage(text));
+            MonitorContext monitorContext = MonitorContextHolder.getContext(contextView);
+            WorkflowTimeline timeline = workflowTimelineStore.start("fullstack_code_gen", monitorContext);
+            Thread.startVirtualThread(MonitorContextHolder.wrap(() -> {
                 try {
-                    CompiledGraph<MessagesState<String>> workflow = createWorkflow();
+                    CompiledGraph<MessagesState<String>> workflow = compiledWorkflow;
                     WorkflowContext initialContext = WorkflowContext.builder()
                             .originalPrompt(originalPrompt)
                             .appId(appId)
+                            .monitorContext(monitorContext)
+                            .timeline(timeline)
                             .currentStep("初始化")
-                            .tokenEmitter(sink::next)
+                            .tokenEmitter(textEmitter)
+                            .messageEmitter(sink::next)
                             .build();
 
-                    log.info("开始执行全栈代码生成工作流 - Flux流式输出");
-                    sink.next("🚀 **开始执行全栈 Agent 模式代码生成** \n\n");
-                    sink.next("💭 **思考过程：**正在启动全栈自动化流程... \n\n");
+                    log.info("开始执行全栈代码生成工作流 - Flux流式输出，executionId: {}", timeline.getExecutionId());
+                    textEmitter.accept("🚀 **开始执行全栈 Agent 模式代码生成** \n\n");
+                    textEmitter.accept("💭 **思考过程：**正在启动全栈自动化流程... \n\n");
 
-                    // 配置并发执行器
-                    ExecutorService pool = ExecutorBuilder.create()
-                            .setCorePoolSize(5)
-                            .setMaxPoolSize(10)
-                            .setWorkQueue(new LinkedBlockingQueue<>(100))
-                            .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("FullStack-Parallel").build())
-                            .build();
-                            
                     RunnableConfig runnableConfig = RunnableConfig.builder()
-                            .addParallelNodeExecutor("image_plan", pool) // 在前端分支的扇出点设置并发执行器 (拆分四种图片收集)
+                            .addParallelNodeExecutor("image_plan", workflowExecutorManager.getParallelNodeExecutor()) // 在前端分支的扇出点设置并发执行器 (拆分四种图片收集)
                             .build();
 
                     for (NodeOutput<MessagesState<String>> step : workflow.stream(
@@ -187,20 +233,22 @@ public class FullStackCodeGenWorkflow {
                             runnableConfig)) {
                         WorkflowContext currentContext = WorkflowContext.getContext(step.state());
                         if (currentContext != null) {
-                            sink.next(String.format("- ✅ **当前阶段**：%s \n\n", currentContext.getCurrentStep()));
+                            textEmitter.accept(String.format("- ✅ **当前阶段**：%s \n\n", currentContext.getCurrentStep()));
                         }
                     }
 
-                    sink.next("✅ **全栈代码生成工作流执行完毕！** \n");
+                    textEmitter.accept("✅ **全栈代码生成工作流执行完毕！** \n");
+                    timeline.finish(true);
                     sink.complete();
                     log.info("全栈代码生成工作流执行完成！");
 
                 } catch (Exception e) {
                     log.error("全栈工作流执行失败", e);
-                    sink.next("❌ **执行失败：** " + e.getMessage() + " \n");
+                    textEmitter.accept("❌ **执行失败：** " + e.getMessage() + " \n");
+                    timeline.finish(false);
                     sink.error(e);
                 }
-            });
-        });
+            }));
+        }));
     }
 }
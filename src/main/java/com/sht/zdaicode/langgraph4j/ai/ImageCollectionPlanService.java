@@ -1,5 +1,6 @@
 package com.sht.zdaicode.langgraph4j.ai;
 
+import com.sht.zdaicode.annotation.MemoizedAiCall;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
@@ -9,6 +10,7 @@ public interface ImageCollectionPlanService {
     /**
      * 根据用户提示词分析需要收集的图片类型和参数
      */
+    @MemoizedAiCall
     @SystemMessage(fromResource = "prompt/image-collection-plan-system-prompt.txt")
     ImageCollectionPlan planImageCollection(@UserMessage String userPrompt);
 }
@@ -1,5 +1,6 @@
 package com.sht.zdaicode.langgraph4j.ai;
 
+import com.sht.zdaicode.ai.memo.AiCallMemoizer;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
 import jakarta.annotation.Resource;
@@ -12,10 +13,14 @@ public class ImageCollectionPlanServiceFactory {
     @Resource(name = "openAiChatModel")
     private ChatModel chatModel;
 
+    @Resource
+    private AiCallMemoizer aiCallMemoizer;
+
     @Bean
     public ImageCollectionPlanService createImageCollectionPlanService() {
-        return AiServices.builder(ImageCollectionPlanService.class)
+        ImageCollectionPlanService service = AiServices.builder(ImageCollectionPlanService.class)
                 .chatModel(chatModel)
                 .build();
+        return aiCallMemoizer.wrap(ImageCollectionPlanService.class, service, chatModel);
     }
 }
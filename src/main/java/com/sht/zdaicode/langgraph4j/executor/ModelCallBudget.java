@@ -0,0 +1,66 @@
+package com.sht.zdaicode.langgraph4j.executor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个模型的调用预算（滑动 1 分钟窗口）
+ * 同时限制每分钟请求数（RPM）与每分钟预估 token 数（TPM），预算不足时阻塞等待最早的调用移出窗口
+ */
+public class ModelCallBudget {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int requestsPerMinute;
+
+    private final long tokensPerMinute;
+
+    /**
+     * 窗口内的调用记录：[开始时间(纳秒), 预估 token 数]
+     */
+    private final Deque<long[]> window = new ArrayDeque<>();
+
+    private long windowTokens = 0;
+
+    private final Timer waitTimer;
+
+    public ModelCallBudget(String model, int requestsPerMinute, long tokensPerMinute, MeterRegistry meterRegistry) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.waitTimer = Timer.builder("workflow.model.budget.wait")
+                .description("等待模型调用预算的耗时")
+                .tag("model", model)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取一次调用的预算，不足时阻塞（应在虚拟线程中调用）
+     *
+     * @param estimatedTokens 本次调用预估 token 数（单次超过 TPM 时按窗口为空放行，避免永久阻塞）
+     */
+    public void acquire(long estimatedTokens) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        synchronized (this) {
+            while (true) {
+                long now = System.nanoTime();
+                while (!window.isEmpty() && now - window.peekFirst()[0] >= WINDOW_NANOS) {
+                    windowTokens -= window.pollFirst()[1];
+                }
+                boolean withinRpm = window.size() < requestsPerMinute;
+                boolean withinTpm = window.isEmpty() || windowTokens + estimatedTokens <= tokensPerMinute;
+                if (withinRpm && withinTpm) {
+                    window.addLast(new long[]{now, estimatedTokens});
+                    windowTokens += estimatedTokens;
+                    break;
+                }
+                long waitNanos = WINDOW_NANOS - (now - window.peekFirst()[0]);
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        }
+        waitTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
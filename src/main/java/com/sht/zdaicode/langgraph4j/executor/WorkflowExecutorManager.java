@@ -0,0 +1,247 @@
+package com.sht.zdaicode.langgraph4j.executor;
+
+import cn.hutool.core.collection.CollUtil;
+import com.sht.zdaicode.config.WorkflowExecutorConfig;
+import com.sht.zdaicode.langgraph4j.model.ImageResource;
+import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
+import com.sht.zdaicode.monitor.MonitorContextHolder;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 工作流执行器管理器
+ * 1. 为 LangGraph 并行分支提供全局共享、有界的虚拟线程执行器
+ * 2. 为图片收集等 I/O 任务提供虚拟线程执行，并按提供方进行并发许可控制
+ * 3. 通过 Micrometer 暴露队列深度、活跃任务数、拒绝次数等指标
+ * 4. 按模型提供调用预算（RPM / TPM），供并发调用 LLM 的节点共享
+ */
+@Slf4j
+public class WorkflowExecutorManager {
+
+    private final ThreadPoolExecutor parallelNodeExecutor;
+
+    private final ExecutorService collectorExecutor;
+
+    /**
+     * 对外提供的执行器：提交任务时捕获调用线程上的上下文（监控上下文等），执行时恢复、结束后清理
+     */
+    private final ExecutorService contextParallelNodeExecutor;
+
+    private final ExecutorService contextCollectorExecutor;
+
+    private final Map<ImageCategoryEnum, Semaphore> providerPermits = new EnumMap<>(ImageCategoryEnum.class);
+
+    private final Map<ImageCategoryEnum, Counter> providerRejectedCounters = new EnumMap<>(ImageCategoryEnum.class);
+
+    private final Map<String, ModelCallBudget> modelCallBudgets = new ConcurrentHashMap<>();
+
+    private final WorkflowExecutorConfig config;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter parallelRejectedCounter;
+
+    private final long permitTimeoutSeconds;
+
+    private final long shutdownTimeoutSeconds;
+
+    public WorkflowExecutorManager(WorkflowExecutorConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.permitTimeoutSeconds = config.getPermitTimeoutSeconds();
+        this.shutdownTimeoutSeconds = config.getShutdownTimeoutSeconds();
+        this.parallelRejectedCounter = Counter.builder("workflow.executor.rejected")
+                .description("并行分支队列已满、回退到调用线程执行的任务数")
+                .register(meterRegistry);
+        // 并行分支执行器：虚拟线程 + 有界队列，队列满时回退到调用线程执行，避免工作流失败
+        this.parallelNodeExecutor = new ThreadPoolExecutor(
+                config.getParallelPoolSize(),
+                config.getParallelPoolSize(),
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(config.getQueueCapacity()),
+                Thread.ofVirtual().name("workflow-parallel-", 0).factory(),
+                (task, executor) -> {
+                    parallelRejectedCounter.increment();
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("工作流执行器已关闭");
+                    }
+                    task.run();
+                });
+        this.parallelNodeExecutor.allowCoreThreadTimeOut(true);
+        // 收集任务执行器：每任务一个虚拟线程，并发度由提供方许可约束
+        this.collectorExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("image-collector-", 0).factory());
+        this.contextParallelNodeExecutor = ContextExecutorService.wrap(parallelNodeExecutor, MonitorContextHolder::captureSnapshot);
+        this.contextCollectorExecutor = ContextExecutorService.wrap(collectorExecutor, MonitorContextHolder::captureSnapshot);
+
+        Gauge.builder("workflow.executor.queue.depth", parallelNodeExecutor, executor -> executor.getQueue().size())
+                .description("并行分支执行器等待队列深度")
+                .register(meterRegistry);
+        Gauge.builder("workflow.executor.active", parallelNodeExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("并行分支执行器活跃任务数")
+                .register(meterRegistry);
+        for (ImageCategoryEnum category : ImageCategoryEnum.values()) {
+            int permits = config.getProviderPermits().getOrDefault(category.getValue(), config.getDefaultProviderPermits());
+            Semaphore semaphore = new Semaphore(permits, true);
+            providerPermits.put(category, semaphore);
+            String provider = category.getValue();
+            Gauge.builder("workflow.collector.active", semaphore, s -> permits - s.availablePermits())
+                    .description("图片提供方活跃任务数")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            Gauge.builder("workflow.collector.queue.depth", semaphore, Semaphore::getQueueLength)
+                    .description("等待图片提供方许可的任务数")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            providerRejectedCounters.put(category, Counter.builder("workflow.collector.rejected")
+                    .description("等待许可超时或被拒绝的图片收集任务数")
+                    .tag("provider", provider)
+                    .register(meterRegistry));
+        }
+        log.info("工作流执行器初始化完成，并行度: {}, 队列容量: {}", config.getParallelPoolSize(), config.getQueueCapacity());
+    }
+
+    /**
+     * 获取 LangGraph 并行分支执行器（全局共享，不可由调用方关闭）
+     */
+    public ExecutorService getParallelNodeExecutor() {
+        return contextParallelNodeExecutor;
+    }
+
+    /**
+     * 获取用于阻塞式 I/O 任务的虚拟线程执行器（每任务一个虚拟线程，不可由调用方关闭）
+     */
+    public Executor getBlockingTaskExecutor() {
+        return contextCollectorExecutor;
+    }
+
+    /**
+     * 获取模型调用预算，未配置的模型使用默认预算
+     *
+     * @param model 模型标识
+     */
+    public ModelCallBudget getModelCallBudget(String model) {
+        return modelCallBudgets.computeIfAbsent(model, key -> {
+            WorkflowExecutorConfig.ModelBudget budget = config.getModelBudgets()
+                    .getOrDefault(key, new WorkflowExecutorConfig.ModelBudget());
+            return new ModelCallBudget(key, budget.getRequestsPerMinute(), budget.getTokensPerMinute(), meterRegistry);
+        });
+    }
+
+    /**
+     * 并发执行某一提供方的全部收集任务，并合并结果
+     *
+     * @param category     图片提供方
+     * @param tasks        任务列表
+     * @param taskFunction 任务执行函数
+     * @return 合并后的图片资源列表（单个任务失败不影响其他任务）
+     */
+    public <T> List<ImageResource> collect(ImageCategoryEnum category, List<T> tasks,
+                                           Function<T, List<ImageResource>> taskFunction) {
+        return collectAsync(category, tasks, taskFunction).join();
+    }
+
+    /**
+     * 异步并发执行某一提供方的全部收集任务
+     */
+    public <T> CompletableFuture<List<ImageResource>> collectAsync(ImageCategoryEnum category, List<T> tasks,
+                                                                   Function<T, List<ImageResource>> taskFunction) {
+        if (CollUtil.isEmpty(tasks)) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<CompletableFuture<List<ImageResource>>> futures = new ArrayList<>(tasks.size());
+        for (T task : tasks) {
+            futures.add(submitWithPermit(category, () -> taskFunction.apply(task)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<ImageResource> results = new ArrayList<>();
+                    for (CompletableFuture<List<ImageResource>> future : futures) {
+                        List<ImageResource> images = future.join();
+                        if (images != null) {
+                            results.addAll(images);
+                        }
+                    }
+                    return results;
+                });
+    }
+
+    /**
+     * 在提供方许可保护下提交单个任务
+     */
+    private CompletableFuture<List<ImageResource>> submitWithPermit(ImageCategoryEnum category,
+                                                                    Supplier<List<ImageResource>> supplier) {
+        Semaphore semaphore = providerPermits.get(category);
+        Counter rejectedCounter = providerRejectedCounters.get(category);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                boolean acquired = false;
+                try {
+                    acquired = semaphore.tryAcquire(permitTimeoutSeconds, TimeUnit.SECONDS);
+                    if (!acquired) {
+                        rejectedCounter.increment();
+                        log.warn("等待图片提供方 {} 许可超时，跳过该任务", category.getValue());
+                        return List.<ImageResource>of();
+                    }
+                    return supplier.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return List.<ImageResource>of();
+                } catch (Exception e) {
+                    log.error("图片收集任务执行失败, provider: {}, error: {}", category.getValue(), e.getMessage(), e);
+                    return List.<ImageResource>of();
+                } finally {
+                    if (acquired) {
+                        semaphore.release();
+                    }
+                }
+            }, contextCollectorExecutor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("图片收集执行器已关闭，拒绝任务, provider: {}", category.getValue());
+            return CompletableFuture.completedFuture(List.of());
+        }
+    }
+
+    /**
+     * 优雅关闭：先停止接收新任务，等待在途任务完成，超时后强制中断
+     */
+    public void shutdown() {
+        log.info("正在关闭工作流执行器...");
+        shutdownExecutor(parallelNodeExecutor, "workflow-parallel");
+        shutdownExecutor(collectorExecutor, "image-collector");
+    }
+
+    private void shutdownExecutor(ExecutorService executor, String name) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                log.warn("执行器 {} 未能在 {} 秒内结束，强制关闭", name, shutdownTimeoutSeconds);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
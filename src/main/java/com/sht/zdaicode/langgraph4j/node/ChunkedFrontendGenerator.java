@@ -1,20 +1,28 @@
 package com.sht.zdaicode.langgraph4j.node;
 
-import cn.hutool.json.JSONUtil;
 import com.sht.zdaicode.ai.VueProjectAiService;
 import com.sht.zdaicode.ai.VueProjectAiServiceFactory;
 import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.ai.model.message.ToolExecutedMessage;
 import com.sht.zdaicode.ai.model.message.ToolRequestMessage;
 import com.sht.zdaicode.ai.model.scheam.FrontendSchemaView;
+import com.sht.zdaicode.config.WorkflowExecutorConfig;
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.utils.SpringContextUtil;
 import dev.langchain4j.service.TokenStream;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,7 +31,8 @@ import java.util.stream.Collectors;
  * 生成分为 3 个阶段：
  * <ol>
  *   <li><b>骨架阶段</b>: 生成项目基础文件 (package.json, vite.config.ts, main.ts, App.vue, request.ts)</li>
- *   <li><b>实体阶段</b>: 逐个实体生成 API 文件和增删改查页面 (src/api/xxx.ts + src/views/xxx/Index.vue)</li>
+ *   <li><b>实体阶段</b>: 按实体并行生成 API 文件和增删改查页面 (src/api/xxx.ts + src/views/xxx/Index.vue)，
+ *   并发数与模型调用预算可配置，单个实体独立重试，输出按实体顺序回放</li>
  *   <li><b>路由阶段</b>: 根据所有实体生成路由配置 (src/router/index.ts)</li>
  * </ol>
  * <b>优势</b>:
@@ -37,14 +46,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ChunkedFrontendGenerator {
 
+    /**
+     * 分批生成使用的模型预算标识（对应 reasoningStreamingChatModelPrototype）
+     */
+    private static final String MODEL_BUDGET_KEY = "reasoning";
+
     private final FrontendSchemaView schema;
     private final Long appId;
-    private final Consumer<String> tokenEmitter;
+    /**
+     * 输出目标：进度文本包装为 AiResponseMessage，模型输出与工具调用直接以类型化消息传递，由下游处理器渲染
+     */
+    private final Consumer<StreamMessage> messageEmitter;
 
-    public ChunkedFrontendGenerator(FrontendSchemaView schema, Long appId, Consumer<String> tokenEmitter) {
+    public ChunkedFrontendGenerator(FrontendSchemaView schema, Long appId, Consumer<StreamMessage> messageEmitter) {
         this.schema = schema;
         this.appId = appId;
-        this.tokenEmitter = tokenEmitter;
+        this.messageEmitter = messageEmitter;
     }
 
     /**
@@ -67,8 +84,8 @@ public class ChunkedFrontendGenerator {
                     int done = completedPhases.incrementAndGet();
                     emitProgress(String.format("\n> ✅ [%d/%d] 项目骨架生成完成\n\n", done, totalPhases));
                 })
-                // Phase 2: Per-entity (sequential)
-                .thenCompose(v -> executeEntityPhasesSequentially(completedPhases, totalPhases))
+                // Phase 2: Per-entity (parallel)
+                .thenCompose(v -> executeEntityPhasesInParallel(completedPhases, totalPhases))
                 // Phase 3: Router
                 .thenCompose(v -> {
                     emitProgress("\n> 🛤️ 正在生成路由配置...\n\n");
@@ -87,7 +104,7 @@ public class ChunkedFrontendGenerator {
         emitProgress("\n> 🏗️ [阶段1] 正在生成 Vue3 项目骨架文件...\n\n");
 
         String scaffoldPrompt = buildScaffoldPrompt();
-        return executeChunk(scaffoldPrompt, "骨架文件");
+        return executeChunk(scaffoldPrompt, "骨架文件", messageEmitter);
     }
 
     private String buildScaffoldPrompt() {
@@ -121,34 +138,89 @@ public class ChunkedFrontendGenerator {
 
     // ========== Phase 2: Per-Entity ==========
 
-    private CompletableFuture<Void> executeEntityPhasesSequentially(AtomicInteger completedPhases, int totalPhases) {
+    /**
+     * 并行执行实体阶段
+     * 各实体只写入自己的 api 与 views 文件，骨架完成后互不依赖；
+     * 输出按实体顺序回放（当前实体实时输出，后续实体缓冲），与顺序执行的展示效果一致
+     */
+    private CompletableFuture<Void> executeEntityPhasesInParallel(AtomicInteger completedPhases, int totalPhases) {
         List<FrontendSchemaView.EntityView> entities = schema.getEntities();
         if (entities == null || entities.isEmpty()) {
             log.info("无实体需要生成，跳过实体阶段");
             return CompletableFuture.completedFuture(null);
         }
+        WorkflowExecutorConfig config = SpringContextUtil.getBean(WorkflowExecutorConfig.class);
+        Executor executor = SpringContextUtil.getBean(WorkflowExecutorManager.class).getBlockingTaskExecutor();
+        int concurrency = Math.max(1, Math.min(config.getChunkedEntityConcurrency(), entities.size()));
+        log.info("实体阶段并行生成: {} 个实体, 并发数: {}", entities.size(), concurrency);
 
-        // 使用 CompletableFuture 链式顺序执行
-        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        OrderedOutput orderedOutput = new OrderedOutput(entities.size(), messageEmitter);
+        Semaphore permits = new Semaphore(concurrency);
+        // 按顺序回放时，第 i 个实体完成时的阶段序号固定为 已完成阶段数 + i
+        int baseCompleted = completedPhases.get();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(entities.size());
 
         for (int i = 0; i < entities.size(); i++) {
             final FrontendSchemaView.EntityView entity = entities.get(i);
             final int entityIndex = i + 1;
-
-            chain = chain.thenCompose(v -> {
-                emitProgress(String.format("\n> 💻 [实体 %d/%d] 正在生成 %s (%s) 的前端代码...\n\n",
-                        entityIndex, entities.size(), entity.getEntityName(), entity.getLabel()));
-
-                String entityPrompt = buildEntityPrompt(entity);
-                return executeChunk(entityPrompt, entity.getEntityName());
-            }).thenAccept(v -> {
-                int done = completedPhases.incrementAndGet();
-                emitProgress(String.format("\n> ✅ [%d/%d] %s 前端代码生成完成\n\n",
-                        done, totalPhases, entity.getEntityName()));
-            });
+            final int slotIndex = i;
+            final Consumer<StreamMessage> output = orderedOutput.slot(slotIndex);
+
+            CompletableFuture<Void> future = CompletableFuture
+                    .runAsync(() -> acquirePermit(permits), executor)
+                    .thenCompose(v -> {
+                        output.accept(new AiResponseMessage(String.format("\n> 💻 [实体 %d/%d] 正在生成 %s (%s) 的前端代码...\n\n",
+                                entityIndex, entities.size(), entity.getEntityName(), entity.getLabel())));
+                        return executeEntityWithRetry(entity, buildEntityPrompt(entity), output, config, executor, 1)
+                                .whenComplete((result, error) -> permits.release());
+                    })
+                    .whenComplete((v, error) -> {
+                        if (error == null) {
+                            completedPhases.incrementAndGet();
+                            output.accept(new AiResponseMessage(String.format("\n> ✅ [%d/%d] %s 前端代码生成完成\n\n",
+                                    baseCompleted + entityIndex, totalPhases, entity.getEntityName())));
+                        }
+                        orderedOutput.complete(slotIndex);
+                    });
+            futures.add(future);
         }
 
-        return chain;
+        // 全部实体结束后才进入路由阶段；任一实体重试耗尽则整体失败
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 执行单个实体，失败后按退避时间独立重试
+     */
+    private CompletableFuture<Void> executeEntityWithRetry(FrontendSchemaView.EntityView entity, String prompt,
+                                                           Consumer<StreamMessage> output, WorkflowExecutorConfig config,
+                                                           Executor executor, int attempt) {
+        return executeChunk(prompt, entity.getEntityName(), output)
+                .handle((v, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    if (attempt >= config.getChunkedEntityMaxAttempts()) {
+                        return CompletableFuture.<Void>failedFuture(error);
+                    }
+                    long backoffMillis = config.getChunkedRetryBackoffMillis() * attempt;
+                    log.warn("实体 [{}] 第 {} 次生成失败，{}ms 后重试", entity.getEntityName(), attempt, backoffMillis);
+                    output.accept(new AiResponseMessage(String.format("\n> 🔁 %s 将在 %d 秒后重试 (第 %d 次)\n\n",
+                            entity.getEntityName(), backoffMillis / 1000, attempt)));
+                    Executor delayed = CompletableFuture.delayedExecutor(backoffMillis, TimeUnit.MILLISECONDS, executor);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(ignored -> executeEntityWithRetry(entity, prompt, output, config, executor, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private static void acquirePermit(Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
     }
 
     private String buildEntityPrompt(FrontendSchemaView.EntityView entity) {
@@ -206,7 +278,7 @@ public class ChunkedFrontendGenerator {
 
     private CompletableFuture<Void> executeRouterPhase() {
         String routerPrompt = buildRouterPrompt();
-        return executeChunk(routerPrompt, "路由配置");
+        return executeChunk(routerPrompt, "路由配置", messageEmitter);
     }
 
     private String buildRouterPrompt() {
@@ -236,13 +308,34 @@ public class ChunkedFrontendGenerator {
     // ========== Core: Execute Single Chunk ==========
 
     /**
-     * 执行单个 chunk 的 AI 调用
+     * 执行单个 chunk 的 AI 调用：先在虚拟线程中等待模型调用预算，再发起流式调用
+     *
+     * @param output chunk 的输出目标（可为空）
+     */
+    private CompletableFuture<Void> executeChunk(String prompt, String chunkName, Consumer<StreamMessage> output) {
+        WorkflowExecutorConfig config = SpringContextUtil.getBean(WorkflowExecutorConfig.class);
+        WorkflowExecutorManager executorManager = SpringContextUtil.getBean(WorkflowExecutorManager.class);
+        long estimatedTokens = prompt.length() + config.getChunkedEstimatedOutputTokens();
+        return CompletableFuture
+                .runAsync(() -> {
+                    try {
+                        executorManager.getModelCallBudget(MODEL_BUDGET_KEY).acquire(estimatedTokens);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                    }
+                }, executorManager.getBlockingTaskExecutor())
+                .thenCompose(v -> startChunk(prompt, chunkName, output));
+    }
+
+    /**
+     * 发起单个 chunk 的流式调用
      * <p>
      * 每次调用都创建全新的 VueProjectAiService 实例 (无状态、无历史)，
      * 确保每个 chunk 的上下文完全隔离。
      * </p>
      */
-    private CompletableFuture<Void> executeChunk(String prompt, String chunkName) {
+    private CompletableFuture<Void> startChunk(String prompt, String chunkName, Consumer<StreamMessage> output) {
         CompletableFuture<Void> future = new CompletableFuture<>();
 
         try {
@@ -254,23 +347,21 @@ public class ChunkedFrontendGenerator {
 
             TokenStream tokenStream = aiService.createFullStackVueProjectCodeStream(appId, prompt);
 
+            // 类型化消息直接传给下游，不做 JSON 编码，只在 SSE 边界序列化一次
             tokenStream
                     .onPartialResponse(partialResponse -> {
-                        if (tokenEmitter != null) {
-                            AiResponseMessage msg = new AiResponseMessage(partialResponse);
-                            tokenEmitter.accept(JSONUtil.toJsonStr(msg));
+                        if (output != null) {
+                            output.accept(new AiResponseMessage(partialResponse));
                         }
                     })
                     .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                        if (tokenEmitter != null) {
-                            ToolRequestMessage msg = new ToolRequestMessage(toolExecutionRequest);
-                            tokenEmitter.accept(JSONUtil.toJsonStr(msg));
+                        if (output != null) {
+                            output.accept(new ToolRequestMessage(toolExecutionRequest));
                         }
                     })
                     .onToolExecuted(toolExecution -> {
-                        if (tokenEmitter != null) {
-                            ToolExecutedMessage msg = new ToolExecutedMessage(toolExecution);
-                            tokenEmitter.accept(JSONUtil.toJsonStr(msg));
+                        if (output != null) {
+                            output.accept(new ToolExecutedMessage(toolExecution));
                         }
                     })
                     .onCompleteResponse(response -> {
@@ -280,7 +371,9 @@ public class ChunkedFrontendGenerator {
                     })
                     .onError(error -> {
                         log.error("❌ 分批生成 chunk [{}] 失败: {}", chunkName, error.getMessage(), error);
-                        emitProgress(String.format("\n> ⚠️ %s 生成遇到问题: %s\n\n", chunkName, error.getMessage()));
+                        if (output != null) {
+                            output.accept(new AiResponseMessage(String.format("\n> ⚠️ %s 生成遇到问题: %s\n\n", chunkName, error.getMessage())));
+                        }
                         future.completeExceptionally(error);
                     })
                     .start();
@@ -296,8 +389,63 @@ public class ChunkedFrontendGenerator {
     // ========== Utility ==========
 
     private void emitProgress(String message) {
-        if (tokenEmitter != null) {
-            tokenEmitter.accept(message);
+        if (messageEmitter != null) {
+            messageEmitter.accept(new AiResponseMessage(message));
+        }
+    }
+
+    /**
+     * 按实体顺序回放并行输出
+     * 当前序号最小的未完成实体实时输出，其余实体的输出先缓冲，前序实体完成后依次回放；
+     * 每次输出都是一条独立的消息，缓冲时逐条保存、回放时逐条发送，不合并；
+     * 所有写出都在同一把锁内完成，保证下游收到的是串行、有序的输出
+     */
+    private static class OrderedOutput {
+
+        private final Consumer<StreamMessage> downstream;
+
+        private final List<List<StreamMessage>> buffers;
+
+        private final boolean[] completed;
+
+        private int head = 0;
+
+        private OrderedOutput(int size, Consumer<StreamMessage> downstream) {
+            this.downstream = downstream;
+            this.buffers = new ArrayList<>(size);
+            this.completed = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                buffers.add(new ArrayList<>());
+            }
+        }
+
+        private Consumer<StreamMessage> slot(int index) {
+            return message -> emit(index, message);
+        }
+
+        private synchronized void emit(int index, StreamMessage message) {
+            if (downstream == null) {
+                return;
+            }
+            if (index == head) {
+                downstream.accept(message);
+            } else {
+                buffers.get(index).add(message);
+            }
+        }
+
+        private synchronized void complete(int index) {
+            completed[index] = true;
+            while (head < completed.length && completed[head]) {
+                head++;
+                if (head < buffers.size()) {
+                    List<StreamMessage> buffered = buffers.get(head);
+                    if (downstream != null) {
+                        buffered.forEach(downstream);
+                    }
+                    buffered.clear();
+                }
+            }
         }
     }
 
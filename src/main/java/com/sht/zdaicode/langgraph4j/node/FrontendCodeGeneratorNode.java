@@ -82,7 +82,7 @@ public class FrontendCodeGeneratorNode {
                 if (generationType == CodeGenTypeEnum.FRONTEND_FULLSTACK_VUE) {
                     // 分批生成模式
                     ChunkedFrontendGenerator chunkedGenerator = new ChunkedFrontendGenerator(
-                            frontendSchema, appId, context.getTokenEmitter());
+                            frontendSchema, appId, context.getMessageEmitter());
                     
                     chunkedGenerator.execute().whenComplete((v, error) -> {
                         if (error != null) {
@@ -3,6 +3,7 @@ package com.sht.zdaicode.langgraph4j.node;
 import cn.hutool.core.date.StopWatch;
 import com.sht.zdaicode.langgraph4j.ai.ImageCollectionPlanService;
 import com.sht.zdaicode.langgraph4j.ai.ImageCollectionService;
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
@@ -20,11 +21,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
 
@@ -34,44 +30,6 @@ import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
  */
 @Slf4j
 public class ImageCollectorNode {
-    /**
-     * 通用的任务添加方法，用于将各种类型的图片任务添加到CompletableFuture列表中
-     * 
-     * @param futures CompletableFuture列表
-     * @param tasks 任务列表
-     * @param taskFunction 任务执行函数
-     * @param <T> 任务类型
-     */
-    private static <T> void addTasksToFutures(List<CompletableFuture<List<ImageResource>>> futures, 
-                                             List<T> tasks, 
-                                             java.util.function.Function<T, List<ImageResource>> taskFunction) {
-        for (T task : tasks) {
-            final T currentTask = task; // 避免lambda中的变量引用问题
-            futures.add(CompletableFuture.supplyAsync(
-                () -> taskFunction.apply(currentTask),
-                IMAGE_COLLECTION_POOL
-            ));
-        }
-    }
-    
-    // 自定义线程池，专门用于图片收集任务
-    private static final ThreadPoolExecutor IMAGE_COLLECTION_POOL = new ThreadPoolExecutor(
-        10,  // 核心线程数
-        20,  // 最大线程数
-        60L, TimeUnit.SECONDS,  // 空闲线程存活时间
-        new LinkedBlockingQueue<>(100),  // 工作队列
-        new ThreadFactory() {
-            private final AtomicInteger counter = new AtomicInteger(1);
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r, "Image-Collector-" + counter.getAndIncrement());
-                thread.setDaemon(true);
-                return thread;
-            }
-        },
-        new ThreadPoolExecutor.CallerRunsPolicy()  // 拒绝策略
-    );
-
     public static AsyncNodeAction<MessagesState<String>> create() {
         return node_async(state -> {
             WorkflowContext context = WorkflowContext.getContext(state);
@@ -105,29 +63,30 @@ public class ImageCollectorNode {
                 // 第二步：并发执行各种图片收集任务
                 List<CompletableFuture<List<ImageResource>>> futures = new ArrayList<>();
                 
-                // 使用通用方法处理不同类型的图片任务，减少重复代码
+                // 使用全局共享的工作流执行器，按提供方许可并发执行，减少重复代码
+                WorkflowExecutorManager executorManager = SpringContextUtil.getBean(WorkflowExecutorManager.class);
                 if (plan.getContentImageTasks() != null) {
                     ImageSearchTool imageSearchTool = SpringContextUtil.getBean(ImageSearchTool.class);
-                    addTasksToFutures(futures, plan.getContentImageTasks(), 
-                        task -> imageSearchTool.searchContentImages(task.query()));
+                    futures.add(executorManager.collectAsync(ImageCategoryEnum.CONTENT, plan.getContentImageTasks(),
+                        task -> imageSearchTool.searchContentImages(task.query())));
                 }
                 
                 if (plan.getIllustrationTasks() != null) {
                     UndrawIllustrationTool illustrationTool = SpringContextUtil.getBean(UndrawIllustrationTool.class);
-                    addTasksToFutures(futures, plan.getIllustrationTasks(), 
-                        task -> illustrationTool.searchIllustrations(task.query()));
+                    futures.add(executorManager.collectAsync(ImageCategoryEnum.ILLUSTRATION, plan.getIllustrationTasks(),
+                        task -> illustrationTool.searchIllustrations(task.query())));
                 }
                 
                 if (plan.getDiagramTasks() != null) {
                     MermaidDiagramTool diagramTool = SpringContextUtil.getBean(MermaidDiagramTool.class);
-                    addTasksToFutures(futures, plan.getDiagramTasks(), 
-                        task -> diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description()));
+                    futures.add(executorManager.collectAsync(ImageCategoryEnum.ARCHITECTURE, plan.getDiagramTasks(),
+                        task -> diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description())));
                 }
                 
                 if (plan.getLogoTasks() != null) {
                     LogoGeneratorTool logoTool = SpringContextUtil.getBean(LogoGeneratorTool.class);
-                    addTasksToFutures(futures, plan.getLogoTasks(), 
-                        task -> logoTool.generateLogos(task.description()));
+                    futures.add(executorManager.collectAsync(ImageCategoryEnum.LOGO, plan.getLogoTasks(),
+                        task -> logoTool.generateLogos(task.description())));
                 }
 
                 // 等待所有任务完成并收集结果
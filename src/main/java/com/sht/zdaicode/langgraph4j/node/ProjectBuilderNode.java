@@ -1,10 +1,12 @@
 package com.sht.zdaicode.langgraph4j.node;
 
+import com.sht.zdaicode.core.builder.BuildHandle;
 import com.sht.zdaicode.core.builder.JavaProjectBuilder;
 import com.sht.zdaicode.core.builder.VueProjectBuilder;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.langgraph4j.state.WorkflowContext;
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
 import com.sht.zdaicode.utils.SpringContextUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -44,7 +46,10 @@ public class ProjectBuilderNode {
                         if (context.getTokenEmitter() != null) {
                             context.getTokenEmitter().accept("\n> ☕ 正在执行后端构建 (mvn clean package)...\n");
                         }
-                        boolean javaSuccess = javaBuilder.buildProject(backendDir.getAbsolutePath());
+                        // Maven 构建同样经调度器排队，同一后端目录的并发构建只执行一次，mvn 进程登记到句柄上可被取消
+                        BuildHandle backendBuild = javaBuilder.submitBuild(backendDir.getAbsolutePath(), BuildPriorityEnum.INTERACTIVE);
+                        forwardProgress(backendBuild, context);
+                        boolean javaSuccess = backendBuild.await();
                         if (javaSuccess) {
                             File targetDir = new File(backendDir, "target");
                             log.info("Java 项目构建成功，target 目录: {}", targetDir.getAbsolutePath());
@@ -106,7 +111,9 @@ public class ProjectBuilderNode {
                         if (context.getTokenEmitter() != null) {
                             context.getTokenEmitter().accept("\n> 💻 正在执行前端构建 (npm run build)...\n");
                         }
-                        boolean vueSuccess = vueBuilder.buildProject(frontendDir.getAbsolutePath());
+                        BuildHandle frontendBuild = vueBuilder.submitBuild(frontendDir.getAbsolutePath(), BuildPriorityEnum.INTERACTIVE);
+                        forwardProgress(frontendBuild, context);
+                        boolean vueSuccess = frontendBuild.await();
                         if (vueSuccess) {
                             log.info("Vue 项目构建成功，dist 目录: {}", new File(frontendDir, "dist").getAbsolutePath());
                             if (context.getTokenEmitter() != null) {
@@ -123,7 +130,9 @@ public class ProjectBuilderNode {
                     if (context.getTokenEmitter() != null) {
                         context.getTokenEmitter().accept("\n> 💻 正在执行单工程构建 (npm run build)...\n");
                     }
-                    boolean buildSuccess = vueBuilder.buildProject(generatedCodeDir);
+                    BuildHandle build = vueBuilder.submitBuild(generatedCodeDir, BuildPriorityEnum.INTERACTIVE);
+                    forwardProgress(build, context);
+                    boolean buildSuccess = build.await();
                     if (buildSuccess) {
                         buildResultDir = generatedCodeDir + File.separator + "dist";
                         log.info("Vue 项目构建成功，dist 目录: {}", buildResultDir);
@@ -149,4 +158,13 @@ public class ProjectBuilderNode {
             return WorkflowContext.saveContext(context);
         });
     }
+
+    /**
+     * 将构建进度推送到前端流
+     */
+    private static void forwardProgress(BuildHandle build, WorkflowContext context) {
+        if (context.getTokenEmitter() != null) {
+            build.progress().subscribe(message -> context.getTokenEmitter().accept("\n> 🔧 " + message + "\n"));
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.sht.zdaicode.langgraph4j.node.concurrent;
 
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
@@ -28,12 +29,9 @@ public class ContentImageCollectorNode {
                 if (plan != null && plan.getContentImageTasks() != null) {
                     ImageSearchTool imageSearchTool = SpringContextUtil.getBean(ImageSearchTool.class);
                     log.info("开始并发收集内容图片，任务数: {}", plan.getContentImageTasks().size());
-                    for (ImageCollectionPlan.ImageSearchTask task : plan.getContentImageTasks()) {
-                        List<ImageResource> results = imageSearchTool.searchContentImages(task.query());
-                        if (results != null && !results.isEmpty()) {
-                            contentImages.addAll(results);
-                        }
-                    }
+                    WorkflowExecutorManager executorManager = SpringContextUtil.getBean(WorkflowExecutorManager.class);
+                    contentImages.addAll(executorManager.collect(ImageCategoryEnum.CONTENT, plan.getContentImageTasks(),
+                            task -> imageSearchTool.searchContentImages(task.query())));
                     log.info("内容图片收集完成，共收集到 {} 张图片", contentImages.size());
                 }
             } catch (Exception e) {
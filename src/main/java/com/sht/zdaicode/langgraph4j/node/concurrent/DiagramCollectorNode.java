@@ -1,5 +1,6 @@
 package com.sht.zdaicode.langgraph4j.node.concurrent;
 
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
@@ -28,12 +29,9 @@ public class DiagramCollectorNode {
                 if (plan != null && plan.getDiagramTasks() != null) {
                     MermaidDiagramTool diagramTool = SpringContextUtil.getBean(MermaidDiagramTool.class);
                     log.info("开始并发生成架构图，任务数: {}", plan.getDiagramTasks().size());
-                    for (ImageCollectionPlan.DiagramTask task : plan.getDiagramTasks()) {
-                        List<ImageResource> results = diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description());
-                        if (results != null && !results.isEmpty()) {
-                            diagrams.addAll(results);
-                        }
-                    }
+                    WorkflowExecutorManager executorManager = SpringContextUtil.getBean(WorkflowExecutorManager.class);
+                    diagrams.addAll(executorManager.collect(ImageCategoryEnum.ARCHITECTURE, plan.getDiagramTasks(),
+                            task -> diagramTool.generateMermaidDiagram(task.mermaidCode(), task.description())));
                     log.info("架构图生成完成，共生成 {} 张图片", diagrams.size());
                 }
             } catch (Exception e) {
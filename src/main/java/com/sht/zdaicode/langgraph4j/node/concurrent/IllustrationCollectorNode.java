@@ -1,5 +1,6 @@
 package com.sht.zdaicode.langgraph4j.node.concurrent;
 
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
@@ -28,12 +29,9 @@ public class IllustrationCollectorNode {
                 if (plan != null && plan.getIllustrationTasks() != null) {
                     UndrawIllustrationTool illustrationTool = SpringContextUtil.getBean(UndrawIllustrationTool.class);
                     log.info("开始并发收集插画图片，任务数: {}", plan.getIllustrationTasks().size());
-                    for (ImageCollectionPlan.IllustrationTask task : plan.getIllustrationTasks()) {
-                        List<ImageResource> results = illustrationTool.searchIllustrations(task.query());
-                        if (results != null && !results.isEmpty()) {
-                            illustrations.addAll(results);
-                        }
-                    }
+                    WorkflowExecutorManager executorManager = SpringContextUtil.getBean(WorkflowExecutorManager.class);
+                    illustrations.addAll(executorManager.collect(ImageCategoryEnum.ILLUSTRATION, plan.getIllustrationTasks(),
+                            task -> illustrationTool.searchIllustrations(task.query())));
                     log.info("插画图片收集完成，共收集到 {} 张图片", illustrations.size());
                 }
             } catch (Exception e) {
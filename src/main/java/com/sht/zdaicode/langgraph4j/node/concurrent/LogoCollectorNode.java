@@ -1,5 +1,6 @@
 package com.sht.zdaicode.langgraph4j.node.concurrent;
 
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
@@ -28,12 +29,9 @@ public class LogoCollectorNode {
                 if (plan != null && plan.getLogoTasks() != null) {
                     LogoGeneratorTool logoTool = SpringContextUtil.getBean(LogoGeneratorTool.class);
                     log.info("开始并发生成Logo，任务数: {}", plan.getLogoTasks().size());
-                    for (ImageCollectionPlan.LogoTask task : plan.getLogoTasks()) {
-                        List<ImageResource> results = logoTool.generateLogos(task.description());
-                        if (results != null && !results.isEmpty()) {
-                            logos.addAll(results);
-                        }
-                    }
+                    WorkflowExecutorManager executorManager = SpringContextUtil.getBean(WorkflowExecutorManager.class);
+                    logos.addAll(executorManager.collect(ImageCategoryEnum.LOGO, plan.getLogoTasks(),
+                            task -> logoTool.generateLogos(task.description())));
                     log.info("Logo生成完成，共生成 {} 张图片", logos.size());
                 }
             } catch (Exception e) {
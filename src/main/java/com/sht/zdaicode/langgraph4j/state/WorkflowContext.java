@@ -1,10 +1,13 @@
 package com.sht.zdaicode.langgraph4j.state;
 
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.ai.model.scheam.ProjectScheam;
 import com.sht.zdaicode.langgraph4j.model.ImageCollectionPlan;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.QualityResult;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
+import com.sht.zdaicode.monitor.MonitorContext;
+import com.sht.zdaicode.monitor.WorkflowTimeline;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -33,6 +36,11 @@ public class WorkflowContext implements Serializable {
 
     private transient Consumer<String> tokenEmitter = token -> {};
 
+    /**
+     * 类型化消息输出（工具请求、工具执行结果等），与 tokenEmitter 写入同一个流，由 Agent 模式处理器统一渲染
+     */
+    private transient Consumer<StreamMessage> messageEmitter = message -> {};
+
     /**
      * 当前执行步骤
      */
@@ -108,6 +116,16 @@ public class WorkflowContext implements Serializable {
      */
     private Long appId = 0L;
 
+    /**
+     * 发起本次工作流的请求的监控上下文，节点执行时据此设置所在线程的监控上下文
+     */
+    private MonitorContext monitorContext;
+
+    /**
+     * 本次执行的节点时间线（仅流式执行时有），节点开始 / 结束时由 NodeMonitor 记录
+     */
+    private transient WorkflowTimeline timeline;
+
     /**
      * 全栈项目的全局数据结构 (Step 1 产出的中间态)
      */
@@ -150,17 +168,7 @@ public class WorkflowContext implements Serializable {
      * 需求分析结果
      */
     private String analyzedRequirements;
-    
-    /**
-     * 数据库 Schema 对象
-     */
-    private com.sht.zdaicode.ai.model.scheam.ProjectScheam projectSchema;
-    
-    /**
-     * 数据库初始化 SQL 语句
-     */
-    private String databaseInitSql;
-    
+
     /**
      * API 契约内容
      */
@@ -191,10 +199,6 @@ public class WorkflowContext implements Serializable {
      */
     private String backendGeneratedCodeDir;
 
-
-    private String unifiedProjectDir;
-
-
     
     // 重试控制字段
     @Builder.Default
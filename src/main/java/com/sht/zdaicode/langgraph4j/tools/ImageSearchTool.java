@@ -7,8 +7,11 @@ import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
+import com.sht.zdaicode.manager.AssetResultCache;
+import com.sht.zdaicode.model.enums.AssetProviderEnum;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -28,8 +31,15 @@ public class ImageSearchTool {
     @Value("${pexels.api-key}")
     private String pexelsApiKey;
 
+    @Resource
+    private AssetResultCache assetResultCache;
+
     @Tool("搜索内容相关的图片，用于网站内容展示")
     public List<ImageResource> searchContentImages(@P("搜索关键词") String query) {
+        return assetResultCache.getOrLoad(AssetProviderEnum.PEXELS, query, this::fetchContentImages);
+    }
+
+    private List<ImageResource> fetchContentImages(String query) {
         List<ImageResource> imageList = new ArrayList<>();
         int searchCount = 12;
         // 调用 API，注意释放资源
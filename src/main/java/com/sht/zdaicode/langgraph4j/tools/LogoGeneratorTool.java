@@ -6,8 +6,11 @@ import com.alibaba.dashscope.aigc.imagesynthesis.ImageSynthesisParam;
 import com.alibaba.dashscope.aigc.imagesynthesis.ImageSynthesisResult;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
+import com.sht.zdaicode.manager.AssetResultCache;
+import com.sht.zdaicode.model.enums.AssetProviderEnum;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -26,8 +29,15 @@ public class LogoGeneratorTool {
     @Value("${dashscope.image-model:wanx2.1-t2i-turbo}")
     private String imageModel;
 
+    @Resource
+    private AssetResultCache assetResultCache;
+
     @Tool("根据描述生成 Logo 设计图片，用于网站品牌标识")
     public List<ImageResource> generateLogos(@P("Logo 设计描述，如名称、行业、风格等，尽量详细") String description) {
+        return assetResultCache.getOrLoad(AssetProviderEnum.DASHSCOPE_LOGO, description, this::synthesizeLogos);
+    }
+
+    private List<ImageResource> synthesizeLogos(String description) {
         List<ImageResource> logoList = new ArrayList<>();
         try {
             // 构建 Logo 设计提示词
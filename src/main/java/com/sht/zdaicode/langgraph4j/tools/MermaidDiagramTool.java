@@ -1,22 +1,20 @@
 package com.sht.zdaicode.langgraph4j.tools;
 
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.util.RandomUtil;
-import cn.hutool.core.util.RuntimeUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.system.SystemUtil;
-import com.sht.zdaicode.exception.BusinessException;
-import com.sht.zdaicode.exception.ErrorCode;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
+import com.sht.zdaicode.manager.AssetResultCache;
+import com.sht.zdaicode.manager.MermaidRendererPool;
 import com.sht.zdaicode.manager.OssManager;
+import com.sht.zdaicode.model.enums.AssetProviderEnum;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -27,6 +25,15 @@ public class MermaidDiagramTool {
 
     @Resource
     private OssManager ossManager;
+
+    @Resource
+    private AssetResultCache assetResultCache;
+
+    @Resource
+    private MermaidRendererPool mermaidRendererPool;
+
+    @Resource
+    private MeterRegistry meterRegistry;
     
     @Tool("将 Mermaid 代码转换为架构图图片，用于展示系统结构和技术关系")
     public List<ImageResource> generateMermaidDiagram(@P("Mermaid 图表代码") String mermaidCode,
@@ -34,15 +41,27 @@ public class MermaidDiagramTool {
         if (StrUtil.isBlank(mermaidCode)) {
             return new ArrayList<>();
         }
+        // 按图表代码内容缓存，相同代码直接复用已上传的图片，描述使用本次传入的
+        List<ImageResource> diagrams = assetResultCache.getOrLoad(AssetProviderEnum.MERMAID, mermaidCode,
+                code -> renderAndUpload(code, description));
+        diagrams.forEach(diagram -> diagram.setDescription(description));
+        return diagrams;
+    }
+
+    private List<ImageResource> renderAndUpload(String mermaidCode, String description) {
         try {
-            // 转换为SVG图片
-            File diagramFile = convertMermaidToSvg(mermaidCode);
-            // 上传到OSS
-            String keyName = String.format("/mermaid/%s/%s",
-                    RandomUtil.randomString(5), diagramFile.getName());
-            String ossUrl = ossManager.uploadFile(keyName, diagramFile);
-            // 清理临时文件
-            FileUtil.del(diagramFile);
+            // 以规范化代码的 SHA-256 作为对象键，相同图表只渲染、上传一次
+            String hash = DigestUtil.sha256Hex(AssetResultCache.normalize(AssetProviderEnum.MERMAID, mermaidCode));
+            String keyName = String.format("/mermaid/%s.svg", hash);
+            String ossUrl;
+            if (ossManager.doesObjectExist(keyName)) {
+                ossUrl = ossManager.getObjectUrl(keyName);
+                countDedup("oss_hit");
+            } else {
+                byte[] svg = mermaidRendererPool.render(mermaidCode);
+                ossUrl = ossManager.uploadBytes(keyName, svg, "image/svg+xml");
+                countDedup("rendered");
+            }
             if (StrUtil.isNotBlank(ossUrl)) {
                 return Collections.singletonList(ImageResource.builder()
                         .category(ImageCategoryEnum.ARCHITECTURE)
@@ -56,31 +75,7 @@ public class MermaidDiagramTool {
         return new ArrayList<>();
     }
 
-    /**
-     * 将Mermaid代码转换为SVG图片
-     */
-    private File convertMermaidToSvg(String mermaidCode) {
-        // 创建临时输入文件
-        File tempInputFile = FileUtil.createTempFile("mermaid_input_", ".mmd", true);
-        FileUtil.writeUtf8String(mermaidCode, tempInputFile);
-        // 创建临时输出文件
-        File tempOutputFile = FileUtil.createTempFile("mermaid_output_", ".svg", true);
-        // 根据操作系统选择命令
-        String command = SystemUtil.getOsInfo().isWindows() ? "mmdc.cmd" : "mmdc";
-        // 构建命令
-        String cmdLine = String.format("%s -i %s -o %s -b transparent",
-                command,
-                tempInputFile.getAbsolutePath(),
-                tempOutputFile.getAbsolutePath()
-        );
-        // 执行命令
-        RuntimeUtil.execForStr(cmdLine);
-        // 检查输出文件
-        if (!tempOutputFile.exists() || tempOutputFile.length() == 0) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "Mermaid CLI 执行失败");
-        }
-        // 清理输入文件，保留输出文件供上传使用
-        FileUtil.del(tempInputFile);
-        return tempOutputFile;
+    private void countDedup(String result) {
+        meterRegistry.counter("mermaid.render.dedup", "result", result).increment();
     }
 }
@@ -8,8 +8,11 @@ import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.sht.zdaicode.langgraph4j.model.ImageResource;
 import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
+import com.sht.zdaicode.manager.AssetResultCache;
+import com.sht.zdaicode.model.enums.AssetProviderEnum;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -30,8 +33,15 @@ public class UndrawIllustrationTool {
     @Value("${pixabay.api-key:44863301-5c4b6576c6b9c70c78c39c3c5}")
     private String pixabayApiKey;
 
+    @Resource
+    private AssetResultCache assetResultCache;
+
     @Tool("搜索插画图片，用于网站美化和装饰，支持矢量图、插画和图标")
     public List<ImageResource> searchIllustrations(@P("搜索关键词") String query) {
+        return assetResultCache.getOrLoad(AssetProviderEnum.PIXABAY_ILLUSTRATION, query, this::fetchIllustrations);
+    }
+
+    private List<ImageResource> fetchIllustrations(String query) {
         List<ImageResource> imageList = new ArrayList<>();
         int searchCount = 12;
 
@@ -96,6 +106,10 @@ public class UndrawIllustrationTool {
      */
     @Tool("搜索矢量图和图标，适用于UI设计和网站装饰")
     public List<ImageResource> searchVectorIcons(@P("搜索关键词") String query) {
+        return assetResultCache.getOrLoad(AssetProviderEnum.PIXABAY_VECTOR, query, this::fetchVectorIcons);
+    }
+
+    private List<ImageResource> fetchVectorIcons(String query) {
         List<ImageResource> imageList = new ArrayList<>();
         int searchCount = 8;
 
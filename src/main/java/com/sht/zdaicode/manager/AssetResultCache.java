@@ -0,0 +1,190 @@
+package com.sht.zdaicode.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONUtil;
+import com.sht.zdaicode.config.AssetCacheConfig;
+import com.sht.zdaicode.langgraph4j.model.ImageResource;
+import com.sht.zdaicode.model.enums.AssetProviderEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 外部素材结果缓存
+ * 1. key 为「来源 + 规范化查询」的摘要；Mermaid 按图表代码内容摘要，与描述文字无关
+ * 2. 结果以 JSON 存入 Redis，按来源设置过期时间；空结果多为外部服务失败，不缓存
+ * 3. 同一 key 的并发请求只调用一次外部服务，其余请求等待同一结果
+ */
+@Slf4j
+public class AssetResultCache {
+
+    /**
+     * 外部素材来源的实际调用
+     */
+    @FunctionalInterface
+    public interface AssetProvider {
+
+        /**
+         * @param query 原始查询（Mermaid 为图表代码）
+         * @return 素材列表，失败时返回空列表
+         */
+        List<ImageResource> fetch(String query);
+    }
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern TRAILING_SPACES = Pattern.compile("[ \\t]+\n");
+
+    private final AssetCacheConfig config;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 正在请求外部服务的 key，同一 key 的并发请求共享结果
+     */
+    private final Map<String, CompletableFuture<List<ImageResource>>> inFlight = new ConcurrentHashMap<>();
+
+    public AssetResultCache(AssetCacheConfig config, StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 读取缓存，未命中时调用外部来源并写入缓存
+     *
+     * @param provider 来源
+     * @param query    查询词（Mermaid 为图表代码）
+     * @param fetcher  实际调用
+     * @return 素材列表（每次返回独立副本，调用方可以修改）
+     */
+    public List<ImageResource> getOrLoad(AssetProviderEnum provider, String query, AssetProvider fetcher) {
+        String key = buildKey(provider, query);
+        if (config.isEnabled()) {
+            List<ImageResource> cached = read(key);
+            if (cached != null) {
+                count(provider, "hit");
+                return cached;
+            }
+        }
+
+        CompletableFuture<List<ImageResource>> future = new CompletableFuture<>();
+        CompletableFuture<List<ImageResource>> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            count(provider, "coalesced");
+            try {
+                return copy(existing.join());
+            } catch (CompletionException e) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<ImageResource> result = new ArrayList<>();
+        try {
+            // 上一个请求可能刚写入缓存并结束
+            List<ImageResource> cached = config.isEnabled() ? read(key) : null;
+            if (cached != null) {
+                count(provider, "hit");
+                future.complete(cached);
+                return copy(cached);
+            }
+            count(provider, "miss");
+            Timer.Sample sample = Timer.start(meterRegistry);
+            List<ImageResource> fetched = fetcher.fetch(query);
+            sample.stop(Timer.builder("asset.provider.fetch")
+                    .description("外部素材来源调用耗时")
+                    .tag("provider", provider.getValue())
+                    .register(meterRegistry));
+            if (fetched != null) {
+                result = fetched;
+            }
+            if (config.isEnabled() && !result.isEmpty()) {
+                write(key, provider, result);
+            }
+            future.complete(result);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return copy(result);
+    }
+
+    /**
+     * 缓存 key：来源 + 规范化查询的 SHA-256
+     */
+    String buildKey(AssetProviderEnum provider, String query) {
+        return config.getKeyPrefix() + provider.getValue() + ":" + sha256(normalize(provider, query));
+    }
+
+    /**
+     * 规范化：Mermaid 代码只统一换行与行尾空白（大小写与缩进有语义）；搜索词忽略大小写并合并空白
+     */
+    public static String normalize(AssetProviderEnum provider, String query) {
+        String text = query == null ? "" : query.replace("\r\n", "\n").replace('\r', '\n');
+        if (provider == AssetProviderEnum.MERMAID) {
+            return TRAILING_SPACES.matcher(text).replaceAll("\n").strip();
+        }
+        return WHITESPACE.matcher(text.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private List<ImageResource> read(String key) {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(key);
+            return json == null ? null : JSONUtil.toList(json, ImageResource.class);
+        } catch (Exception e) {
+            // Redis 不可用或数据损坏时直接请求外部服务
+            log.warn("读取素材缓存失败: {}, {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, AssetProviderEnum provider, List<ImageResource> resources) {
+        long ttlMinutes = config.getTtlMinutes().getOrDefault(provider.getValue(), config.getDefaultTtlMinutes());
+        try {
+            stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(resources), Duration.ofMinutes(ttlMinutes));
+        } catch (Exception e) {
+            log.warn("写入素材缓存失败: {}, {}", key, e.getMessage());
+        }
+    }
+
+    private static List<ImageResource> copy(List<ImageResource> resources) {
+        List<ImageResource> copies = new ArrayList<>(CollUtil.size(resources));
+        if (resources != null) {
+            resources.forEach(resource -> copies.add(new ImageResource(
+                    resource.getCategory(), resource.getDescription(), resource.getUrl())));
+        }
+        return copies;
+    }
+
+    private void count(AssetProviderEnum provider, String result) {
+        meterRegistry.counter("asset.cache.requests", "provider", provider.getValue(), "result", result).increment();
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.sht.zdaicode.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 批量实体加载器（DataLoader 风格）
+ * 1. 短 TTL 本地缓存优先
+ * 2. 未命中的 id 在一个很短的时间窗口内合并（跨请求），由一次 listByIds 查询完成
+ * 3. 同一 id 的并发加载共享同一个查询结果
+ *
+ * @param <V> 实体类型，主键为 Long
+ */
+@Slf4j
+public class BatchEntityLoader<V> {
+
+    private final Function<Collection<Long>, List<V>> batchFunction;
+
+    private final Function<V, Long> idGetter;
+
+    private final long batchWindowMillis;
+
+    private final int maxBatchSize;
+
+    private final Cache<Long, V> cache;
+
+    /**
+     * 已提交、尚未返回结果的加载
+     */
+    private final Map<Long, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 等待合并发送的 id
+     */
+    private final Set<Long> pendingIds = new LinkedHashSet<>();
+
+    private final Object pendingLock = new Object();
+
+    private boolean dispatchScheduled = false;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final DistributionSummary batchSizeSummary;
+
+    /**
+     * @param name              加载器名称（用于指标与线程名）
+     * @param batchFunction     批量查询函数，例如 mapper::selectListByIds
+     * @param idGetter          实体主键获取函数
+     * @param batchWindowMillis 合并窗口（毫秒）
+     * @param maxBatchSize      单次查询最大 id 数
+     * @param cacheTtl          本地缓存过期时间
+     * @param cacheMaximumSize  本地缓存最大条目数
+     * @param meterRegistry     指标注册
+     */
+    public BatchEntityLoader(String name, Function<Collection<Long>, List<V>> batchFunction, Function<V, Long> idGetter,
+                             long batchWindowMillis, int maxBatchSize, Duration cacheTtl, long cacheMaximumSize,
+                             MeterRegistry meterRegistry) {
+        this.batchFunction = batchFunction;
+        this.idGetter = idGetter;
+        this.batchWindowMillis = batchWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheMaximumSize)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(name + "-loader").daemon(true).factory());
+        this.hitCounter = Counter.builder("entity.loader.requests")
+                .description("批量实体加载请求数")
+                .tag("loader", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("entity.loader.requests")
+                .description("批量实体加载请求数")
+                .tag("loader", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("entity.loader.batch.size")
+                .description("单次批量查询的 id 数")
+                .tag("loader", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 加载单个实体，会在合并窗口内与其他请求合并查询
+     *
+     * @return 实体，不存在时返回 null
+     */
+    public V get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        V cached = cache.getIfPresent(id);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+        missCounter.increment();
+        return join(enqueue(id));
+    }
+
+    /**
+     * 批量加载实体，未命中的 id 立即与当前等待中的 id 一起发送一次查询
+     *
+     * @return id -> 实体（不存在的 id 不包含在结果中）
+     */
+    public Map<Long, V> getAll(Collection<Long> ids) {
+        Map<Long, V> result = new HashMap<>();
+        Map<Long, CompletableFuture<V>> futures = new HashMap<>();
+        for (Long id : ids) {
+            if (id == null || result.containsKey(id) || futures.containsKey(id)) {
+                continue;
+            }
+            V cached = cache.getIfPresent(id);
+            if (cached != null) {
+                hitCounter.increment();
+                result.put(id, cached);
+            } else {
+                missCounter.increment();
+                futures.put(id, enqueue(id));
+            }
+        }
+        if (!futures.isEmpty()) {
+            dispatch();
+            futures.forEach((id, future) -> {
+                V value = join(future);
+                if (value != null) {
+                    result.put(id, value);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 写入已查询到的实体，供后续加载复用
+     */
+    public void prime(V value) {
+        if (value != null) {
+            cache.put(idGetter.apply(value), value);
+        }
+    }
+
+    /**
+     * 实体更新或删除后使本地缓存失效
+     */
+    public void invalidate(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private CompletableFuture<V> enqueue(Long id) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            return existing;
+        }
+        boolean dispatchNow = false;
+        synchronized (pendingLock) {
+            pendingIds.add(id);
+            if (pendingIds.size() >= maxBatchSize) {
+                dispatchNow = true;
+            } else if (!dispatchScheduled) {
+                dispatchScheduled = true;
+                scheduler.schedule(this::dispatch, batchWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (dispatchNow) {
+            dispatch();
+        }
+        return created;
+    }
+
+    /**
+     * 取出所有等待中的 id，分批提交查询
+     */
+    private void dispatch() {
+        List<Long> ids;
+        synchronized (pendingLock) {
+            dispatchScheduled = false;
+            if (pendingIds.isEmpty()) {
+                return;
+            }
+            ids = new ArrayList<>(pendingIds);
+            pendingIds.clear();
+        }
+        for (int from = 0; from < ids.size(); from += maxBatchSize) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + maxBatchSize));
+            Thread.startVirtualThread(() -> runBatch(batch));
+        }
+    }
+
+    private void runBatch(List<Long> ids) {
+        batchSizeSummary.record(ids.size());
+        try {
+            Map<Long, V> loaded = new HashMap<>();
+            for (V value : batchFunction.apply(ids)) {
+                loaded.put(idGetter.apply(value), value);
+            }
+            for (Long id : ids) {
+                V value = loaded.get(id);
+                if (value != null) {
+                    cache.put(id, value);
+                }
+                CompletableFuture<V> future = inFlight.remove(id);
+                if (future != null) {
+                    future.complete(value);
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量加载实体失败，ids: {}", ids, e);
+            for (Long id : ids) {
+                CompletableFuture<V> future = inFlight.remove(id);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.sht.zdaicode.manager;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONConfig;
+import cn.hutool.json.JSONUtil;
+import com.sht.zdaicode.config.ChatHistoryWriteBehindConfig;
+import com.sht.zdaicode.mapper.ChatHistoryMapper;
+import com.sht.zdaicode.model.entity.ChatHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话历史异步批量写入管理器（write-behind）
+ * 1. 消息先进入有界内存队列，后台线程按批次（条数或最大延迟）执行多行 INSERT
+ * 2. 队列已满时在调用线程同步写库，形成自然的背压
+ * 3. 数据库不可用时追加写入本地溢写文件，后台定期重放
+ * 4. 未写库的消息（含已溢写、尚未重放成功的消息）按应用保留一份索引，查询时与数据库结果合并
+ */
+@Slf4j
+public class ChatHistoryWriteBehindManager {
+
+    /**
+     * 溢写文件中时间字段保留毫秒精度
+     */
+    private static final JSONConfig SPILL_JSON_CONFIG = JSONConfig.create().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final ChatHistoryWriteBehindConfig config;
+
+    private final ChatHistoryMapper chatHistoryMapper;
+
+    private final LinkedBlockingQueue<ChatHistory> queue;
+
+    /**
+     * 未写库的消息：appId -> (id -> 消息)
+     */
+    private final Map<Long, Map<Long, ChatHistory>> pendingByApp = new ConcurrentHashMap<>();
+
+    private final Path spillPath;
+
+    private final Object spillLock = new Object();
+
+    private final Counter flushedCounter;
+
+    private final Counter spilledCounter;
+
+    private final Counter replayedCounter;
+
+    private final Counter backpressureCounter;
+
+    private final Timer flushTimer;
+
+    private volatile boolean running = false;
+
+    private Thread flusherThread;
+
+    private long lastReplayAttemptMillis = 0;
+
+    public ChatHistoryWriteBehindManager(ChatHistoryWriteBehindConfig config, ChatHistoryMapper chatHistoryMapper,
+                                         MeterRegistry meterRegistry) {
+        this.config = config;
+        this.chatHistoryMapper = chatHistoryMapper;
+        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+        this.spillPath = Path.of(config.getSpillFilePath()).toAbsolutePath();
+        this.flushedCounter = Counter.builder("chat.history.flushed")
+                .description("批量写入数据库的对话历史条数")
+                .register(meterRegistry);
+        this.spilledCounter = Counter.builder("chat.history.spilled")
+                .description("写库失败、溢写到本地文件的对话历史条数")
+                .register(meterRegistry);
+        this.replayedCounter = Counter.builder("chat.history.replayed")
+                .description("从溢写文件重放写库的对话历史条数")
+                .register(meterRegistry);
+        this.backpressureCounter = Counter.builder("chat.history.backpressure")
+                .description("队列已满、回退到调用线程同步写库的次数")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("chat.history.flush")
+                .description("单批次写库耗时")
+                .register(meterRegistry);
+        Gauge.builder("chat.history.queue.depth", queue, LinkedBlockingQueue::size)
+                .description("等待写库的队列深度")
+                .register(meterRegistry);
+        Gauge.builder("chat.history.queue.remaining", queue, LinkedBlockingQueue::remainingCapacity)
+                .description("写库队列剩余容量")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        try {
+            Files.createDirectories(spillPath.getParent());
+        } catch (IOException e) {
+            log.warn("创建对话历史溢写目录失败: {}", spillPath.getParent(), e);
+        }
+        loadSpilledIntoPending();
+        running = true;
+        flusherThread = Thread.ofPlatform()
+                .name("chat-history-flusher")
+                .daemon(true)
+                .start(this::runFlusher);
+        log.info("对话历史异步写入已启动，批次大小: {}，最大延迟: {}ms", config.getBatchSize(), config.getMaxLatencyMillis());
+    }
+
+    /**
+     * 提交一条待写库的消息（调用方需预先设置 id 与 createTime）
+     */
+    public void enqueue(ChatHistory chatHistory) {
+        addPending(chatHistory);
+        boolean offered = false;
+        if (running) {
+            try {
+                offered = queue.offer(chatHistory, config.getEnqueueTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!offered) {
+            backpressureCounter.increment();
+            writeBatch(List.of(chatHistory));
+        }
+    }
+
+    /**
+     * 获取应用尚未写库的消息，按创建时间降序
+     *
+     * @param appId          应用 id
+     * @param lastCreateTime 游标，仅返回早于该时间的消息（可为空）
+     */
+    public List<ChatHistory> listPending(Long appId, LocalDateTime lastCreateTime) {
+        Map<Long, ChatHistory> pending = pendingByApp.get(appId);
+        if (pending == null || pending.isEmpty()) {
+            return List.of();
+        }
+        return pending.values().stream()
+                .filter(chatHistory -> lastCreateTime == null || chatHistory.getCreateTime().isBefore(lastCreateTime))
+                .sorted(Comparator.comparing(ChatHistory::getCreateTime).reversed())
+                .toList();
+    }
+
+    /**
+     * 丢弃应用尚未写库的消息（删除应用对话历史时调用，避免删除后被重新写入）
+     */
+    public void discard(Long appId) {
+        pendingByApp.remove(appId);
+    }
+
+    /**
+     * 停止后台线程，等待队列中的消息写完；超时仍未写完的消息溢写到本地文件
+     */
+    public void shutdown() {
+        running = false;
+        if (flusherThread == null) {
+            return;
+        }
+        try {
+            flusherThread.join(TimeUnit.SECONDS.toMillis(config.getShutdownTimeoutSeconds()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<ChatHistory> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("应用关闭时仍有 {} 条对话历史未写库，溢写到本地文件", remaining.size());
+            spill(remaining);
+        }
+    }
+
+    private void runFlusher() {
+        List<ChatHistory> batch = new ArrayList<>(config.getBatchSize());
+        long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxLatencyMillis());
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatHistory first = queue.poll(config.getMaxLatencyMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    // 攒批：达到批次大小或最大延迟即写库
+                    long deadline = System.nanoTime() + maxLatencyNanos;
+                    while (batch.size() < config.getBatchSize()) {
+                        queue.drainTo(batch, config.getBatchSize() - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= config.getBatchSize() || remaining <= 0) {
+                            break;
+                        }
+                        ChatHistory next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                replaySpillIfDue();
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            } catch (Exception e) {
+                log.error("对话历史写库线程异常", e);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 多行 INSERT 写入一批消息，失败时溢写到本地文件
+     */
+    private void writeBatch(List<ChatHistory> batch) {
+        // 过滤掉已被删除（discard）的消息
+        List<ChatHistory> toWrite = batch.stream()
+                .filter(this::isPending)
+                .toList();
+        if (toWrite.isEmpty()) {
+            return;
+        }
+        try {
+            flushTimer.record(() -> chatHistoryMapper.insertBatch(toWrite));
+            flushedCounter.increment(toWrite.size());
+            toWrite.forEach(this::removePending);
+        } catch (Exception e) {
+            // 溢写的消息仍保留在待写索引中，重放成功后才移除，期间查询照常可见
+            log.error("对话历史批量写库失败，共 {} 条，溢写到本地文件", toWrite.size(), e);
+            spill(toWrite);
+        }
+    }
+
+    private boolean isPending(ChatHistory chatHistory) {
+        Map<Long, ChatHistory> pending = pendingByApp.get(chatHistory.getAppId());
+        return pending != null && pending.containsKey(chatHistory.getId());
+    }
+
+    private void addPending(ChatHistory chatHistory) {
+        pendingByApp.computeIfAbsent(chatHistory.getAppId(), appId -> new ConcurrentHashMap<>())
+                .put(chatHistory.getId(), chatHistory);
+    }
+
+    private void removePending(ChatHistory chatHistory) {
+        pendingByApp.computeIfPresent(chatHistory.getAppId(), (appId, pending) -> {
+            pending.remove(chatHistory.getId());
+            return pending.isEmpty() ? null : pending;
+        });
+    }
+
+    /**
+     * 追加写入溢写文件，每行一条 JSON
+     */
+    private void spill(List<ChatHistory> chatHistories) {
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spillPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (ChatHistory chatHistory : chatHistories) {
+                    writer.write(JSONUtil.toJsonStr(chatHistory, SPILL_JSON_CONFIG));
+                    writer.newLine();
+                }
+                spilledCounter.increment(chatHistories.size());
+            } catch (IOException e) {
+                log.error("对话历史溢写失败，丢失 {} 条消息", chatHistories.size(), e);
+            }
+        }
+    }
+
+    /**
+     * 启动时把上次运行遗留的溢写消息放回待写索引，重放完成前查询仍可见
+     */
+    private void loadSpilledIntoPending() {
+        if (!Files.exists(spillPath)) {
+            return;
+        }
+        synchronized (spillLock) {
+            try {
+                List<ChatHistory> spilled = readSpill();
+                spilled.forEach(this::addPending);
+                log.info("对话历史溢写文件中有 {} 条消息待重放", spilled.size());
+            } catch (Exception e) {
+                log.error("读取对话历史溢写文件失败: {}", spillPath, e);
+            }
+        }
+    }
+
+    private List<ChatHistory> readSpill() throws IOException {
+        return Files.readAllLines(spillPath, StandardCharsets.UTF_8).stream()
+                .filter(StrUtil::isNotBlank)
+                .map(line -> JSONUtil.toBean(line, SPILL_JSON_CONFIG, ChatHistory.class))
+                .toList();
+    }
+
+    private void replaySpillIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastReplayAttemptMillis < TimeUnit.SECONDS.toMillis(config.getSpillReplayIntervalSeconds())) {
+            return;
+        }
+        lastReplayAttemptMillis = now;
+        if (Files.exists(spillPath)) {
+            replaySpill();
+        }
+    }
+
+    /**
+     * 重放溢写文件：成功写库的部分从文件与待写索引中移除，失败时保留剩余部分等待下次重放
+     * 已被删除（discard）的消息不再写库
+     */
+    private void replaySpill() {
+        synchronized (spillLock) {
+            List<ChatHistory> spilled;
+            try {
+                spilled = readSpill();
+            } catch (Exception e) {
+                log.error("读取对话历史溢写文件失败: {}", spillPath, e);
+                return;
+            }
+            int replayed = 0;
+            try {
+                while (replayed < spilled.size()) {
+                    List<ChatHistory> batch = spilled.subList(replayed, Math.min(spilled.size(), replayed + config.getBatchSize()));
+                    List<ChatHistory> toWrite = batch.stream().filter(this::isPending).toList();
+                    if (!toWrite.isEmpty()) {
+                        insertIgnoringDuplicates(toWrite);
+                        toWrite.forEach(this::removePending);
+                    }
+                    replayed += batch.size();
+                }
+            } catch (Exception e) {
+                log.warn("重放对话历史溢写文件失败，已重放 {} 条，剩余 {} 条", replayed, spilled.size() - replayed, e);
+            }
+            if (replayed == 0) {
+                return;
+            }
+            replayedCounter.increment(replayed);
+            try {
+                if (replayed == spilled.size()) {
+                    Files.delete(spillPath);
+                } else {
+                    Path tempPath = spillPath.resolveSibling(spillPath.getFileName() + ".tmp");
+                    List<String> rest = spilled.subList(replayed, spilled.size()).stream()
+                            .map(chatHistory -> JSONUtil.toJsonStr(chatHistory, SPILL_JSON_CONFIG))
+                            .toList();
+                    Files.write(tempPath, rest, StandardCharsets.UTF_8);
+                    Files.move(tempPath, spillPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                log.error("更新对话历史溢写文件失败: {}", spillPath, e);
+            }
+            log.info("已从溢写文件重放 {} 条对话历史", replayed);
+        }
+    }
+
+    /**
+     * 批量写入；若上次重放已部分写入导致主键冲突，则逐条写入并跳过重复项
+     */
+    private void insertIgnoringDuplicates(List<ChatHistory> batch) {
+        try {
+            chatHistoryMapper.insertBatch(batch);
+        } catch (DuplicateKeyException e) {
+            for (ChatHistory chatHistory : batch) {
+                try {
+                    chatHistoryMapper.insert(chatHistory);
+                } catch (DuplicateKeyException ignored) {
+                    // 已写入，跳过
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.sht.zdaicode.manager;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import cn.hutool.system.SystemUtil;
+import com.sht.zdaicode.config.MermaidRendererConfig;
+import com.sht.zdaicode.exception.BusinessException;
+import com.sht.zdaicode.exception.ErrorCode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mermaid 常驻渲染进程池
+ * 1. 固定数量的 node 渲染进程，各自持有一个常驻无头浏览器，通过 stdin/stdout 逐行 JSON 通信
+ * 2. 每个进程同一时刻只处理一个请求，空闲进程放在队列中，调用方排队等待，单张图有渲染超时
+ * 3. 超时或异常退出的进程直接销毁并异步补充；渲染一定次数后主动重启以回收浏览器内存
+ * 4. 未启用或没有可用进程时退化为每张图执行一次 mmdc
+ */
+@Slf4j
+public class MermaidRendererPool {
+
+    private static final String RENDERER_SCRIPT = "mermaid-renderer/renderer.mjs";
+
+    /**
+     * 渲染进程 stdout 结束的标记
+     */
+    private static final String EOF = "\u0000EOF";
+
+    private final MermaidRendererConfig config;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 空闲的渲染进程
+     */
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+
+    /**
+     * 全部存活的渲染进程（含正在渲染的）
+     */
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean shuttingDown;
+
+    private volatile File scriptFile;
+
+    /**
+     * 单个渲染进程
+     */
+    private static final class Worker {
+
+        final Process process;
+
+        final BufferedWriter stdin;
+
+        final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+        int renders;
+
+        Worker(Process process) {
+            this.process = process;
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        }
+    }
+
+    public MermaidRendererPool(MermaidRendererConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("mermaid.renderer.workers", workers, Set::size)
+                .description("存活的 Mermaid 渲染进程数")
+                .register(meterRegistry);
+        Gauge.builder("mermaid.renderer.waiting", waiting, AtomicInteger::get)
+                .description("等待空闲渲染进程的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用启动后预热渲染进程，首张图无需等待浏览器启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        for (int i = 0; i < config.getPoolSize(); i++) {
+            spawnAsync();
+        }
+    }
+
+    /**
+     * 渲染 Mermaid 代码为 SVG
+     *
+     * @param mermaidCode Mermaid 代码
+     * @return SVG 内容
+     */
+    public byte[] render(String mermaidCode) {
+        boolean pooled = config.isEnabled() && !workers.isEmpty();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "error";
+        try {
+            byte[] svg = pooled ? renderWithWorker(mermaidCode) : renderWithCli(mermaidCode);
+            result = "success";
+            return svg;
+        } finally {
+            sample.stop(Timer.builder("mermaid.render")
+                    .description("Mermaid 渲染耗时")
+                    .tag("mode", pooled ? "pool" : "cli")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void shutdown() {
+        shuttingDown = true;
+        List<Worker> snapshot = new ArrayList<>(workers);
+        snapshot.forEach(this::destroy);
+        idleWorkers.clear();
+        if (scriptFile != null) {
+            FileUtil.del(scriptFile);
+        }
+    }
+
+    private byte[] renderWithWorker(String mermaidCode) {
+        Worker worker;
+        waiting.incrementAndGet();
+        try {
+            worker = idleWorkers.poll(config.getQueueTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "等待 Mermaid 渲染进程被中断");
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (worker == null) {
+            // 等待期间进程全部退出且未能补充，退化为命令行渲染
+            if (workers.isEmpty()) {
+                return renderWithCli(mermaidCode);
+            }
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "Mermaid 渲染排队超时");
+        }
+
+        long id = requestIds.incrementAndGet();
+        String line;
+        try {
+            worker.stdin.write(JSONUtil.toJsonStr(Map.of("id", id, "code", mermaidCode)));
+            worker.stdin.newLine();
+            worker.stdin.flush();
+            line = awaitResponse(worker, id);
+        } catch (IOException e) {
+            line = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            line = null;
+        }
+        if (line == null) {
+            // 超时的进程可能卡在浏览器里，不再复用
+            retire(worker);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "Mermaid 渲染超时或渲染进程异常退出");
+        }
+
+        worker.renders++;
+        release(worker);
+        JSONObject response = JSONUtil.parseObj(line);
+        String error = response.getStr("error");
+        if (StrUtil.isNotBlank(error)) {
+            // 语法错误等渲染失败不影响进程本身
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "Mermaid 渲染失败: " + error);
+        }
+        return Base64.getDecoder().decode(response.getStr("svg"));
+    }
+
+    /**
+     * 等待指定请求的结果，丢弃之前超时请求遗留的结果
+     *
+     * @return 结果行，超时或进程退出时返回 null
+     */
+    private String awaitResponse(Worker worker, long id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getRenderTimeoutSeconds());
+        while (true) {
+            String line = worker.responses.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (line == null || EOF.equals(line)) {
+                return null;
+            }
+            try {
+                if (JSONUtil.parseObj(line).getLong("id", -1L) == id) {
+                    return line;
+                }
+            } catch (RuntimeException e) {
+                log.debug("忽略 Mermaid 渲染进程的非 JSON 输出: {}", line);
+            }
+        }
+    }
+
+    private void release(Worker worker) {
+        if (shuttingDown || !worker.process.isAlive()) {
+            retire(worker);
+        } else if (worker.renders >= config.getMaxRendersPerWorker()) {
+            log.info("Mermaid 渲染进程已渲染 {} 张图，重启以回收内存", worker.renders);
+            retire(worker);
+        } else {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    private void retire(Worker worker) {
+        destroy(worker);
+        if (!shuttingDown) {
+            spawnAsync();
+        }
+    }
+
+    private void destroy(Worker worker) {
+        workers.remove(worker);
+        idleWorkers.remove(worker);
+        worker.process.destroyForcibly();
+    }
+
+    private void spawnAsync() {
+        Thread.ofVirtual().name("mermaid-renderer-spawn").start(() -> {
+            try {
+                Worker worker = launch();
+                if (shuttingDown) {
+                    worker.process.destroyForcibly();
+                    return;
+                }
+                workers.add(worker);
+                idleWorkers.offer(worker);
+                log.info("Mermaid 渲染进程已就绪, pid={}", worker.process.pid());
+            } catch (Exception e) {
+                // 启动失败不重试，渲染请求会退化为命令行方式
+                log.warn("Mermaid 渲染进程启动失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private Worker launch() throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(config.getNodeExecutable(), resolveScript().getAbsolutePath());
+        if (StrUtil.isNotBlank(config.getCliHome())) {
+            builder.environment().put("MERMAID_CLI_HOME", config.getCliHome());
+        }
+        Process process = builder.start();
+        Worker worker = new Worker(process);
+        Thread.ofVirtual().name("mermaid-renderer-stdout-" + process.pid()).start(() -> pumpStdout(worker));
+        Thread.ofVirtual().name("mermaid-renderer-stderr-" + process.pid()).start(() -> drainStderr(process));
+        String ready = worker.responses.poll(config.getStartupTimeoutSeconds(), TimeUnit.SECONDS);
+        if (ready == null || EOF.equals(ready) || !ready.contains("\"ready\"")) {
+            process.destroyForcibly();
+            throw new IllegalStateException("渲染进程未就绪，请确认已安装 node 与 @mermaid-js/mermaid-cli");
+        }
+        return worker;
+    }
+
+    private static void pumpStdout(Worker worker) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(worker.process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                worker.responses.offer(line);
+            }
+        } catch (IOException ignored) {
+            // 进程被销毁
+        } finally {
+            worker.responses.offer(EOF);
+        }
+    }
+
+    private static void drainStderr(Process process) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug("[mermaid-renderer {}] {}", process.pid(), line);
+            }
+        } catch (IOException ignored) {
+            // 进程被销毁
+        }
+    }
+
+    /**
+     * 渲染脚本打包在 jar 内，node 需要读取文件，首次使用时释放到临时目录
+     */
+    private synchronized File resolveScript() {
+        if (scriptFile == null || !scriptFile.exists()) {
+            File file = FileUtil.createTempFile("mermaid_renderer_", ".mjs", true);
+            FileUtil.writeUtf8String(ResourceUtil.readUtf8Str(RENDERER_SCRIPT), file);
+            scriptFile = file;
+        }
+        return scriptFile;
+    }
+
+    /**
+     * 命令行方式渲染：每张图启动一次 mmdc
+     */
+    private byte[] renderWithCli(String mermaidCode) {
+        File inputFile = FileUtil.createTempFile("mermaid_input_", ".mmd", true);
+        File outputFile = FileUtil.createTempFile("mermaid_output_", ".svg", true);
+        try {
+            FileUtil.writeUtf8String(mermaidCode, inputFile);
+            String command = SystemUtil.getOsInfo().isWindows() ? "mmdc.cmd" : "mmdc";
+            Process process = new ProcessBuilder(command,
+                    "-i", inputFile.getAbsolutePath(),
+                    "-o", outputFile.getAbsolutePath(),
+                    "-b", "transparent")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(config.getRenderTimeoutSeconds(), TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "Mermaid CLI 执行超时");
+            }
+            if (!outputFile.exists() || outputFile.length() == 0) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "Mermaid CLI 执行失败");
+            }
+            return FileUtil.readBytes(outputFile);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "Mermaid CLI 执行失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "Mermaid CLI 执行被中断");
+        } finally {
+            FileUtil.del(inputFile);
+            FileUtil.del(outputFile);
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.sht.zdaicode.manager;
 
 import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.ObjectMetadata;
 import com.aliyun.oss.model.PutObjectRequest;
 import com.aliyun.oss.model.PutObjectResult;
 import com.sht.zdaicode.config.OssClientConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 
 /**
@@ -68,4 +70,49 @@ public class OssManager {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 对象是否已存在（用于内容寻址的对象去重）
+     *
+     * @param key OSS对象键
+     */
+    public boolean doesObjectExist(String key) {
+        return ossClient.doesObjectExist(ossClientConfig.getBucket(), cleanKey(key));
+    }
+
+    /**
+     * 上传字节内容到 OSS 并返回访问 URL
+     *
+     * @param key         OSS对象键
+     * @param data        内容
+     * @param contentType 内容类型
+     * @return 文件的访问URL，失败返回null
+     */
+    public String uploadBytes(String key, byte[] data, String contentType) {
+        try {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentType(contentType);
+            metadata.setContentLength(data.length);
+            ossClient.putObject(ossClientConfig.getBucket(), cleanKey(key), new ByteArrayInputStream(data), metadata);
+            String url = getObjectUrl(key);
+            log.info("内容上传OSS成功: {}", url);
+            return url;
+        } catch (Exception e) {
+            log.error("内容上传OSS异常: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 对象的访问 URL
+     *
+     * @param key OSS对象键
+     */
+    public String getObjectUrl(String key) {
+        return String.format("https://%s.%s/%s", ossClientConfig.getBucket(), ossClientConfig.getHost(), cleanKey(key));
+    }
+
+    private String cleanKey(String key) {
+        return key.startsWith("/") ? key.substring(1) : key;
+    }
+}
@@ -0,0 +1,374 @@
+package com.sht.zdaicode.manager;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 并行压缩的 ZIP 写出器
+ * 每个条目在线程池中独立 deflate（raw deflate + CRC32），写出线程按原顺序依次输出本地文件头与压缩数据，
+ * 最后写中央目录。同时在途的条目数有上限，压缩数据写出后即释放，中央目录只保留每个条目的元数据（名称、CRC、大小、偏移）。
+ * 并行压缩的条目需整体读入内存，因此只有不超过 maxParallelEntryBytes 的文件走线程池；更大的文件由写出线程
+ * 边读边压缩直接写出（大小与 CRC 写在数据描述符中），内存占用上限约为 在途条目数 × maxParallelEntryBytes × 2，与大文件、压缩包总大小无关。
+ * <p>
+ * 不支持 ZIP64：单文件或压缩包超过 4GB、条目数超过 65535 时抛出异常
+ */
+@Slf4j
+public class ParallelZipWriter {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+    private static final int VERSION = 20;
+
+    /**
+     * 通用标志位 11：文件名使用 UTF-8 编码
+     */
+    private static final int FLAG_UTF8 = 0x0800;
+
+    /**
+     * 通用标志位 3：CRC 与大小写在压缩数据之后的数据描述符中（流式写出的大文件）
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    private static final int METHOD_STORED = 0;
+
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final ExecutorService executor;
+
+    private final int parallelism;
+
+    private final int compressionLevel;
+
+    private final long maxParallelEntryBytes;
+
+    /**
+     * @param parallelism           并行压缩线程数
+     * @param compressionLevel      压缩级别
+     * @param maxParallelEntryBytes 走线程池并行压缩的单文件大小上限（字节），更大的文件由写出线程流式压缩
+     */
+    public ParallelZipWriter(int parallelism, int compressionLevel, long maxParallelEntryBytes) {
+        this.parallelism = parallelism;
+        this.compressionLevel = compressionLevel;
+        this.maxParallelEntryBytes = maxParallelEntryBytes;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "zip-deflate-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 将条目按顺序写出为 ZIP
+     *
+     * @param sources 压缩包条目（目录条目名称以 / 结尾）
+     * @param out     输出流（调用方负责关闭）
+     */
+    public void write(List<ZipSource> sources, OutputStream out) throws IOException {
+        if (sources.size() > MAX_ENTRIES) {
+            throw new IOException("压缩包条目数超过上限: " + sources.size());
+        }
+        ZipOutput zip = new ZipOutput(out);
+        List<CentralEntry> centralEntries = new ArrayList<>(sources.size());
+        Deque<PendingEntry> pending = new ArrayDeque<>();
+        int window = parallelism * 4;
+        int next = 0;
+        try {
+            while (next < sources.size() || !pending.isEmpty()) {
+                while (next < sources.size() && pending.size() < window) {
+                    ZipSource source = sources.get(next++);
+                    // 大文件不进线程池，轮到它时由写出线程流式压缩
+                    pending.addLast(source.directory() || Files.size(source.path()) <= maxParallelEntryBytes
+                            ? new PendingEntry(source, executor.submit(() -> compress(source)))
+                            : new PendingEntry(source, null));
+                }
+                PendingEntry entry = pending.pollFirst();
+                centralEntries.add(entry.future() == null
+                        ? writeStreamedEntry(zip, entry.source())
+                        : writeLocalEntry(zip, entry.future().get()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("压缩被中断");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            pending.stream()
+                    .map(PendingEntry::future)
+                    .filter(Objects::nonNull)
+                    .forEach(future -> future.cancel(true));
+        }
+        writeCentralDirectory(zip, centralEntries);
+        out.flush();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompressedEntry compress(ZipSource source) throws IOException {
+        byte[] name = source.name().getBytes(StandardCharsets.UTF_8);
+        int dosTime = toDosTime(source.lastModified());
+        if (source.directory()) {
+            return new CompressedEntry(name, dosTime, METHOD_STORED, 0, 0, new byte[0], true);
+        }
+        byte[] raw = Files.readAllBytes(source.path());
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        byte[] deflated = deflate(raw);
+        // 已压缩格式（图片、字体等）deflate 后反而变大，直接存储
+        if (deflated.length >= raw.length) {
+            return new CompressedEntry(name, dosTime, METHOD_STORED, crc.getValue(), raw.length, raw, false);
+        }
+        return new CompressedEntry(name, dosTime, METHOD_DEFLATED, crc.getValue(), raw.length, deflated, false);
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                buffer.write(chunk, 0, length);
+            }
+            return buffer.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private CentralEntry writeLocalEntry(ZipOutput zip, CompressedEntry entry) throws IOException {
+        if (entry.size() > ZIP32_LIMIT || zip.position > ZIP32_LIMIT) {
+            throw new IOException("压缩包超过 4GB，不支持 ZIP64");
+        }
+        long offset = zip.position;
+        zip.writeInt(LOCAL_HEADER_SIGNATURE);
+        zip.writeShort(VERSION);
+        zip.writeShort(FLAG_UTF8);
+        zip.writeShort(entry.method());
+        zip.writeInt(entry.dosTime());
+        zip.writeInt((int) entry.crc());
+        zip.writeInt(entry.data().length);
+        zip.writeInt((int) entry.size());
+        zip.writeShort(entry.name().length);
+        zip.writeShort(0);
+        zip.write(entry.name());
+        zip.write(entry.data());
+        // 只保留中央目录需要的元数据，压缩数据随 CompressedEntry 一起释放
+        return new CentralEntry(entry.name(), entry.dosTime(), entry.method(), FLAG_UTF8, entry.crc(),
+                entry.data().length, entry.size(), entry.directory(), offset);
+    }
+
+    /**
+     * 边读边压缩写出大文件：本地文件头中 CRC 与大小置 0，写完压缩数据后在数据描述符中补齐
+     */
+    private CentralEntry writeStreamedEntry(ZipOutput zip, ZipSource source) throws IOException {
+        if (zip.position > ZIP32_LIMIT) {
+            throw new IOException("压缩包超过 4GB，不支持 ZIP64");
+        }
+        byte[] name = source.name().getBytes(StandardCharsets.UTF_8);
+        int dosTime = toDosTime(source.lastModified());
+        int flags = FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+        long offset = zip.position;
+        zip.writeInt(LOCAL_HEADER_SIGNATURE);
+        zip.writeShort(VERSION);
+        zip.writeShort(flags);
+        zip.writeShort(METHOD_DEFLATED);
+        zip.writeInt(dosTime);
+        zip.writeInt(0);
+        zip.writeInt(0);
+        zip.writeInt(0);
+        zip.writeShort(name.length);
+        zip.writeShort(0);
+        zip.write(name);
+
+        long dataOffset = zip.position;
+        long size = 0;
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(compressionLevel, true);
+        byte[] input = new byte[STREAM_BUFFER_SIZE];
+        byte[] output = new byte[STREAM_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(source.path())) {
+            int read;
+            while ((read = in.read(input)) != -1) {
+                crc.update(input, 0, read);
+                size += read;
+                deflater.setInput(input, 0, read);
+                while (!deflater.needsInput()) {
+                    zip.write(output, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                zip.write(output, deflater.deflate(output));
+            }
+        } finally {
+            deflater.end();
+        }
+        long compressedSize = zip.position - dataOffset;
+        if (size > ZIP32_LIMIT || compressedSize > ZIP32_LIMIT) {
+            throw new IOException("单个文件超过 4GB，不支持 ZIP64: " + source.name());
+        }
+        zip.writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        zip.writeInt((int) crc.getValue());
+        zip.writeInt((int) compressedSize);
+        zip.writeInt((int) size);
+        return new CentralEntry(name, dosTime, METHOD_DEFLATED, flags, crc.getValue(),
+                compressedSize, size, false, offset);
+    }
+
+    private void writeCentralDirectory(ZipOutput zip, List<CentralEntry> entries) throws IOException {
+        long centralOffset = zip.position;
+        for (CentralEntry entry : entries) {
+            zip.writeInt(CENTRAL_HEADER_SIGNATURE);
+            zip.writeShort(VERSION);
+            zip.writeShort(VERSION);
+            zip.writeShort(entry.flags());
+            zip.writeShort(entry.method());
+            zip.writeInt(entry.dosTime());
+            zip.writeInt((int) entry.crc());
+            zip.writeInt((int) entry.compressedSize());
+            zip.writeInt((int) entry.size());
+            zip.writeShort(entry.name().length);
+            zip.writeShort(0);
+            zip.writeShort(0);
+            zip.writeShort(0);
+            zip.writeShort(0);
+            zip.writeInt(entry.directory() ? DIRECTORY_ATTRIBUTE : 0);
+            zip.writeInt((int) entry.offset());
+            zip.write(entry.name());
+        }
+        long centralSize = zip.position - centralOffset;
+        if (zip.position > ZIP32_LIMIT) {
+            throw new IOException("压缩包超过 4GB，不支持 ZIP64");
+        }
+        zip.writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        zip.writeShort(0);
+        zip.writeShort(0);
+        zip.writeShort(entries.size());
+        zip.writeShort(entries.size());
+        zip.writeInt((int) centralSize);
+        zip.writeInt((int) centralOffset);
+        zip.writeShort(0);
+    }
+
+    /**
+     * 转换为 MS-DOS 日期时间（高 16 位日期，低 16 位时间）
+     */
+    private int toDosTime(long epochMillis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            time = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        int date = ((time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+        int clock = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+        return (date << 16) | clock;
+    }
+
+    /**
+     * 压缩包条目
+     *
+     * @param name         条目名称（使用 / 分隔，目录以 / 结尾）
+     * @param path         源文件路径
+     * @param lastModified 修改时间（毫秒）
+     * @param directory    是否为目录条目
+     */
+    public record ZipSource(String name, Path path, long lastModified, boolean directory) {
+    }
+
+    private record CompressedEntry(byte[] name, int dosTime, int method, long crc, long size,
+                                   byte[] data, boolean directory) {
+    }
+
+    private record CentralEntry(byte[] name, int dosTime, int method, int flags, long crc, long compressedSize,
+                                long size, boolean directory, long offset) {
+    }
+
+    /**
+     * 在途条目：future 为空表示大文件，写出时流式压缩
+     */
+    private record PendingEntry(ZipSource source, Future<CompressedEntry> future) {
+    }
+
+    /**
+     * 记录写出位置的小端序输出
+     */
+    private static final class ZipOutput {
+
+        private final OutputStream out;
+
+        private final byte[] buffer = new byte[4];
+
+        private long position = 0;
+
+        private ZipOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        private void writeShort(int value) throws IOException {
+            buffer[0] = (byte) value;
+            buffer[1] = (byte) (value >>> 8);
+            out.write(buffer, 0, 2);
+            position += 2;
+        }
+
+        private void writeInt(int value) throws IOException {
+            buffer[0] = (byte) value;
+            buffer[1] = (byte) (value >>> 8);
+            buffer[2] = (byte) (value >>> 16);
+            buffer[3] = (byte) (value >>> 24);
+            out.write(buffer, 0, 4);
+            position += 4;
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            position += bytes.length;
+        }
+
+        private void write(byte[] bytes, int length) throws IOException {
+            out.write(bytes, 0, length);
+            position += length;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.sht.zdaicode.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sht.zdaicode.config.StaticResourceConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 站点静态文件输出
+ * 1. 条件请求：ETag（文件大小 + 修改时间）与 Last-Modified，命中返回 304
+ * 2. 缓存策略：带内容哈希的构建产物 immutable 长期缓存，其余资源每次协商
+ * 3. 预压缩：客户端支持时优先输出同目录下的 .br / .gz 文件
+ * 4. 单段 Range 请求（206 / 416）
+ * 5. 小文件读入内存热点缓存（按路径 + 修改时间 + 大小），大文件走 Tomcat sendfile 或 FileChannel.transferTo
+ */
+@Slf4j
+public class StaticResourceServer {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String REVALIDATE_CACHE_CONTROL = "no-cache";
+
+    private static final Set<String> TEXT_SUBTYPES = Set.of("javascript", "json", "xml", "svg+xml", "manifest+json");
+
+    /**
+     * 预压缩版本按优先级排列：[Content-Encoding, 文件后缀]
+     */
+    private static final String[][] PRECOMPRESSED = {{"br", ".br"}, {"gzip", ".gz"}};
+
+    /**
+     * Range 头不可满足
+     */
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final Pattern immutableAssetPattern;
+
+    private final String immutableCacheControl;
+
+    private final long hotFileMaxBytes;
+
+    private final Cache<HotFileKey, byte[]> hotFiles;
+
+    private final MeterRegistry meterRegistry;
+
+    public StaticResourceServer(StaticResourceConfig config, MeterRegistry meterRegistry) {
+        this.immutableAssetPattern = Pattern.compile(config.getImmutableAssetPattern());
+        this.immutableCacheControl = "public, max-age=" + config.getImmutableMaxAgeSeconds() + ", immutable";
+        this.hotFileMaxBytes = config.getHotFileMaxBytes();
+        this.hotFiles = Caffeine.newBuilder()
+                .maximumWeight(config.getHotCacheMaxBytes())
+                .weigher((HotFileKey key, byte[] bytes) -> bytes.length)
+                .recordStats()
+                .build();
+        this.meterRegistry = meterRegistry;
+        CaffeineCacheMetrics.monitor(meterRegistry, hotFiles, "static_resource_hot_files");
+    }
+
+    /**
+     * 输出站点根目录下的文件
+     *
+     * @param siteRoot     站点根目录
+     * @param relativePath 相对站点根目录的路径（不以 / 开头）
+     */
+    public void serve(Path siteRoot, String relativePath, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        Path root = siteRoot.toAbsolutePath().normalize();
+        Path file = root.resolve(relativePath).normalize();
+        // 防止 ../ 越出站点目录
+        if (!file.startsWith(root)) {
+            finish(response, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            log.debug("静态资源不存在: {}", file);
+            finish(response, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            finish(response, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!Files.isReadable(file)) {
+            finish(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        MediaType mediaType = resolveMediaType(file);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        // Range 只作用于原始文件，避免缓存方混用不同编码的字节区间
+        Representation representation = rangeHeader == null && isCompressible(mediaType)
+                ? selectPrecompressed(file, attributes, request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+                : null;
+        if (representation == null) {
+            representation = new Representation(file, attributes.size(), lastModified, null);
+        }
+        String etag = buildEtag(representation.size(), lastModified, representation.encoding());
+
+        response.setHeader(HttpHeaders.CONTENT_TYPE, toContentType(mediaType));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutableAssetPattern.matcher(relativePath).matches()
+                ? immutableCacheControl : REVALIDATE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (isCompressible(mediaType)) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (representation.encoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, representation.encoding());
+        }
+
+        if (isNotModified(request, etag, lastModified)) {
+            finish(response, HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = representation.size() - 1;
+        int status = HttpServletResponse.SC_OK;
+        if (rangeHeader != null && isRangeApplicable(request, etag, lastModified)) {
+            long[] range = parseRange(rangeHeader, representation.size());
+            if (range == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + representation.size());
+                finish(response, HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (range != null) {
+                start = range[0];
+                end = range[1];
+                status = HttpServletResponse.SC_PARTIAL_CONTENT;
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + end + "/" + representation.size());
+            }
+        }
+        long length = end - start + 1;
+        response.setStatus(status);
+        response.setContentLengthLong(length);
+        countResponse(status);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+        writeBody(representation, start, length, request, response);
+    }
+
+    private void writeBody(Representation representation, long start, long length,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (representation.size() <= hotFileMaxBytes) {
+            byte[] bytes = readHotFile(representation);
+            response.getOutputStream().write(bytes, (int) start, (int) length);
+            return;
+        }
+        // Tomcat NIO 连接器支持 sendfile 时交给容器零拷贝输出
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, representation.path().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(representation.path(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private byte[] readHotFile(Representation representation) throws IOException {
+        HotFileKey key = new HotFileKey(representation.path().toString(),
+                representation.lastModified(), representation.size());
+        try {
+            return hotFiles.get(key, k -> {
+                try {
+                    return Files.readAllBytes(representation.path());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 选择客户端可接受、且不旧于原文件的预压缩版本
+     */
+    private Representation selectPrecompressed(Path file, BasicFileAttributes attributes, String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        for (String[] candidate : PRECOMPRESSED) {
+            if (!acceptsEncoding(acceptEncoding, candidate[0])) {
+                continue;
+            }
+            Path compressed = file.resolveSibling(file.getFileName() + candidate[1]);
+            try {
+                BasicFileAttributes compressedAttributes = Files.readAttributes(compressed, BasicFileAttributes.class);
+                if (compressedAttributes.isRegularFile()
+                        && compressedAttributes.lastModifiedTime().compareTo(attributes.lastModifiedTime()) >= 0) {
+                    return new Representation(compressed, compressedAttributes.size(),
+                            compressedAttributes.lastModifiedTime().toMillis(), candidate[0]);
+                }
+            } catch (IOException ignored) {
+                // 没有该预压缩版本
+            }
+        }
+        return null;
+    }
+
+    private boolean acceptsEncoding(String acceptEncoding, String encoding) {
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (!tokens[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match 存在时忽略 If-Modified-Since，按弱比较匹配
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*") || stripWeak(candidate).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * If-Range 与当前版本一致（或未携带）时才按 Range 输出，否则返回完整内容
+     */
+    private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range 要求强比较，弱 ETag 一律视为不匹配
+            return ifRange.equals(etag);
+        }
+        long date = getDateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    /**
+     * 解析单段 Range，返回 [start, end]（含）；多段或格式错误时返回 null（输出完整内容）
+     */
+    private long[] parseRange(String rangeHeader, long size) {
+        if (!rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // 后缀区间：bytes=-N 表示最后 N 个字节
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new long[]{Math.max(0, size - suffixLength), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private String buildEtag(long size, long lastModified, String encoding) {
+        String tag = Long.toHexString(size) + "-" + Long.toHexString(lastModified);
+        return "\"" + (encoding == null ? tag : tag + "-" + encoding) + "\"";
+    }
+
+    private MediaType resolveMediaType(Path file) {
+        return MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private boolean isCompressible(MediaType mediaType) {
+        return "text".equals(mediaType.getType()) || TEXT_SUBTYPES.contains(mediaType.getSubtype());
+    }
+
+    private String toContentType(MediaType mediaType) {
+        return isCompressible(mediaType) ? mediaType + ";charset=UTF-8" : mediaType.toString();
+    }
+
+    private void finish(HttpServletResponse response, int status) {
+        response.setStatus(status);
+        countResponse(status);
+    }
+
+    private void countResponse(int status) {
+        meterRegistry.counter("static.resource.responses", "status", String.valueOf(status)).increment();
+    }
+
+    /**
+     * 实际输出的文件（原文件或预压缩版本）
+     */
+    private record Representation(Path path, long size, long lastModified, String encoding) {
+    }
+
+    private record HotFileKey(String path, long lastModified, long size) {
+    }
+}
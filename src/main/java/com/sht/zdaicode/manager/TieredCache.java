@@ -0,0 +1,175 @@
+package com.sht.zdaicode.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * 二级缓存：L1 为本节点 Caffeine 近端缓存，L2 为 Redis 缓存
+ * 读：L1 -> L2 -> 加载；写与失效同时作用于两级，并通过回调广播给其他节点清除 L1
+ * <p>
+ * 仅支持 String 类型的 key：L2 使用 String 序列化 key，失效广播也按原样传递 key，
+ * 其他类型的 key 无法在其他节点还原为同一个 L1 key
+ */
+public class TieredCache implements org.springframework.cache.Cache {
+
+    private final String name;
+
+    private final Cache<String, Object> localCache;
+
+    private final org.springframework.cache.Cache remoteCache;
+
+    /**
+     * 失效广播回调：(缓存名, key)，key 为 null 表示清空整个缓存
+     */
+    private final BiConsumer<String, String> invalidationPublisher;
+
+    private final Counter l1HitCounter;
+
+    private final Counter l1MissCounter;
+
+    private final Counter l2HitCounter;
+
+    private final Counter l2MissCounter;
+
+    public TieredCache(String name, Cache<String, Object> localCache, org.springframework.cache.Cache remoteCache,
+                       BiConsumer<String, String> invalidationPublisher, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.invalidationPublisher = invalidationPublisher;
+        this.l1HitCounter = tierCounter(meterRegistry, "l1", "hit");
+        this.l1MissCounter = tierCounter(meterRegistry, "l1", "miss");
+        this.l2HitCounter = tierCounter(meterRegistry, "l2", "hit");
+        this.l2MissCounter = tierCounter(meterRegistry, "l2", "miss");
+        tierHitRatio(meterRegistry, "l1", l1HitCounter, l1MissCounter);
+        tierHitRatio(meterRegistry, "l2", l2HitCounter, l2MissCounter);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object localValue = localCache.getIfPresent(stringKey(key));
+        if (localValue != null) {
+            l1HitCounter.increment();
+            return new SimpleValueWrapper(localValue);
+        }
+        l1MissCounter.increment();
+        ValueWrapper remoteValue = remoteCache.get(key);
+        if (remoteValue == null) {
+            l2MissCounter.increment();
+            return null;
+        }
+        l2HitCounter.increment();
+        if (remoteValue.get() != null) {
+            localCache.put(stringKey(key), remoteValue.get());
+        }
+        return remoteValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper valueWrapper = get(key);
+        Object value = valueWrapper == null ? null : valueWrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("缓存值类型不匹配，期望: " + type.getName() + "，实际: " + value.getClass().getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper != null) {
+            return (T) valueWrapper.get();
+        }
+        T value = remoteCache.get(key, valueLoader);
+        if (value != null) {
+            localCache.put(stringKey(key), value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = stringKey(key);
+        remoteCache.put(key, value);
+        if (value != null) {
+            localCache.put(localKey, value);
+        }
+        // 其他节点可能持有该 key 的旧值
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = stringKey(key);
+        remoteCache.evict(key);
+        localCache.invalidate(localKey);
+        invalidationPublisher.accept(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        localCache.invalidateAll();
+        invalidationPublisher.accept(name, null);
+    }
+
+    /**
+     * 仅清除本节点 L1（收到其他节点的失效广播时调用）
+     *
+     * @param key 缓存 key，为 null 时清空整个 L1
+     */
+    public void invalidateLocal(String key) {
+        if (key == null) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    private String stringKey(Object key) {
+        if (key instanceof String stringKey) {
+            return stringKey;
+        }
+        throw new IllegalArgumentException("二级缓存 " + name + " 仅支持 String 类型的 key，实际: "
+                + (key == null ? "null" : key.getClass().getName()));
+    }
+
+    private Counter tierCounter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("cache.tier.gets")
+                .description("二级缓存各层的读取次数")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void tierHitRatio(MeterRegistry meterRegistry, String tier, Counter hitCounter, Counter missCounter) {
+        Gauge.builder("cache.tier.hit.ratio", () -> {
+                    double total = hitCounter.count() + missCounter.count();
+                    return total == 0 ? 0 : hitCounter.count() / total;
+                })
+                .description("二级缓存各层的命中率")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+}
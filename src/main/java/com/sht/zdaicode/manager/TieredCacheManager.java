@@ -0,0 +1,119 @@
+package com.sht.zdaicode.manager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sht.zdaicode.config.TieredCacheConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 二级缓存管理器
+ * 在 Redis 缓存管理器之前为每个缓存增加一层本节点 Caffeine 缓存，
+ * 并通过 Redis pub/sub 广播失效消息，使集群内其他节点同步清除 L1（key 须为 String，见 TieredCache）
+ */
+@Slf4j
+public class TieredCacheManager implements CacheManager, MessageListener {
+
+    /**
+     * 失效消息字段分隔符：nodeId \n cacheName \n 操作 [\n key]
+     */
+    private static final String SEPARATOR = "\n";
+
+    private static final String OP_EVICT = "E";
+
+    private static final String OP_CLEAR = "C";
+
+    /**
+     * 当前节点标识，用于忽略自己发出的失效消息
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final CacheManager remoteCacheManager;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TieredCacheConfig config;
+
+    private final Map<String, TieredCache> caches = new ConcurrentHashMap<>();
+
+    public TieredCacheManager(CacheManager remoteCacheManager, StringRedisTemplate stringRedisTemplate,
+                              MeterRegistry meterRegistry, TieredCacheConfig config) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.config = config;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TieredCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, cacheName -> new TieredCache(
+                cacheName,
+                Caffeine.newBuilder()
+                        .maximumSize(config.getLocalMaximumSize())
+                        .expireAfterWrite(Duration.ofSeconds(config.getLocalExpireSeconds()))
+                        .build(),
+                remoteCache,
+                this::publishInvalidation,
+                meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    /**
+     * 收到其他节点的失效广播，清除本节点 L1
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TieredCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (OP_CLEAR.equals(parts[2])) {
+            cache.invalidateLocal(null);
+        } else if (OP_EVICT.equals(parts[2]) && parts.length == 4) {
+            cache.invalidateLocal(parts[3]);
+        }
+    }
+
+    /**
+     * 广播失效消息；广播失败不影响本节点缓存操作，其他节点的 L1 将在过期后自然失效
+     */
+    private void publishInvalidation(String cacheName, String key) {
+        String message = key == null
+                ? String.join(SEPARATOR, nodeId, cacheName, OP_CLEAR)
+                : String.join(SEPARATOR, nodeId, cacheName, OP_EVICT, key);
+        try {
+            stringRedisTemplate.convertAndSend(config.getInvalidationChannel(), message);
+        } catch (Exception e) {
+            log.warn("广播缓存失效消息失败，cache: {}, key: {}", cacheName, key, e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.sht.zdaicode.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 外部素材来源（素材结果缓存按来源区分 key 与过期时间）
+ */
+@Getter
+public enum AssetProviderEnum {
+
+    PEXELS("Pexels 内容图片", "pexels"),
+    PIXABAY_ILLUSTRATION("Pixabay 插画", "pixabay_illustration"),
+    PIXABAY_VECTOR("Pixabay 矢量图", "pixabay_vector"),
+    MERMAID("Mermaid 架构图", "mermaid"),
+    DASHSCOPE_LOGO("DashScope Logo", "dashscope_logo");
+
+    private final String text;
+
+    private final String value;
+
+    AssetProviderEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static AssetProviderEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (AssetProviderEnum anEnum : AssetProviderEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.sht.zdaicode.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 构建任务优先级（按声明顺序，越靠前越先执行）
+ */
+@Getter
+public enum BuildPriorityEnum {
+
+    INTERACTIVE("交互预览", "interactive"),
+    DEPLOY("部署", "deploy"),
+    BACKGROUND("后台预热", "background");
+
+    private final String text;
+
+    private final String value;
+
+    BuildPriorityEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static BuildPriorityEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (BuildPriorityEnum anEnum : BuildPriorityEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
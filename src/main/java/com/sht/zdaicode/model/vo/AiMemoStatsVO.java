@@ -0,0 +1,43 @@
+package com.sht.zdaicode.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * AI 调用缓存统计（本节点，自启动以来）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiMemoStatsVO implements Serializable {
+
+    /**
+     * AI Service 方法，如 AiCodeGenTypeRoutingService.routeCodeGenType
+     */
+    private String method;
+
+    /**
+     * 命中缓存、省下的模型调用次数
+     */
+    private long savedCalls;
+
+    /**
+     * 实际调用模型的次数
+     */
+    private long modelCalls;
+
+    /**
+     * 命中缓存省下的模型调用耗时（毫秒，按写入缓存时那次调用的耗时累计）
+     */
+    private long savedLatencyMillis;
+
+    /**
+     * 命中率
+     */
+    private double hitRatio;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,59 @@
+package com.sht.zdaicode.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 工作流节点的一次执行
+ */
+@Data
+public class WorkflowNodeSpanVO implements Serializable {
+
+    /**
+     * 节点名
+     */
+    private String node;
+
+    /**
+     * 第几次执行（质检失败重试时大于 1）
+     */
+    private int attempt;
+
+    /**
+     * 执行线程
+     */
+    private String thread;
+
+    /**
+     * 相对执行开始的偏移（毫秒）
+     */
+    private double startOffsetMillis;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private double durationMillis;
+
+    /**
+     * 结果：running / success / error
+     */
+    private String outcome;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+
+    /**
+     * 节点内模型调用的输入 token 数
+     */
+    private long inputTokens;
+
+    /**
+     * 节点内模型调用的输出 token 数
+     */
+    private long outputTokens;
+
+    private static final long serialVersionUID = 1L;
+}
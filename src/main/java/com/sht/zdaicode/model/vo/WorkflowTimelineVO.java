@@ -0,0 +1,55 @@
+package com.sht.zdaicode.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 工作流单次执行的节点时间线
+ */
+@Data
+public class WorkflowTimelineVO implements Serializable {
+
+    /**
+     * 执行 ID
+     */
+    private String executionId;
+
+    /**
+     * 工作流，如 code_gen_concurrent、fullstack_code_gen
+     */
+    private String workflow;
+
+    /**
+     * 应用 ID
+     */
+    private String appId;
+
+    /**
+     * 用户 ID
+     */
+    private String userId;
+
+    /**
+     * 开始时间（毫秒时间戳）
+     */
+    private long startTime;
+
+    /**
+     * 总耗时（毫秒），执行中为截至目前的耗时
+     */
+    private long durationMillis;
+
+    /**
+     * 状态：running / success / failed
+     */
+    private String status;
+
+    /**
+     * 节点执行记录，按开始时间排序
+     */
+    private List<WorkflowNodeSpanVO> nodes;
+
+    private static final long serialVersionUID = 1L;
+}
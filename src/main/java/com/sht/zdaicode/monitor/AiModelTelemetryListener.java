@@ -0,0 +1,236 @@
+package com.sht.zdaicode.monitor;
+
+import cn.hutool.core.util.StrUtil;
+import com.sht.zdaicode.config.AiModelTelemetryConfig;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.listener.StreamingChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式模型调用指标
+ * 1. 延迟分布（首 token 耗时、token 间隔、输出速率、总耗时）按 模型 / 工作流节点 / 生成类型 打标签
+ * 2. token 用量与费用再加上用户、应用分桶标签，ID 不直接作为标签，指标数量有上限
+ * 3. 工作流节点内的调用把 token 用量累加到该节点的时间线记录
+ * <p>
+ * 标签取自发起调用线程上的 {@link MonitorContext}，在请求开始时确定，流式回调线程上不再读取
+ */
+public class AiModelTelemetryListener implements StreamingChatModelListener {
+
+    private static final String STATE_KEY = AiModelTelemetryListener.class.getName();
+
+    private static final String NONE = "none";
+
+    private final AiModelTelemetryConfig config;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 单次调用的计时状态，存放在 langchain4j 为每次调用创建的 attributes 中
+     */
+    private static final class CallState {
+
+        final long startNanos = System.nanoTime();
+
+        final String model;
+
+        final Tags latencyTags;
+
+        final Tags usageTags;
+
+        final Timer firstTokenTimer;
+
+        final Timer interTokenTimer;
+
+        final WorkflowTimeline.NodeSpan nodeSpan;
+
+        volatile long firstTokenNanos;
+
+        volatile long lastTokenNanos;
+
+        volatile int partials;
+
+        CallState(String model, Tags latencyTags, Tags usageTags, Timer firstTokenTimer, Timer interTokenTimer,
+                  WorkflowTimeline.NodeSpan nodeSpan) {
+            this.model = model;
+            this.latencyTags = latencyTags;
+            this.usageTags = usageTags;
+            this.firstTokenTimer = firstTokenTimer;
+            this.interTokenTimer = interTokenTimer;
+            this.nodeSpan = nodeSpan;
+        }
+    }
+
+    public AiModelTelemetryListener(AiModelTelemetryConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        MonitorContext monitorContext = MonitorContextHolder.getContext();
+        String model = modelName(requestContext.chatRequest());
+        String nodeName = monitorContext != null && monitorContext.getNodeName() != null
+                ? monitorContext.getNodeName() : NONE;
+        String codeGenType = monitorContext != null && monitorContext.getCodeGenType() != null
+                ? monitorContext.getCodeGenType().getValue() : NONE;
+        Tags latencyTags = Tags.of("model", model, "node", nodeName, "code_gen_type", codeGenType);
+        Tags usageTags = Tags.of(
+                "model", model,
+                "code_gen_type", codeGenType,
+                "user_bucket", bucket(monitorContext != null ? monitorContext.getUserId() : null),
+                "app_bucket", bucket(monitorContext != null ? monitorContext.getAppId() : null));
+        Timer firstTokenTimer = Timer.builder("ai.model.first.token")
+                .description("流式调用首 token 耗时")
+                .tags(latencyTags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(2))
+                .register(meterRegistry);
+        Timer interTokenTimer = Timer.builder("ai.model.inter.token")
+                .description("流式调用相邻两个输出片段的间隔")
+                .tags(latencyTags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+        requestContext.attributes().put(STATE_KEY,
+                new CallState(model, latencyTags, usageTags, firstTokenTimer, interTokenTimer,
+                        monitorContext != null ? monitorContext.getNodeSpan() : null));
+    }
+
+    @Override
+    public void onPartialResponse(String partialResponse, Map<Object, Object> attributes) {
+        if (!(attributes.get(STATE_KEY) instanceof CallState state)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (state.firstTokenNanos == 0) {
+            state.firstTokenNanos = now;
+            state.firstTokenTimer.record(now - state.startNanos, TimeUnit.NANOSECONDS);
+        } else {
+            state.interTokenTimer.record(now - state.lastTokenNanos, TimeUnit.NANOSECONDS);
+        }
+        state.lastTokenNanos = now;
+        state.partials++;
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        if (!(responseContext.attributes().get(STATE_KEY) instanceof CallState state)) {
+            return;
+        }
+        long now = System.nanoTime();
+        recordDuration(state, now, "success");
+
+        TokenUsage tokenUsage = responseContext.chatResponse().tokenUsage();
+        int inputTokens = tokenUsage != null && tokenUsage.inputTokenCount() != null ? tokenUsage.inputTokenCount() : 0;
+        int outputTokens = tokenUsage != null && tokenUsage.outputTokenCount() != null
+                ? tokenUsage.outputTokenCount() : state.partials;
+        int cachedTokens = cachedInputTokens(tokenUsage);
+        countTokens(state, "input", inputTokens - cachedTokens);
+        countTokens(state, "cached_input", cachedTokens);
+        countTokens(state, "output", outputTokens);
+        if (state.nodeSpan != null) {
+            state.nodeSpan.addTokenUsage(inputTokens, outputTokens);
+        }
+
+        // 输出速率只统计生成阶段（首 token 之后），不含排队与首 token 等待
+        long generationNanos = now - state.firstTokenNanos;
+        if (state.firstTokenNanos != 0 && generationNanos > 0 && outputTokens > 1) {
+            DistributionSummary.builder("ai.model.output.tokens.per.second")
+                    .description("流式调用输出速率（token/秒）")
+                    .tags(state.latencyTags)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(meterRegistry)
+                    .record(outputTokens / (generationNanos / 1e9));
+        }
+
+        AiModelTelemetryConfig.ModelPrice price = config.getPricing().get(state.model);
+        if (price != null) {
+            double cost = ((inputTokens - cachedTokens) * price.getInputPerMillion()
+                    + cachedTokens * price.getCachedInputPerMillion()
+                    + outputTokens * price.getOutputPerMillion()) / 1_000_000;
+            Counter.builder("ai.model.cost")
+                    .description("模型调用费用（元）")
+                    .tags(state.usageTags)
+                    .register(meterRegistry)
+                    .increment(cost);
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        if (errorContext.attributes().get(STATE_KEY) instanceof CallState state) {
+            recordDuration(state, System.nanoTime(), "error");
+        }
+    }
+
+    private void recordDuration(CallState state, long now, String outcome) {
+        Timer.builder("ai.model.request")
+                .description("流式调用总耗时")
+                .tags(state.latencyTags)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(100))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry)
+                .record(now - state.startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void countTokens(CallState state, String type, int tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Counter.builder("ai.model.tokens")
+                .description("模型调用 token 用量")
+                .tags(state.usageTags)
+                .tag("type", type)
+                .register(meterRegistry)
+                .increment(tokens);
+    }
+
+    /**
+     * 命中提示词缓存的输入 token 数（OpenAI 兼容接口的 prompt_tokens_details.cached_tokens）
+     */
+    private static int cachedInputTokens(TokenUsage tokenUsage) {
+        if (tokenUsage instanceof OpenAiTokenUsage openAiTokenUsage
+                && openAiTokenUsage.inputTokensDetails() != null
+                && openAiTokenUsage.inputTokensDetails().cachedTokens() != null) {
+            return openAiTokenUsage.inputTokensDetails().cachedTokens();
+        }
+        return 0;
+    }
+
+    private static String modelName(ChatRequest chatRequest) {
+        String modelName = chatRequest.parameters() != null ? chatRequest.parameters().modelName() : null;
+        return StrUtil.isNotBlank(modelName) ? modelName : NONE;
+    }
+
+    /**
+     * ID 分桶：相同 ID 总落在同一个桶，桶数由配置决定
+     */
+    private String bucket(String id) {
+        if (StrUtil.isBlank(id)) {
+            return NONE;
+        }
+        return "b" + Math.floorMod(id.hashCode(), Math.max(1, config.getTenantBuckets()));
+    }
+}
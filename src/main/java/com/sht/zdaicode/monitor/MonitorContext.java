@@ -5,12 +5,13 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.io.Serial;
 import java.io.Serializable;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class MonitorContext implements Serializable {
@@ -21,6 +22,17 @@ public class MonitorContext implements Serializable {
     
     private CodeGenTypeEnum codeGenType;
 
+    /**
+     * 当前执行的工作流节点（非工作流调用为空）
+     */
+    private String nodeName;
+
+    /**
+     * 当前节点本次执行的时间线记录（非工作流调用为空），节点内模型调用的 token 用量累加到这里
+     */
+    @ToString.Exclude
+    private transient WorkflowTimeline.NodeSpan nodeSpan;
+
     @Serial
     private static final long serialVersionUID = 1L;
 }
@@ -1,35 +1,107 @@
 package com.sht.zdaicode.monitor;
 
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
 
+import java.util.concurrent.Callable;
+
+/**
+ * 监控上下文
+ * 1. 以 Reactor Context 为准：流式接口通过 {@link #write(Flux, MonitorContext)} 写入，随订阅链传递
+ * 2. 线程上的 ThreadLocal 只是当前执行片段的视图，由 Micrometer context-propagation 在线程切换时自动恢复
+ *    （Reactor 算子、包装过的执行器、模型回调线程上的工具执行），不手动 set / remove，避免线程复用时串号
+ */
 @Slf4j
 public class MonitorContextHolder {
 
+    /**
+     * Reactor Context 中的 key，与 ThreadLocal 访问器的 key 一致，自动传播时两者互相映射
+     */
+    public static final String CONTEXT_KEY = MonitorContextThreadLocalAccessor.KEY;
+
     private static final ThreadLocal<MonitorContext> CONTEXT_HOLDER = new ThreadLocal<>();
 
+    private static final ContextSnapshotFactory SNAPSHOT_FACTORY = ContextSnapshotFactory.builder().build();
+
     /**
-     * 设置监控上下文
+     * 设置与恢复的作用域
      */
-    public static void setContext(MonitorContext context) {
-        CONTEXT_HOLDER.set(context);
-        log.debug("设置监控上下文: {}", context);
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
     }
 
     /**
-     * 获取当前监控上下文
+     * 获取当前线程上的监控上下文
      */
     public static MonitorContext getContext() {
         return CONTEXT_HOLDER.get();
     }
 
     /**
-     * 清除监控上下文
+     * 从 Reactor Context 中读取监控上下文
+     */
+    public static MonitorContext getContext(ContextView contextView) {
+        return contextView.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /**
+     * 在当前线程上临时设置监控上下文，关闭作用域时恢复之前的值
+     */
+    public static Scope open(MonitorContext context) {
+        MonitorContext previous = CONTEXT_HOLDER.get();
+        set(context);
+        log.debug("设置监控上下文: {}", context);
+        return () -> set(previous);
+    }
+
+    /**
+     * 把监控上下文写入流的 Reactor Context，并保证订阅（模型调用在订阅时发起）发生在该上下文中
+     *
+     * @param flux    流
+     * @param context 监控上下文
+     */
+    public static <T> Flux<T> write(Flux<T> flux, MonitorContext context) {
+        // Flux.create 的回调在订阅时同步执行，订阅期间设置 ThreadLocal，回调中发起的模型调用可以拿到
+        return Flux.<T>from(subscriber -> {
+                    try (Scope ignored = open(context)) {
+                        flux.subscribe(subscriber);
+                    }
+                })
+                .contextWrite(Context.of(CONTEXT_KEY, context));
+    }
+
+    /**
+     * 包装任务：执行时恢复提交时线程上的上下文
      */
-    public static void clearContext() {
-        MonitorContext context = CONTEXT_HOLDER.get();
-        if (context != null) {
-            log.debug("清除监控上下文: {}", context);
+    public static Runnable wrap(Runnable task) {
+        return SNAPSHOT_FACTORY.captureAll().wrap(task);
+    }
+
+    /**
+     * 包装任务：执行时恢复提交时线程上的上下文
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        return SNAPSHOT_FACTORY.captureAll().wrap(task);
+    }
+
+    /**
+     * 捕获当前线程上的全部上下文，供包装执行器使用
+     */
+    public static ContextSnapshot captureSnapshot() {
+        return SNAPSHOT_FACTORY.captureAll();
+    }
+
+    static void set(MonitorContext context) {
+        if (context == null) {
             CONTEXT_HOLDER.remove();
+        } else {
+            CONTEXT_HOLDER.set(context);
         }
     }
 }
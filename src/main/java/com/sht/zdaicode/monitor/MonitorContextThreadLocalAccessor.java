@@ -0,0 +1,32 @@
+package com.sht.zdaicode.monitor;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * 监控上下文的 ThreadLocal 访问器
+ * 通过 META-INF/services 注册到 Micrometer ContextRegistry，Reactor 自动传播与 ContextSnapshot 据此读写 ThreadLocal
+ */
+public class MonitorContextThreadLocalAccessor implements ThreadLocalAccessor<MonitorContext> {
+
+    public static final String KEY = "zd.monitor.context";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public MonitorContext getValue() {
+        return MonitorContextHolder.getContext();
+    }
+
+    @Override
+    public void setValue(MonitorContext value) {
+        MonitorContextHolder.set(value);
+    }
+
+    @Override
+    public void setValue() {
+        MonitorContextHolder.set(null);
+    }
+}
@@ -0,0 +1,53 @@
+package com.sht.zdaicode.monitor;
+
+import com.sht.zdaicode.langgraph4j.state.WorkflowContext;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 工作流节点监控包装
+ * 1. 节点执行期间把「发起请求的监控上下文 + 节点名」设置到执行线程上，节点内的模型调用据此打标签
+ * 2. 工作流带有时间线时，记录节点的开始 / 结束、执行线程与第几次执行
+ */
+public class NodeMonitor {
+
+    private NodeMonitor() {
+    }
+
+    /**
+     * 包装节点
+     *
+     * @param nodeName 节点名（与 addNode 注册的名称一致）
+     * @param action   节点实现
+     */
+    public static AsyncNodeAction<MessagesState<String>> wrap(String nodeName, AsyncNodeAction<MessagesState<String>> action) {
+        return state -> {
+            WorkflowContext workflowContext = WorkflowContext.getContext(state);
+            MonitorContext requestContext = workflowContext != null && workflowContext.getMonitorContext() != null
+                    ? workflowContext.getMonitorContext() : MonitorContextHolder.getContext();
+            WorkflowTimeline timeline = workflowContext != null ? workflowContext.getTimeline() : null;
+            WorkflowTimeline.NodeSpan span = timeline != null ? timeline.startNode(nodeName) : null;
+            MonitorContext nodeContext = (requestContext != null ? requestContext.toBuilder() : MonitorContext.builder())
+                    .nodeName(nodeName)
+                    .nodeSpan(span)
+                    .build();
+            CompletableFuture<Map<String, Object>> result;
+            // 节点均由 node_async 包装，主体在 apply 内同步执行
+            try (MonitorContextHolder.Scope ignored = MonitorContextHolder.open(nodeContext)) {
+                result = action.apply(state);
+            } catch (RuntimeException e) {
+                if (span != null) {
+                    span.end(e);
+                }
+                throw e;
+            }
+            if (span != null) {
+                result.whenComplete((output, error) -> span.end(error));
+            }
+            return result;
+        };
+    }
+}
@@ -0,0 +1,219 @@
+package com.sht.zdaicode.monitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单次工作流执行的节点时间线
+ * 每个节点每执行一次记录一个 {@link NodeSpan}（开始 / 结束时间、执行线程、第几次执行、节点内模型调用的 token 用量），
+ * 质检失败回到生成节点重试时同一节点会出现多条记录
+ * <p>
+ * 节点可能在并发分支的不同线程上同时执行，记录的增删都在本对象上加锁
+ */
+public class WorkflowTimeline {
+
+    private final WorkflowTimelineStore store;
+
+    private final String executionId;
+
+    private final String workflow;
+
+    private final MonitorContext monitorContext;
+
+    private final long startEpochMillis = System.currentTimeMillis();
+
+    private final long startNanos = System.nanoTime();
+
+    private final int maxNodes;
+
+    private final List<NodeSpan> spans = new ArrayList<>();
+
+    /**
+     * 节点名 -> 已开始的执行次数（不受记录条数上限影响）
+     */
+    private final Map<String, Integer> attempts = new HashMap<>();
+
+    private volatile long endNanos;
+
+    private volatile String status = "running";
+
+    WorkflowTimeline(WorkflowTimelineStore store, String executionId, String workflow,
+                     MonitorContext monitorContext, int maxNodes) {
+        this.store = store;
+        this.executionId = executionId;
+        this.workflow = workflow;
+        this.monitorContext = monitorContext;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * 节点开始执行，返回的记录需在节点结束时调用 {@link NodeSpan#end(Throwable)}
+     */
+    public NodeSpan startNode(String nodeName) {
+        synchronized (this) {
+            int attempt = attempts.merge(nodeName, 1, Integer::sum);
+            NodeSpan span = new NodeSpan(nodeName, attempt, currentThreadName());
+            // 超过上限的记录不再保留（仍计入指标），避免异常循环的执行占满内存
+            if (spans.size() < maxNodes) {
+                spans.add(span);
+            }
+            return span;
+        }
+    }
+
+    /**
+     * 当前线程名，未命名的虚拟线程使用 vt-线程ID
+     */
+    private static String currentThreadName() {
+        Thread thread = Thread.currentThread();
+        String name = thread.getName();
+        return name.isEmpty() ? "vt-" + thread.threadId() : name;
+    }
+
+    /**
+     * 工作流执行结束
+     *
+     * @param success 是否成功
+     */
+    public void finish(boolean success) {
+        if (endNanos != 0) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        status = success ? "success" : "failed";
+        store.onExecutionEnd(this);
+    }
+
+    public synchronized List<NodeSpan> getSpans() {
+        return List.copyOf(spans);
+    }
+
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public String getWorkflow() {
+        return workflow;
+    }
+
+    public MonitorContext getMonitorContext() {
+        return monitorContext;
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * 执行总耗时（微秒），未结束时为截至目前的耗时
+     */
+    public long getDurationMicros() {
+        return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1000;
+    }
+
+    /**
+     * 节点的一次执行
+     */
+    public class NodeSpan {
+
+        private final String nodeName;
+
+        private final int attempt;
+
+        private final String thread;
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile long endNanos;
+
+        private volatile String outcome = "running";
+
+        private volatile String error;
+
+        private final AtomicLong inputTokens = new AtomicLong();
+
+        private final AtomicLong outputTokens = new AtomicLong();
+
+        private NodeSpan(String nodeName, int attempt, String thread) {
+            this.nodeName = nodeName;
+            this.attempt = attempt;
+            this.thread = thread;
+        }
+
+        /**
+         * 节点内模型调用完成后累加 token 用量
+         */
+        public void addTokenUsage(long input, long output) {
+            inputTokens.addAndGet(input);
+            outputTokens.addAndGet(output);
+        }
+
+        /**
+         * 节点执行结束
+         *
+         * @param error 失败原因，成功时为空
+         */
+        public void end(Throwable error) {
+            if (endNanos != 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            if (error != null) {
+                this.outcome = "error";
+                this.error = error.getClass().getSimpleName() + ": " + error.getMessage();
+            } else {
+                this.outcome = "success";
+            }
+            store.onNodeEnd(WorkflowTimeline.this, this);
+        }
+
+        public String getNodeName() {
+            return nodeName;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getInputTokens() {
+            return inputTokens.get();
+        }
+
+        public long getOutputTokens() {
+            return outputTokens.get();
+        }
+
+        /**
+         * 相对执行开始的偏移（微秒）
+         */
+        public long getStartOffsetMicros() {
+            return (startNanos - WorkflowTimeline.this.startNanos) / 1000;
+        }
+
+        /**
+         * 节点耗时（微秒），未结束时为截至目前的耗时
+         */
+        public long getDurationMicros() {
+            return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1000;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.sht.zdaicode.monitor;
+
+import cn.hutool.core.util.IdUtil;
+import com.sht.zdaicode.config.WorkflowTimelineConfig;
+import com.sht.zdaicode.model.vo.WorkflowNodeSpanVO;
+import com.sht.zdaicode.model.vo.WorkflowTimelineVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作流节点时间线存储
+ * 1. 内存中保留最近 N 次执行的节点时间线，可按 JSON 或 Chrome Trace 格式导出（chrome://tracing、Perfetto 中以火焰图查看）
+ * 2. 节点结束时把耗时计入 workflow.node.duration 直方图，重试计入 workflow.node.retries，供 Prometheus 聚合
+ */
+public class WorkflowTimelineStore {
+
+    private final WorkflowTimelineConfig config;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 按开始顺序排列的最近执行，超出上限时淘汰最早的
+     */
+    private final LinkedHashMap<String, WorkflowTimeline> timelines = new LinkedHashMap<>();
+
+    public WorkflowTimelineStore(WorkflowTimelineConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 开始记录一次工作流执行
+     *
+     * @param workflow       工作流名（与 workflow.graph.build 指标的 workflow 标签一致）
+     * @param monitorContext 发起请求的监控上下文，可为空
+     */
+    public WorkflowTimeline start(String workflow, MonitorContext monitorContext) {
+        WorkflowTimeline timeline = new WorkflowTimeline(this, IdUtil.fastSimpleUUID(), workflow,
+                monitorContext, Math.max(1, config.getMaxNodesPerExecution()));
+        // 关闭时不保留明细，节点耗时仍计入指标
+        if (config.isEnabled()) {
+            synchronized (timelines) {
+                timelines.put(timeline.getExecutionId(), timeline);
+                Iterator<WorkflowTimeline> iterator = timelines.values().iterator();
+                while (timelines.size() > Math.max(1, config.getMaxExecutions()) && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * 获取一次执行的时间线
+     *
+     * @return 不存在（或已被淘汰）时返回 null
+     */
+    public WorkflowTimelineVO get(String executionId) {
+        WorkflowTimeline timeline = find(executionId);
+        return timeline != null ? toVO(timeline) : null;
+    }
+
+    /**
+     * 最近的执行（新的在前）
+     *
+     * @param appId 只看某个应用，为空时不过滤
+     * @param limit 最多返回条数
+     */
+    public List<WorkflowTimelineVO> listRecent(String appId, int limit) {
+        List<WorkflowTimeline> snapshot;
+        synchronized (timelines) {
+            snapshot = new ArrayList<>(timelines.values());
+        }
+        List<WorkflowTimelineVO> result = new ArrayList<>();
+        for (int i = snapshot.size() - 1; i >= 0 && result.size() < limit; i--) {
+            WorkflowTimeline timeline = snapshot.get(i);
+            MonitorContext monitorContext = timeline.getMonitorContext();
+            if (appId == null || monitorContext != null && appId.equals(monitorContext.getAppId())) {
+                result.add(toVO(timeline));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 导出为 Chrome Trace Event 格式：每个节点一个完整事件（ph=X），同一线程上的节点在同一行
+     *
+     * @return 不存在（或已被淘汰）时返回 null
+     */
+    public Map<String, Object> toChromeTrace(String executionId) {
+        WorkflowTimeline timeline = find(executionId);
+        if (timeline == null) {
+            return null;
+        }
+        List<Map<String, Object>> events = new ArrayList<>();
+        events.add(metadataEvent("process_name", 0, timeline.getWorkflow() + " " + timeline.getExecutionId()));
+        Map<String, Integer> threadIds = new HashMap<>();
+        for (WorkflowTimeline.NodeSpan span : sortedSpans(timeline)) {
+            Integer tid = threadIds.get(span.getThread());
+            if (tid == null) {
+                tid = threadIds.size() + 1;
+                threadIds.put(span.getThread(), tid);
+                events.add(metadataEvent("thread_name", tid, span.getThread()));
+            }
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("attempt", span.getAttempt());
+            args.put("outcome", span.getOutcome());
+            args.put("inputTokens", span.getInputTokens());
+            args.put("outputTokens", span.getOutputTokens());
+            if (span.getError() != null) {
+                args.put("error", span.getError());
+            }
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", span.getAttempt() > 1 ? span.getNodeName() + " #" + span.getAttempt() : span.getNodeName());
+            event.put("cat", "node");
+            event.put("ph", "X");
+            event.put("ts", span.getStartOffsetMicros());
+            event.put("dur", span.getDurationMicros());
+            event.put("pid", 1);
+            event.put("tid", tid);
+            event.put("args", args);
+            events.add(event);
+        }
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", events);
+        trace.put("displayTimeUnit", "ms");
+        return trace;
+    }
+
+    void onNodeEnd(WorkflowTimeline timeline, WorkflowTimeline.NodeSpan span) {
+        Timer.builder("workflow.node.duration")
+                .description("工作流节点单次执行耗时")
+                .tag("workflow", timeline.getWorkflow())
+                .tag("node", span.getNodeName())
+                .tag("outcome", span.getOutcome())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(30))
+                .register(meterRegistry)
+                .record(span.getDurationMicros(), TimeUnit.MICROSECONDS);
+        if (span.getAttempt() > 1) {
+            Counter.builder("workflow.node.retries")
+                    .description("工作流节点重复执行次数（质检失败重试）")
+                    .tag("workflow", timeline.getWorkflow())
+                    .tag("node", span.getNodeName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    void onExecutionEnd(WorkflowTimeline timeline) {
+        Timer.builder("workflow.execution")
+                .description("工作流单次执行总耗时")
+                .tag("workflow", timeline.getWorkflow())
+                .tag("outcome", timeline.getStatus())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofSeconds(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(meterRegistry)
+                .record(timeline.getDurationMicros(), TimeUnit.MICROSECONDS);
+    }
+
+    private WorkflowTimeline find(String executionId) {
+        synchronized (timelines) {
+            return timelines.get(executionId);
+        }
+    }
+
+    private static List<WorkflowTimeline.NodeSpan> sortedSpans(WorkflowTimeline timeline) {
+        List<WorkflowTimeline.NodeSpan> spans = new ArrayList<>(timeline.getSpans());
+        spans.sort(Comparator.comparingLong(WorkflowTimeline.NodeSpan::getStartOffsetMicros));
+        return spans;
+    }
+
+    private static WorkflowTimelineVO toVO(WorkflowTimeline timeline) {
+        WorkflowTimelineVO timelineVO = new WorkflowTimelineVO();
+        timelineVO.setExecutionId(timeline.getExecutionId());
+        timelineVO.setWorkflow(timeline.getWorkflow());
+        MonitorContext monitorContext = timeline.getMonitorContext();
+        if (monitorContext != null) {
+            timelineVO.setAppId(monitorContext.getAppId());
+            timelineVO.setUserId(monitorContext.getUserId());
+        }
+        timelineVO.setStartTime(timeline.getStartEpochMillis());
+        timelineVO.setDurationMillis(timeline.getDurationMicros() / 1000);
+        timelineVO.setStatus(timeline.getStatus());
+        List<WorkflowNodeSpanVO> nodes = new ArrayList<>();
+        for (WorkflowTimeline.NodeSpan span : sortedSpans(timeline)) {
+            WorkflowNodeSpanVO spanVO = new WorkflowNodeSpanVO();
+            spanVO.setNode(span.getNodeName());
+            spanVO.setAttempt(span.getAttempt());
+            spanVO.setThread(span.getThread());
+            spanVO.setStartOffsetMillis(span.getStartOffsetMicros() / 1000.0);
+            spanVO.setDurationMillis(span.getDurationMicros() / 1000.0);
+            spanVO.setOutcome(span.getOutcome());
+            spanVO.setError(span.getError());
+            spanVO.setInputTokens(span.getInputTokens());
+            spanVO.setOutputTokens(span.getOutputTokens());
+            nodes.add(spanVO);
+        }
+        timelineVO.setNodes(nodes);
+        return timelineVO;
+    }
+
+    private static Map<String, Object> metadataEvent(String name, int tid, String value) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", name);
+        event.put("ph", "M");
+        event.put("pid", 1);
+        event.put("tid", tid);
+        event.put("args", Map.of("name", Objects.requireNonNullElse(value, "unknown")));
+        return event;
+    }
+}
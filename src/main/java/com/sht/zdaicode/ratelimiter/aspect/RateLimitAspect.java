@@ -4,6 +4,7 @@ import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.model.entity.User;
 import com.sht.zdaicode.ratelimiter.annotation.RateLimit;
+import com.sht.zdaicode.ratelimiter.core.HybridRateLimiter;
 import com.sht.zdaicode.service.UserService;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,36 +13,26 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.redisson.api.RRateLimiter;
-import org.redisson.api.RateIntervalUnit;
-import org.redisson.api.RateType;
-import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.lang.reflect.Method;
-import java.time.Duration;
 
 @Aspect
 @Component
 @Slf4j
 public class RateLimitAspect {
     @Resource
-    private RedissonClient redissonClient;
+    private HybridRateLimiter hybridRateLimiter;
     @Resource
     private UserService userService;
 
     @Before("@annotation(rateLimit)")
     public void doBefore(JoinPoint point, RateLimit rateLimit) {
         String key = generateRateLimitKey(point, rateLimit);
-        // 使用Redisson的分布式限流器
-        RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
-        rateLimiter.expire(Duration.ofHours(1)); // 1 小时后过期
-        // 设置限流器参数：每个时间窗口允许的请求数和时间窗口
-        rateLimiter.trySetRate(RateType.OVERALL, rateLimit.rate(), rateLimit.rateInterval(), RateIntervalUnit.SECONDS);
-        // 尝试获取令牌，如果获取失败则限流
-        if (!rateLimiter.tryAcquire(1)) {
+        // 两级限流：优先消费本地租借的许可，不足时再向 Redis 批量租借
+        if (!hybridRateLimiter.tryAcquire(key, rateLimit.rate(), rateLimit.rateInterval())) {
             throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, rateLimit.message());
         }
     }
@@ -0,0 +1,55 @@
+package com.sht.zdaicode.ratelimiter.config;
+
+import com.sht.zdaicode.ratelimiter.core.HybridRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 两级限流配置
+ * 各节点从 Redis 限流器批量租借许可，在本地无锁令牌桶中消费；低频 key 不租借
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit.hybrid")
+@Data
+public class HybridRateLimiterConfig {
+
+    /**
+     * 精度系数：单个节点最多预占 rate * accuracy 个许可（向下取整，至少 1）
+     * 预占的许可在 Redis 中已计入消耗，因此全局速率不会超限，误差只体现为其他节点可能提前被拒绝
+     */
+    private double accuracy = 0.1;
+
+    /**
+     * 单次租借的最大许可数
+     */
+    private int maxLeaseBatch = 50;
+
+    /**
+     * 最小租借批量：计算出的批量低于该值时不租借，每个请求直接访问一次 Redis（如 5 次/分钟的接口）
+     */
+    private int minLeaseBatch = 5;
+
+    /**
+     * Redis 限流器 key 的过期时间（秒），最后一次访问后开始计算
+     */
+    private long keyTtlSeconds = 3600;
+
+    /**
+     * 刷新 Redis 限流器过期时间的最小间隔（秒）
+     */
+    private long expireRefreshSeconds = 300;
+
+    /**
+     * 本地限流状态的最大 key 数（用户、IP 维度的 key 数量可能很大）
+     */
+    private long localMaximumKeys = 100000;
+
+    @Bean
+    public HybridRateLimiter hybridRateLimiter(RedissonClient redissonClient, MeterRegistry meterRegistry) {
+        return new HybridRateLimiter(redissonClient, this, meterRegistry);
+    }
+}
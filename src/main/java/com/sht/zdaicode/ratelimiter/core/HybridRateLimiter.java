@@ -0,0 +1,210 @@
+package com.sht.zdaicode.ratelimiter.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sht.zdaicode.ratelimiter.config.HybridRateLimiterConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 两级限流器
+ * 1. 每个 key 的限流参数只在首次使用时向 Redis 注册一次
+ * 2. 本地许可不足时，从 Redis 限流器一次租借一批许可（一次 Redis 调用）
+ * 3. 租借到的许可在本地通过 CAS 扣减，有效期为一个限流窗口，过期未用完的许可直接丢弃
+ * 4. 低频 key（批量小于 minLeaseBatch）不租借，每个请求只访问一次 Redis；
+ *    批量租借失败后，本窗口内改为逐个获取，拒绝请求同样只访问一次 Redis
+ * <p>
+ * 租借的许可在 Redis 中已计入消耗，全局速率不会超过配置值；
+ * 误差为单节点最多预占 leaseBatch 个许可，导致其他节点可能提前被拒绝
+ */
+@Slf4j
+public class HybridRateLimiter {
+
+    private final RedissonClient redissonClient;
+
+    private final HybridRateLimiterConfig config;
+
+    private final Cache<String, LeasedBucket> buckets;
+
+    private final Counter localHitCounter;
+
+    private final Counter leasedCounter;
+
+    private final Counter rejectedCounter;
+
+    private final Counter redisCallCounter;
+
+    public HybridRateLimiter(RedissonClient redissonClient, HybridRateLimiterConfig config, MeterRegistry meterRegistry) {
+        this.redissonClient = redissonClient;
+        this.config = config;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getLocalMaximumKeys())
+                .expireAfterAccess(Duration.ofSeconds(config.getKeyTtlSeconds()))
+                .build();
+        this.localHitCounter = requestCounter(meterRegistry, "local");
+        this.leasedCounter = requestCounter(meterRegistry, "leased");
+        this.rejectedCounter = requestCounter(meterRegistry, "rejected");
+        this.redisCallCounter = Counter.builder("ratelimit.redis.calls")
+                .description("限流器访问 Redis 的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @param key                 限流 key
+     * @param rate                每个时间窗口允许的请求数
+     * @param rateIntervalSeconds 时间窗口（秒）
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, int rate, int rateIntervalSeconds) {
+        LeasedBucket bucket = buckets.get(key, k -> new LeasedBucket(k, rate, rateIntervalSeconds));
+        if (bucket.tryAcquireLocal()) {
+            localHitCounter.increment();
+            return true;
+        }
+        return bucket.lease();
+    }
+
+    private Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ratelimit.requests")
+                .description("限流请求数，按处理方式区分")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单个 key 的本地许可桶
+     */
+    private final class LeasedBucket {
+
+        private final String key;
+
+        private final int rate;
+
+        private final int rateIntervalSeconds;
+
+        private final int leaseBatch;
+
+        private final AtomicInteger permits = new AtomicInteger(0);
+
+        private volatile long leaseExpiresAtMillis = 0;
+
+        /**
+         * 批量租借失败后，在该时间之前只逐个获取许可
+         */
+        private long singlePermitUntilMillis = 0;
+
+        private RRateLimiter rateLimiter;
+
+        private long lastExpireRefreshMillis = 0;
+
+        private LeasedBucket(String key, int rate, int rateIntervalSeconds) {
+            this.key = key;
+            this.rate = rate;
+            this.rateIntervalSeconds = rateIntervalSeconds;
+            int batch = Math.min((int) Math.floor(rate * config.getAccuracy()), config.getMaxLeaseBatch());
+            // 批量过小时租借节省的 Redis 调用有限，直接逐个获取
+            this.leaseBatch = batch >= config.getMinLeaseBatch() ? batch : 1;
+        }
+
+        /**
+         * 无锁扣减本地许可
+         */
+        private boolean tryAcquireLocal() {
+            if (System.currentTimeMillis() >= leaseExpiresAtMillis) {
+                return false;
+            }
+            while (true) {
+                int current = permits.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 本地许可耗尽：向 Redis 租借一批许可，批量不足时本窗口内退化为单个许可
+         */
+        private synchronized boolean lease() {
+            // 等锁期间可能已被其他线程租借
+            if (tryAcquireLocal()) {
+                localHitCounter.increment();
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            refreshExpireIfDue(now);
+            long windowMillis = TimeUnit.SECONDS.toMillis(rateIntervalSeconds);
+            if (leaseBatch > 1 && now >= singlePermitUntilMillis) {
+                if (acquireRemote(leaseBatch)) {
+                    permits.set(leaseBatch - 1);
+                    leaseExpiresAtMillis = now + windowMillis;
+                    leasedCounter.increment();
+                    return true;
+                }
+                // 剩余许可不足一批，本窗口内不再尝试批量租借，避免每次拒绝都访问两次 Redis
+                singlePermitUntilMillis = now + windowMillis;
+            }
+            if (acquireRemote(1)) {
+                leasedCounter.increment();
+                return true;
+            }
+            rejectedCounter.increment();
+            return false;
+        }
+
+        private boolean acquireRemote(int count) {
+            ensureRegistered();
+            try {
+                redisCallCounter.increment();
+                return rateLimiter.tryAcquire(count);
+            } catch (RedisException e) {
+                // 限流器 key 已过期被删除，重新注册后重试一次
+                log.warn("限流器 {} 状态异常，重新注册: {}", key, e.getMessage());
+                rateLimiter = null;
+                ensureRegistered();
+                redisCallCounter.increment();
+                return rateLimiter.tryAcquire(count);
+            }
+        }
+
+        private void ensureRegistered() {
+            if (rateLimiter != null) {
+                return;
+            }
+            RRateLimiter limiter = redissonClient.getRateLimiter(key);
+            redisCallCounter.increment();
+            limiter.trySetRate(RateType.OVERALL, rate, rateIntervalSeconds, RateIntervalUnit.SECONDS);
+            redisCallCounter.increment();
+            limiter.expire(Duration.ofSeconds(config.getKeyTtlSeconds()));
+            lastExpireRefreshMillis = System.currentTimeMillis();
+            rateLimiter = limiter;
+        }
+
+        /**
+         * 按最小间隔刷新 Redis 限流器过期时间，而非每次请求都刷新
+         */
+        private void refreshExpireIfDue(long now) {
+            if (rateLimiter == null
+                    || now - lastExpireRefreshMillis < TimeUnit.SECONDS.toMillis(config.getExpireRefreshSeconds())) {
+                return;
+            }
+            redisCallCounter.increment();
+            rateLimiter.expire(Duration.ofSeconds(config.getKeyTtlSeconds()));
+            lastExpireRefreshMillis = now;
+        }
+    }
+}
@@ -48,6 +48,15 @@ public interface ChatHistoryService extends IService<ChatHistory> {
      */
     int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount);
 
+    /**
+     * 确保应用的对话记忆已在 Redis 中（记忆 id 为 appId），已有时直接复用，否则从数据库加载
+     *
+     * @param appId    应用 id
+     * @param maxCount 最大加载条数
+     * @return 记忆中的消息条数
+     */
+    int ensureChatMemoryLoaded(Long appId, int maxCount);
+
     /**
      * 获取查询包装类
      *
@@ -1,5 +1,6 @@
 package com.sht.zdaicode.service;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 public interface ProjectDownloadService {
@@ -8,9 +9,11 @@ public interface ProjectDownloadService {
      *
      * @param projectPath    项目路径
      * @param downLoadFileName 下载文件名
+     * @param request        HTTP请求对象（读取 If-None-Match / Range 等条件头）
      * @param response       HTTP响应对象
      */
-    void downloadProjectAsZip(String projectPath, String downLoadFileName, HttpServletResponse response);
+    void downloadProjectAsZip(String projectPath, String downLoadFileName,
+                              HttpServletRequest request, HttpServletResponse response);
 
 
 }
@@ -1,19 +1,47 @@
 package com.sht.zdaicode.service;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.core.util.ZipUtil;
+import com.sht.zdaicode.config.ProjectDownloadConfig;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.exception.ThrowUtils;
+import com.sht.zdaicode.manager.ParallelZipWriter;
+import com.sht.zdaicode.manager.ParallelZipWriter.ZipSource;
+import com.sht.zdaicode.manager.StaticResourceServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -45,6 +73,23 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
             ".cache"
     );
 
+    @Resource
+    private ProjectDownloadConfig projectDownloadConfig;
+
+    @Resource
+    private ParallelZipWriter parallelZipWriter;
+
+    @Resource
+    private StaticResourceServer staticResourceServer;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 正在生成中的压缩包（按清单哈希），同一份代码的并发下载只压缩一次
+     */
+    private final Map<String, CompletableFuture<Path>> building = new ConcurrentHashMap<>();
+
     /**
      * 检查路径是否允许包含在压缩包中
      *
@@ -72,7 +117,8 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
 
 
     @Override
-    public void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletResponse response) {
+    public void downloadProjectAsZip(String projectPath, String downloadFileName,
+                                     HttpServletRequest request, HttpServletResponse response) {
         // 基础校验
         ThrowUtils.throwIf(StrUtil.isBlank(projectPath), ErrorCode.PARAMS_ERROR, "项目路径不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(downloadFileName), ErrorCode.PARAMS_ERROR, "下载文件名不能为空");
@@ -81,21 +127,205 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
         ThrowUtils.throwIf(!projectDir.isDirectory(), ErrorCode.PARAMS_ERROR, "指定路径不是目录");
         log.info("开始打包下载项目: {} -> {}.zip", projectPath, downloadFileName);
         // 设置 HTTP 响应头
-        response.setStatus(HttpServletResponse.SC_OK);
         response.setContentType("application/zip");
-        response.addHeader("Content-Disposition",
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
                 String.format("attachment; filename=\"%s.zip\"", downloadFileName));
-        // 定义文件过滤器
-        FileFilter filter = file -> isPathAllowed(projectDir.toPath(), file.toPath());
         try {
-            // 使用 Hutool 的 ZipUtil 直接将过滤后的目录压缩到响应输出流
-            ZipUtil.zip(response.getOutputStream(), StandardCharsets.UTF_8, false, filter, projectDir);
+            // 1. 按过滤后的文件清单（路径、大小、修改时间）计算哈希，作为压缩包缓存 key
+            Path projectRoot = projectDir.toPath().toAbsolutePath().normalize();
+            List<ZipSource> sources = collectSources(projectRoot);
+            String manifestHash = computeManifestHash(projectRoot, sources);
+            Path cacheDir = Paths.get(projectDownloadConfig.getCacheDir()).toAbsolutePath();
+            String artifactName = manifestHash + ".zip";
+            // 2. 命中缓存：直接输出磁盘文件，支持 ETag 与断点续传
+            if (Files.isRegularFile(cacheDir.resolve(artifactName))) {
+                countDownload("hit");
+                staticResourceServer.serve(cacheDir, artifactName, request, response);
+                return;
+            }
+            // 3. 未命中：第一个请求边并行压缩边输出，其余并发请求等待压缩完成后读缓存
+            CompletableFuture<Path> future = new CompletableFuture<>();
+            CompletableFuture<Path> existing = building.putIfAbsent(manifestHash, future);
+            if (existing != null) {
+                countDownload("shared");
+                existing.join();
+                staticResourceServer.serve(cacheDir, artifactName, request, response);
+                return;
+            }
+            countDownload("miss");
+            try {
+                future.complete(buildAndStream(sources, cacheDir, artifactName, response));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                building.remove(manifestHash, future);
+            }
             log.info("项目打包下载完成: {}", downloadFileName);
+        } catch (CompletionException e) {
+            log.error("项目打包下载异常", e.getCause());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "项目打包下载失败");
         } catch (Exception e) {
             log.error("项目打包下载异常", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "项目打包下载失败");
         }
     }
 
+    /**
+     * 遍历项目目录，收集允许打包的文件与目录（被忽略的目录整体跳过，不再深入遍历）
+     */
+    private List<ZipSource> collectSources(Path projectRoot) throws IOException {
+        List<ZipSource> sources = new ArrayList<>();
+        Files.walkFileTree(projectRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(projectRoot)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (!isPathAllowed(projectRoot, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                sources.add(new ZipSource(toEntryName(projectRoot, dir) + "/", dir,
+                        attrs.lastModifiedTime().toMillis(), true));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isPathAllowed(projectRoot, file)) {
+                    sources.add(new ZipSource(toEntryName(projectRoot, file), file,
+                            attrs.lastModifiedTime().toMillis(), false));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        sources.sort(Comparator.comparing(ZipSource::name));
+        return sources;
+    }
+
+    private String toEntryName(Path projectRoot, Path path) {
+        return projectRoot.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 清单哈希：项目路径 + 每个条目的名称、大小、修改时间
+     */
+    private String computeManifestHash(Path projectRoot, List<ZipSource> sources) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(projectRoot.toString().getBytes(StandardCharsets.UTF_8));
+            for (ZipSource source : sources) {
+                long size = source.directory() ? 0 : Files.size(source.path());
+                String line = "\n" + source.name() + "\0" + size + "\0" + source.lastModified();
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 并行压缩，同时写入缓存临时文件与响应；客户端中途断开时继续写完缓存文件
+     */
+    private Path buildAndStream(List<ZipSource> sources, Path cacheDir, String artifactName,
+                                HttpServletResponse response) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path target = cacheDir.resolve(artifactName);
+        Path temp = cacheDir.resolve(artifactName + "." + UUID.randomUUID() + ".tmp");
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            parallelZipWriter.write(sources, new TeeOutputStream(fileOut, response.getOutputStream()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("project.download.zip.build"));
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        evictIfNeeded(cacheDir, target);
+        return target;
+    }
+
+    /**
+     * 缓存目录超出容量时，按生成时间从旧到新删除压缩包（保留刚生成的）
+     */
+    private void evictIfNeeded(Path cacheDir, Path keep) {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            List<Path> artifacts = files
+                    .filter(path -> path.getFileName().toString().endsWith(".zip"))
+                    .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                    .toList();
+            long total = 0;
+            for (Path artifact : artifacts) {
+                total += artifact.toFile().length();
+            }
+            for (Path artifact : artifacts) {
+                if (total <= projectDownloadConfig.getMaxCacheBytes()) {
+                    break;
+                }
+                if (artifact.equals(keep)) {
+                    continue;
+                }
+                long size = artifact.toFile().length();
+                Files.deleteIfExists(artifact);
+                total -= size;
+            }
+        } catch (IOException e) {
+            log.warn("清理下载缓存失败: {}", e.getMessage());
+        }
+    }
 
+    private void countDownload(String result) {
+        meterRegistry.counter("project.download.requests", "cache", result).increment();
+    }
+
+    /**
+     * 同时写入缓存文件与客户端；客户端写失败后只写缓存文件
+     */
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final OutputStream fileOut;
+
+        private final OutputStream clientOut;
+
+        private boolean clientGone = false;
+
+        private TeeOutputStream(OutputStream fileOut, OutputStream clientOut) {
+            this.fileOut = fileOut;
+            this.clientOut = clientOut;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            fileOut.write(bytes, offset, length);
+            if (!clientGone) {
+                try {
+                    clientOut.write(bytes, offset, length);
+                } catch (IOException e) {
+                    clientGone = true;
+                    log.debug("下载客户端已断开，继续生成缓存文件: {}", e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            fileOut.flush();
+            if (!clientGone) {
+                try {
+                    clientOut.flush();
+                } catch (IOException e) {
+                    clientGone = true;
+                }
+            }
+        }
+    }
 }
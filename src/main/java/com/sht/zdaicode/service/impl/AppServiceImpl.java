@@ -10,8 +10,10 @@ import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.sht.zdaicode.ai.AiCodeGenTypeRoutingService;
 import com.sht.zdaicode.ai.AiCodeGenTypeRoutingServiceFactory;
+import com.sht.zdaicode.ai.model.message.StreamMessage;
 import com.sht.zdaicode.constant.AppConstant;
 import com.sht.zdaicode.core.AiCodeGeneratorFacade;
+import com.sht.zdaicode.core.builder.JavaProjectBuilder;
 import com.sht.zdaicode.core.builder.VueProjectBuilder;
 import com.sht.zdaicode.core.handler.StreamHandlerExecutor;
 import com.sht.zdaicode.core.handler.AgentModeStreamHandler;
@@ -20,11 +22,14 @@ import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.exception.ThrowUtils;
 import com.sht.zdaicode.langgraph4j.CodeGenConcurrentWorkflow;
+import com.sht.zdaicode.langgraph4j.FullStackCodeGenWorkflow;
+import com.sht.zdaicode.manager.BatchEntityLoader;
 import com.sht.zdaicode.model.dto.app.AppAddRequest;
 import com.sht.zdaicode.model.dto.app.AppQueryRequest;
 import com.sht.zdaicode.model.entity.App;
 import com.sht.zdaicode.mapper.AppMapper;
 import com.sht.zdaicode.model.entity.User;
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
 import com.sht.zdaicode.model.enums.ChatHistoryMessageTypeEnum;
 import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
 import com.sht.zdaicode.model.vo.AppVO;
@@ -72,6 +77,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     @Resource
     private VueProjectBuilder vueProjectBuilder;
     @Resource
+    private JavaProjectBuilder javaProjectBuilder;
+    @Resource
     private ScreenshotService screenshotService;
     @Resource
     private AiCodeGenTypeRoutingServiceFactory aiCodeGenTypeRoutingServiceFactory;
@@ -79,6 +86,12 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private AgentModeStreamHandler agentModeStreamHandler;
     @Resource
     private StructuredAgentModeStreamHandler structuredAgentModeStreamHandler;
+    @Resource
+    private CodeGenConcurrentWorkflow codeGenConcurrentWorkflow;
+    @Resource
+    private FullStackCodeGenWorkflow fullStackCodeGenWorkflow;
+    @Resource
+    private BatchEntityLoader<User> userBatchLoader;
     @Value("${code.deploy-host:http://localhost}")
     private String deployHost;
 
@@ -96,15 +109,23 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (app == null) {
             return null;
         }
+        // 关联查询用户信息（经批量加载器合并查询）
+        Long userId = app.getUserId();
+        User user = userId == null ? null : userBatchLoader.get(userId);
+        return buildAppVO(app, userService.getUserVO(user));
+    }
+
+    /**
+     * 组装应用 vo
+     *
+     * @param app    应用
+     * @param userVO 创建用户
+     * @return 应用 vo
+     */
+    private AppVO buildAppVO(App app, UserVO userVO) {
         AppVO appVO = new AppVO();
         BeanUtil.copyProperties(app, appVO);
-        // 关联查询用户信息
-        Long userId = app.getUserId();
-        if (userId != null) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVO(user);
-            appVO.setUser(userVO);
-        }
+        appVO.setUser(userVO);
         return appVO;
     }
 
@@ -123,14 +144,10 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         Set<Long> userIds = appList.stream()
                 .map(App::getUserId)
                 .collect(Collectors.toSet());
-        Map<Long, UserVO> userVOMap = userService.listByIds(userIds).stream()
-                .collect(Collectors.toMap(User::getId, userService::getUserVO));
-        return appList.stream().map(app -> {
-            AppVO appVO = getAppVO(app);
-            UserVO userVO = userVOMap.get(app.getUserId());
-            appVO.setUser(userVO);
-            return appVO;
-        }).collect(Collectors.toList());
+        Map<Long, User> userMap = userBatchLoader.getAll(userIds);
+        return appList.stream()
+                .map(app -> buildAppVO(app, userService.getUserVO(userMap.get(app.getUserId()))))
+                .collect(Collectors.toList());
     }
 
 
@@ -195,46 +212,42 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
         }
-        // 5. 设置监控上下文
-        MonitorContextHolder.setContext(
-                MonitorContext.builder()
-                        .userId(loginUser.getId().toString())
-                        .appId(appId.toString())
-                        .codeGenType(codeGenTypeEnum)
-                        .build()
-        );
-        
+        // 5. 监控上下文随流的 Reactor Context 传递；构建流时同步发起的调用（如场景路由）在作用域内执行
+        MonitorContext monitorContext = MonitorContext.builder()
+                .userId(loginUser.getId().toString())
+                .appId(appId.toString())
+                .codeGenType(codeGenTypeEnum)
+                .build();
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.open(monitorContext)) {
+            return MonitorContextHolder.write(
+                    generateCodeStream(appId, message, loginUser, codeGenTypeEnum, agent), monitorContext);
+        }
+    }
+
+    private Flux<String> generateCodeStream(Long appId, String message, User loginUser,
+                                            CodeGenTypeEnum codeGenTypeEnum, boolean agent) {
         // 6. 根据 agent 参数选择生成方式
-        Flux<String> codeStream;
         if (agent) {
             // Agent 模式：使用工作流生成代码，直接使用结构化输出处理器
             // 6.1 调用AI生成代码前,保存用户消息到数据库中
             chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
             
-            Flux<String> workflowStream;
+            Flux<StreamMessage> workflowStream;
             // 判断当前应用的代码生成类型是否属于“全栈模式”
             if (codeGenTypeEnum.getValue().contains("fullstack")) {
-                workflowStream = new com.sht.zdaicode.langgraph4j.FullStackCodeGenWorkflow().executeWorkflowWithFlux(message, appId);
+                workflowStream = fullStackCodeGenWorkflow.executeWorkflowWithFlux(message, appId);
             } else {
-                workflowStream = new com.sht.zdaicode.langgraph4j.CodeGenConcurrentWorkflow().executeWorkflowWithFlux(message, appId);
+                workflowStream = codeGenConcurrentWorkflow.executeWorkflowWithFlux(message, appId);
             }
             
-            return structuredAgentModeStreamHandler.handleStructuredAgentStream(workflowStream, appId, message, loginUser.getId())
-                    .doFinally(signalType -> {
-                        // 流结束时清理监控上下文（无论成功/失败/取消）
-                        MonitorContextHolder.clearContext();
-                    });
+            return structuredAgentModeStreamHandler.handleStructuredAgentStream(workflowStream, appId, message, loginUser.getId());
         } else {
             // 传统模式：调用 AI 生成代码（流式）
             // 6.1 调用AI生成代码前,保存用户消息到数据库中
             chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
-            codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
+            Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeMessageStream(message, codeGenTypeEnum, appId);
             // 6.2 收集AI响应的内容,并在完成后保存记录到历史对话
-            return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum)
-                    .doFinally(signalType -> {
-                        // 流结束时清理监控上下文（无论成功/失败/取消）
-                        MonitorContextHolder.clearContext();
-                    });
+            return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
         }
     }
 
@@ -324,7 +337,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             // 纯前端 Vue 项目：按需构建，避免重复打包
             File distDir = new File(sourceDirPath ,"dist");
             if (!distDir.exists()) {
-                boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath);
+                boolean buildSuccess = vueProjectBuilder.submitBuild(sourceDirPath, BuildPriorityEnum.DEPLOY).await();
                 ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败");
             }
             ThrowUtils.throwIf(!distDir.exists() , ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，未找到 dist 目录");
@@ -429,6 +442,15 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         } catch (Exception e) {
             log.error("删除应用关联的对话历史失败", e.getMessage());
         }
+        // 取消该应用仍在排队或执行的构建
+        App app = getById(appId);
+        if (app != null && app.getCodeGenType() != null) {
+            vueProjectBuilder.cancelBuild(AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + app.getCodeGenType() + "_" + appId);
+        }
+        // 全栈工程的前端（npm）与后端（Maven）构建
+        File fullStackDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, "fullstack_app_" + appId);
+        vueProjectBuilder.cancelBuild(new File(fullStackDir, "frontend").getAbsolutePath());
+        javaProjectBuilder.cancelBuild(new File(fullStackDir, "backend").getAbsolutePath());
         return super.removeById(id);
     }
 
@@ -439,8 +461,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
      * @param appUrl 应用访问URL
      */
     private void generateAppScreenshotAsync(Long appId, String appUrl) {
-        // 使用虚拟线程异步执行
-        Thread.startVirtualThread(() -> {
+        // 使用虚拟线程异步执行，带上调用方的监控上下文
+        Thread.startVirtualThread(MonitorContextHolder.wrap(() -> {
             try {
                 // 调用截图服务生成截图并上传
                 String screenshotUrl = screenshotService.generateAndUploadScreenshot(appUrl);
@@ -453,7 +475,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             } catch (Exception e) {
                 log.error("异步生成应用截图失败，appId: {}, appUrl: {}", appId, appUrl, e);
             }
-        });
+        }));
     }
 
     @Override
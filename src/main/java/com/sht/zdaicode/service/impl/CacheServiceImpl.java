@@ -41,7 +41,7 @@ public class CacheServiceImpl implements CacheService {
     @Override
     public void evictGoodAppPageCache(AppQueryRequest appQueryRequest) {
         try {
-            String cacheKey = CacheKeyUtils.generateKey(appQueryRequest);
+            String cacheKey = CacheKeyUtils.generateGoodAppPageKey(appQueryRequest);
             Objects.requireNonNull(cacheManager.getCache(GOOD_APP_CACHE_NAME)).evict(cacheKey);
             log.info("已清除指定查询条件的精选应用缓存，key: {}", cacheKey);
         } catch (Exception e) {
@@ -1,13 +1,14 @@
 package com.sht.zdaicode.service.impl;
 
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
-import com.github.xiaoymin.knife4j.core.util.CollectionUtils;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.sht.zdaicode.constant.UserConstant;
 import com.sht.zdaicode.exception.ErrorCode;
 import com.sht.zdaicode.exception.ThrowUtils;
+import com.sht.zdaicode.manager.ChatHistoryWriteBehindManager;
 import com.sht.zdaicode.model.dto.chathistory.ChatHistoryQueryRequest;
 import com.sht.zdaicode.model.entity.App;
 import com.sht.zdaicode.model.entity.ChatHistory;
@@ -16,16 +17,31 @@ import com.sht.zdaicode.model.entity.User;
 import com.sht.zdaicode.model.enums.ChatHistoryMessageTypeEnum;
 import com.sht.zdaicode.service.AppService;
 import com.sht.zdaicode.service.ChatHistoryService;
+import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 对话历史 服务层实现。
@@ -41,8 +57,56 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Lazy
     private AppService appService;
 
+    @Resource
+    private ChatHistoryWriteBehindManager chatHistoryWriteBehindManager;
+
+    @Resource
+    private RedisChatMemoryStore redisChatMemoryStore;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
     /**
-     * 添加聊天记录
+     * 对话记忆过期时间（秒），与 RedisChatMemoryStore 一致
+     */
+    @Value("${spring.data.redis.ttl:0}")
+    private long chatMemoryTtlSeconds;
+
+    /**
+     * 对话记忆加载版本标记 key 前缀
+     */
+    private static final String HYDRATION_MARKER_KEY_PREFIX = "chat_memory:hydration:";
+
+    private static final Duration HYDRATION_MARKER_TTL = Duration.ofSeconds(10);
+
+    private static final Duration HYDRATION_WAIT_TIMEOUT = Duration.ofSeconds(3);
+
+    private static final long HYDRATION_POLL_INTERVAL_MILLIS = 50;
+
+    /**
+     * 仅当版本标记仍属于当前加载时才删除
+     */
+    private static final DefaultRedisScript<Long> RELEASE_MARKER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /**
+     * 版本标记仍属于当前加载且记忆尚未被写入时，才写入记忆（一次往返内完成校验与写入）
+     * 记忆 key 与值格式与 RedisChatMemoryStore 一致：key 为 memoryId，值为消息列表 JSON，ttl 大于 0 时设置过期
+     */
+    private static final DefaultRedisScript<Long> WRITE_IF_MARKER_HELD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end "
+                    + "if redis.call('exists', KEYS[2]) == 1 then return 0 end "
+                    + "if tonumber(ARGV[3]) > 0 then redis.call('set', KEYS[2], ARGV[2], 'EX', ARGV[3]) "
+                    + "else redis.call('set', KEYS[2], ARGV[2]) end "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 添加聊天记录（异步批量写库，未写库前查询接口也可见）
      *
      * @param appId
      * @param message
@@ -61,13 +125,20 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         ChatHistoryMessageTypeEnum chatHistoryMessageTypeEnum = ChatHistoryMessageTypeEnum.getEnumByValue(messageType);
         ThrowUtils.throwIf(chatHistoryMessageTypeEnum == null, ErrorCode.PARAMS_ERROR, "消息类型不存在");
 
+        // 批量写库时不会回填数据库默认值，入队前补齐主键与时间（与数据库 datetime(3) 精度一致）
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
         ChatHistory chatHistory = ChatHistory.builder()
+                .id(IdUtil.getSnowflakeNextId())
                 .appId(appId)
                 .message(message)
                 .messageType(messageType)
                 .userId(userId)
+                .createTime(now)
+                .updateTime(now)
+                .isDelete(0)
                 .build();
-        return this.save(chatHistory);
+        chatHistoryWriteBehindManager.enqueue(chatHistory);
+        return true;
     }
 
     /**
@@ -80,6 +151,7 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     public boolean deleteByAppId(long appId) {
         // 校验参数
         ThrowUtils.throwIf(appId <= 0, ErrorCode.PARAMS_ERROR, "appId不能为空");
+        chatHistoryWriteBehindManager.discard(appId);
         QueryWrapper queryWrapper = QueryWrapper.create()
                 .eq("app_id", appId);
         return this.remove(queryWrapper);
@@ -87,37 +159,121 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
 
 
 
+    /**
+     * 加载应用的对话历史到记忆中（Redis 优先）
+     * 1. Redis 中已有该对话的记忆时直接复用，不访问数据库
+     * 2. 否则通过版本标记抢占加载权，从数据库读取后用脚本校验标记并一次性写入 Redis
+     * 3. 未抢到加载权时等待其他线程/节点加载完成
+     *
+     * @param appId      应用 id
+     * @param chatMemory 对话记忆（需基于 RedisChatMemoryStore 构建）
+     * @param maxCount   最大加载条数
+     * @return 记忆中的消息条数
+     */
     @Override
     public int loadChatHistoryToMemory(Long appId, MessageWindowChatMemory chatMemory, int maxCount) {
+        return hydrateChatMemory(appId, chatMemory.id(), maxCount);
+    }
+
+    /**
+     * 确保应用的对话记忆已在 Redis 中，无需为此单独构建 MessageWindowChatMemory
+     *
+     * @param appId    应用 id
+     * @param maxCount 最大加载条数
+     * @return 记忆中的消息条数
+     */
+    @Override
+    public int ensureChatMemoryLoaded(Long appId, int maxCount) {
+        return hydrateChatMemory(appId, appId, maxCount);
+    }
+
+    private int hydrateChatMemory(Long appId, Object memoryId, int maxCount) {
+        long startNanos = System.nanoTime();
+        String source = "error";
         try {
-            QueryWrapper queryWrapper = QueryWrapper.create()
-                    .eq(ChatHistory::getAppId, appId)
-                    .orderBy(ChatHistory::getCreateTime, false)
-                    .limit(1, maxCount);
-            List<ChatHistory> historyList = this.list(queryWrapper);
-            if (CollectionUtils.isEmpty(historyList)) {
-                return 0;
+            List<ChatMessage> cachedMessages = redisChatMemoryStore.getMessages(memoryId);
+            if (!cachedMessages.isEmpty()) {
+                source = "redis";
+                return cachedMessages.size();
             }
-            historyList = historyList.reversed();
-            int loadedCount = 0;
-            chatMemory.clear();
-            for (ChatHistory historyistory : historyList) {
-                if (ChatHistoryMessageTypeEnum.USER.getValue().equals(historyistory.getMessageType())) {
-                    chatMemory.add(UserMessage.from(historyistory.getMessage()));
-
-                } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(historyistory.getMessageType())) {
-                    chatMemory.add(AiMessage.from(historyistory.getMessage()));
+            String markerKey = HYDRATION_MARKER_KEY_PREFIX + memoryId;
+            String version = IdUtil.fastSimpleUUID();
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(markerKey, version, HYDRATION_MARKER_TTL);
+            if (!Boolean.TRUE.equals(acquired)) {
+                source = "concurrent";
+                return waitForConcurrentHydration(memoryId);
+            }
+            try {
+                // 抢到加载权后再次检查，避免检查与抢占之间已被其他节点加载
+                cachedMessages = redisChatMemoryStore.getMessages(memoryId);
+                if (!cachedMessages.isEmpty()) {
+                    source = "redis";
+                    return cachedMessages.size();
+                }
+                QueryWrapper queryWrapper = QueryWrapper.create()
+                        .eq(ChatHistory::getAppId, appId)
+                        .orderBy(ChatHistory::getCreateTime, false)
+                        .limit(1, maxCount);
+                List<ChatHistory> historyList = mergePending(appId, this.list(queryWrapper), null, maxCount);
+                List<ChatMessage> messages = new ArrayList<>(historyList.size());
+                for (ChatHistory chatHistory : historyList.reversed()) {
+                    if (ChatHistoryMessageTypeEnum.USER.getValue().equals(chatHistory.getMessageType())) {
+                        messages.add(UserMessage.from(chatHistory.getMessage()));
+                    } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(chatHistory.getMessageType())) {
+                        messages.add(AiMessage.from(chatHistory.getMessage()));
+                    }
                 }
-                loadedCount++;
+                if (messages.isEmpty()) {
+                    source = "empty";
+                    return 0;
+                }
+                // 版本标记已过期并被其他加载接管、或记忆已被写入时放弃写入，避免覆盖对方结果
+                Long written = stringRedisTemplate.execute(WRITE_IF_MARKER_HELD_SCRIPT,
+                        List.of(markerKey, memoryId.toString()), version,
+                        ChatMessageSerializer.messagesToJson(messages), String.valueOf(chatMemoryTtlSeconds));
+                if (!Long.valueOf(1).equals(written)) {
+                    source = "concurrent";
+                    return redisChatMemoryStore.getMessages(memoryId).size();
+                }
+                source = "mysql";
+                log.info("从数据库加载{}条对话历史", messages.size());
+                return messages.size();
+            } finally {
+                stringRedisTemplate.execute(RELEASE_MARKER_SCRIPT, List.of(markerKey), version);
             }
-            log.info("加载{}条对话历史", loadedCount);
-            return loadedCount;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             return 0;
+        } finally {
+            Timer.builder("chat.memory.hydration")
+                    .description("对话记忆加载耗时，按数据来源区分")
+                    .tag("source", source)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
         }
+    }
 
-
+    /**
+     * 等待其他线程/节点完成加载
+     *
+     * @param memoryId 记忆 id
+     * @return 记忆中的消息条数，等待超时返回 0
+     */
+    private int waitForConcurrentHydration(Object memoryId) throws InterruptedException {
+        long deadline = System.nanoTime() + HYDRATION_WAIT_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(HYDRATION_POLL_INTERVAL_MILLIS);
+            List<ChatMessage> messages = redisChatMemoryStore.getMessages(memoryId);
+            if (!messages.isEmpty()) {
+                return messages.size();
+            }
+            if (Boolean.FALSE.equals(stringRedisTemplate.hasKey(HYDRATION_MARKER_KEY_PREFIX + memoryId))) {
+                return 0;
+            }
+        }
+        log.warn("等待对话记忆加载超时，memoryId: {}", memoryId);
+        return 0;
     }
 
 
@@ -188,8 +344,43 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         queryRequest.setAppId(appId);
         queryRequest.setLastCreateTime(lastCreateTime);
         QueryWrapper queryWrapper = this.getQueryWrapper(queryRequest);
-        // 查询数据
-        return this.page(Page.of(1, pageSize), queryWrapper);
+        // 查询数据，并合并尚未写库的消息
+        Page<ChatHistory> page = this.page(Page.of(1, pageSize), queryWrapper);
+        List<ChatHistory> records = mergePending(appId, page.getRecords(), lastCreateTime, pageSize);
+        page.setTotalRow(page.getTotalRow() + records.size() - page.getRecords().size());
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 将尚未写库的消息合并到数据库查询结果中（按创建时间降序，按 id 去重）
+     *
+     * @param appId          应用 id
+     * @param dbRecords      数据库查询结果（按创建时间降序）
+     * @param lastCreateTime 游标
+     * @param limit          最多返回条数
+     * @return 合并后的结果
+     */
+    private List<ChatHistory> mergePending(Long appId, List<ChatHistory> dbRecords,
+                                           LocalDateTime lastCreateTime, int limit) {
+        List<ChatHistory> pending = chatHistoryWriteBehindManager.listPending(appId, lastCreateTime);
+        if (pending.isEmpty()) {
+            return dbRecords;
+        }
+        Set<Long> ids = new HashSet<>();
+        List<ChatHistory> merged = new ArrayList<>(dbRecords.size() + pending.size());
+        for (ChatHistory chatHistory : dbRecords) {
+            if (ids.add(chatHistory.getId())) {
+                merged.add(chatHistory);
+            }
+        }
+        for (ChatHistory chatHistory : pending) {
+            if (ids.add(chatHistory.getId())) {
+                merged.add(chatHistory);
+            }
+        }
+        merged.sort(Comparator.comparing(ChatHistory::getCreateTime).reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
     }
 
 
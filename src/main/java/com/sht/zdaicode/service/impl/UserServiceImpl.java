@@ -7,6 +7,7 @@ import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.sht.zdaicode.exception.BusinessException;
 import com.sht.zdaicode.exception.ErrorCode;
+import com.sht.zdaicode.manager.BatchEntityLoader;
 import com.sht.zdaicode.model.dto.user.UserQueryRequest;
 import com.sht.zdaicode.model.entity.User;
 import com.sht.zdaicode.mapper.UserMapper;
@@ -14,10 +15,12 @@ import com.sht.zdaicode.model.enums.UserRoleEnum;
 import com.sht.zdaicode.model.vo.LoginUserVO;
 import com.sht.zdaicode.model.vo.UserVO;
 import com.sht.zdaicode.service.UserService;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +34,9 @@ import static com.sht.zdaicode.constant.UserConstant.USER_LOGIN_STATE;
 @Service
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
 
+    @Resource
+    private BatchEntityLoader<User> userBatchLoader;
+
     /**
      * 用户注册
      *
@@ -153,6 +159,28 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     }
 
 
+    /**
+     * 更新用户后使批量加载器中的缓存失效
+     */
+    @Override
+    public boolean updateById(User entity) {
+        boolean result = super.updateById(entity);
+        userBatchLoader.invalidate(entity.getId());
+        return result;
+    }
+
+    /**
+     * 删除用户后使批量加载器中的缓存失效
+     */
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (id instanceof Long userId) {
+            userBatchLoader.invalidate(userId);
+        }
+        return result;
+    }
+
     /**
      * 获取脱敏后的用户信息
      *
@@ -180,6 +208,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         if(CollUtil.isEmpty(userList)){
             return new ArrayList<>();
         }
+        // 分页结果已是最新数据，写入批量加载器供随后的 VO 组装复用
+        userList.forEach(userBatchLoader::prime);
         return userList.stream()
                 .map(this::getUserVO)
                 .collect(Collectors.toList());
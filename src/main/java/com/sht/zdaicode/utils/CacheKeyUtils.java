@@ -2,6 +2,7 @@ package com.sht.zdaicode.utils;
 
 import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.json.JSONUtil;
+import com.sht.zdaicode.model.dto.app.AppQueryRequest;
 
 /**
  * 缓存 key 生成工具类
@@ -10,6 +11,16 @@ import cn.hutool.json.JSONUtil;
  */
 public class CacheKeyUtils {
 
+    /**
+     * 字段分隔符
+     */
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 结构化 key 超过该长度时退化为 MD5，避免超长查询条件撑大 key
+     */
+    private static final int MAX_PLAIN_KEY_LENGTH = 200;
+
     /**
      * 根据对象生成缓存key (JSON + MD5)
      *
@@ -24,4 +35,60 @@ public class CacheKeyUtils {
         String jsonStr = JSONUtil.toJsonStr(obj);
         return DigestUtil.md5Hex(jsonStr);
     }
+
+    /**
+     * 根据精选应用查询条件生成结构化缓存 key
+     * 按固定字段顺序直接拼接，无需 JSON 序列化与摘要计算
+     *
+     * @param request 查询条件
+     * @return 缓存 key
+     */
+    public static String generateGoodAppPageKey(AppQueryRequest request) {
+        if (request == null) {
+            return "null";
+        }
+        return joinKey(
+                request.getPageNum(),
+                request.getPageSize(),
+                request.getSortField(),
+                request.getSortOrder(),
+                request.getId(),
+                request.getAppName(),
+                request.getCover(),
+                request.getInitPrompt(),
+                request.getCodeGenType(),
+                request.getDeployKey(),
+                request.getPriority(),
+                request.getUserId()
+        );
+    }
+
+    /**
+     * 按顺序拼接字段，null 与空字符串区分，字段内的分隔符与转义符会被转义
+     *
+     * @param parts 字段
+     * @return 结构化 key
+     */
+    public static String joinKey(Object... parts) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            Object part = parts[i];
+            if (part == null) {
+                sb.append('~');
+                continue;
+            }
+            String value = part.toString();
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == SEPARATOR || c == '\\' || c == '~') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+        }
+        return sb.length() > MAX_PLAIN_KEY_LENGTH ? DigestUtil.md5Hex(sb.toString()) : sb.toString();
+    }
 }
@@ -8,6 +8,7 @@ import dev.langchain4j.model.chat.Capability;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.ChatModelListenerUtils;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.StreamingChatModelListener;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.request.ChatRequestParameters;
 import dev.langchain4j.model.chat.request.DefaultChatRequestParameters;
@@ -50,11 +51,13 @@ public interface StreamingChatModel {
 
             @Override
             public void onPartialResponse(String partialResponse) {
+                onPartial(partialResponse, attributes, listeners);
                 handler.onPartialResponse(partialResponse);
             }
 
             @Override
             public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+                onPartial(partialToolExecutionRequest.arguments(), attributes, listeners);
                 handler.onPartialToolExecutionRequest(index, partialToolExecutionRequest);
             }
 
@@ -80,6 +83,20 @@ public interface StreamingChatModel {
         doChat(finalChatRequest, observingHandler);
     }
 
+    private static void onPartial(String partialResponse,
+                                  Map<Object, Object> attributes,
+                                  List<ChatModelListener> listeners) {
+        for (ChatModelListener listener : listeners) {
+            if (listener instanceof StreamingChatModelListener streamingListener) {
+                try {
+                    streamingListener.onPartialResponse(partialResponse, attributes);
+                } catch (Exception ignored) {
+                    // listeners must not break the stream
+                }
+            }
+        }
+    }
+
     default void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
         throw new RuntimeException("Not implemented");
     }
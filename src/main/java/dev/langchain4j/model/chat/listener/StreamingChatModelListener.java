@@ -0,0 +1,19 @@
+package dev.langchain4j.model.chat.listener;
+
+import java.util.Map;
+
+/**
+ * A {@link ChatModelListener} that is additionally notified about every streamed fragment,
+ * so that time-to-first-token and inter-token latency can be observed.
+ * <p>
+ * Called on the thread that delivers the streaming response; implementations must be fast and must not throw.
+ */
+public interface StreamingChatModelListener extends ChatModelListener {
+
+    /**
+     * @param partialResponse a streamed text fragment or a fragment of tool call arguments
+     * @param attributes      the same attributes map that was passed to {@link #onRequest(ChatModelRequestContext)}
+     */
+    default void onPartialResponse(String partialResponse, Map<Object, Object> attributes) {
+    }
+}
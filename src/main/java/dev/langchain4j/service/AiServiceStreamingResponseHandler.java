@@ -16,6 +16,8 @@ import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.output.TokenUsage;
 import dev.langchain4j.service.tool.ToolExecution;
 import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +40,8 @@ import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
 class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler {
     private static final Logger LOG = LoggerFactory.getLogger(AiServiceStreamingResponseHandler.class);
 
+    private static final ContextSnapshotFactory CONTEXT_SNAPSHOT_FACTORY = ContextSnapshotFactory.builder().build();
+
     private final ChatExecutor chatExecutor;
     private final AiServiceContext context;
     private final Object memoryId;
@@ -61,6 +65,11 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
     private final boolean hasOutputGuardrails;
     private final Set<String> failedTools = new HashSet<>();
 
+    /**
+     * 创建处理器时（发起调用的线程上）捕获的 ThreadLocal 上下文
+     */
+    private final ContextSnapshot contextSnapshot = CONTEXT_SNAPSHOT_FACTORY.captureAll();
+
     AiServiceStreamingResponseHandler(
             ChatExecutor chatExecutor,
             AiServiceContext context,
@@ -132,6 +141,13 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
      */
     @Override
     public void onCompleteResponse(ChatResponse completeResponse) {
+        // 回调发生在 HTTP 客户端线程上，恢复发起调用时的上下文，工具执行与后续模型调用都能拿到
+        try (ContextSnapshot.Scope ignored = contextSnapshot.setThreadLocals()) {
+            handleCompleteResponse(completeResponse);
+        }
+    }
+
+    private void handleCompleteResponse(ChatResponse completeResponse) {
         AiMessage aiMessage = completeResponse.aiMessage();
         addToMemory(aiMessage);
 
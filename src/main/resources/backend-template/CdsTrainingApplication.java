@@ -0,0 +1,41 @@
+package cds.training;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+/**
+ * CDS 训练应用：走一遍生成后端的典型启动路径（自动配置、内嵌 Tomcat、数据源、MyBatis-Plus），
+ * 再处理几次 JSON 请求，随后退出，由 -XX:ArchiveClassesAtExit 把加载过的类写入归档
+ * 使用独立的包名，训练 jar 出现在预览类路径上时不会被应用的组件扫描命中
+ */
+@SpringBootApplication
+@RestController
+public class CdsTrainingApplication {
+
+    @GetMapping("/cds-training")
+    public Map<String, Object> echo(@RequestParam(defaultValue = "0") long id) {
+        return Map.of("code", 0, "data", Map.of("id", id), "message", "ok");
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(CdsTrainingApplication.class, args);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        for (int i = 0; i < 3; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/cds-training?id=" + i)).build();
+            client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,69 @@
+// 常驻 Mermaid 渲染进程：启动一次无头浏览器，从 stdin 逐行读取 JSON 请求，向 stdout 逐行写出 JSON 结果
+// 请求：{"id": 1, "code": "graph TD; A-->B"}
+// 结果：{"id": 1, "svg": "<base64>"} 或 {"id": 1, "error": "..."}
+// 就绪后先输出一行 {"ready": true}
+import { execSync } from 'node:child_process';
+import { existsSync, readFileSync } from 'node:fs';
+import { createRequire } from 'node:module';
+import { join } from 'node:path';
+import { createInterface } from 'node:readline';
+import { pathToFileURL } from 'node:url';
+
+function resolveCliRoot() {
+  const candidates = [];
+  if (process.env.MERMAID_CLI_HOME) {
+    candidates.push(process.env.MERMAID_CLI_HOME);
+  }
+  candidates.push(join(execSync('npm root -g', { encoding: 'utf8' }).trim(), '@mermaid-js', 'mermaid-cli'));
+  const root = candidates.find((dir) => existsSync(join(dir, 'package.json')));
+  if (!root) {
+    throw new Error('未找到 @mermaid-js/mermaid-cli，请执行 npm install -g @mermaid-js/mermaid-cli');
+  }
+  return root;
+}
+
+async function loadModules() {
+  const cliRoot = resolveCliRoot();
+  const pkg = JSON.parse(readFileSync(join(cliRoot, 'package.json'), 'utf8'));
+  let entry = pkg.exports ?? pkg.main ?? 'src/index.js';
+  if (typeof entry === 'object') {
+    entry = entry['.'] ?? entry;
+    entry = typeof entry === 'object' ? (entry.import ?? entry.default) : entry;
+  }
+  const cli = await import(pathToFileURL(join(cliRoot, entry)).href);
+  const require = createRequire(join(cliRoot, 'package.json'));
+  const puppeteer = await import(pathToFileURL(require.resolve('puppeteer')).href);
+  return { renderMermaid: cli.renderMermaid, puppeteer: puppeteer.default ?? puppeteer };
+}
+
+function write(message) {
+  process.stdout.write(JSON.stringify(message) + '\n');
+}
+
+const { renderMermaid, puppeteer } = await loadModules();
+const browser = await puppeteer.launch({
+  headless: 'shell',
+  args: ['--no-sandbox', '--disable-setuid-sandbox', '--disable-dev-shm-usage'],
+});
+browser.on('disconnected', () => process.exit(2));
+
+const input = createInterface({ input: process.stdin, crlfDelay: Infinity });
+write({ ready: true });
+
+// 父进程保证同一时刻只有一个请求，这里按顺序处理
+for await (const line of input) {
+  if (!line.trim()) {
+    continue;
+  }
+  let id = null;
+  try {
+    const request = JSON.parse(line);
+    id = request.id;
+    const { data } = await renderMermaid(browser, request.code, 'svg', { backgroundColor: 'transparent' });
+    write({ id, svg: Buffer.from(data).toString('base64') });
+  } catch (error) {
+    write({ id, error: String(error?.message ?? error) });
+  }
+}
+
+await browser.close();
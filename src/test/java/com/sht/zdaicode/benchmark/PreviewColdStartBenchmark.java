@@ -0,0 +1,141 @@
+package com.sht.zdaicode.benchmark;
+
+import cn.hutool.core.util.StrUtil;
+import com.sht.zdaicode.config.PreviewCdsConfig;
+import com.sht.zdaicode.config.PreviewProcessConfig;
+import com.sht.zdaicode.core.builder.BuildHandle;
+import com.sht.zdaicode.core.builder.BuildScheduler;
+import com.sht.zdaicode.core.preview.PreviewCdsArchive;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预览后端冷启动基准测试：从启动 JVM 到端口可连接的耗时
+ * off：java -jar 直接启动 fat jar
+ * on：挂载共享 CDS 归档，以「公共依赖 + 应用类」类路径启动（归档不存在时先生成，需要 mvn 与网络）
+ * <p>
+ * 运行方式：mvn test-compile 后执行本类 main 方法，参数通过系统属性传入
+ * -Dpreview.jar=生成后端的 fat jar（必填）
+ * -Dpreview.cds.dir=归档目录（默认 tmp/preview_cds）
+ * -Dpreview.args=追加给预览应用的启动参数，空格分隔（如 --spring.datasource.url=...）
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PreviewColdStartBenchmark {
+
+    private static final List<String> FORWARDED_PROPERTIES = List.of("preview.jar", "preview.cds.dir", "preview.args");
+
+    @Param({"off", "on"})
+    public String cds;
+
+    private PreviewProcessConfig processConfig;
+
+    private String jarPath;
+
+    private List<String> launchArgs;
+
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        jarPath = System.getProperty("preview.jar");
+        if (StrUtil.isBlank(jarPath)) {
+            throw new IllegalStateException("请通过 -Dpreview.jar 指定生成后端的 fat jar");
+        }
+        processConfig = new PreviewProcessConfig();
+        if (!"on".equals(cds)) {
+            launchArgs = List.of("-jar", jarPath);
+            return;
+        }
+        PreviewCdsConfig cdsConfig = new PreviewCdsConfig();
+        cdsConfig.setArchiveDir(System.getProperty("preview.cds.dir", cdsConfig.getArchiveDir()));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BuildScheduler buildScheduler = new BuildScheduler(1, 1, meterRegistry);
+        try {
+            PreviewCdsArchive archive = new PreviewCdsArchive(cdsConfig, processConfig, buildScheduler, meterRegistry);
+            BuildHandle generation = archive.prepare();
+            if (generation != null && !generation.await()) {
+                throw new IllegalStateException("CDS 归档生成失败，详见归档目录下的日志");
+            }
+            launchArgs = archive.launchArgs(jarPath);
+            if (launchArgs == null) {
+                throw new IllegalStateException("预览 jar 的依赖与 CDS 公共依赖不一致，无法挂载归档");
+            }
+        } finally {
+            buildScheduler.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int coldStart() throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(processConfig.resolveJavaExecutable());
+        command.add("-Xmx" + processConfig.getMaxHeapMb() + "m");
+        command.addAll(processConfig.getJvmOptions());
+        command.addAll(launchArgs);
+        command.add("--server.port=" + port);
+        String extraArgs = System.getProperty("preview.args");
+        if (StrUtil.isNotBlank(extraArgs)) {
+            command.addAll(List.of(extraArgs.trim().split("\\s+")));
+        }
+        process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("预览进程启动失败，退出码: " + process.exitValue());
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+                return port;
+            } catch (IOException e) {
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroyForcibly().waitFor();
+            process = null;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        // JMH 在独立 JVM 中执行，需要显式转发参数
+        List<String> jvmArgs = FORWARDED_PROPERTIES.stream()
+                .filter(name -> System.getProperty(name) != null)
+                .map(name -> "-D" + name + "=" + System.getProperty(name))
+                .toList();
+        Options options = new OptionsBuilder()
+                .include(PreviewColdStartBenchmark.class.getSimpleName())
+                .jvmArgsAppend(jvmArgs.toArray(String[]::new))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,156 @@
+package com.sht.zdaicode.benchmark;
+
+import com.sht.zdaicode.ratelimiter.config.HybridRateLimiterConfig;
+import com.sht.zdaicode.ratelimiter.core.HybridRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+import org.redisson.api.RedissonClient;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限流器基准测试：每个请求的 Redis 调用次数
+ * legacy：每次请求 expire + trySetRate + tryAcquire
+ * hybrid：注册一次；低频 key（如 5:60）每请求一次调用，高频 key 按批次租借许可、本地扣减
+ * <p>
+ * Redis 由计数的内存实现代替，redisCalls 计数器除以操作数即为每请求 Redis 调用次数。
+ * 运行方式：mvn test-compile 后执行本类 main 方法
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterRedisCallsBenchmark {
+
+    private static final String KEY = "rate_limit:api:AppController.chatToGenCode";
+
+    /**
+     * 限流参数：rate:rateIntervalSeconds（5:60 与 chatToGenCode 一致，1000:1 为高频接口）
+     */
+    @Param({"5:60", "1000:1"})
+    public String rateSpec;
+
+    private int rate;
+
+    private int rateInterval;
+
+    private final AtomicLong redisCalls = new AtomicLong();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private RedissonClient redissonClient;
+
+    private HybridRateLimiter hybridRateLimiter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] parts = rateSpec.split(":");
+        rate = Integer.parseInt(parts[0]);
+        rateInterval = Integer.parseInt(parts[1]);
+        redissonClient = countingRedissonClient(redisCalls);
+        hybridRateLimiter = new HybridRateLimiter(redissonClient, new HybridRateLimiterConfig(), new SimpleMeterRegistry());
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        redisCalls.set(0);
+        requests.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.printf("%n[%s] redis calls / request = %.4f%n", rateSpec,
+                requests.get() == 0 ? 0.0 : (double) redisCalls.get() / requests.get());
+    }
+
+    @Benchmark
+    public boolean legacyPerCallRedisLimiter() {
+        requests.incrementAndGet();
+        RRateLimiter rateLimiter = redissonClient.getRateLimiter(KEY + ":legacy");
+        rateLimiter.expire(Duration.ofHours(1));
+        rateLimiter.trySetRate(RateType.OVERALL, rate, rateInterval, RateIntervalUnit.SECONDS);
+        return rateLimiter.tryAcquire(1);
+    }
+
+    @Benchmark
+    public boolean hybridLeasedLimiter() {
+        requests.incrementAndGet();
+        return hybridRateLimiter.tryAcquire(KEY + ":hybrid", rate, rateInterval);
+    }
+
+    /**
+     * 计数的 RedissonClient：getRateLimiter 返回内存滑动窗口限流器，限流器上的每次方法调用计为一次 Redis 调用
+     */
+    private static RedissonClient countingRedissonClient(AtomicLong redisCalls) {
+        Map<String, RRateLimiter> limiters = new ConcurrentHashMap<>();
+        return (RedissonClient) Proxy.newProxyInstance(RedissonClient.class.getClassLoader(),
+                new Class<?>[]{RedissonClient.class},
+                (proxy, method, args) -> {
+                    if ("getRateLimiter".equals(method.getName())) {
+                        return limiters.computeIfAbsent((String) args[0], key -> countingRateLimiter(redisCalls));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static RRateLimiter countingRateLimiter(AtomicLong redisCalls) {
+        Deque<Long> acquired = new ArrayDeque<>();
+        long[] config = new long[2];
+        return (RRateLimiter) Proxy.newProxyInstance(RRateLimiter.class.getClassLoader(),
+                new Class<?>[]{RRateLimiter.class},
+                (proxy, method, args) -> {
+                    redisCalls.incrementAndGet();
+                    switch (method.getName()) {
+                        case "trySetRate" -> {
+                            if (config[0] == 0) {
+                                config[0] = ((Number) args[1]).longValue();
+                                config[1] = ((RateIntervalUnit) args[3]).toMillis(((Number) args[2]).longValue());
+                            }
+                            return true;
+                        }
+                        case "tryAcquire" -> {
+                            long permits = args == null || args.length == 0 ? 1 : ((Number) args[0]).longValue();
+                            synchronized (acquired) {
+                                long now = System.currentTimeMillis();
+                                while (!acquired.isEmpty() && now - acquired.peekFirst() >= config[1]) {
+                                    acquired.pollFirst();
+                                }
+                                if (acquired.size() + permits > config[0]) {
+                                    return false;
+                                }
+                                for (int i = 0; i < permits; i++) {
+                                    acquired.addLast(now);
+                                }
+                                return true;
+                            }
+                        }
+                        default -> {
+                            return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                        }
+                    }
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RateLimiterRedisCallsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
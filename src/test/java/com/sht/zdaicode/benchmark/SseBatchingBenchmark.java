@@ -0,0 +1,155 @@
+package com.sht.zdaicode.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sht.zdaicode.core.handler.SseMessageEncoder;
+import com.sht.zdaicode.core.handler.SseTokenBatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 合批基准测试：单个代码生成流（2000 个 token）的事件数与 CPU 耗时
+ * perToken：每个 token 一个事件，逐个序列化、写出并 flush
+ * coalesced：按 SseTokenBatcher 的合批规则（默认 50ms / 4096 字符）合并后再序列化、写出并 flush
+ * <p>
+ * token 按 tokensPerSecond 的速率带时间戳到达（不真实等待），每次 flush 写入空设备，对应一次 write 系统调用。
+ * 每轮结束打印 事件数 / 流、按该速率折算的 事件数 / 秒 / 流、CPU 微秒 / 流。
+ * 运行方式：mvn test-compile 后执行本类 main 方法
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SseBatchingBenchmark {
+
+    private static final int TOKENS_PER_STREAM = 2000;
+
+    private static final String[] TOKENS = {"<div", " class", "=\"", "card", "\">\n", "  <h2>", "{{ ", "item", ".title", " }}"};
+
+    private static final long MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final int MAX_BATCH_CHARS = 4096;
+
+    @Param({"40", "200"})
+    private int tokensPerSecond;
+
+    private ObjectWriter sseWriter;
+
+    private OutputStream connection;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private long streams;
+
+    private long events;
+
+    private long cpuNanos;
+
+    @Setup
+    public void setup() throws IOException {
+        sseWriter = new ObjectMapper().writerFor(SseMessageEncoder.SseChunk.class);
+        connection = new BufferedOutputStream(new FileOutputStream(File.separatorChar == '\\' ? "NUL" : "/dev/null"), 8192);
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        connection.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        streams = 0;
+        events = 0;
+        cpuNanos = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        double eventsPerStream = streams == 0 ? 0 : (double) events / streams;
+        double streamSeconds = (double) TOKENS_PER_STREAM / tokensPerSecond;
+        System.out.printf("%n[%d tokens/s] events / stream = %.1f, events / s / stream = %.1f, CPU us / stream = %.1f%n",
+                tokensPerSecond, eventsPerStream, eventsPerStream / streamSeconds,
+                streams == 0 ? 0.0 : cpuNanos / 1000.0 / streams);
+    }
+
+    @Benchmark
+    public long perToken() throws IOException {
+        long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+        long sent = 0;
+        for (int i = 0; i < TOKENS_PER_STREAM; i++) {
+            sent += send(TOKENS[i % TOKENS.length]);
+        }
+        finishStream(cpuStart, sent);
+        return sent;
+    }
+
+    @Benchmark
+    public long coalesced() throws IOException {
+        long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / tokensPerSecond;
+        SseTokenBatcher.Coalescer coalescer = new SseTokenBatcher.Coalescer(MAX_DELAY_NANOS, MAX_BATCH_CHARS);
+        long sent = 0;
+        // 与 SseTokenBatcher 一致：累积后最多等待 maxDelay，到期由定时任务发出
+        long deadline = -1;
+        for (int i = 0; i < TOKENS_PER_STREAM; i++) {
+            long now = i * intervalNanos;
+            if (deadline >= 0 && now >= deadline) {
+                String batch = coalescer.drain(deadline);
+                if (batch != null) {
+                    sent += send(batch);
+                }
+                deadline = -1;
+            }
+            String batch = coalescer.offer(TOKENS[i % TOKENS.length], now);
+            if (batch != null) {
+                sent += send(batch);
+            } else if (deadline < 0) {
+                deadline = now + coalescer.getMaxDelayNanos();
+            }
+        }
+        String rest = coalescer.drain(TOKENS_PER_STREAM * intervalNanos);
+        if (rest != null) {
+            sent += send(rest);
+        }
+        finishStream(cpuStart, sent);
+        return sent;
+    }
+
+    /**
+     * 一个 SSE 事件：序列化为 {"d": ...}，按 SSE 格式写出并 flush
+     */
+    private int send(String data) throws IOException {
+        String json = sseWriter.writeValueAsString(new SseMessageEncoder.SseChunk(data));
+        connection.write(("data:" + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+        connection.flush();
+        return 1;
+    }
+
+    private void finishStream(long cpuStart, long sent) {
+        cpuNanos += threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+        events += sent;
+        streams++;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SseBatchingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.sht.zdaicode.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sht.zdaicode.ai.model.message.AiResponseMessage;
+import com.sht.zdaicode.core.handler.SseMessageEncoder;
+import com.sht.zdaicode.core.handler.StreamMessageFormatter;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式消息处理基准测试：每秒可处理的 token 数
+ * legacy：生产者 Hutool 序列化 -> 处理器两次 JSONUtil.toBean -> SSE 边界 Hutool 序列化
+ * typed：生产者直接传递 StreamMessage 对象 -> 处理器模式匹配渲染 -> SSE 边界预构建 Jackson ObjectWriter 序列化一次
+ * <p>
+ * 运行方式：mvn test-compile 后执行本类 main 方法
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamMessageBenchmark {
+
+    private static final String TOKEN = "<div class=\"card\">\n  <h2>{{ item.title }}</h2>";
+
+    private ObjectWriter sseWriter;
+
+    private StreamMessageFormatter formatter;
+
+    @Setup
+    public void setup() {
+        sseWriter = new ObjectMapper().writerFor(SseMessageEncoder.SseChunk.class);
+        formatter = new StreamMessageFormatter();
+    }
+
+    @Benchmark
+    public String legacyJsonRoundTrip() {
+        // 生产者：序列化为 JSON 字符串
+        String chunk = JSONUtil.toJsonStr(new AiResponseMessage(TOKEN));
+        // 处理器：先解析类型，再解析具体消息
+        LegacyStreamMessage streamMessage = JSONUtil.toBean(chunk, LegacyStreamMessage.class);
+        String data = "";
+        if ("ai_response".equals(streamMessage.getType())) {
+            data = JSONUtil.toBean(chunk, AiResponseMessage.class).getData();
+        }
+        // SSE 边界：再次序列化
+        return JSONUtil.toJsonStr(Map.of("d", data));
+    }
+
+    @Benchmark
+    public String typedMessageChannel() throws Exception {
+        String data = formatter.format(new AiResponseMessage(TOKEN));
+        return sseWriter.writeValueAsString(new SseMessageEncoder.SseChunk(data));
+    }
+
+    /**
+     * 旧版处理器读取类型时使用的基类结构
+     */
+    @Data
+    public static class LegacyStreamMessage {
+        private String type;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(StreamMessageBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,78 @@
+package com.sht.zdaicode.core.builder;
+
+import com.sht.zdaicode.model.enums.BuildPriorityEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 构建调度器测试：取消执行中的构建后，同一 key 的新构建要等旧构建真正退出才开始
+ */
+class BuildSchedulerTest {
+
+    private final BuildScheduler buildScheduler = new BuildScheduler(2, 8, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        buildScheduler.shutdown();
+    }
+
+    @Test
+    void cancelledRunningBuildKeepsKeyUntilActionReturns() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+
+        BuildHandle first = buildScheduler.submit("vue:/app", BuildPriorityEnum.INTERACTIVE, handle -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            firstStarted.countDown();
+            // 模拟子进程被终止前仍在清理
+            releaseFirst.await(5, TimeUnit.SECONDS);
+            concurrent.decrementAndGet();
+            return false;
+        });
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        first.cancel();
+        assertFalse(first.isDone(), "执行中的构建在动作返回前不应结束");
+
+        BuildHandle second = buildScheduler.submit("vue:/app", BuildPriorityEnum.INTERACTIVE, handle -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            concurrent.decrementAndGet();
+            return true;
+        });
+        assertNotSame(first, second);
+        Thread.sleep(100);
+        assertFalse(second.isDone(), "旧构建退出前新构建不应开始");
+
+        releaseFirst.countDown();
+        assertTrue(second.await());
+        assertTrue(first.isCancelled());
+        assertFalse(first.await());
+        assertEquals(1, maxConcurrent.get());
+    }
+
+    @Test
+    void cancelledQueuedBuildNeverRuns() {
+        CountDownLatch block = new CountDownLatch(1);
+        BuildScheduler single = new BuildScheduler(1, 8, new SimpleMeterRegistry());
+        try {
+            single.submit("busy", BuildPriorityEnum.INTERACTIVE, handle -> block.await(5, TimeUnit.SECONDS));
+            AtomicInteger runs = new AtomicInteger();
+            BuildHandle queued = single.submit("queued", BuildPriorityEnum.INTERACTIVE, handle -> runs.incrementAndGet() > 0);
+            queued.cancel();
+            assertTrue(queued.isDone());
+            block.countDown();
+            assertFalse(queued.await());
+            assertEquals(0, runs.get());
+        } finally {
+            single.shutdown();
+        }
+    }
+}
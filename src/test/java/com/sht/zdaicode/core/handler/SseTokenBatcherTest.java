@@ -0,0 +1,127 @@
+package com.sht.zdaicode.core.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sht.zdaicode.config.SseStreamConfig;
+import com.sht.zdaicode.model.dto.agent.AgentProgressResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE token 合批测试：合批规则、顺序与内容完整、Agent 模式不合批、心跳
+ */
+class SseTokenBatcherTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SseStreamConfig config = new SseStreamConfig();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SseMessageEncoder sseMessageEncoder;
+
+    @BeforeEach
+    void setUp() {
+        sseMessageEncoder = new SseMessageEncoder();
+        ReflectionTestUtils.setField(sseMessageEncoder, "objectMapper", objectMapper);
+        sseMessageEncoder.init();
+    }
+
+    @Test
+    void firstTokenAfterIdleIsSentImmediatelyAndFollowersAreBatched() {
+        SseTokenBatcher.Coalescer coalescer = new SseTokenBatcher.Coalescer(50 * MS, 8);
+        assertEquals("a", coalescer.offer("a", 0));
+        assertNull(coalescer.offer("b", 10 * MS));
+        assertNull(coalescer.offer("c", 20 * MS));
+        assertEquals("bc", coalescer.drain(60 * MS));
+        // 达到字符上限立即发送
+        assertNull(coalescer.offer("defg", 70 * MS));
+        assertEquals("defghijk", coalescer.offer("hijk", 80 * MS));
+        // 空闲超过等待上限后不再等待
+        assertEquals("z", coalescer.offer("z", 500 * MS));
+        assertNull(coalescer.drain(600 * MS));
+    }
+
+    @Test
+    void batchedStreamKeepsAllContentInOrderWithFewerEvents() throws Exception {
+        config.setHeartbeatSeconds(0);
+        SseTokenBatcher batcher = new SseTokenBatcher(config, sseMessageEncoder, new SimpleMeterRegistry());
+        Flux<String> tokens = Flux.range(0, 200).map(i -> i + ",").delayElements(Duration.ofMillis(1));
+
+        List<ServerSentEvent<String>> events = batcher.toEvents(tokens).collectList().block(Duration.ofSeconds(10));
+
+        StringBuilder content = new StringBuilder();
+        for (ServerSentEvent<String> event : events) {
+            content.append(objectMapper.readValue(event.data(), SseMessageEncoder.SseChunk.class).d());
+        }
+        assertEquals(String.join("", tokens.collectList().block()), content.toString());
+        assertTrue(events.size() < 100, "事件数 " + events.size());
+    }
+
+    @Test
+    void disabledBatchingSendsOneEventPerToken() {
+        config.setBatchEnabled(false);
+        config.setHeartbeatSeconds(0);
+        SseTokenBatcher batcher = new SseTokenBatcher(config, sseMessageEncoder, new SimpleMeterRegistry());
+        List<ServerSentEvent<String>> events = batcher.toEvents(Flux.just("a", "b", "c")).collectList().block(Duration.ofSeconds(5));
+        assertEquals(3, events.size());
+    }
+
+    @Test
+    void agentModeEventsEachParseAsOneStructuredMessage() throws Exception {
+        config.setHeartbeatSeconds(0);
+        SseTokenBatcher batcher = new SseTokenBatcher(config, sseMessageEncoder, new SimpleMeterRegistry());
+        // 与 StructuredAgentModeStreamHandler 的输出一致：每个片段是一条 AgentProgressResponse JSON 加换行，快速连续到达
+        Flux<String> tokens = Flux.range(0, 20)
+                .map(i -> toAgentMessage("片段" + i))
+                .delayElements(Duration.ofMillis(1));
+
+        List<ServerSentEvent<String>> events = batcher.toEvents(tokens, false).collectList().block(Duration.ofSeconds(10));
+
+        assertEquals(20, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            // 前端约定：先解析外层 {"d": ...}，再对 d 做 JSON.parse，得到带 type 的结构化消息
+            String innerContent = objectMapper.readValue(events.get(i).data(), SseMessageEncoder.SseChunk.class).d();
+            JsonNode innerParsed = objectMapper.readTree(innerContent);
+            assertEquals("message", innerParsed.get("type").asText());
+            assertEquals("片段" + i, innerParsed.get("message").asText());
+        }
+    }
+
+    @Test
+    void idleStreamSendsHeartbeats() throws Exception {
+        config.setHeartbeatSeconds(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SseTokenBatcher batcher = new SseTokenBatcher(config, sseMessageEncoder, meterRegistry);
+        Flux<String> slowTool = Flux.concat(Flux.just("start"), Flux.just("end").delaySubscription(Duration.ofMillis(2500)));
+
+        List<ServerSentEvent<String>> events = batcher.toEvents(slowTool).collectList().block(Duration.ofSeconds(10));
+
+        assertTrue(events.stream().anyMatch(event -> "heartbeat".equals(event.comment())));
+        ServerSentEvent<String> last = events.stream().filter(event -> event.data() != null).reduce((a, b) -> b).orElseThrow();
+        assertEquals("end", objectMapper.readValue(last.data(), SseMessageEncoder.SseChunk.class).d());
+        assertTrue(meterRegistry.get("sse.stream.events").tag("type", "heartbeat").counter().count() >= 1);
+    }
+
+    private String toAgentMessage(String chunk) {
+        try {
+            return objectMapper.writeValueAsString(AgentProgressResponse.builder()
+                    .type("message")
+                    .message(chunk)
+                    .timestamp(System.currentTimeMillis())
+                    .build()) + "\n";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
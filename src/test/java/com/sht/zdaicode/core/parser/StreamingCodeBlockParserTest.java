@@ -0,0 +1,111 @@
+package com.sht.zdaicode.core.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式代码块解析器测试：围栏跨片段、未闭合代码块、语言标记单独成行
+ */
+class StreamingCodeBlockParserTest {
+
+    private final RecordingListener listener = new RecordingListener();
+
+    private final StreamingCodeBlockParser parser = new StreamingCodeBlockParser(listener);
+
+    @Test
+    void fenceSplitAcrossChunks() {
+        feed("说明\n`", "``ht", "ml\n<div>", "hi</div>\n`", "`", "`\n结束");
+        parser.finish();
+
+        assertEquals(List.of(
+                "plain:说明\n",
+                "start:html",
+                "line:html:<div>hi</div>\n",
+                "end:html",
+                "plain:结束"), listener.events);
+    }
+
+    @Test
+    void closingFenceOnLastCodeLine() {
+        feed("```css\nbody { margin: 0; }```\n");
+        parser.finish();
+
+        assertEquals(List.of(
+                "start:css",
+                "line:css:body { margin: 0; }",
+                "end:css"), listener.events);
+    }
+
+    @Test
+    void unterminatedBlockIsClosedOnFinish() {
+        feed("```js\nconsole.log(1);\nconsole.log(", "2)");
+        parser.finish();
+
+        assertEquals(List.of(
+                "start:js",
+                "line:js:console.log(1);\n",
+                "line:js:console.log(2)",
+                "end:js"), listener.events);
+        // 重复调用不再产生事件
+        parser.finish();
+        assertEquals(4, listener.events.size());
+    }
+
+    @Test
+    void languageTagOnItsOwnLine() {
+        // 开始标记与语言单独成行且分片到达，语言需大小写归一、忽略行尾空白与 \r
+        feed("```", "HTML ", "\r\n", "<p>a</p>\r\n```\r\n");
+        parser.finish();
+
+        assertEquals(List.of(
+                "start:html",
+                "line:html:<p>a</p>\n",
+                "end:html"), listener.events);
+    }
+
+    @Test
+    void fenceWithoutLanguage() {
+        feed("```\nplain code\n```\n");
+        parser.finish();
+
+        assertEquals(List.of(
+                "start:",
+                "line::plain code\n",
+                "end:"), listener.events);
+    }
+
+    private void feed(String... chunks) {
+        for (String chunk : chunks) {
+            parser.feed(chunk);
+        }
+    }
+
+    private static class RecordingListener implements StreamingCodeBlockParser.BlockListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onBlockStart(String language) {
+            events.add("start:" + language);
+        }
+
+        @Override
+        public void onBlockLine(String language, String line) {
+            events.add("line:" + language + ":" + line);
+        }
+
+        @Override
+        public void onBlockEnd(String language) {
+            events.add("end:" + language);
+        }
+
+        @Override
+        public void onPlainLine(String line) {
+            events.add("plain:" + line);
+        }
+    }
+}
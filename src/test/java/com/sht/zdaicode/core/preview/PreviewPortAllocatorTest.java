@@ -0,0 +1,42 @@
+package com.sht.zdaicode.core.preview;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预览端口分配器测试：首选端口、占用顺延、重启复用上一次的端口
+ */
+class PreviewPortAllocatorTest {
+
+    private static final int RANGE_START = 38100;
+
+    private final PreviewPortAllocator allocator = new PreviewPortAllocator(RANGE_START, RANGE_START + 10);
+
+    @Test
+    void preferredPortThenNextFree() {
+        assertEquals(RANGE_START + 3, allocator.allocate(3));
+        // 首选端口已被占用时顺延
+        assertEquals(RANGE_START + 4, allocator.allocate(13));
+        assertEquals(2, allocator.allocatedCount());
+    }
+
+    @Test
+    void restartKeepsPreviousPortInsteadOfPreferred() {
+        allocator.allocate(3);
+        int previous = allocator.allocate(13);
+        assertEquals(RANGE_START + 4, previous);
+        // 两个预览都停止后重启应用 13：首选端口已空闲，但仍回到构建时使用的端口
+        allocator.release(RANGE_START + 3);
+        allocator.release(previous);
+        assertEquals(previous, allocator.allocate(13, previous));
+    }
+
+    @Test
+    void previousPortTakenFallsBackToPreferred() {
+        int taken = allocator.allocate(5);
+        assertEquals(RANGE_START + 3, allocator.allocate(3, taken));
+        // 范围外的历史端口被忽略
+        assertEquals(RANGE_START + 7, allocator.allocate(7, RANGE_START - 1));
+    }
+}
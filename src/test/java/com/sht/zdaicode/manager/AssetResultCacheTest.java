@@ -0,0 +1,145 @@
+package com.sht.zdaicode.manager;
+
+import com.sht.zdaicode.config.AssetCacheConfig;
+import com.sht.zdaicode.langgraph4j.model.ImageResource;
+import com.sht.zdaicode.langgraph4j.model.enums.ImageCategoryEnum;
+import com.sht.zdaicode.model.enums.AssetProviderEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 素材结果缓存测试：本地桩来源 + 内存模拟 Redis，不依赖外部服务
+ */
+class AssetResultCacheTest {
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+
+    private AssetResultCache assetResultCache;
+
+    /**
+     * 本地桩来源：记录调用次数，返回一张以查询词命名的图片
+     */
+    private final AtomicInteger stubCalls = new AtomicInteger();
+
+    private final AssetResultCache.AssetProvider stubProvider = query -> {
+        stubCalls.incrementAndGet();
+        return List.of(new ImageResource(ImageCategoryEnum.CONTENT, query, "https://stub.local/" + query.strip()));
+    };
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> {
+            redis.put(invocation.getArgument(0), invocation.getArgument(1));
+            ttls.put(invocation.getArgument(0), invocation.getArgument(2));
+            return null;
+        }).when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+        assetResultCache = new AssetResultCache(new AssetCacheConfig(), stringRedisTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void repeatedQueryIsServedFromCache() {
+        List<ImageResource> first = assetResultCache.getOrLoad(AssetProviderEnum.PEXELS, "Dashboard", stubProvider);
+        List<ImageResource> second = assetResultCache.getOrLoad(AssetProviderEnum.PEXELS, "  dashboard ", stubProvider);
+        assertEquals(1, stubCalls.get());
+        assertEquals(first, second);
+        // 不同来源互不影响
+        assetResultCache.getOrLoad(AssetProviderEnum.PIXABAY_ILLUSTRATION, "dashboard", stubProvider);
+        assertEquals(2, stubCalls.get());
+    }
+
+    @Test
+    void ttlFollowsProvider() {
+        assetResultCache.getOrLoad(AssetProviderEnum.PEXELS, "login", stubProvider);
+        assetResultCache.getOrLoad(AssetProviderEnum.DASHSCOPE_LOGO, "login", stubProvider);
+        assertEquals(Duration.ofDays(7), ttls.get(assetResultCache.buildKey(AssetProviderEnum.PEXELS, "login")));
+        assertEquals(Duration.ofHours(12), ttls.get(assetResultCache.buildKey(AssetProviderEnum.DASHSCOPE_LOGO, "login")));
+    }
+
+    @Test
+    void mermaidKeyIgnoresLineEndingsButNotCase() {
+        String code = "graph TD\n  A-->B\n";
+        assertEquals(assetResultCache.buildKey(AssetProviderEnum.MERMAID, code),
+                assetResultCache.buildKey(AssetProviderEnum.MERMAID, "graph TD  \r\n  A-->B"));
+        assertNotEquals(assetResultCache.buildKey(AssetProviderEnum.MERMAID, code),
+                assetResultCache.buildKey(AssetProviderEnum.MERMAID, "graph TD\n  a-->b"));
+    }
+
+    @Test
+    void emptyResultIsNotCached() {
+        AssetResultCache.AssetProvider failing = query -> {
+            stubCalls.incrementAndGet();
+            return new ArrayList<>();
+        };
+        assetResultCache.getOrLoad(AssetProviderEnum.PEXELS, "e-commerce", failing);
+        assetResultCache.getOrLoad(AssetProviderEnum.PEXELS, "e-commerce", failing);
+        assertEquals(2, stubCalls.get());
+        assertTrue(redis.isEmpty());
+    }
+
+    @Test
+    void returnedListsAreIndependentCopies() {
+        List<ImageResource> first = assetResultCache.getOrLoad(AssetProviderEnum.MERMAID, "graph TD\nA-->B", stubProvider);
+        first.get(0).setDescription("changed");
+        List<ImageResource> second = assetResultCache.getOrLoad(AssetProviderEnum.MERMAID, "graph TD\nA-->B", stubProvider);
+        assertNotEquals("changed", second.get(0).getDescription());
+    }
+
+    @Test
+    void concurrentIdenticalLookupsAreCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AssetResultCache.AssetProvider slowProvider = query -> {
+            stubCalls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(new ImageResource(ImageCategoryEnum.ILLUSTRATION, query, "https://stub.local/slow"));
+        };
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<ImageResource>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() ->
+                        assetResultCache.getOrLoad(AssetProviderEnum.PIXABAY_VECTOR, "icon", slowProvider)));
+            }
+            // 等所有调用方进入等待后再放行桩来源
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<List<ImageResource>> result : results) {
+                assertEquals("https://stub.local/slow", result.get(5, TimeUnit.SECONDS).get(0).getUrl());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, stubCalls.get());
+    }
+}
@@ -0,0 +1,95 @@
+package com.sht.zdaicode.manager;
+
+import cn.hutool.core.io.FileUtil;
+import com.sht.zdaicode.manager.ParallelZipWriter.ZipSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行 ZIP 写出器测试：小文件并行压缩与大文件流式压缩混合时，顺序与内容可被 ZipFile / ZipInputStream 正确读出
+ */
+class ParallelZipWriterTest {
+
+    private static final long MAX_PARALLEL_ENTRY_BYTES = 1024;
+
+    private final ParallelZipWriter writer = new ParallelZipWriter(2, 6, MAX_PARALLEL_ENTRY_BYTES);
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("parallel-zip-test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+        FileUtil.del(dir.toFile());
+    }
+
+    @Test
+    void mixesParallelAndStreamedEntriesInOrder() throws IOException {
+        byte[] text = "<div>hello</div>\n".getBytes(StandardCharsets.UTF_8);
+        byte[] largeText = "body { margin: 0; }\n".repeat(2000).getBytes(StandardCharsets.UTF_8);
+        // 不可压缩的大文件（模拟图片）同样流式写出
+        byte[] largeBinary = new byte[200_000];
+        new Random(42).nextBytes(largeBinary);
+
+        List<ZipSource> sources = new ArrayList<>();
+        sources.add(new ZipSource("src/", dir, 0, true));
+        sources.add(source("src/index.html", text));
+        sources.add(source("src/style.css", largeText));
+        sources.add(source("src/logo.png", largeBinary));
+        sources.add(source("src/empty.txt", new byte[0]));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(sources, out);
+        byte[] zipBytes = out.toByteArray();
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                if (entry.getName().equals("src/style.css")) {
+                    assertArrayEquals(largeText, in.readAllBytes());
+                } else if (entry.getName().equals("src/logo.png")) {
+                    assertArrayEquals(largeBinary, in.readAllBytes());
+                }
+            }
+        }
+        assertEquals(List.of("src/", "src/index.html", "src/style.css", "src/logo.png", "src/empty.txt"), names);
+
+        Path zipPath = dir.resolve("out.zip");
+        Files.write(zipPath, zipBytes);
+        try (ZipFile zipFile = new ZipFile(zipPath.toFile())) {
+            assertArrayEquals(text, zipFile.getInputStream(zipFile.getEntry("src/index.html")).readAllBytes());
+            ZipEntry streamed = zipFile.getEntry("src/style.css");
+            assertEquals(largeText.length, streamed.getSize());
+            assertTrue(streamed.getCompressedSize() < largeText.length);
+            assertArrayEquals(largeText, zipFile.getInputStream(streamed).readAllBytes());
+            assertTrue(zipFile.getEntry("src/").isDirectory());
+        }
+    }
+
+    private ZipSource source(String name, byte[] content) throws IOException {
+        Path path = dir.resolve(name.replace('/', '_'));
+        Files.write(path, content);
+        return new ZipSource(name, path, Files.getLastModifiedTime(path).toMillis(), false);
+    }
+}
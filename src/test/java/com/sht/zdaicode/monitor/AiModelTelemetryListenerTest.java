@@ -0,0 +1,174 @@
+package com.sht.zdaicode.monitor;
+
+import com.sht.zdaicode.config.AiModelTelemetryConfig;
+import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式模型调用指标测试：本地模拟 OpenAI 兼容的流式接口，不依赖真实模型
+ */
+class AiModelTelemetryListenerTest {
+
+    private static final String MODEL = "mock-model";
+
+    private static final long CHUNK_DELAY_MILLIS = 30;
+
+    /**
+     * 三个内容片段 + 带用量（含缓存命中）的结束片段
+     */
+    private static final List<String> CHUNKS = List.of(
+            chunk("{\"role\":\"assistant\",\"content\":\"Hel\"}", null),
+            chunk("{\"content\":\"lo\"}", null),
+            chunk("{\"content\":\"!\"}", "\"finish_reason\":\"stop\""),
+            "{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"" + MODEL + "\",\"choices\":[],"
+                    + "\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":3,\"total_tokens\":123,"
+                    + "\"prompt_tokens_details\":{\"cached_tokens\":100}}}");
+
+    private HttpServer server;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private StreamingChatModel streamingChatModel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String data : CHUNKS) {
+                    sleep();
+                    out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        AiModelTelemetryConfig config = new AiModelTelemetryConfig();
+        AiModelTelemetryConfig.ModelPrice price = new AiModelTelemetryConfig.ModelPrice();
+        price.setInputPerMillion(2);
+        price.setCachedInputPerMillion(0.5);
+        price.setOutputPerMillion(8);
+        config.getPricing().put(MODEL, price);
+        streamingChatModel = OpenAiStreamingChatModel.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .apiKey("test")
+                .modelName(MODEL)
+                .listeners(List.of(new AiModelTelemetryListener(config, meterRegistry)))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void recordsLatencyTokensAndCostWithContextTags() throws Exception {
+        MonitorContext monitorContext = MonitorContext.builder()
+                .userId("42")
+                .appId("1001")
+                .codeGenType(CodeGenTypeEnum.VUE_PROJECT_CREATE)
+                .nodeName("code_generator")
+                .build();
+        ChatResponse response;
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.open(monitorContext)) {
+            response = chat();
+        }
+        assertEquals("Hello!", response.aiMessage().text());
+
+        Timer firstToken = meterRegistry.get("ai.model.first.token")
+                .tags("model", MODEL, "node", "code_generator", "code_gen_type", "vue_project_create")
+                .timer();
+        assertEquals(1, firstToken.count());
+        assertTrue(firstToken.totalTime(TimeUnit.MILLISECONDS) >= CHUNK_DELAY_MILLIS - 5);
+
+        Timer interToken = meterRegistry.get("ai.model.inter.token").tag("node", "code_generator").timer();
+        assertEquals(2, interToken.count());
+        assertTrue(interToken.max(TimeUnit.MILLISECONDS) >= CHUNK_DELAY_MILLIS - 5);
+
+        assertEquals(1, meterRegistry.get("ai.model.output.tokens.per.second").summary().count());
+        assertEquals(1, meterRegistry.get("ai.model.request").tag("outcome", "success").timer().count());
+
+        assertEquals(20, tokens("input"));
+        assertEquals(100, tokens("cached_input"));
+        assertEquals(3, tokens("output"));
+        // 20 * 2 + 100 * 0.5 + 3 * 8 = 114 元 / 百万 token
+        assertEquals(114e-6, meterRegistry.get("ai.model.cost").counter().count(), 1e-12);
+
+        // 用户、应用只以分桶出现在标签中
+        String userBucket = meterRegistry.get("ai.model.tokens").tag("type", "output").counter()
+                .getId().getTag("user_bucket");
+        assertTrue(userBucket.matches("b[0-7]"));
+    }
+
+    @Test
+    void callsOutsideWorkflowAreTaggedNone() throws Exception {
+        chat();
+        assertEquals(1, meterRegistry.get("ai.model.first.token")
+                .tags("model", MODEL, "node", "none", "code_gen_type", "none")
+                .timer().count());
+        assertEquals("none", meterRegistry.get("ai.model.tokens").tag("type", "output").counter()
+                .getId().getTag("app_bucket"));
+    }
+
+    private ChatResponse chat() throws Exception {
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        streamingChatModel.chat("hi", new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    private double tokens(String type) {
+        return meterRegistry.get("ai.model.tokens").tag("type", type).counter().count();
+    }
+
+    private static String chunk(String delta, String extra) {
+        return "{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"" + MODEL + "\","
+                + "\"choices\":[{\"index\":0,\"delta\":" + delta + (extra != null ? "," + extra : "") + "}]}";
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(CHUNK_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
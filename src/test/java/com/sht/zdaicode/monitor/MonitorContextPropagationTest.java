@@ -0,0 +1,189 @@
+package com.sht.zdaicode.monitor;
+
+import com.sht.zdaicode.config.WorkflowExecutorConfig;
+import com.sht.zdaicode.langgraph4j.executor.WorkflowExecutorManager;
+import com.sht.zdaicode.langgraph4j.state.WorkflowContext;
+import com.sht.zdaicode.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Hooks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 监控上下文跨线程传递测试：Reactor 线程切换、订阅时发起的调用、执行器任务、工作流节点、
+ * 模型回调线程上的工具执行与后续模型调用、异步虚拟线程
+ */
+class MonitorContextPropagationTest {
+
+    private static final MonitorContext CONTEXT = MonitorContext.builder()
+            .userId("42")
+            .appId("1001")
+            .codeGenType(CodeGenTypeEnum.VUE_PROJECT_CREATE)
+            .build();
+
+    @BeforeAll
+    static void enablePropagation() {
+        // 与 spring.reactor.context-propagation=auto 等效
+        Hooks.enableAutomaticContextPropagation();
+    }
+
+    @AfterAll
+    static void disablePropagation() {
+        Hooks.disableAutomaticContextPropagation();
+    }
+
+    @Test
+    void reactorOperatorsOnOtherThreadsSeeContext() {
+        List<MonitorContext> seen = MonitorContextHolder.write(
+                        Flux.range(0, 3)
+                                .publishOn(Schedulers.boundedElastic())
+                                .map(i -> MonitorContextHolder.getContext()),
+                        CONTEXT)
+                .collectList()
+                .block();
+        assertEquals(List.of(CONTEXT, CONTEXT, CONTEXT), seen);
+        assertNull(MonitorContextHolder.getContext());
+    }
+
+    @Test
+    void callsStartedOnSubscribeSeeContext() {
+        // 模型调用在 Flux.create 的回调中发起（TokenStream.start），回调在订阅时执行
+        MonitorContext seen = MonitorContextHolder.write(Flux.<MonitorContext>create(sink -> {
+            sink.next(MonitorContextHolder.getContext());
+            sink.complete();
+        }), CONTEXT).blockFirst();
+        assertEquals(CONTEXT, seen);
+        assertNull(MonitorContextHolder.getContext());
+    }
+
+    @Test
+    void executorTasksRestoreAndClearContext() throws Exception {
+        WorkflowExecutorManager executorManager = new WorkflowExecutorManager(new WorkflowExecutorConfig(), new SimpleMeterRegistry());
+        try {
+            try (MonitorContextHolder.Scope ignored = MonitorContextHolder.open(CONTEXT)) {
+                assertEquals(CONTEXT, CompletableFuture.supplyAsync(MonitorContextHolder::getContext,
+                        executorManager.getBlockingTaskExecutor()).get(5, TimeUnit.SECONDS));
+                assertEquals(CONTEXT, executorManager.getParallelNodeExecutor()
+                        .submit(() -> MonitorContextHolder.getContext()).get(5, TimeUnit.SECONDS));
+            }
+            // 复用的线程上不残留上一个任务的上下文
+            assertNull(executorManager.getParallelNodeExecutor()
+                    .submit(() -> MonitorContextHolder.getContext()).get(5, TimeUnit.SECONDS));
+        } finally {
+            executorManager.shutdown();
+        }
+    }
+
+    @Test
+    void workflowNodeSeesRequestContextAndNodeName() throws Exception {
+        AtomicReference<MonitorContext> seen = new AtomicReference<>();
+        WorkflowContext workflowContext = WorkflowContext.builder().monitorContext(CONTEXT).build();
+        MessagesState<String> state = new MessagesState<>(Map.of(WorkflowContext.WORKFLOW_CONTEXT_KEY, workflowContext));
+        var node = NodeMonitor.wrap("code_generator", node_async(s -> {
+            seen.set(MonitorContextHolder.getContext());
+            return Map.of();
+        }));
+        // 节点可能在任意线程上执行
+        Thread thread = Thread.ofPlatform().start(() -> node.apply(state).join());
+        thread.join();
+        assertEquals(CONTEXT.toBuilder().nodeName("code_generator").build(), seen.get());
+    }
+
+    @Test
+    void toolExecutionAndFollowUpCallOnCallbackThreadSeeContext() throws Exception {
+        AtomicReference<MonitorContext> toolContext = new AtomicReference<>();
+        AtomicReference<MonitorContext> followUpContext = new AtomicReference<>();
+        AtomicInteger calls = new AtomicInteger();
+        // 模拟流式模型：回调在独立线程上发生（对应 HTTP 客户端线程），第一次返回工具调用，第二次返回文本
+        StreamingChatModel model = new StreamingChatModel() {
+            @Override
+            public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+                int call = calls.incrementAndGet();
+                if (call > 1) {
+                    followUpContext.set(MonitorContextHolder.getContext());
+                }
+                Thread.ofPlatform().start(() -> {
+                    AiMessage aiMessage = call == 1
+                            ? AiMessage.from(ToolExecutionRequest.builder().id("t1").name("record").arguments("{}").build())
+                            : AiMessage.from("done");
+                    handler.onCompleteResponse(ChatResponse.builder()
+                            .aiMessage(aiMessage)
+                            .tokenUsage(new TokenUsage(1, 1))
+                            .build());
+                });
+            }
+        };
+        Assistant assistant = AiServices.builder(Assistant.class)
+                .streamingChatModel(model)
+                .tools(new RecordingTool(toolContext))
+                .build();
+
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.open(CONTEXT)) {
+            assistant.chat("hi")
+                    .onPartialResponse(partial -> {
+                    })
+                    .onCompleteResponse(future::complete)
+                    .onError(future::completeExceptionally)
+                    .start();
+        }
+        assertEquals("done", future.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(CONTEXT, toolContext.get());
+        assertEquals(CONTEXT, followUpContext.get());
+    }
+
+    @Test
+    void asyncVirtualThreadSeesContext() throws Exception {
+        AtomicReference<MonitorContext> seen = new AtomicReference<>();
+        Thread thread;
+        try (MonitorContextHolder.Scope ignored = MonitorContextHolder.open(CONTEXT)) {
+            thread = Thread.startVirtualThread(MonitorContextHolder.wrap(() -> seen.set(MonitorContextHolder.getContext())));
+        }
+        thread.join();
+        assertEquals(CONTEXT, seen.get());
+    }
+
+    public interface Assistant {
+
+        TokenStream chat(String message);
+    }
+
+    public static class RecordingTool {
+
+        private final AtomicReference<MonitorContext> seen;
+
+        RecordingTool(AtomicReference<MonitorContext> seen) {
+            this.seen = seen;
+        }
+
+        @Tool("记录当前监控上下文")
+        public String record() {
+            seen.set(MonitorContextHolder.getContext());
+            return "ok";
+        }
+    }
+}
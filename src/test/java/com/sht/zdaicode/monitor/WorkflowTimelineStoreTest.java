@@ -0,0 +1,125 @@
+package com.sht.zdaicode.monitor;
+
+import com.sht.zdaicode.config.WorkflowTimelineConfig;
+import com.sht.zdaicode.langgraph4j.state.WorkflowContext;
+import com.sht.zdaicode.model.vo.WorkflowNodeSpanVO;
+import com.sht.zdaicode.model.vo.WorkflowTimelineVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.bsc.langgraph4j.prebuilt.MessagesState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作流节点时间线测试：节点重试、执行线程、token 用量、Chrome Trace 导出、淘汰与指标
+ */
+class WorkflowTimelineStoreTest {
+
+    private static final MonitorContext CONTEXT = MonitorContext.builder().userId("42").appId("1001").build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WorkflowTimelineConfig config = new WorkflowTimelineConfig();
+
+    private WorkflowTimelineStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new WorkflowTimelineStore(config, meterRegistry);
+    }
+
+    @Test
+    void recordsRetriesThreadsAndTokenUsage() throws Exception {
+        WorkflowTimeline timeline = store.start("code_gen_concurrent", CONTEXT);
+        MessagesState<String> state = stateOf(timeline);
+        // 节点内的模型调用经监控上下文把 token 用量累加到当前节点
+        AsyncNodeAction<MessagesState<String>> generator = NodeMonitor.wrap("code_generator", node_async(s -> {
+            MonitorContextHolder.getContext().getNodeSpan().addTokenUsage(100, 20);
+            Thread.sleep(5);
+            return Map.of();
+        }));
+        runOn("node-a", generator, state);
+        runOn("node-b", generator, state);
+        timeline.finish(true);
+
+        WorkflowTimelineVO timelineVO = store.get(timeline.getExecutionId());
+        assertEquals("success", timelineVO.getStatus());
+        assertEquals("1001", timelineVO.getAppId());
+        List<WorkflowNodeSpanVO> nodes = timelineVO.getNodes();
+        assertEquals(2, nodes.size());
+        assertEquals(List.of(1, 2), nodes.stream().map(WorkflowNodeSpanVO::getAttempt).toList());
+        assertEquals(List.of("node-a", "node-b"), nodes.stream().map(WorkflowNodeSpanVO::getThread).toList());
+        assertEquals(100, nodes.get(0).getInputTokens());
+        assertEquals(20, nodes.get(1).getOutputTokens());
+        assertTrue(nodes.get(1).getStartOffsetMillis() >= nodes.get(0).getStartOffsetMillis() + nodes.get(0).getDurationMillis());
+
+        assertEquals(2, meterRegistry.get("workflow.node.duration")
+                .tags("workflow", "code_gen_concurrent", "node", "code_generator", "outcome", "success")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("workflow.node.retries").tag("node", "code_generator").counter().count());
+        assertEquals(1, meterRegistry.get("workflow.execution").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportsChromeTraceWithOneRowPerThread() throws Exception {
+        WorkflowTimeline timeline = store.start("fullstack_code_gen", CONTEXT);
+        MessagesState<String> state = stateOf(timeline);
+        runOn("worker-1", NodeMonitor.wrap("database_designer", node_async(s -> Map.of())), state);
+        runOn("worker-2", NodeMonitor.wrap("backend_generator", node_async(s -> {
+            throw new IllegalStateException("boom");
+        })), state);
+        timeline.finish(false);
+
+        List<Map<String, Object>> events = (List<Map<String, Object>>) store.toChromeTrace(timeline.getExecutionId()).get("traceEvents");
+        List<Map<String, Object>> nodeEvents = events.stream().filter(event -> "X".equals(event.get("ph"))).toList();
+        assertEquals(List.of("database_designer", "backend_generator"), nodeEvents.stream().map(event -> event.get("name")).toList());
+        assertNotEquals(nodeEvents.get(0).get("tid"), nodeEvents.get(1).get("tid"));
+        assertEquals("error", ((Map<String, Object>) nodeEvents.get(1).get("args")).get("outcome"));
+        assertEquals(2, events.stream().filter(event -> "thread_name".equals(event.get("name"))).count());
+        assertEquals(1, meterRegistry.get("workflow.node.duration").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void countsAttemptsBeyondRetainedSpansAndNamesVirtualThreads() throws Exception {
+        config.setMaxNodesPerExecution(1);
+        WorkflowTimeline timeline = store.start("code_gen_concurrent", CONTEXT);
+        timeline.startNode("code_generator").end(null);
+        timeline.startNode("code_generator").end(null);
+        WorkflowTimeline.NodeSpan[] third = new WorkflowTimeline.NodeSpan[1];
+        Thread.ofVirtual().start(() -> third[0] = timeline.startNode("code_generator")).join();
+
+        assertEquals(3, third[0].getAttempt());
+        assertTrue(third[0].getThread().startsWith("vt-"), third[0].getThread());
+        assertEquals(1, timeline.getSpans().size());
+    }
+
+    @Test
+    void keepsOnlyRecentExecutions() {
+        config.setMaxExecutions(2);
+        WorkflowTimeline first = store.start("code_gen_concurrent", CONTEXT);
+        store.start("code_gen_concurrent", CONTEXT);
+        WorkflowTimeline third = store.start("code_gen_concurrent", MonitorContext.builder().appId("2002").build());
+
+        assertNull(store.get(first.getExecutionId()));
+        assertEquals(third.getExecutionId(), store.listRecent(null, 10).get(0).getExecutionId());
+        assertEquals(1, store.listRecent("1001", 10).size());
+    }
+
+    private static MessagesState<String> stateOf(WorkflowTimeline timeline) {
+        WorkflowContext workflowContext = WorkflowContext.builder().monitorContext(CONTEXT).timeline(timeline).build();
+        return new MessagesState<>(Map.of(WorkflowContext.WORKFLOW_CONTEXT_KEY, workflowContext));
+    }
+
+    private static void runOn(String threadName, AsyncNodeAction<MessagesState<String>> node,
+                              MessagesState<String> state) throws InterruptedException {
+        Thread thread = Thread.ofPlatform().name(threadName).start(() -> node.apply(state).exceptionally(e -> Map.of()).join());
+        thread.join();
+    }
+}